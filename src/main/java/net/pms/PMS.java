@@ -56,7 +56,9 @@ import net.pms.configuration.RendererConfigurations;
 import net.pms.configuration.UmsConfiguration;
 import net.pms.database.MediaDatabase;
 import net.pms.database.UserDatabase;
+import net.pms.dlna.DidlFragment;
 import net.pms.encoders.EngineFactory;
+import net.pms.encoders.HlsSessionManager;
 import net.pms.external.umsapi.APIUtils;
 import net.pms.external.update.AutoUpdater;
 import net.pms.gui.EConnectionState;
@@ -83,6 +85,7 @@ import net.pms.service.Services;
 import net.pms.store.MediaInfoStore;
 import net.pms.store.MediaScanner;
 import net.pms.store.MediaStatusStore;
+import net.pms.store.StoreContainer;
 import net.pms.store.ThumbnailStore;
 import net.pms.store.container.CodeEnter;
 import net.pms.swing.LanguageSelection;
@@ -328,6 +331,10 @@ public class PMS {
 
 		umsConfiguration.addConfigurationListener((ConfigurationEvent event) -> {
 			if (!event.isBeforeUpdate()) {
+				// most settings change the DIDL-Lite of some items
+				DidlFragment.invalidateAll();
+				// and some change the order or the compatibility of children
+				StoreContainer.invalidateSortedChildren();
 				if (UmsConfiguration.NEED_MEDIA_SERVER_RELOAD_FLAGS.contains(event.getPropertyName())) {
 					GuiManager.setReloadable(true);
 				} else if (UmsConfiguration.NEED_RENDERERS_RELOAD_FLAGS.contains(event.getPropertyName())) {
@@ -1096,6 +1103,7 @@ public class PMS {
 			LOGGER.debug("Shutting down all active processes");
 
 			Services.stopProcessManager();
+			HlsSessionManager.stopAll();
 			ProcessWrapperImpl.destroyCurrentProcesses();
 		} catch (InterruptedException e) {
 			LOGGER.debug("Interrupted while shutting down..");
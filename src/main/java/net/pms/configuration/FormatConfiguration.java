@@ -22,7 +22,9 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Optional;
 import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 import net.pms.encoders.EngineFactory;
@@ -174,8 +176,41 @@ public class FormatConfiguration {
 	public static final String MIMETYPE_AUTO = "MIMETYPE_AUTO";
 	public static final String UND = "und";
 
+	private static final int MAX_MATCHES = 2000;
+
 	private final ArrayList<SupportSpec> supportSpecs;
 
+	/**
+	 * The matched MIME type by media signature. A renderer configuration
+	 * gets a new instance when it is reloaded, which drops the matches.
+	 */
+	private final Map<MatchKey, Optional<String>> matches = new ConcurrentHashMap<>();
+
+	/**
+	 * Everything the "Supported" lines are matched against.
+	 */
+	private record MatchKey(
+		String container,
+		String videoCodec,
+		String audioCodec,
+		int nbAudioChannels,
+		int frequency,
+		int bitrate,
+		int framerate,
+		int videoWidth,
+		int videoHeight,
+		int videoBitDepth,
+		String videoHdrFormatInRendererFormat,
+		String videoHdrFormatCompatibilityInRendererFormat,
+		Map<String, String> extras,
+		String subsFormat,
+		boolean isExternalSubs,
+		String muxingMode,
+		RendererConfiguration renderer,
+		boolean isTsMuxeRVideoEngineActive
+	) {
+	}
+
 	private static class SupportSpec {
 		private int iMaxBitrate = Integer.MAX_VALUE;
 		private int iMaxFramerate = Integer.MAX_VALUE;
@@ -841,34 +876,64 @@ public class FormatConfiguration {
 		String muxingMode,
 		RendererConfiguration renderer
 	) {
-		String matchedMimeType = null;
+		MatchKey key = new MatchKey(
+			container,
+			videoCodec,
+			audioCodec,
+			nbAudioChannels,
+			frequency,
+			bitrate,
+			framerate,
+			videoWidth,
+			videoHeight,
+			videoBitDepth,
+			videoHdrFormatInRendererFormat,
+			videoHdrFormatCompatibilityInRendererFormat,
+			// the extras of the media may change later
+			extras != null ? new HashMap<>(extras) : null,
+			subsFormat,
+			isInternal,
+			muxingMode,
+			renderer,
+			// the HDR match depends on whether tsMuxeR can remux the file
+			videoHdrFormatInRendererFormat != null && EngineFactory.isEngineActive(TsMuxeRVideo.ID)
+		);
+		Optional<String> match = matches.get(key);
+		if (match == null) {
+			match = Optional.ofNullable(matchSupportSpecs(key));
+			if (matches.size() >= MAX_MATCHES) {
+				matches.clear();
+			}
+			matches.put(key, match);
+		}
+		return match.orElse(null);
+	}
 
+	private String matchSupportSpecs(MatchKey key) {
 		for (SupportSpec supportSpec : supportSpecs) {
 			if (supportSpec.match(
-				container,
-				videoCodec,
-				audioCodec,
-				nbAudioChannels,
-				frequency,
-				bitrate,
-				framerate,
-				videoWidth,
-				videoHeight,
-				videoBitDepth,
-				videoHdrFormatInRendererFormat,
-				videoHdrFormatCompatibilityInRendererFormat,
-				extras,
-				subsFormat,
-				isInternal,
-				muxingMode,
-				renderer
+				key.container(),
+				key.videoCodec(),
+				key.audioCodec(),
+				key.nbAudioChannels(),
+				key.frequency(),
+				key.bitrate(),
+				key.framerate(),
+				key.videoWidth(),
+				key.videoHeight(),
+				key.videoBitDepth(),
+				key.videoHdrFormatInRendererFormat(),
+				key.videoHdrFormatCompatibilityInRendererFormat(),
+				key.extras(),
+				key.subsFormat(),
+				key.isExternalSubs(),
+				key.muxingMode(),
+				key.renderer()
 			)) {
-				matchedMimeType = supportSpec.mimeType;
-				break;
+				return supportSpec.mimeType;
 			}
 		}
-
-		return matchedMimeType;
+		return null;
 	}
 
 	private static SupportSpec parseSupportLine(String line) {
@@ -154,10 +154,14 @@ public class RendererConfiguration extends BaseConfiguration {
 	public static final File NOFILE = new File("NOFILE");
 	public static final String UNKNOWN_ICON = "unknown.png";
 
-	protected Matcher sortedHeaderMatcher;
+	/**
+	 * The headers pattern, a {@link Pattern} is safe to match from concurrent
+	 * requests, unlike a shared {@link Matcher}.
+	 */
+	protected Pattern sortedHeaderPattern;
 
 	protected UmsConfiguration umsConfiguration = PMS.getConfiguration();
-	protected boolean loaded = false;
+	protected volatile boolean loaded = false;
 
 	private boolean fileless = false;
 
@@ -285,7 +289,8 @@ public class RendererConfiguration extends BaseConfiguration {
 			searchMap.put("User-Agent", getUserAgent());
 			searchMap.put(getUserAgentAdditionalHttpHeader(), getUserAgentAdditionalHttpHeaderSearch());
 			String re = searchMap.toRegex();
-			sortedHeaderMatcher = StringUtils.isNotBlank(re) ? Pattern.compile(re, Pattern.CASE_INSENSITIVE).matcher("") : null;
+			sortedHeaderPattern = StringUtils.isNotBlank(re) ? Pattern.compile(re, Pattern.CASE_INSENSITIVE) : null;
+			RendererConfigurations.clearHeadersMatches();
 
 			boolean addWatch = file != f;
 			file = f;
@@ -1496,9 +1501,9 @@ public class RendererConfiguration extends BaseConfiguration {
 	 * @return True if the pattern matches or false if no match, no headers, or no matcher.
 	 */
 	public boolean match(SortedHeaderMap headers) {
-		if (headers != null && !headers.isEmpty() && sortedHeaderMatcher != null) {
+		if (headers != null && !headers.isEmpty() && sortedHeaderPattern != null) {
 			try {
-				return sortedHeaderMatcher.reset(headers.joined()).find();
+				return sortedHeaderPattern.matcher(headers.joined()).find();
 			} catch (Exception e) {
 				return false;
 			}
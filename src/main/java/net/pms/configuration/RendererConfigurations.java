@@ -29,8 +29,11 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import net.pms.PMS;
 import net.pms.renderers.ConnectedRenderers;
 import net.pms.renderers.Renderer;
@@ -86,6 +89,39 @@ public class RendererConfigurations {
 	};
 	private static final SortedSet<RendererConfiguration> ENABLED_RENDERERS_CONFS = Collections.synchronizedSortedSet(new TreeSet<>(RENDERER_LOADING_PRIORITY_COMPARATOR));
 	private static final Map<String, ManagedPropertiesConfiguration> DEVICES_CONFS = Collections.synchronizedMap(new HashMap<>());
+	private static final int MAX_HEADERS_MATCHES = 1000;
+
+	/**
+	 * Headers that change from one request to the other and don't identify a
+	 * renderer, left out of header matching.
+	 */
+	private static final Set<String> REQUEST_HEADERS = new TreeSet<>(SortedHeaderMap.CASE_INSENSITIVE_COMPARATOR);
+	private static final Object HEADERS_MATCHES_LOCK = new Object();
+
+	/**
+	 * The header matches of the enabled configurations, rebuilt when they
+	 * change.
+	 */
+	private static volatile HeadersMatches headersMatches;
+
+	static {
+		Collections.addAll(REQUEST_HEADERS,
+			"Callback",
+			"Content-Length",
+			"Content-Range",
+			"Cookie",
+			"Date",
+			"Host",
+			"If-Modified-Since",
+			"If-None-Match",
+			"NT",
+			"Range",
+			"SID",
+			"SOAPAction",
+			"TimeSeekRange.dlna.org",
+			"Timeout"
+		);
+	}
 
 	private static RendererConfiguration defaultConf;
 	private static Renderer defaultRenderer;
@@ -116,6 +152,7 @@ public class RendererConfigurations {
 
 	private static void addRendererConfiguration(RendererConfiguration r) {
 		ENABLED_RENDERERS_CONFS.add(r);
+		clearHeadersMatches();
 	}
 
 	/**
@@ -138,20 +175,75 @@ public class RendererConfigurations {
 		return null;
 	}
 
-	public static synchronized RendererConfiguration getRendererConfigurationByHeaders(SortedHeaderMap sortedHeaders) {
+	/**
+	 * Tries to find a matching renderer configuration based on the given
+	 * request headers.
+	 *
+	 * The headers that only describe the request are not matched, and the
+	 * result is remembered for every combination of the other ones, so that
+	 * the next requests of a client, and new clients of a known model, don't
+	 * need to match all configurations.
+	 *
+	 * @param sortedHeaders The headers.
+	 * @return The matching renderer configuration or <code>null</code>
+	 */
+	public static RendererConfiguration getRendererConfigurationByHeaders(SortedHeaderMap sortedHeaders) {
 		if (PMS.getConfiguration().isRendererForceDefault()) {
 			// Force default renderer
 			RendererConfiguration r = getDefaultConf();
 			LOGGER.debug("Forcing renderer match to \"" + r.getRendererName() + "\"");
 			return r;
 		}
-		for (RendererConfiguration r : ENABLED_RENDERERS_CONFS) {
-			if (r.match(sortedHeaders)) {
-				LOGGER.debug("Matched media renderer \"" + r.getRendererName() + "\" based on headers " + sortedHeaders);
-				return r;
+		HeadersMatches matches = getHeadersMatches();
+		SortedHeaderMap searchedHeaders = new SortedHeaderMap();
+		for (Map.Entry<String, String> header : sortedHeaders.entrySet()) {
+			if (!REQUEST_HEADERS.contains(header.getKey())) {
+				searchedHeaders.put(header.getKey(), header.getValue());
 			}
 		}
-		return null;
+		String signature = searchedHeaders.toString();
+		Optional<RendererConfiguration> match = matches.bySignature.get(signature);
+		if (match == null) {
+			match = Optional.empty();
+			for (RendererConfiguration r : matches.configurations) {
+				if (r.match(searchedHeaders)) {
+					match = Optional.of(r);
+					break;
+				}
+			}
+			if (matches.bySignature.size() >= MAX_HEADERS_MATCHES) {
+				matches.bySignature.clear();
+			}
+			matches.bySignature.put(signature, match);
+		}
+		if (match.isPresent()) {
+			LOGGER.debug("Matched media renderer \"" + match.get().getRendererName() + "\" based on headers " + sortedHeaders);
+		}
+		return match.orElse(null);
+	}
+
+	private static HeadersMatches getHeadersMatches() {
+		HeadersMatches matches = headersMatches;
+		if (matches == null) {
+			synchronized (HEADERS_MATCHES_LOCK) {
+				matches = headersMatches;
+				if (matches == null) {
+					matches = new HeadersMatches(getEnabledRenderersConfigurations());
+					headersMatches = matches;
+				}
+			}
+		}
+		return matches;
+	}
+
+	/**
+	 * Forgets the header matches, when the enabled configurations or their
+	 * header patterns changed.
+	 */
+	static void clearHeadersMatches() {
+		synchronized (HEADERS_MATCHES_LOCK) {
+			headersMatches = null;
+		}
 	}
 
 	public static synchronized RendererConfiguration getRendererConfigurationByUPNPDetails(String details) {
@@ -377,6 +469,7 @@ public class RendererConfigurations {
 
 			loadConfigurations(getProfileRenderersDir(), true);
 			loadConfigurations(getRenderersDir(), false);
+			clearHeadersMatches();
 		}
 
 		LOGGER.info("Enabled " + ENABLED_RENDERERS_CONFS.size() + " configurations, listed in order of loading priority:");
@@ -526,4 +619,17 @@ public class RendererConfigurations {
 		});
 	}
 
+	/**
+	 * The enabled configurations in matching order and the matched
+	 * configuration by header signature.
+	 */
+	private static class HeadersMatches {
+		private final List<RendererConfiguration> configurations;
+		private final Map<String, Optional<RendererConfiguration>> bySignature = new ConcurrentHashMap<>();
+
+		private HeadersMatches(List<RendererConfiguration> configurations) {
+			this.configurations = configurations;
+		}
+	}
+
 }
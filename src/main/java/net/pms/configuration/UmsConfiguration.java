@@ -314,6 +314,7 @@ public class UmsConfiguration extends BaseConfiguration {
 	private static final String KEY_FLATTEN_FOLDERS = "flatten_folders";
 	private static final String KEY_FOLDER_LIMIT = "folder_limit";
 	private static final String KEY_FOLDER_NAMES_IGNORED = "folder_names_ignored";
+	private static final String KEY_FOLDER_RESOLVE_THREADS = "folder_resolve_threads";
 	private static final String KEY_FILE_EXTENSIONS_IGNORED = "file_extensions_ignored";
 	private static final String KEY_FORCE_EXTERNAL_SUBTITLES = "force_external_subtitles";
 	private static final String KEY_FORCE_TRANSCODE_FOR_EXTENSIONS = "force_transcode_for_extensions";
@@ -329,6 +330,9 @@ public class UmsConfiguration extends BaseConfiguration {
 	private static final String KEY_HIDE_EMPTY_FOLDERS = "hide_empty_folders";
 	private static final String KEY_HIDE_ENGINENAMES = "hide_enginenames";
 	private static final String KEY_HIDE_EXTENSIONS = "hide_extensions";
+	private static final String KEY_HLS_SEGMENT_CACHE_SIZE = "hls_segment_cache_size";
+	private static final String KEY_HLS_SEGMENTER = "hls_segmenter";
+	private static final String KEY_HLS_SESSION_TIMEOUT = "hls_session_timeout";
 	private static final String KEY_IGNORE_THE_WORD_A_AND_THE = "ignore_the_word_a_and_the";
 	private static final String KEY_IMAGE_THUMBNAILS_ENABLED = "image_thumbnails";
 	private static final String KEY_INFO_DB_RETRY = "infodb_retry";
@@ -404,6 +408,7 @@ public class UmsConfiguration extends BaseConfiguration {
 	private static final String KEY_ROOT_LOG_LEVEL = "log_level";
 	private static final String KEY_RUN_WIZARD = "run_wizard";
 	private static final String KEY_SCAN_SHARED_FOLDERS_ON_STARTUP = "scan_shared_folders_on_startup";
+	private static final String KEY_SCAN_THREADS = "scan_threads";
 	private static final String KEY_SCRIPT_DIR = "script_dir";
 	private static final String KEY_SEARCH_FOLDER = "search_folder";
 	private static final String KEY_SEARCH_LUCENE_USE = "search_lucene_use_engine";
@@ -436,12 +441,19 @@ public class UmsConfiguration extends BaseConfiguration {
 	private static final String KEY_SUBTITLES_CODEPAGE = "subtitles_codepage";
 	private static final String KEY_SUBTITLES_LANGUAGES = "subtitles_languages";
 	private static final String KEY_TEMP_FOLDER_PATH = "temp_directory";
+	private static final String KEY_THUMBNAIL_CACHE_SIZE = "thumbnail_cache_size";
 	private static final String KEY_THUMBNAIL_GENERATION_ENABLED = "generate_thumbnails";
 	private static final String KEY_THUMBNAIL_SEEK_POS = "thumbnail_seek_position";
 	private static final String KEY_TMDB_API_KEY = "tmdb_api_key";
 	private static final String KEY_TRANSCODE_BLOCKS_MULTIPLE_CONNECTIONS = "transcode_block_multiple_connections";
 	private static final String KEY_TRANSCODE_FOLDER_NAME = "transcode_folder_name";
 	private static final String KEY_TRANSCODE_KEEP_FIRST_CONNECTION = "transcode_keep_first_connection";
+	private static final String KEY_TRANSCODE_MAX_SESSIONS = "transcode_max_sessions";
+	private static final String KEY_TRANSCODE_BUFFER_OFF_HEAP_SIZE = "transcode_buffer_off_heap_size";
+	private static final String KEY_TRANSCODE_BUFFER_STORAGE = "transcode_buffer_storage";
+	private static final String KEY_TRANSCODE_RING_BUFFER = "transcode_ring_buffer";
+	private static final String KEY_TRANSCODE_SHARED_SESSIONS = "transcode_shared_sessions";
+	private static final String KEY_TRANSCODE_THREAD_BUDGET = "transcode_thread_budget";
 	private static final String KEY_TSMUXER_FORCEFPS = "tsmuxer_forcefps";
 	private static final String KEY_UPNP_ALIVE_DELAY = "upnp_alive_delay";
 	private static final String KEY_UPNP_CDS_WRITE = "upnp_cds_write";
@@ -2665,6 +2677,26 @@ public class UmsConfiguration extends BaseConfiguration {
 		configuration.setProperty(KEY_THUMBNAIL_SEEK_POS, value);
 	}
 
+	/**
+	 * Returns the maximum size in megabytes of the thumbnails transcoded for
+	 * the renderers that are kept in the profile directory. Default is 64.
+	 *
+	 * @return The maximum size in megabytes, 0 if they are not kept on disk.
+	 */
+	public int getThumbnailCacheSize() {
+		return Math.max(0, getInt(KEY_THUMBNAIL_CACHE_SIZE, 64));
+	}
+
+	/**
+	 * Sets the maximum size in megabytes of the thumbnails transcoded for the
+	 * renderers that are kept in the profile directory.
+	 *
+	 * @param value The maximum size in megabytes, 0 to not keep them on disk.
+	 */
+	public void setThumbnailCacheSize(int value) {
+		configuration.setProperty(KEY_THUMBNAIL_CACHE_SIZE, value);
+	}
+
 	/**
 	 * Returns true if UMS should generate thumbnails for images. Default value
 	 * is true.
@@ -3302,6 +3334,140 @@ public class UmsConfiguration extends BaseConfiguration {
 		configuration.setProperty(KEY_TRANSCODE_KEEP_FIRST_CONNECTION, value);
 	}
 
+	/**
+	 * Whether transcoder output is buffered by the signalling ring buffer
+	 * ({@link net.pms.io.RingBufferedOutputFile}) instead of the polling
+	 * {@link net.pms.io.BufferedOutputFileImpl}. Default value is true.
+	 *
+	 * @return {@code true} if the ring buffer should be used.
+	 */
+	public boolean isTranscodeRingBuffer() {
+		return getBoolean(KEY_TRANSCODE_RING_BUFFER, true);
+	}
+
+	public void setTranscodeRingBuffer(boolean value) {
+		configuration.setProperty(KEY_TRANSCODE_RING_BUFFER, value);
+	}
+
+	/**
+	 * Whether the renderers playing the same item with the same settings and
+	 * start position read the output of a single transcoding process instead
+	 * of launching one each. Default value is true.
+	 *
+	 * @return {@code true} if transcoding sessions should be shared.
+	 */
+	public boolean isTranscodeSharedSessions() {
+		return getBoolean(KEY_TRANSCODE_SHARED_SESSIONS, true);
+	}
+
+	public void setTranscodeSharedSessions(boolean value) {
+		configuration.setProperty(KEY_TRANSCODE_SHARED_SESSIONS, value);
+	}
+
+	/**
+	 * Returns the maximum number of transcodes running at the same time for
+	 * live playback. Default value is 0, no limit.
+	 *
+	 * @return The maximum number of live transcodes.
+	 */
+	public int getTranscodeMaxSessions() {
+		return Math.max(0, getInt(KEY_TRANSCODE_MAX_SESSIONS, 0));
+	}
+
+	public void setTranscodeMaxSessions(int value) {
+		configuration.setProperty(KEY_TRANSCODE_MAX_SESSIONS, Math.max(0, value));
+	}
+
+	/**
+	 * Returns the number of threads shared by the running transcodes. Default
+	 * value is the number of CPU cores.
+	 *
+	 * @return The thread budget.
+	 */
+	public int getTranscodeThreadBudget() {
+		int budget = getInt(KEY_TRANSCODE_THREAD_BUDGET, 0);
+		return budget > 0 ? budget : getNumberOfCpuCores();
+	}
+
+	public void setTranscodeThreadBudget(int value) {
+		configuration.setProperty(KEY_TRANSCODE_THREAD_BUDGET, Math.max(0, value));
+	}
+
+	/**
+	 * Returns where the transcode ring buffer is stored. Off-heap storage
+	 * keeps the Java heap flat regardless of the number of transcodes.
+	 * Default value is {@link TranscodeBufferStorage#HEAP}.
+	 *
+	 * @return The {@link TranscodeBufferStorage}.
+	 */
+	public TranscodeBufferStorage getTranscodeBufferStorage() {
+		TranscodeBufferStorage storage = TranscodeBufferStorage.typeOf(getString(KEY_TRANSCODE_BUFFER_STORAGE, null));
+		return storage != null ? storage : TranscodeBufferStorage.HEAP;
+	}
+
+	public void setTranscodeBufferStorage(TranscodeBufferStorage value) {
+		configuration.setProperty(KEY_TRANSCODE_BUFFER_STORAGE, value.toString());
+	}
+
+	/**
+	 * Returns the maximum size in megabytes of an off-heap transcode ring
+	 * buffer. What exceeds {@link #getMaxMemoryBufferSize()} is kept as a
+	 * seek-back window. The memory is only taken as the buffer fills. Default
+	 * value is 0, which keeps no seek-back window.
+	 *
+	 * @return The off-heap buffer size.
+	 */
+	public int getTranscodeBufferOffHeapSize() {
+		return Math.max(0, getInt(KEY_TRANSCODE_BUFFER_OFF_HEAP_SIZE, 0));
+	}
+
+	public void setTranscodeBufferOffHeapSize(int value) {
+		configuration.setProperty(KEY_TRANSCODE_BUFFER_OFF_HEAP_SIZE, Math.max(0, value));
+	}
+
+	/**
+	 * Whether HLS segments are produced by one long-running FFmpeg process
+	 * per item and rendition instead of one process per segment. Default
+	 * value is true.
+	 *
+	 * @return {@code true} if the persistent HLS segmenter should be used.
+	 */
+	public boolean isHlsSegmenter() {
+		return getBoolean(KEY_HLS_SEGMENTER, true);
+	}
+
+	public void setHlsSegmenter(boolean value) {
+		configuration.setProperty(KEY_HLS_SEGMENTER, value);
+	}
+
+	/**
+	 * Returns the maximum number of HLS segments kept on disk per session,
+	 * ahead of the last requested segment. Default value is 30.
+	 *
+	 * @return The segment cache size.
+	 */
+	public int getHlsSegmentCacheSize() {
+		return Math.max(2, getInt(KEY_HLS_SEGMENT_CACHE_SIZE, 30));
+	}
+
+	public void setHlsSegmentCacheSize(int value) {
+		configuration.setProperty(KEY_HLS_SEGMENT_CACHE_SIZE, value);
+	}
+
+	/**
+	 * Returns the number of seconds after which an HLS session that received
+	 * no request is stopped and its segments deleted. Default value is 60.
+	 *
+	 * @return The HLS session timeout in seconds.
+	 */
+	public int getHlsSessionTimeout() {
+		return Math.max(10, getInt(KEY_HLS_SESSION_TIMEOUT, 60));
+	}
+
+	public void setHlsSessionTimeout(int value) {
+		configuration.setProperty(KEY_HLS_SESSION_TIMEOUT, value);
+	}
+
 	public boolean isMencoderIntelligentSync() {
 		return getBoolean(KEY_MENCODER_INTELLIGENT_SYNC, true);
 	}
@@ -4365,6 +4531,22 @@ public class UmsConfiguration extends BaseConfiguration {
 		this.configuration.setProperty(UmsConfiguration.KEY_FLATTEN_FOLDERS, value);
 	}
 
+	/**
+	 * Returns the maximum number of files of a folder resolved at once when
+	 * it is discovered. Default value is 0, which means the number of cores.
+	 * Folders on rotating disks may be faster with 1.
+	 *
+	 * @return The folder resolve threads.
+	 */
+	public int getFolderResolveThreads() {
+		int value = getInt(KEY_FOLDER_RESOLVE_THREADS, 0);
+		return value > 0 ? value : Runtime.getRuntime().availableProcessors();
+	}
+
+	public void setFolderResolveThreads(int value) {
+		configuration.setProperty(KEY_FOLDER_RESOLVE_THREADS, Math.max(0, value));
+	}
+
 	public boolean isHideEmptyFolders() {
 		return getBoolean(UmsConfiguration.KEY_HIDE_EMPTY_FOLDERS, false);
 	}
@@ -4537,6 +4719,20 @@ public class UmsConfiguration extends BaseConfiguration {
 		this.configuration.setProperty(KEY_SCAN_SHARED_FOLDERS_ON_STARTUP, value);
 	}
 
+	/**
+	 * The number of folders the media scanner crawls at the same time.
+	 *
+	 * @return the number of scanner threads, the number of cores by default.
+	 */
+	public int getScanThreads() {
+		int value = getInt(KEY_SCAN_THREADS, 0);
+		return value > 0 ? value : Runtime.getRuntime().availableProcessors();
+	}
+
+	public void setScanThreads(int value) {
+		configuration.setProperty(KEY_SCAN_THREADS, Math.max(0, value));
+	}
+
 	/**
 	 * Whether to show the "Recently Played" folder on the renderer.
 	 *
@@ -5660,6 +5856,58 @@ public class UmsConfiguration extends BaseConfiguration {
 		}
 	}
 
+	/**
+	 * This {@code enum} represents where the transcode ring buffer is stored.
+	 */
+	public enum TranscodeBufferStorage {
+
+		/** A {@code byte} array on the Java heap */
+		HEAP,
+
+		/** Direct {@link java.nio.ByteBuffer}s outside of the Java heap */
+		DIRECT,
+
+		/** A memory-mapped file in the temporary folder */
+		MAPPED;
+
+		@Override
+		public String toString() {
+			switch (this) {
+				case HEAP -> {
+					return "heap";
+				}
+				case DIRECT -> {
+					return "direct";
+				}
+				case MAPPED -> {
+					return "mapped";
+				}
+				default -> throw new AssertionError("Missing implementation of TranscodeBufferStorage \"" + name() + "\"");
+			}
+		}
+
+		/**
+		 * Tries to parse the specified {@link String} and return the
+		 * corresponding {@link TranscodeBufferStorage}.
+		 *
+		 * @param storageString the {@link String} to parse.
+		 * @return The corresponding {@link TranscodeBufferStorage} or
+		 *         {@code null} if the parsing failed.
+		 */
+		public static TranscodeBufferStorage typeOf(String storageString) {
+			if (StringUtils.isBlank(storageString)) {
+				return null;
+			}
+			storageString = storageString.trim().toLowerCase(Locale.ROOT);
+			return switch (storageString) {
+				case "heap", "memory" -> HEAP;
+				case "direct", "offheap", "off-heap" -> DIRECT;
+				case "mapped", "mmap", "file" -> MAPPED;
+				default -> null;
+			};
+		}
+	}
+
 	/**
 	 * Whether to disable connection to external entities to prevent the XML External Entity vulnerability.
 	 *
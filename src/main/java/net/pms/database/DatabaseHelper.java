@@ -26,6 +26,7 @@ import java.sql.Statement;
 import java.text.MessageFormat;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -229,6 +230,7 @@ public abstract class DatabaseHelper {
 	protected static final String LIKE_STARTING_WITH_PARAMETER = STRINGENCODE_PARAMETER + " || '%'";
 	protected static final String LIKE_ENDING_WITH_PARAMETER = "'%' || " + STRINGENCODE_PARAMETER;
 	protected static final String LIKE_CONTAIN_PARAMETER = "'%' || " + LIKE_STARTING_WITH_PARAMETER;
+	protected static final String ANY_PARAMETER = "ANY(" + PARAMETER + ")";
 
 	/**
 	 * SQL COMMANDS
@@ -658,6 +660,32 @@ public abstract class DatabaseHelper {
 		}
 	}
 
+	/**
+	 * Sets an array parameter, to be used with {@link #ANY_PARAMETER} to
+	 * match a whole set of values in one query.
+	 *
+	 * @param stmt the statement.
+	 * @param index the parameter index.
+	 * @param values the values.
+	 * @throws SQLException
+	 */
+	protected static void setLongArray(PreparedStatement stmt, int index, Collection<Long> values) throws SQLException {
+		stmt.setArray(index, stmt.getConnection().createArrayOf("BIGINT", values.toArray()));
+	}
+
+	/**
+	 * Sets an array parameter, to be used with {@link #ANY_PARAMETER} to
+	 * match a whole set of values in one query.
+	 *
+	 * @param stmt the statement.
+	 * @param index the parameter index.
+	 * @param values the values.
+	 * @throws SQLException
+	 */
+	protected static void setStringArray(PreparedStatement stmt, int index, Collection<String> values) throws SQLException {
+		stmt.setArray(index, stmt.getConnection().createArrayOf("VARCHAR", values.toArray()));
+	}
+
 	protected static Double toDouble(ResultSet rs, String column) throws SQLException {
 		Object obj = rs.getObject(column);
 		if (obj instanceof Double value) {
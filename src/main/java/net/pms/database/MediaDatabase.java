@@ -122,6 +122,8 @@ public class MediaDatabase extends Database {
 				MediaTableContainerFiles.checkTable(connection);
 
 				MediaTableStoreIds.checkTable(connection);
+				MediaTableScanCheckpoint.checkTable(connection);
+				MediaTableFolderFingerprints.checkTable(connection);
 
 				// Fix broken indexes if needed. This is faster than checking each index separately and is
 				// not a problem if there are no broken indexes.
@@ -188,6 +190,8 @@ public class MediaDatabase extends Database {
 		dropTableAndConstraint(connection, MediaTableFiles.TABLE_NAME);
 		dropTableAndConstraint(connection, MediaTableMetadata.TABLE_NAME);
 		dropTableAndConstraint(connection, MediaTableRegexpRules.TABLE_NAME);
+		dropTableAndConstraint(connection, MediaTableScanCheckpoint.TABLE_NAME);
+		dropTableAndConstraint(connection, MediaTableFolderFingerprints.TABLE_NAME);
 		dropTableAndConstraint(connection, MediaTableStoreIds.TABLE_NAME);
 		dropTableAndConstraint(connection, MediaTableSubtracks.TABLE_NAME);
 		dropTableAndConstraint(connection, MediaTableVideotracks.TABLE_NAME);
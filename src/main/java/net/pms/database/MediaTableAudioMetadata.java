@@ -21,7 +21,10 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import net.pms.media.MediaInfo;
 import net.pms.media.audio.metadata.MediaAudioMetadata;
@@ -98,6 +101,7 @@ public class MediaTableAudioMetadata extends MediaTable {
 	 * SQL Queries
 	 */
 	private static final String SQL_GET_AUDIO_METADATA_BY_FILEID = SELECT_ALL + FROM + TABLE_NAME + WHERE + COL_FILEID + EQUAL + PARAMETER + LIMIT_1;
+	private static final String SQL_GET_AUDIO_METADATA_BY_FILEIDS = SELECT_ALL + FROM + TABLE_NAME + WHERE + COL_FILEID + EQUAL + ANY_PARAMETER;
 	private static final String SQL_GET_RATING_BY_MBID_TRACK = SELECT + TABLE_COL_RATING + FROM + TABLE_NAME + WHERE + COL_MBID_TRACK + EQUAL + PARAMETER + LIMIT_1;
 	private static final String SQL_UPDATE_RATING_BY_AUDIOTRACK_ID = UPDATE + TABLE_NAME + SET + COL_RATING + EQUAL + PARAMETER + WHERE + COL_AUDIOTRACK_ID + EQUAL + PARAMETER;
 	private static final String SQL_UPDATE_RATING_BY_MBID_TRACK = UPDATE + TABLE_NAME + SET + COL_RATING + EQUAL + PARAMETER + WHERE + COL_MBID_TRACK + EQUAL + PARAMETER;
@@ -265,6 +269,33 @@ public class MediaTableAudioMetadata extends MediaTable {
 		return null;
 	}
 
+	/**
+	 * Gets the audio metadata of several files in one query.
+	 *
+	 * @param connection the db connection
+	 * @param fileIds the file IDs.
+	 * @return the audio metadata by file ID, files without metadata are
+	 *         absent.
+	 */
+	public static Map<Long, MediaAudioMetadata> getAudioMetadataByFileIds(final Connection connection, final Collection<Long> fileIds) {
+		Map<Long, MediaAudioMetadata> result = new HashMap<>();
+		if (connection == null || fileIds.isEmpty()) {
+			return result;
+		}
+		try (PreparedStatement selectStatement = connection.prepareStatement(SQL_GET_AUDIO_METADATA_BY_FILEIDS)) {
+			setLongArray(selectStatement, 1, fileIds);
+			try (ResultSet rs = selectStatement.executeQuery()) {
+				while (rs.next()) {
+					result.putIfAbsent(rs.getLong(COL_FILEID), resultSetToAudioMetadata(rs));
+				}
+			}
+		} catch (SQLException e) {
+			LOGGER.error("Database error in " + TABLE_NAME + " for {} files: {}", fileIds.size(), e.getMessage());
+			LOGGER.trace("", e);
+		}
+		return result;
+	}
+
 	private static void updateAudioMetadata(ResultSet result, MediaAudioMetadata audioMetadata) throws SQLException {
 		//make sure mbid are uuids
 		if (StringUtils.isEmpty(audioMetadata.getMbidRecord())) {
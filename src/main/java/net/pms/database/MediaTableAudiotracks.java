@@ -21,7 +21,10 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import net.pms.media.MediaInfo;
 import net.pms.media.audio.MediaAudio;
 import org.apache.commons.lang3.StringUtils;
@@ -74,6 +77,7 @@ public class MediaTableAudiotracks extends MediaTable {
 	 * SQL Queries
 	 */
 	private static final String SQL_GET_ALL_FILEID = SELECT_ALL + FROM + TABLE_NAME + WHERE + TABLE_COL_FILEID + EQUAL + PARAMETER;
+	private static final String SQL_GET_ALL_FILEIDS = SELECT_ALL + FROM + TABLE_NAME + WHERE + TABLE_COL_FILEID + EQUAL + ANY_PARAMETER + ORDER_BY + TABLE_COL_FILEID + COMMA + TABLE_COL_ID;
 	private static final String SQL_GET_ALL_FILEID_ID = SQL_GET_ALL_FILEID + AND + TABLE_COL_ID + EQUAL + PARAMETER;
 	private static final String SQL_DELETE_BY_FILEID_ID_GREATER_OR_EQUAL = DELETE_FROM + TABLE_NAME + WHERE + TABLE_COL_FILEID + EQUAL + PARAMETER + AND + TABLE_COL_ID + GREATER_OR_EQUAL_THAN + PARAMETER;
 
@@ -312,6 +316,33 @@ public class MediaTableAudiotracks extends MediaTable {
 		return result;
 	}
 
+	/**
+	 * Gets the audio tracks of several files in one query.
+	 *
+	 * @param connection the db connection
+	 * @param fileIds the file IDs.
+	 * @return the audio tracks by file ID, files without tracks are absent.
+	 */
+	protected static Map<Long, List<MediaAudio>> getAudioTracks(Connection connection, Collection<Long> fileIds) {
+		Map<Long, List<MediaAudio>> result = new HashMap<>();
+		if (connection == null || fileIds.isEmpty()) {
+			return result;
+		}
+		try (PreparedStatement stmt = connection.prepareStatement(SQL_GET_ALL_FILEIDS)) {
+			setLongArray(stmt, 1, fileIds);
+			try (ResultSet elements = stmt.executeQuery()) {
+				while (elements.next()) {
+					MediaAudio audio = getAudioTrack(elements);
+					result.computeIfAbsent(elements.getLong(COL_FILEID), fileId -> new ArrayList<>()).add(audio);
+				}
+			}
+		} catch (SQLException e) {
+			LOGGER.error("Database error in " + TABLE_NAME + " for {} files: {}", fileIds.size(), e.getMessage());
+			LOGGER.trace("", e);
+		}
+		return result;
+	}
+
 	private static MediaAudio getAudioTrack(ResultSet resultset) throws SQLException {
 		MediaAudio audio = new MediaAudio();
 		audio.setId(resultset.getInt(COL_ID));
@@ -21,7 +21,10 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import net.pms.dlna.DLNAThumbnail;
 import net.pms.media.MediaInfo;
 import net.pms.media.chapter.MediaChapter;
@@ -68,6 +71,7 @@ public class MediaTableChapters extends MediaTable {
 	 * SQL Queries
 	 */
 	private static final String SQL_GET_ALL_BY_FILEID = SELECT_ALL + FROM + TABLE_NAME + WHERE + TABLE_COL_FILEID + EQUAL + PARAMETER;
+	private static final String SQL_GET_ALL_BY_FILEIDS = SELECT_ALL + FROM + TABLE_NAME + WHERE + TABLE_COL_FILEID + EQUAL + ANY_PARAMETER + ORDER_BY + TABLE_COL_FILEID + COMMA + TABLE_COL_ID;
 	private static final String SQL_GET_ALL_BY_FILEID_ID_LANG = SELECT_ALL + FROM + TABLE_NAME + WHERE + TABLE_COL_FILEID + EQUAL + PARAMETER + AND + TABLE_COL_ID + EQUAL + PARAMETER + AND + TABLE_COL_LANG + EQUAL + PARAMETER;
 
 	/**
@@ -183,15 +187,7 @@ public class MediaTableChapters extends MediaTable {
 			stmt.setLong(1, fileId);
 			try (ResultSet elements = stmt.executeQuery()) {
 				while (elements.next()) {
-					MediaChapter chapter = new MediaChapter();
-					chapter.setId(elements.getInt(COL_ID));
-					chapter.setLang(elements.getString(COL_LANG));
-					chapter.setTitle(elements.getString(COL_TITLE));
-					chapter.setStart(elements.getDouble(COL_START_TIME));
-					chapter.setEnd(elements.getDouble(COL_END_TIME));
-					chapter.setThumbnail((DLNAThumbnail) elements.getObject(COL_THUMBNAIL));
-					LOGGER.trace("Adding chapter from the database: {}", chapter.toString());
-					result.add(chapter);
+					result.add(getChapter(elements));
 				}
 			}
 		} catch (SQLException e) {
@@ -201,4 +197,43 @@ public class MediaTableChapters extends MediaTable {
 		return result;
 	}
 
+	/**
+	 * Gets the chapters of several files in one query.
+	 *
+	 * @param connection the db connection
+	 * @param fileIds the file IDs.
+	 * @return the chapters by file ID, files without chapters are absent.
+	 */
+	protected static Map<Long, List<MediaChapter>> getChapters(Connection connection, Collection<Long> fileIds) {
+		Map<Long, List<MediaChapter>> result = new HashMap<>();
+		if (connection == null || fileIds.isEmpty()) {
+			return result;
+		}
+		try (PreparedStatement stmt = connection.prepareStatement(SQL_GET_ALL_BY_FILEIDS)) {
+			setLongArray(stmt, 1, fileIds);
+			try (ResultSet elements = stmt.executeQuery()) {
+				while (elements.next()) {
+					MediaChapter chapter = getChapter(elements);
+					result.computeIfAbsent(elements.getLong(COL_FILEID), fileId -> new ArrayList<>()).add(chapter);
+				}
+			}
+		} catch (SQLException e) {
+			LOGGER.error("Database error in " + TABLE_NAME + " for {} files: {}", fileIds.size(), e.getMessage());
+			LOGGER.trace("", e);
+		}
+		return result;
+	}
+
+	private static MediaChapter getChapter(ResultSet elements) throws SQLException {
+		MediaChapter chapter = new MediaChapter();
+		chapter.setId(elements.getInt(COL_ID));
+		chapter.setLang(elements.getString(COL_LANG));
+		chapter.setTitle(elements.getString(COL_TITLE));
+		chapter.setStart(elements.getDouble(COL_START_TIME));
+		chapter.setEnd(elements.getDouble(COL_END_TIME));
+		chapter.setThumbnail((DLNAThumbnail) elements.getObject(COL_THUMBNAIL));
+		LOGGER.trace("Adding chapter from the database: {}", chapter.toString());
+		return chapter;
+	}
+
 }
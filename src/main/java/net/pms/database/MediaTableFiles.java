@@ -30,9 +30,11 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
 import java.util.Set;
 import net.pms.Messages;
 import net.pms.configuration.sharedcontent.FileTypeForgivingAdapter;
@@ -41,11 +43,17 @@ import net.pms.configuration.sharedcontent.SharedContentArray;
 import net.pms.configuration.sharedcontent.SharedContentConfiguration;
 import net.pms.configuration.sharedcontent.SharedContentTypeAdapter;
 import net.pms.dlna.DLNAThumbnail;
-import net.pms.external.JavaHttpClient;
 import net.pms.gui.GuiManager;
 import net.pms.image.ImageInfo;
 import net.pms.media.MediaInfo;
+import net.pms.media.audio.MediaAudio;
+import net.pms.media.audio.metadata.MediaAudioMetadata;
+import net.pms.media.chapter.MediaChapter;
+import net.pms.media.subtitle.MediaSubtitle;
+import net.pms.media.video.MediaVideo;
+import net.pms.media.video.metadata.MediaVideoMetadata;
 import net.pms.store.MediaStoreIds;
+import net.pms.store.ThumbnailLocalizer;
 import net.pms.store.ThumbnailSource;
 import net.pms.store.ThumbnailStore;
 import net.pms.util.FileUtil;
@@ -162,6 +170,7 @@ public class MediaTableFiles extends MediaTable {
 	private static final String SQL_GET_ROW_COUNT = SELECT + "COUNT(*)" + FROM + TABLE_NAME;
 	private static final String SQL_GET_FILENAME_MODIFIED_ID = SELECT + TABLE_COL_FILENAME + COMMA + TABLE_COL_MODIFIED + COMMA + TABLE_COL_ID + FROM + TABLE_NAME;
 	private static final String SQL_GET_ALL_FILENAME_MODIFIED = SELECT_ALL + FROM + TABLE_NAME + SQL_LEFT_JOIN_TABLE_THUMBNAILS + WHERE + TABLE_COL_FILENAME + EQUAL + PARAMETER + AND + TABLE_COL_MODIFIED + EQUAL + PARAMETER + LIMIT_1;
+	private static final String SQL_GET_ALL_FILENAMES = SELECT_ALL + FROM + TABLE_NAME + SQL_LEFT_JOIN_TABLE_THUMBNAILS + WHERE + TABLE_COL_FILENAME + EQUAL + ANY_PARAMETER;
 	private static final String SQL_GET_FILENAME_BY_ID = SELECT + TABLE_COL_FILENAME + FROM + TABLE_NAME + WHERE + TABLE_COL_ID + EQUAL + PARAMETER;
 	private static final String SQL_GET_FILENAME_LIKE = SELECT + TABLE_COL_FILENAME + FROM + TABLE_NAME + WHERE + TABLE_COL_FILENAME + LIKE + LIKE_STARTING_WITH_PARAMETER;
 	private static final String SQL_GET_ID_FILENAME = SELECT + TABLE_COL_ID + FROM + TABLE_NAME + WHERE + TABLE_COL_FILENAME + EQUAL + PARAMETER + LIMIT_1;
@@ -750,56 +759,111 @@ public class MediaTableFiles extends MediaTable {
 				ResultSet rs = stmt.executeQuery();
 			) {
 				if (rs.next()) {
-					media = new MediaInfo();
-					long fileId = rs.getLong(COL_ID);
-					media.setFileId(fileId);
-					media.setResourceId(rs.getString(COL_RESOURCE_UID));
-					media.setMediaParser(rs.getString(COL_PARSER));
-					media.setSize(rs.getLong(COL_MEDIA_SIZE));
-					media.setContainer(rs.getString(COL_CONTAINER));
-					media.setMimeType(rs.getString(COL_MIMETYPE));
-					media.setTitle(rs.getString(COL_TITLECONTAINER));
-					media.setDuration(toDouble(rs, COL_DURATION));
-					media.setBitRate(rs.getInt(COL_BITRATE));
-					media.setFrameRate(toDouble(rs, COL_FRAMERATE));
-					media.setThumbnailId(toLong(rs, COL_THUMBID));
-					media.setThumbnailSource(rs.getString(COL_THUMB_SRC));
-					//not media related
-					media.setAspectRatioDvdIso(rs.getString(COL_ASPECTRATIODVD));
-					byte[] imageBytes = rs.getBytes(COL_IMAGEINFO);
-					Object deserializedImageInfo = deserialize(imageBytes);
-					ImageInfo info = deserializedImageInfo instanceof ImageInfo imageInfo ? imageInfo : null;
-					if (deserializedImageInfo != null && info == null) {
-						LOGGER.warn("Failed to deserialize image info for file {}.", filename);
-					}
-					media.setImageInfo(info);
-					media.setImageCount(rs.getInt(COL_IMAGECOUNT));
-
+					media = resultSetToMediaInfo(rs, filename);
+					long fileId = media.getFileId();
 					media.setAudioTracks(MediaTableAudiotracks.getAudioTracks(connection, fileId));
 					media.setVideoTracks(MediaTableVideotracks.getVideoTracks(connection, fileId));
 					media.setSubtitlesTracks(MediaTableSubtracks.getSubtitleTracks(connection, fileId));
 					media.setChapters(MediaTableChapters.getChapters(connection, fileId));
 					media.setAudioMetadata(MediaTableAudioMetadata.getAudioMetadataByFileId(connection, fileId));
 					media.setVideoMetadata(MediaTableVideoMetadata.getVideoMetadataByFileId(connection, fileId));
-					//get localized thumb if thumb was not localized
-					if (media.getVideoMetadata() != null &&
-						media.getVideoMetadata().getPoster() != null &&
-						!media.getThumbnailSource().equals(ThumbnailSource.TMDB_LOC)
-						) {
-						DLNAThumbnail thumbnail = JavaHttpClient.getThumbnail(media.getVideoMetadata().getPoster());
-						if (thumbnail != null) {
-							Long thumbnailId = ThumbnailStore.getId(thumbnail);
-							if (!Objects.equals(thumbnailId, media.getThumbnailId())) {
-								media.setThumbnailId(thumbnailId);
-								MediaStoreIds.incrementUpdateIdForFilename(connection, filename);
-							}
-							media.setThumbnailSource(ThumbnailSource.TMDB_LOC);
-							updateThumbnailId(connection, fileId, thumbnailId, ThumbnailSource.TMDB_LOC.toString());
-						}
+					ThumbnailLocalizer.localizeIfNeeded(filename, media);
+				}
+			}
+		}
+		return media;
+	}
+
+	/**
+	 * Gets the rows of several files from the database and returns them as
+	 * {@link MediaInfo} instances, along with thumbnails, status and tracks.
+	 *
+	 * Unlike calling {@link #getMediaInfo(Connection, String, long)} for each
+	 * file, the number of queries does not depend on the number of files: one
+	 * for the files, then one per child table for all of them.
+	 *
+	 * @param connection the db connection
+	 * @param filesModified the current {@code lastModified} value of each
+	 *            media, by full path.
+	 * @return The {@link MediaInfo} instances by full path, for the files
+	 *         stored with the same {@code lastModified} value.
+	 * @throws SQLException if an SQL error occurs during the operation.
+	 */
+	public static Map<String, MediaInfo> getMediaInfos(final Connection connection, Map<String, Long> filesModified) throws SQLException {
+		Map<String, MediaInfo> result = new HashMap<>();
+		if (filesModified.isEmpty()) {
+			return result;
+		}
+		Map<Long, MediaInfo> medias = new HashMap<>();
+		Map<Long, String> filenames = new HashMap<>();
+		try (
+			PreparedStatement stmt = connection.prepareStatement(SQL_GET_ALL_FILENAMES);
+		) {
+			setStringArray(stmt, 1, filesModified.keySet());
+			try (
+				ResultSet rs = stmt.executeQuery();
+			) {
+				while (rs.next()) {
+					String filename = rs.getString(COL_FILENAME);
+					Timestamp modified = rs.getTimestamp(COL_MODIFIED);
+					if (modified == null || !filesModified.get(filename).equals(modified.getTime()) || result.containsKey(filename)) {
+						continue;
 					}
+					MediaInfo media = resultSetToMediaInfo(rs, filename);
+					result.put(filename, media);
+					medias.put(media.getFileId(), media);
+					filenames.put(media.getFileId(), filename);
 				}
 			}
 		}
+		if (medias.isEmpty()) {
+			return result;
+		}
+		Set<Long> fileIds = medias.keySet();
+		Map<Long, List<MediaAudio>> audioTracks = MediaTableAudiotracks.getAudioTracks(connection, fileIds);
+		Map<Long, List<MediaVideo>> videoTracks = MediaTableVideotracks.getVideoTracks(connection, fileIds);
+		Map<Long, List<MediaSubtitle>> subtitlesTracks = MediaTableSubtracks.getSubtitleTracks(connection, fileIds);
+		Map<Long, List<MediaChapter>> chapters = MediaTableChapters.getChapters(connection, fileIds);
+		Map<Long, MediaAudioMetadata> audioMetadata = MediaTableAudioMetadata.getAudioMetadataByFileIds(connection, fileIds);
+		Map<Long, MediaVideoMetadata> videoMetadata = MediaTableVideoMetadata.getVideoMetadataByFileIds(connection, fileIds);
+		for (Map.Entry<Long, MediaInfo> entry : medias.entrySet()) {
+			Long fileId = entry.getKey();
+			MediaInfo media = entry.getValue();
+			media.setAudioTracks(audioTracks.getOrDefault(fileId, new ArrayList<>()));
+			media.setVideoTracks(videoTracks.getOrDefault(fileId, new ArrayList<>()));
+			media.setSubtitlesTracks(subtitlesTracks.getOrDefault(fileId, new ArrayList<>()));
+			media.setChapters(chapters.getOrDefault(fileId, new ArrayList<>()));
+			media.setAudioMetadata(audioMetadata.get(fileId));
+			media.setVideoMetadata(videoMetadata.get(fileId));
+			ThumbnailLocalizer.localizeIfNeeded(filenames.get(fileId), media);
+		}
+		return result;
+	}
+
+	private static MediaInfo resultSetToMediaInfo(ResultSet rs, String filename) throws SQLException {
+		MediaInfo media = new MediaInfo();
+		media.setFileId(rs.getLong(COL_ID));
+		media.setResourceId(rs.getString(COL_RESOURCE_UID));
+		media.setMediaParser(rs.getString(COL_PARSER));
+		media.setSize(rs.getLong(COL_MEDIA_SIZE));
+		media.setContainer(rs.getString(COL_CONTAINER));
+		media.setMimeType(rs.getString(COL_MIMETYPE));
+		media.setTitle(rs.getString(COL_TITLECONTAINER));
+		media.setDuration(toDouble(rs, COL_DURATION));
+		media.setBitRate(rs.getInt(COL_BITRATE));
+		media.setFrameRate(toDouble(rs, COL_FRAMERATE));
+		media.setThumbnailId(toLong(rs, COL_THUMBID));
+		media.setThumbnailSource(rs.getString(COL_THUMB_SRC));
+		//not media related
+		media.setAspectRatioDvdIso(rs.getString(COL_ASPECTRATIODVD));
+		byte[] imageBytes = rs.getBytes(COL_IMAGEINFO);
+		Object deserializedImageInfo = deserialize(imageBytes);
+		ImageInfo info = deserializedImageInfo instanceof ImageInfo imageInfo ? imageInfo : null;
+		if (deserializedImageInfo != null && info == null) {
+			LOGGER.warn("Failed to deserialize image info for file {}.", filename);
+		}
+		media.setImageInfo(info);
+		media.setImageCount(rs.getInt(COL_IMAGECOUNT));
 		return media;
 	}
 
@@ -1207,7 +1271,19 @@ public class MediaTableFiles extends MediaTable {
 		return list;
 	}
 
-	public static synchronized void cleanup(final Connection connection) {
+	public static void cleanup(final Connection connection) {
+		cleanup(connection, Collections.emptySet());
+	}
+
+	/**
+	 * Removes the entries of files that are gone or no longer shared.
+	 *
+	 * @param connection the db connection
+	 * @param unchangedFolders the folders that did not change since their
+	 *            files were parsed. Their files are known to still be on the
+	 *            disk, only whether they are still shared is checked.
+	 */
+	public static synchronized void cleanup(final Connection connection, final Set<String> unchangedFolders) {
 		try {
 			/*
 			 * Cleanup of FILES table
@@ -1264,7 +1340,14 @@ public class MediaTableFiles extends MediaTable {
 					while (rs.next()) {
 						String filename = rs.getString(COL_FILENAME);
 						Long id = toLong(rs, COL_ID);
-						if (Boolean.FALSE.equals(MediaTableContainerFiles.isInContainer(connection, id))) {
+						if (!unchangedFolders.isEmpty() && unchangedFolders.contains(new File(filename).getParent())) {
+							// the file is still on the hard drive, check if we are still sharing it
+							if (!isShared(filename, sharedFolders)) {
+								LOGGER.trace("Removing the file {} from our database because it is no longer shared", filename);
+								rs.deleteRow();
+								removedIds.add(id);
+							}
+						} else if (Boolean.FALSE.equals(MediaTableContainerFiles.isInContainer(connection, id))) {
 							if (!FileUtil.isUrl(filename)) {
 								// this is a real file, not in a container or online
 								long modified = rs.getTimestamp(COL_MODIFIED).getTime();
@@ -1294,15 +1377,7 @@ public class MediaTableFiles extends MediaTable {
 									removedIds.add(id);
 								} else {
 									// the file exists on the hard drive, but now check if we are still sharing it
-									boolean isFileStillShared = false;
-									for (File folder : sharedFolders) {
-										if (filename.contains(folder.getAbsolutePath())) {
-											isFileStillShared = true;
-											break;
-										}
-									}
-
-									if (!isFileStillShared) {
+									if (!isShared(filename, sharedFolders)) {
 										LOGGER.trace("Removing the file {} from our database because it is no longer shared", filename);
 										rs.deleteRow();
 										removedIds.add(id);
@@ -1365,6 +1440,15 @@ public class MediaTableFiles extends MediaTable {
 		}
 	}
 
+	private static boolean isShared(String filename, List<File> sharedFolders) {
+		for (File folder : sharedFolders) {
+			if (filename.contains(folder.getAbsolutePath())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	public static String getFilenameById(final Connection connection, final Long id) {
 		if (id == null) {
 			return null;
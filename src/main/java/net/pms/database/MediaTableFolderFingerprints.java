@@ -0,0 +1,204 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import net.pms.store.FolderFingerprint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This class is responsible for managing the Folder Fingerprints table.
+ *
+ * It stores the {@link FolderFingerprint} of every shared folder as of the
+ * last time the media scanner parsed its files, so that the next scan can
+ * skip the folders that did not change.
+ */
+public final class MediaTableFolderFingerprints extends MediaTable {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(MediaTableFolderFingerprints.class);
+	public static final String TABLE_NAME = "FOLDER_FINGERPRINTS";
+
+	/**
+	 * Table version must be increased every time a change is done to the table
+	 * definition. Table upgrade SQL must also be added to
+	 * {@link #upgradeTable(Connection, int)}
+	 */
+	private static final int TABLE_VERSION = 1;
+
+	/**
+	 * COLUMNS NAMES
+	 */
+	private static final String COL_ID = "ID";
+	private static final String COL_FOLDERNAME = "FOLDERNAME";
+	private static final String COL_MODIFIED = "MODIFIED";
+	private static final String COL_ENTRIES = "ENTRIES";
+	private static final String COL_HASH = "HASH";
+
+	/**
+	 * COLUMNS with table name
+	 */
+	private static final String TABLE_COL_FOLDERNAME = TABLE_NAME + "." + COL_FOLDERNAME;
+	private static final String TABLE_COL_MODIFIED = TABLE_NAME + "." + COL_MODIFIED;
+	private static final String TABLE_COL_ENTRIES = TABLE_NAME + "." + COL_ENTRIES;
+	private static final String TABLE_COL_HASH = TABLE_NAME + "." + COL_HASH;
+
+	/**
+	 * SQL Queries
+	 */
+	private static final String SQL_GET_ALL = SELECT + TABLE_COL_FOLDERNAME + COMMA + TABLE_COL_MODIFIED + COMMA + TABLE_COL_ENTRIES + COMMA + TABLE_COL_HASH + FROM + TABLE_NAME;
+	private static final String SQL_MERGE_FOLDERNAME = MERGE_INTO + TABLE_NAME + " (" + COL_FOLDERNAME + COMMA + COL_MODIFIED + COMMA + COL_ENTRIES + COMMA + COL_HASH + ") KEY (" + COL_FOLDERNAME + ")" + VALUES + "(" + PARAMETER + COMMA + PARAMETER + COMMA + PARAMETER + COMMA + PARAMETER + ")";
+	private static final String SQL_DELETE_FOLDERNAMES = DELETE_FROM + TABLE_NAME + WHERE + TABLE_COL_FOLDERNAME + EQUAL + ANY_PARAMETER;
+
+	/**
+	 * Checks and creates or upgrades the table as needed.
+	 *
+	 * @param connection the {@link Connection} to use
+	 *
+	 * @throws SQLException
+	 */
+	protected static void checkTable(final Connection connection) throws SQLException {
+		if (tableExists(connection, TABLE_NAME)) {
+			Integer version = MediaTableTablesVersions.getTableVersion(connection, TABLE_NAME);
+			if (version != null) {
+				if (version < TABLE_VERSION) {
+					upgradeTable(connection, version);
+				} else if (version > TABLE_VERSION) {
+					LOGGER.warn(LOG_TABLE_NEWER_VERSION_DELETEDB, DATABASE_NAME, TABLE_NAME, DATABASE.getDatabaseFilename());
+				}
+			} else {
+				LOGGER.warn(LOG_TABLE_UNKNOWN_VERSION_RECREATE, DATABASE_NAME, TABLE_NAME);
+				dropTable(connection, TABLE_NAME);
+				createTable(connection);
+				MediaTableTablesVersions.setTableVersion(connection, TABLE_NAME, TABLE_VERSION);
+			}
+		} else {
+			createTable(connection);
+			MediaTableTablesVersions.setTableVersion(connection, TABLE_NAME, TABLE_VERSION);
+		}
+	}
+
+	/**
+	 * This method <strong>MUST</strong> be updated if the table definition are
+	 * altered. The changes for each version in the form of
+	 * <code>ALTER TABLE</code> must be implemented here.
+	 *
+	 * @param connection the {@link Connection} to use
+	 * @param currentVersion the version to upgrade <strong>from</strong>
+	 *
+	 * @throws SQLException
+	 */
+	private static void upgradeTable(final Connection connection, final int currentVersion) throws SQLException {
+		LOGGER.info(LOG_UPGRADING_TABLE, DATABASE_NAME, TABLE_NAME, currentVersion, TABLE_VERSION);
+		for (int version = currentVersion; version < TABLE_VERSION; version++) {
+			LOGGER.trace(LOG_UPGRADING_TABLE, DATABASE_NAME, TABLE_NAME, version, version + 1);
+			switch (version) {
+				default ->
+					throw new IllegalStateException(
+							getMessage(LOG_UPGRADING_TABLE_MISSING, DATABASE_NAME, TABLE_NAME, version, TABLE_VERSION)
+					);
+			}
+		}
+		MediaTableTablesVersions.setTableVersion(connection, TABLE_NAME, TABLE_VERSION);
+	}
+
+	private static void createTable(final Connection connection) throws SQLException {
+		LOGGER.info(LOG_CREATING_TABLE, DATABASE_NAME, TABLE_NAME);
+		execute(connection,
+			CREATE_TABLE + TABLE_NAME + "(" +
+				COL_ID                + IDENTITY         + PRIMARY_KEY       + COMMA +
+				COL_FOLDERNAME        + VARCHAR_1024     + UNIQUE_NOT_NULL   + COMMA +
+				COL_MODIFIED          + BIGINT           + NOT_NULL          + COMMA +
+				COL_ENTRIES           + INTEGER          + NOT_NULL          + COMMA +
+				COL_HASH              + VARCHAR_32       + NOT_NULL          +
+			")"
+		);
+	}
+
+	/**
+	 * Gets all stored fingerprints.
+	 *
+	 * @param connection the db connection
+	 * @return the fingerprints by full folder path.
+	 */
+	public static Map<String, FolderFingerprint> getAll(final Connection connection) {
+		Map<String, FolderFingerprint> result = new HashMap<>();
+		try (
+			PreparedStatement statement = connection.prepareStatement(SQL_GET_ALL);
+			ResultSet resultSet = statement.executeQuery()
+		) {
+			while (resultSet.next()) {
+				result.put(
+					resultSet.getString(COL_FOLDERNAME),
+					new FolderFingerprint(resultSet.getLong(COL_MODIFIED), resultSet.getInt(COL_ENTRIES), resultSet.getString(COL_HASH))
+				);
+			}
+		} catch (SQLException e) {
+			LOGGER.error(LOG_ERROR_WHILE_IN, DATABASE_NAME, "reading", TABLE_NAME, e.getMessage());
+			LOGGER.trace("", e);
+		}
+		return result;
+	}
+
+	/**
+	 * Stores the fingerprint of a folder whose files were all parsed.
+	 *
+	 * @param connection the db connection
+	 * @param foldername the full path of the folder.
+	 * @param fingerprint the fingerprint read before parsing the files.
+	 */
+	public static void set(final Connection connection, final String foldername, final FolderFingerprint fingerprint) {
+		try (PreparedStatement statement = connection.prepareStatement(SQL_MERGE_FOLDERNAME)) {
+			statement.setString(1, foldername);
+			statement.setLong(2, fingerprint.getModified());
+			statement.setInt(3, fingerprint.getEntries());
+			statement.setString(4, fingerprint.getHash());
+			statement.executeUpdate();
+		} catch (SQLException e) {
+			LOGGER.error(LOG_ERROR_WHILE_IN_FOR, DATABASE_NAME, "writing", TABLE_NAME, foldername, e.getMessage());
+			LOGGER.trace("", e);
+		}
+	}
+
+	/**
+	 * Removes the fingerprints of folders, which will be parsed again on the
+	 * next scan.
+	 *
+	 * @param connection the db connection
+	 * @param foldernames the full paths of the folders.
+	 */
+	public static void remove(final Connection connection, final Collection<String> foldernames) {
+		if (foldernames.isEmpty()) {
+			return;
+		}
+		try (PreparedStatement statement = connection.prepareStatement(SQL_DELETE_FOLDERNAMES)) {
+			setStringArray(statement, 1, foldernames);
+			int rows = statement.executeUpdate();
+			LOGGER.trace("Removed {} entries in " + TABLE_NAME, rows);
+		} catch (SQLException e) {
+			LOGGER.error(LOG_ERROR_WHILE_IN, DATABASE_NAME, "removing entries", TABLE_NAME, e.getMessage());
+			LOGGER.trace("", e);
+		}
+	}
+
+}
@@ -0,0 +1,188 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.HashSet;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This class is responsible for managing the Scan Checkpoint table.
+ *
+ * It stores the folders whose whole subtree has been scanned by the running
+ * media scan, so that a scan that was stopped or interrupted by a restart
+ * resumes where it was instead of starting over. The table is emptied once a
+ * scan completes.
+ */
+public final class MediaTableScanCheckpoint extends MediaTable {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(MediaTableScanCheckpoint.class);
+	public static final String TABLE_NAME = "SCAN_CHECKPOINT";
+
+	/**
+	 * Table version must be increased every time a change is done to the table
+	 * definition. Table upgrade SQL must also be added to
+	 * {@link #upgradeTable(Connection, int)}
+	 */
+	private static final int TABLE_VERSION = 1;
+
+	/**
+	 * COLUMNS NAMES
+	 */
+	private static final String COL_ID = "ID";
+	private static final String COL_FOLDERNAME = "FOLDERNAME";
+	private static final String COL_COMPLETED = "COMPLETED";
+
+	/**
+	 * COLUMNS with table name
+	 */
+	private static final String TABLE_COL_FOLDERNAME = TABLE_NAME + "." + COL_FOLDERNAME;
+	private static final String TABLE_COL_COMPLETED = TABLE_NAME + "." + COL_COMPLETED;
+
+	/**
+	 * SQL Queries
+	 */
+	private static final String SQL_GET_FOLDERNAMES = SELECT + TABLE_COL_FOLDERNAME + FROM + TABLE_NAME + WHERE + TABLE_COL_COMPLETED + GREATER_THAN + PARAMETER;
+	private static final String SQL_MERGE_FOLDERNAME = MERGE_INTO + TABLE_NAME + " (" + COL_FOLDERNAME + COMMA + COL_COMPLETED + ") KEY (" + COL_FOLDERNAME + ")" + VALUES + "(" + PARAMETER + COMMA + PARAMETER + ")";
+	private static final String SQL_DELETE_ALL = DELETE_FROM + TABLE_NAME;
+
+	/**
+	 * Checks and creates or upgrades the table as needed.
+	 *
+	 * @param connection the {@link Connection} to use
+	 *
+	 * @throws SQLException
+	 */
+	protected static void checkTable(final Connection connection) throws SQLException {
+		if (tableExists(connection, TABLE_NAME)) {
+			Integer version = MediaTableTablesVersions.getTableVersion(connection, TABLE_NAME);
+			if (version != null) {
+				if (version < TABLE_VERSION) {
+					upgradeTable(connection, version);
+				} else if (version > TABLE_VERSION) {
+					LOGGER.warn(LOG_TABLE_NEWER_VERSION_DELETEDB, DATABASE_NAME, TABLE_NAME, DATABASE.getDatabaseFilename());
+				}
+			} else {
+				LOGGER.warn(LOG_TABLE_UNKNOWN_VERSION_RECREATE, DATABASE_NAME, TABLE_NAME);
+				dropTable(connection, TABLE_NAME);
+				createTable(connection);
+				MediaTableTablesVersions.setTableVersion(connection, TABLE_NAME, TABLE_VERSION);
+			}
+		} else {
+			createTable(connection);
+			MediaTableTablesVersions.setTableVersion(connection, TABLE_NAME, TABLE_VERSION);
+		}
+	}
+
+	/**
+	 * This method <strong>MUST</strong> be updated if the table definition are
+	 * altered. The changes for each version in the form of
+	 * <code>ALTER TABLE</code> must be implemented here.
+	 *
+	 * @param connection the {@link Connection} to use
+	 * @param currentVersion the version to upgrade <strong>from</strong>
+	 *
+	 * @throws SQLException
+	 */
+	private static void upgradeTable(final Connection connection, final int currentVersion) throws SQLException {
+		LOGGER.info(LOG_UPGRADING_TABLE, DATABASE_NAME, TABLE_NAME, currentVersion, TABLE_VERSION);
+		for (int version = currentVersion; version < TABLE_VERSION; version++) {
+			LOGGER.trace(LOG_UPGRADING_TABLE, DATABASE_NAME, TABLE_NAME, version, version + 1);
+			switch (version) {
+				default ->
+					throw new IllegalStateException(
+							getMessage(LOG_UPGRADING_TABLE_MISSING, DATABASE_NAME, TABLE_NAME, version, TABLE_VERSION)
+					);
+			}
+		}
+		MediaTableTablesVersions.setTableVersion(connection, TABLE_NAME, TABLE_VERSION);
+	}
+
+	private static void createTable(final Connection connection) throws SQLException {
+		LOGGER.info(LOG_CREATING_TABLE, DATABASE_NAME, TABLE_NAME);
+		execute(connection,
+			CREATE_TABLE + TABLE_NAME + "(" +
+				COL_ID                + IDENTITY         + PRIMARY_KEY       + COMMA +
+				COL_FOLDERNAME        + VARCHAR_1024     + UNIQUE_NOT_NULL   + COMMA +
+				COL_COMPLETED         + TIMESTAMP        + NOT_NULL          +
+			")"
+		);
+	}
+
+	/**
+	 * Gets the folders that were completely scanned since a given time.
+	 *
+	 * @param connection the db connection
+	 * @param since the oldest completion time to take into account, in
+	 *            milliseconds. Older entries belong to a scan too old to be
+	 *            resumed.
+	 * @return the full paths of the completed folders.
+	 */
+	public static Set<String> getCompletedFolders(final Connection connection, final long since) {
+		Set<String> result = new HashSet<>();
+		try (PreparedStatement statement = connection.prepareStatement(SQL_GET_FOLDERNAMES)) {
+			statement.setTimestamp(1, new Timestamp(since));
+			try (ResultSet resultSet = statement.executeQuery()) {
+				while (resultSet.next()) {
+					result.add(resultSet.getString(COL_FOLDERNAME));
+				}
+			}
+		} catch (SQLException e) {
+			LOGGER.error(LOG_ERROR_WHILE_IN, DATABASE_NAME, "reading", TABLE_NAME, e.getMessage());
+			LOGGER.trace("", e);
+		}
+		return result;
+	}
+
+	/**
+	 * Records that a folder and all its subfolders were scanned.
+	 *
+	 * @param connection the db connection
+	 * @param foldername the full path of the folder.
+	 */
+	public static void setCompleted(final Connection connection, final String foldername) {
+		try (PreparedStatement statement = connection.prepareStatement(SQL_MERGE_FOLDERNAME)) {
+			statement.setString(1, foldername);
+			statement.setTimestamp(2, new Timestamp(System.currentTimeMillis()));
+			statement.executeUpdate();
+		} catch (SQLException e) {
+			LOGGER.error(LOG_ERROR_WHILE_IN_FOR, DATABASE_NAME, "writing", TABLE_NAME, foldername, e.getMessage());
+			LOGGER.trace("", e);
+		}
+	}
+
+	/**
+	 * Removes all entries, once a scan completes.
+	 *
+	 * @param connection the db connection
+	 */
+	public static void clear(final Connection connection) {
+		try {
+			executeUpdate(connection, SQL_DELETE_ALL);
+		} catch (SQLException e) {
+			LOGGER.error(LOG_ERROR_WHILE_IN, DATABASE_NAME, "clearing", TABLE_NAME, e.getMessage());
+			LOGGER.trace("", e);
+		}
+	}
+
+}
@@ -22,7 +22,10 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import net.pms.formats.v2.SubtitleType;
 import net.pms.media.MediaInfo;
 import net.pms.media.subtitle.MediaSubtitle;
@@ -73,6 +76,7 @@ public class MediaTableSubtracks extends MediaTable {
 	 * SQL Queries
 	 */
 	private static final String SQL_GET_ALL_FILEID = SELECT_ALL + FROM + TABLE_NAME + WHERE + TABLE_COL_FILEID + EQUAL + PARAMETER;
+	private static final String SQL_GET_ALL_FILEIDS = SELECT_ALL + FROM + TABLE_NAME + WHERE + TABLE_COL_FILEID + EQUAL + ANY_PARAMETER + ORDER_BY + TABLE_COL_FILEID + COMMA + TABLE_COL_ID;
 	private static final String SQL_GET_ALL_FILEID_ID_EXTERNALFILE = SELECT_ALL + FROM + TABLE_NAME + WHERE + TABLE_COL_FILEID + EQUAL + PARAMETER + AND + TABLE_COL_ID + EQUAL + PARAMETER + AND + TABLE_COL_EXTERNALFILE + EQUAL + PARAMETER;
 	private static final String SQL_DELETE_EXTERNALFILE = DELETE_FROM + TABLE_NAME + WHERE + TABLE_COL_EXTERNALFILE + EQUAL + PARAMETER;
 	private static final String SQL_DELETE_BY_FILEID_ID_GREATER_OR_EQUAL = DELETE_FROM + TABLE_NAME + WHERE + TABLE_COL_FILEID + EQUAL + PARAMETER + AND + TABLE_COL_ID + GREATER_OR_EQUAL_THAN + PARAMETER;
@@ -235,48 +239,95 @@ public class MediaTableSubtracks extends MediaTable {
 			stmt.setLong(1, fileId);
 			try (ResultSet elements = stmt.executeQuery()) {
 				while (elements.next()) {
-					String fileName = elements.getString(COL_EXTERNALFILE);
-					File externalFile = StringUtils.isNotBlank(fileName) ? new File(fileName) : null;
-					if (externalFile != null && !externalFile.exists()) {
-						externalFileReferencesToRemove.add(externalFile.getPath());
-						continue;
+					MediaSubtitle sub = getSubtitleTrack(elements, externalFileReferencesToRemove);
+					if (sub != null) {
+						result.add(sub);
 					}
-					MediaSubtitle sub = new MediaSubtitle();
-					sub.setId(elements.getInt(COL_ID));
-					sub.setLang(elements.getString(COL_LANG));
-					sub.setStreamOrder(toInteger(elements, COL_STREAMID));
-					sub.setOptionalId(toLong(elements, COL_OPTIONALID));
-					sub.setDefault(elements.getBoolean(COL_DEFAULT_FLAG));
-					sub.setForced(elements.getBoolean(COL_FORCED_FLAG));
-					sub.setTitle(elements.getString(COL_TITLE));
-					sub.setType(SubtitleType.valueOfStableIndex(elements.getInt(COL_FORMAT_TYPE)));
-					sub.setExternalFileOnly(externalFile);
-					sub.setSubCharacterSet(elements.getString(COL_CHARSET));
-					LOGGER.trace("Adding subtitles from the database: {}", sub.toString());
-					result.add(sub);
 				}
 			}
 		} catch (SQLException e) {
 			LOGGER.error("Database error in " + TABLE_NAME + " for \"{}\": {}", fileId, e.getMessage());
 			LOGGER.trace("", e);
 		} finally {
-			if (!externalFileReferencesToRemove.isEmpty()) {
-				for (String externalFileReferenceToRemove : externalFileReferencesToRemove) {
-					LOGGER.trace("Deleting cached external subtitles from database because the file \"{}\" doesn't exist", externalFileReferenceToRemove);
-					try (
-						PreparedStatement ps = connection.prepareStatement(SQL_DELETE_EXTERNALFILE);
-					) {
-						ps.setString(1, sqlQuote(externalFileReferenceToRemove));
-						ps.executeUpdate();
-					} catch (SQLException se) {
-						LOGGER.error("Error deleting cached external subtitles: {}", se.getMessage());
-						LOGGER.trace("", se);
+			deleteExternalFileReferences(connection, externalFileReferencesToRemove);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Gets the subtitles tracks of several files in one query.
+	 *
+	 * @param connection the db connection
+	 * @param fileIds the file IDs.
+	 * @return the subtitles tracks by file ID, files without tracks are
+	 *         absent.
+	 */
+	protected static Map<Long, List<MediaSubtitle>> getSubtitleTracks(Connection connection, Collection<Long> fileIds) {
+		Map<Long, List<MediaSubtitle>> result = new HashMap<>();
+		List<String> externalFileReferencesToRemove = new ArrayList<>();
+		if (connection == null || fileIds.isEmpty()) {
+			return result;
+		}
+		try (PreparedStatement stmt = connection.prepareStatement(SQL_GET_ALL_FILEIDS)) {
+			setLongArray(stmt, 1, fileIds);
+			try (ResultSet elements = stmt.executeQuery()) {
+				while (elements.next()) {
+					MediaSubtitle sub = getSubtitleTrack(elements, externalFileReferencesToRemove);
+					if (sub != null) {
+						result.computeIfAbsent(elements.getLong(COL_FILEID), fileId -> new ArrayList<>()).add(sub);
 					}
 				}
 			}
+		} catch (SQLException e) {
+			LOGGER.error("Database error in " + TABLE_NAME + " for {} files: {}", fileIds.size(), e.getMessage());
+			LOGGER.trace("", e);
+		} finally {
+			deleteExternalFileReferences(connection, externalFileReferencesToRemove);
 		}
-
 		return result;
 	}
 
+	/**
+	 * @return the subtitles track of the current row, or {@code null} if its
+	 *         external file doesn't exist anymore, in which case the file is
+	 *         added to {@code externalFileReferencesToRemove}.
+	 */
+	private static MediaSubtitle getSubtitleTrack(ResultSet elements, List<String> externalFileReferencesToRemove) throws SQLException {
+		String fileName = elements.getString(COL_EXTERNALFILE);
+		File externalFile = StringUtils.isNotBlank(fileName) ? new File(fileName) : null;
+		if (externalFile != null && !externalFile.exists()) {
+			externalFileReferencesToRemove.add(externalFile.getPath());
+			return null;
+		}
+		MediaSubtitle sub = new MediaSubtitle();
+		sub.setId(elements.getInt(COL_ID));
+		sub.setLang(elements.getString(COL_LANG));
+		sub.setStreamOrder(toInteger(elements, COL_STREAMID));
+		sub.setOptionalId(toLong(elements, COL_OPTIONALID));
+		sub.setDefault(elements.getBoolean(COL_DEFAULT_FLAG));
+		sub.setForced(elements.getBoolean(COL_FORCED_FLAG));
+		sub.setTitle(elements.getString(COL_TITLE));
+		sub.setType(SubtitleType.valueOfStableIndex(elements.getInt(COL_FORMAT_TYPE)));
+		sub.setExternalFileOnly(externalFile);
+		sub.setSubCharacterSet(elements.getString(COL_CHARSET));
+		LOGGER.trace("Adding subtitles from the database: {}", sub.toString());
+		return sub;
+	}
+
+	private static void deleteExternalFileReferences(Connection connection, List<String> externalFileReferencesToRemove) {
+		for (String externalFileReferenceToRemove : externalFileReferencesToRemove) {
+			LOGGER.trace("Deleting cached external subtitles from database because the file \"{}\" doesn't exist", externalFileReferenceToRemove);
+			try (
+				PreparedStatement ps = connection.prepareStatement(SQL_DELETE_EXTERNALFILE);
+			) {
+				ps.setString(1, sqlQuote(externalFileReferenceToRemove));
+				ps.executeUpdate();
+			} catch (SQLException se) {
+				LOGGER.error("Error deleting cached external subtitles: {}", se.getMessage());
+				LOGGER.trace("", se);
+			}
+		}
+	}
+
 }
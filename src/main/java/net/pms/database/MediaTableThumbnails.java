@@ -16,6 +16,8 @@
  */
 package net.pms.database;
 
+import com.drew.imaging.ImageProcessingException;
+import com.drew.metadata.Metadata;
 import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -23,8 +25,12 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Timestamp;
+import net.pms.dlna.DLNAImageProfile;
 import net.pms.dlna.DLNAThumbnail;
 import net.pms.dlna.DLNAThumbnailFixer;
+import net.pms.image.ImageFormat;
+import net.pms.image.ImageInfo;
+import net.pms.parsers.MetadataExtractorParser;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -49,16 +55,25 @@ public final class MediaTableThumbnails extends MediaTable {
 	 * definition. Table upgrade SQL must also be added to
 	 * {@link #upgradeTable()}
 	 */
-	private static final int TABLE_VERSION = 1;
+	private static final int TABLE_VERSION = 2;
 
 	/**
 	 * COLUMNS NAMES
 	 */
-	protected static final String COL_THUMBNAIL = "THUMBNAIL";
 	private static final String COL_ID = "ID";
+	private static final String COL_IMAGE = "IMAGE";
+	private static final String COL_IMAGE_FORMAT = "IMAGE_FORMAT";
+	private static final String COL_IMAGE_HEIGHT = "IMAGE_HEIGHT";
+	private static final String COL_IMAGE_PROFILE = "IMAGE_PROFILE";
+	private static final String COL_IMAGE_WIDTH = "IMAGE_WIDTH";
 	private static final String COL_MD5 = "MD5";
 	private static final String COL_MODIFIED = "MODIFIED";
 
+	/**
+	 * The serialized {@link DLNAThumbnail} column of table version 1.
+	 */
+	private static final String COL_THUMBNAIL = "THUMBNAIL";
+
 	/**
 	 * COLUMNS with table name
 	 */
@@ -68,9 +83,14 @@ public final class MediaTableThumbnails extends MediaTable {
 	/**
 	 * SQL Queries
 	 */
-	private static final String SQL_GET_ID = SELECT_ALL + FROM + TABLE_NAME + WHERE + TABLE_COL_ID + EQUAL + PARAMETER + LIMIT_1;
+	private static final String SQL_GET_ID = SELECT + COL_IMAGE + COMMA + COL_IMAGE_WIDTH + COMMA + COL_IMAGE_HEIGHT + COMMA + COL_IMAGE_FORMAT + COMMA + COL_IMAGE_PROFILE + FROM + TABLE_NAME + WHERE + TABLE_COL_ID + EQUAL + PARAMETER + LIMIT_1;
 	private static final String SQL_GET_ID_MD5 = SELECT + TABLE_COL_ID + FROM + TABLE_NAME + WHERE + TABLE_COL_MD5 + EQUAL + PARAMETER + LIMIT_1;
-	private static final String SQL_INSERT_ID_MD5 = INSERT_INTO + TABLE_NAME + " (" + COL_THUMBNAIL + COMMA + COL_MODIFIED + COMMA + COL_MD5 + ") VALUES (" + PARAMETER + COMMA + PARAMETER + COMMA + PARAMETER + ")";
+	private static final String SQL_INSERT_ID_MD5 = INSERT_INTO + TABLE_NAME + " (" + COL_IMAGE + COMMA + COL_IMAGE_WIDTH + COMMA + COL_IMAGE_HEIGHT + COMMA + COL_IMAGE_FORMAT + COMMA + COL_IMAGE_PROFILE + COMMA + COL_MODIFIED + COMMA + COL_MD5 + ") VALUES (" + PARAMETER + COMMA + PARAMETER + COMMA + PARAMETER + COMMA + PARAMETER + COMMA + PARAMETER + COMMA + PARAMETER + COMMA + PARAMETER + ")";
+	private static final String SQL_GET_SERIALIZED = SELECT + COL_ID + COMMA + COL_THUMBNAIL + COMMA + COL_IMAGE + COMMA + COL_IMAGE_WIDTH + COMMA + COL_IMAGE_HEIGHT + COMMA + COL_IMAGE_FORMAT + COMMA + COL_IMAGE_PROFILE + FROM + TABLE_NAME;
+	private static final String SQL_CLEAR_FILES_MISSING_THUMBID = UPDATE + MediaTableFiles.TABLE_NAME + SET + MediaTableFiles.COL_THUMBID + EQUAL + NULL + WHERE + MediaTableFiles.TABLE_COL_THUMBID + IS_NOT_NULL +
+		AND + NOT + EXISTS + "(" + SELECT + TABLE_COL_ID + FROM + TABLE_NAME + WHERE + TABLE_COL_ID + EQUAL + MediaTableFiles.TABLE_COL_THUMBID + ")";
+	private static final String SQL_CLEAR_TVSERIES_MISSING_THUMBID = UPDATE + MediaTableTVSeries.TABLE_NAME + SET + MediaTableFiles.COL_THUMBID + EQUAL + NULL + WHERE + MediaTableTVSeries.TABLE_COL_THUMBID + IS_NOT_NULL +
+		AND + NOT + EXISTS + "(" + SELECT + TABLE_COL_ID + FROM + TABLE_NAME + WHERE + TABLE_COL_ID + EQUAL + MediaTableTVSeries.TABLE_COL_THUMBID + ")";
 
 	private static final String SQL_DELETE_ID = DELETE_FROM + TABLE_NAME + WHERE + TABLE_COL_ID + EQUAL + PARAMETER;
 	private static final String SQL_CLEANUP = DELETE_FROM + TABLE_NAME + WHERE +
@@ -123,6 +143,18 @@ public final class MediaTableThumbnails extends MediaTable {
 		for (int version = currentVersion; version < TABLE_VERSION; version++) {
 			LOGGER.trace(LOG_UPGRADING_TABLE, DATABASE_NAME, TABLE_NAME, version, version + 1);
 			switch (version) {
+				case 1 -> {
+					executeUpdate(connection, ALTER_TABLE + TABLE_NAME + ADD + COLUMN + IF_NOT_EXISTS + COL_IMAGE + BLOB);
+					executeUpdate(connection, ALTER_TABLE + TABLE_NAME + ADD + COLUMN + IF_NOT_EXISTS + COL_IMAGE_WIDTH + INTEGER);
+					executeUpdate(connection, ALTER_TABLE + TABLE_NAME + ADD + COLUMN + IF_NOT_EXISTS + COL_IMAGE_HEIGHT + INTEGER);
+					executeUpdate(connection, ALTER_TABLE + TABLE_NAME + ADD + COLUMN + IF_NOT_EXISTS + COL_IMAGE_FORMAT + VARCHAR_16);
+					executeUpdate(connection, ALTER_TABLE + TABLE_NAME + ADD + COLUMN + IF_NOT_EXISTS + COL_IMAGE_PROFILE + VARCHAR_32);
+					if (isColumnExist(connection, TABLE_NAME, COL_THUMBNAIL)) {
+						convertSerializedThumbnails(connection);
+						executeUpdate(connection, ALTER_TABLE + TABLE_NAME + DROP + COLUMN + IF_EXISTS + COL_THUMBNAIL);
+					}
+					executeUpdate(connection, ALTER_TABLE + TABLE_NAME + ALTER_COLUMN + COL_IMAGE + SET + "NOT NULL");
+				}
 				default ->
 					throw new IllegalStateException(
 							getMessage(LOG_UPGRADING_TABLE_MISSING, DATABASE_NAME, TABLE_NAME, version, TABLE_VERSION)
@@ -132,12 +164,65 @@ public final class MediaTableThumbnails extends MediaTable {
 		MediaTableTablesVersions.setTableVersion(connection, TABLE_NAME, TABLE_VERSION);
 	}
 
+	/**
+	 * Converts the serialized {@link DLNAThumbnail} objects of table version 1
+	 * to their image bytes and properties. Thumbnails that can't be read are
+	 * deleted along with the references to them, so they are generated again.
+	 *
+	 * @param connection the {@link Connection} to use
+	 *
+	 * @throws SQLException
+	 */
+	private static void convertSerializedThumbnails(final Connection connection) throws SQLException {
+		int converted = 0;
+		int deleted = 0;
+		try (
+			Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_UPDATABLE);
+			ResultSet resultSet = statement.executeQuery(SQL_GET_SERIALIZED)
+		) {
+			while (resultSet.next()) {
+				DLNAThumbnail thumbnail;
+				try {
+					thumbnail = (DLNAThumbnail) resultSet.getObject(COL_THUMBNAIL);
+				} catch (SQLException | ClassCastException e) {
+					try {
+						thumbnail = DLNAThumbnailFixer.fixDLNAThumbnail(resultSet.getBinaryStream(COL_THUMBNAIL));
+					} catch (IOException e1) {
+						LOGGER.debug("Error in DLNAThumbnail deserialization for id \"{}\": {}", resultSet.getLong(COL_ID), e.getMessage());
+						thumbnail = null;
+					}
+				}
+				if (thumbnail != null && thumbnail.getFormat() != null) {
+					resultSet.updateBytes(COL_IMAGE, thumbnail.getBytes(false));
+					resultSet.updateInt(COL_IMAGE_WIDTH, thumbnail.getWidth());
+					resultSet.updateInt(COL_IMAGE_HEIGHT, thumbnail.getHeight());
+					resultSet.updateString(COL_IMAGE_FORMAT, thumbnail.getFormat().name());
+					resultSet.updateString(COL_IMAGE_PROFILE, thumbnail.getDLNAImageProfile().toString());
+					resultSet.updateRow();
+					converted++;
+				} else {
+					resultSet.deleteRow();
+					deleted++;
+				}
+			}
+		}
+		if (deleted > 0) {
+			executeUpdate(connection, SQL_CLEAR_FILES_MISSING_THUMBID);
+			executeUpdate(connection, SQL_CLEAR_TVSERIES_MISSING_THUMBID);
+		}
+		LOGGER.info("Converted {} thumbnails in \"{}\", {} unreadable thumbnails deleted", converted, TABLE_NAME, deleted);
+	}
+
 	private static void createTable(final Connection connection) throws SQLException {
 		LOGGER.info(LOG_CREATING_TABLE, DATABASE_NAME, TABLE_NAME);
 		execute(connection,
 			CREATE_TABLE + TABLE_NAME + "(" +
 				COL_ID                + IDENTITY                       + COMMA +
-				COL_THUMBNAIL         + OTHER      + NOT_NULL          + COMMA +
+				COL_IMAGE             + BLOB       + NOT_NULL          + COMMA +
+				COL_IMAGE_WIDTH       + INTEGER                        + COMMA +
+				COL_IMAGE_HEIGHT      + INTEGER                        + COMMA +
+				COL_IMAGE_FORMAT      + VARCHAR_16                     + COMMA +
+				COL_IMAGE_PROFILE     + VARCHAR_32                     + COMMA +
 				COL_MODIFIED          + TIMESTAMP                      + COMMA +
 				COL_MD5               + VARCHAR    + UNIQUE_NOT_NULL   +
 			")"
@@ -150,19 +235,30 @@ public final class MediaTableThumbnails extends MediaTable {
 	 * If not found, it writes the new thumbnail to this table. Finally, it
 	 * returns the ID from this table as the THUMBID.
 	 *
+	 * The encoded image is stored as it is, with its resolution, format and
+	 * DLNA profile, rather than as a serialized {@link DLNAThumbnail}.
+	 *
 	 * @param connection the db connection
 	 * @param thumbnail
 	 */
 	public static synchronized Long setThumbnail(final Connection connection, final DLNAThumbnail thumbnail) {
+		if (thumbnail.getFormat() == null) {
+			LOGGER.debug("Not writing a thumbnail of unknown format to {}", TABLE_NAME);
+			return null;
+		}
 		String md5Hash = DigestUtils.md5Hex(thumbnail.getBytes(false));
 		Long existingId = getThumbnailId(connection, md5Hash);
 		if (existingId != null) {
 			return existingId;
 		}
 		try (PreparedStatement insertStatement = connection.prepareStatement(SQL_INSERT_ID_MD5, Statement.RETURN_GENERATED_KEYS)) {
-			insertStatement.setObject(1, thumbnail);
-			insertStatement.setTimestamp(2, new Timestamp(System.currentTimeMillis()));
-			insertStatement.setString(3, md5Hash);
+			insertStatement.setBytes(1, thumbnail.getBytes(false));
+			insertStatement.setInt(2, thumbnail.getWidth());
+			insertStatement.setInt(3, thumbnail.getHeight());
+			insertStatement.setString(4, thumbnail.getFormat().name());
+			insertStatement.setString(5, thumbnail.getDLNAImageProfile().toString());
+			insertStatement.setTimestamp(6, new Timestamp(System.currentTimeMillis()));
+			insertStatement.setString(7, md5Hash);
 			insertStatement.executeUpdate();
 			return getThumbnailId(connection, md5Hash);
 		} catch (SQLException e) {
@@ -193,31 +289,46 @@ public final class MediaTableThumbnails extends MediaTable {
 		return null;
 	}
 
+	/**
+	 * Gets a thumbnail from its image bytes and properties. Only the header of
+	 * the image is parsed, the image itself is not decoded.
+	 *
+	 * @param connection the db connection
+	 * @param id the thumbnail id
+	 * @return The {@link DLNAThumbnail} or {@code null} if not found or
+	 *         unreadable.
+	 */
 	public static DLNAThumbnail getThumbnail(final Connection connection, final Long id) {
-		try (PreparedStatement statement = connection.prepareStatement(SQL_GET_ID, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_UPDATABLE)) {
+		try (PreparedStatement statement = connection.prepareStatement(SQL_GET_ID)) {
 			statement.setLong(1, id);
 			try (ResultSet resultSet = statement.executeQuery()) {
 				if (resultSet.next()) {
-					DLNAThumbnail thumbnail = null;
+					byte[] bytes = resultSet.getBytes(COL_IMAGE);
+					ImageFormat format = ImageFormat.valueOf(resultSet.getString(COL_IMAGE_FORMAT));
+					DLNAImageProfile profile = DLNAImageProfile.toDLNAImageProfile(resultSet.getString(COL_IMAGE_PROFILE));
 					try {
-						return ((DLNAThumbnail) resultSet.getObject(COL_THUMBNAIL));
-					} catch (SQLException ex) {
-						try {
-							thumbnail = DLNAThumbnailFixer.fixDLNAThumbnail(resultSet.getBinaryStream(COL_THUMBNAIL));
-							if (thumbnail != null) {
-								//update thumbnail object
-								resultSet.updateObject(COL_THUMBNAIL, thumbnail);
-								resultSet.updateRow();
-							}
-						} catch (IOException ex1) {
-							LOGGER.error("Error in DLNAThumbnail deserialization for id \"{}\": {}", id, ex.getMessage());
-							LOGGER.info("", ex);
-						}
+						Metadata metadata = MetadataExtractorParser.getMetadata(bytes, format);
+						ImageInfo imageInfo = ImageInfo.create(
+							resultSet.getInt(COL_IMAGE_WIDTH),
+							resultSet.getInt(COL_IMAGE_HEIGHT),
+							format,
+							bytes.length,
+							ImageInfo.UNKNOWN,
+							ImageInfo.UNKNOWN,
+							null,
+							null,
+							metadata,
+							false,
+							true
+						);
+						return new DLNAThumbnail(bytes, imageInfo, profile, false);
+					} catch (ImageProcessingException | IOException e) {
+						LOGGER.error("Error reading thumbnail id \"{}\": {}", id, e.getMessage());
+						LOGGER.trace("", e);
 					}
-					return thumbnail;
 				}
 			}
-		} catch (SQLException e) {
+		} catch (SQLException | IllegalArgumentException e) {
 			LOGGER.error("Database error in " + TABLE_NAME + " for id \"{}\": {}", id, e.getMessage());
 			LOGGER.trace("", e);
 		}
@@ -23,9 +23,15 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import net.pms.external.umsapi.APIUtils;
 import net.pms.media.MediaInfo;
+import net.pms.media.video.metadata.ApiRatingSourceArray;
+import net.pms.media.video.metadata.ApiStringArray;
 import net.pms.media.video.metadata.MediaVideoMetadata;
 import net.pms.media.video.metadata.VideoMetadataLocalized;
 import net.pms.store.MediaInfoStore;
@@ -141,6 +147,7 @@ public class MediaTableVideoMetadata extends MediaTable {
 	 */
 	private static final String SQL_GET_VIDEO_METADATA_BY_FILEID = SELECT + COL_FILEID + COMMA + BASIC_COLUMNS + FROM + TABLE_NAME + WHERE + COL_FILEID + EQUAL + PARAMETER;
 	private static final String SQL_GET_VIDEO_ALL_METADATA_BY_FILEID = SELECT_ALL + FROM + TABLE_NAME + WHERE + COL_FILEID + EQUAL + PARAMETER;
+	private static final String SQL_GET_VIDEO_METADATA_BY_FILEIDS_WITH_IMDBID_OR_TMDBID_EXIST = SELECT_ALL + FROM + TABLE_NAME + WHERE + TABLE_COL_FILEID + EQUAL + ANY_PARAMETER + AND + "(" + TABLE_COL_IMDBID + IS_NOT_NULL + OR + TABLE_COL_TMDBID + IS_NOT_NULL + ")";
 	private static final String SQL_GET_VIDEO_METADATA_BY_FILEID_WITH_IMDBID_OR_TMDBID_EXIST = SELECT_ALL + FROM + TABLE_NAME + WHERE + TABLE_COL_FILEID + EQUAL + PARAMETER + AND + "(" + TABLE_COL_IMDBID + IS_NOT_NULL + OR + TABLE_COL_TMDBID + IS_NOT_NULL + ")" + LIMIT_1;
 	private static final String SQL_GET_API_METADATA_EXIST = SELECT + TABLE_COL_FILEID + FROM + TABLE_NAME + WHERE + TABLE_COL_FILEID + EQUAL + PARAMETER + LIMIT_1;
 	private static final String SQL_GET_API_METADATA_IMDBID_OR_TMDBID_EXIST = SELECT + TABLE_COL_FILEID + FROM + TABLE_NAME + WHERE + TABLE_COL_FILEID + EQUAL + PARAMETER + AND + "(" + TABLE_COL_IMDBID + IS_NOT_NULL + OR + TABLE_COL_TMDBID + IS_NOT_NULL + ")" + LIMIT_1;
@@ -558,46 +565,13 @@ public class MediaTableVideoMetadata extends MediaTable {
 				}
 				try (ResultSet rs = selectStatement.executeQuery()) {
 					if (rs.next()) {
-						MediaVideoMetadata metadata = new MediaVideoMetadata();
-						metadata.setFileId(rs.getLong(COL_FILEID));
-						metadata.setApiVersion(rs.getString(COL_API_VERSION));
-						metadata.setIMDbID(rs.getString(COL_IMDBID));
-						metadata.setYear(toInteger(rs, COL_MEDIA_YEAR));
-						metadata.setTitle(rs.getString(COL_TITLE));
-						metadata.setExtraInformation(rs.getString(COL_EXTRAINFORMATION));
-						metadata.setIsTvEpisode(rs.getBoolean(COL_ISTVEPISODE));
-						metadata.setTvSeriesId(toLong(rs, COL_TVSERIESID));
-						metadata.setIsSample(rs.getBoolean(COL_ISSAMPLE));
+						MediaVideoMetadata metadata = resultSetToVideoMetadata(rs);
 						metadata.setActors(MediaTableVideoMetadataActors.getActorsForFile(connection, fileId));
 						metadata.setAwards(MediaTableVideoMetadataAwards.getValueForFile(connection, fileId));
-						metadata.setBudget(toLong(rs, COL_BUDGET));
-						metadata.setCredits(rs.getString(COL_CREDITS));
 						metadata.setCountries(MediaTableVideoMetadataCountries.getCountriesForFile(connection, fileId));
 						metadata.setDirectors(MediaTableVideoMetadataDirectors.getDirectorsForFile(connection, fileId));
-						metadata.setExternalIDs(rs.getString(COL_EXTERNALIDS));
 						metadata.setGenres(MediaTableVideoMetadataGenres.getGenresForFile(connection, fileId));
-						metadata.setHomepage(rs.getString(COL_HOMEPAGE));
-						metadata.setImages(rs.getString(COL_IMAGES));
-						metadata.setOriginalLanguage(rs.getString(COL_ORIGINALLANGUAGE));
-						metadata.setOriginalTitle(rs.getString(COL_ORIGINALTITLE));
-						metadata.setOverview(rs.getString(COL_OVERVIEW));
-						metadata.setPoster(rs.getString(COL_POSTER));
-						metadata.setProductionCompanies(rs.getString(COL_PRODUCTIONCOMPANIES));
-						metadata.setProductionCountries(rs.getString(COL_PRODUCTIONCOUNTRIES));
-						metadata.setRated(rs.getString(COL_RATED));
-						metadata.setRating(toDouble(rs, COL_RATING));
 						metadata.setRatings(MediaTableVideoMetadataRatings.getRatingsForFile(connection, fileId));
-						metadata.setReleased(getLocalDate(rs, COL_RELEASEDATE));
-						metadata.setRevenue(toLong(rs, COL_REVENUE));
-						if (metadata.isTvEpisode() && metadata.getTvSeriesId() != null) {
-							metadata.setSeriesMetadata(MediaInfoStore.getTvSeriesMetadata(metadata.getTvSeriesId()));
-						}
-						metadata.setTvSeason(toInteger(rs, COL_TVSEASON));
-						metadata.setTvEpisodeNumber(rs.getString(COL_TVEPISODENUMBER));
-						metadata.setTagline(rs.getString(COL_TAGLINE));
-						metadata.setTmdbId(toLong(rs, COL_TMDBID));
-						metadata.setTmdbTvId(toLong(rs, COL_TMDBTVID));
-						metadata.setVotes(rs.getString(COL_VOTES));
 						metadata.setTranslations(MediaTableVideoMetadataLocalized.getAllVideoMetadataLocalized(connection, fileId, false));
 						//ensure we have the default translation
 						metadata.ensureHavingTranslation(null);
@@ -612,6 +586,102 @@ public class MediaTableVideoMetadata extends MediaTable {
 		return null;
 	}
 
+	/**
+	 * Gets the video metadata of several files in a fixed number of queries,
+	 * one per table, whatever the number of files.
+	 *
+	 * @param connection the db connection
+	 * @param fileIds the file IDs.
+	 * @return the video metadata by file ID, files without metadata are
+	 *         absent.
+	 */
+	public static Map<Long, MediaVideoMetadata> getVideoMetadataByFileIds(final Connection connection, final Collection<Long> fileIds) {
+		Map<Long, MediaVideoMetadata> result = new HashMap<>();
+		if (connection == null || fileIds.isEmpty()) {
+			return result;
+		}
+		try (PreparedStatement selectStatement = connection.prepareStatement(SQL_GET_VIDEO_METADATA_BY_FILEIDS_WITH_IMDBID_OR_TMDBID_EXIST)) {
+			setLongArray(selectStatement, 1, fileIds);
+			try (ResultSet rs = selectStatement.executeQuery()) {
+				while (rs.next()) {
+					MediaVideoMetadata metadata = resultSetToVideoMetadata(rs);
+					result.putIfAbsent(metadata.getFileId(), metadata);
+				}
+			}
+		} catch (SQLException e) {
+			LOGGER.error("Database error in " + TABLE_NAME + " for {} files: {}", fileIds.size(), e.getMessage());
+			LOGGER.trace("", e);
+			return result;
+		}
+		if (result.isEmpty()) {
+			return result;
+		}
+		Set<Long> found = result.keySet();
+		Map<Long, ApiStringArray> actors = MediaTableVideoMetadataActors.getActorsForFiles(connection, found);
+		Map<Long, String> awards = MediaTableVideoMetadataAwards.getValuesForFiles(connection, found);
+		Map<Long, ApiStringArray> countries = MediaTableVideoMetadataCountries.getCountriesForFiles(connection, found);
+		Map<Long, ApiStringArray> directors = MediaTableVideoMetadataDirectors.getDirectorsForFiles(connection, found);
+		Map<Long, ApiStringArray> genres = MediaTableVideoMetadataGenres.getGenresForFiles(connection, found);
+		Map<Long, ApiRatingSourceArray> ratings = MediaTableVideoMetadataRatings.getRatingsForFiles(connection, found);
+		Map<Long, Map<String, VideoMetadataLocalized>> translations = MediaTableVideoMetadataLocalized.getAllVideoMetadataLocalized(connection, found);
+		for (Map.Entry<Long, MediaVideoMetadata> entry : result.entrySet()) {
+			Long fileId = entry.getKey();
+			MediaVideoMetadata metadata = entry.getValue();
+			metadata.setActors(actors.getOrDefault(fileId, new ApiStringArray()));
+			metadata.setAwards(awards.get(fileId));
+			metadata.setCountries(countries.getOrDefault(fileId, new ApiStringArray()));
+			metadata.setDirectors(directors.getOrDefault(fileId, new ApiStringArray()));
+			metadata.setGenres(genres.getOrDefault(fileId, new ApiStringArray()));
+			metadata.setRatings(ratings.getOrDefault(fileId, new ApiRatingSourceArray()));
+			metadata.setTranslations(translations.getOrDefault(fileId, new HashMap<>()));
+			//ensure we have the default translation
+			metadata.ensureHavingTranslation(null);
+		}
+		return result;
+	}
+
+	/**
+	 * @return the video metadata of the current row, without the values
+	 *         stored in the child tables.
+	 */
+	private static MediaVideoMetadata resultSetToVideoMetadata(ResultSet rs) throws SQLException {
+		MediaVideoMetadata metadata = new MediaVideoMetadata();
+		metadata.setFileId(rs.getLong(COL_FILEID));
+		metadata.setApiVersion(rs.getString(COL_API_VERSION));
+		metadata.setIMDbID(rs.getString(COL_IMDBID));
+		metadata.setYear(toInteger(rs, COL_MEDIA_YEAR));
+		metadata.setTitle(rs.getString(COL_TITLE));
+		metadata.setExtraInformation(rs.getString(COL_EXTRAINFORMATION));
+		metadata.setIsTvEpisode(rs.getBoolean(COL_ISTVEPISODE));
+		metadata.setTvSeriesId(toLong(rs, COL_TVSERIESID));
+		metadata.setIsSample(rs.getBoolean(COL_ISSAMPLE));
+		metadata.setBudget(toLong(rs, COL_BUDGET));
+		metadata.setCredits(rs.getString(COL_CREDITS));
+		metadata.setExternalIDs(rs.getString(COL_EXTERNALIDS));
+		metadata.setHomepage(rs.getString(COL_HOMEPAGE));
+		metadata.setImages(rs.getString(COL_IMAGES));
+		metadata.setOriginalLanguage(rs.getString(COL_ORIGINALLANGUAGE));
+		metadata.setOriginalTitle(rs.getString(COL_ORIGINALTITLE));
+		metadata.setOverview(rs.getString(COL_OVERVIEW));
+		metadata.setPoster(rs.getString(COL_POSTER));
+		metadata.setProductionCompanies(rs.getString(COL_PRODUCTIONCOMPANIES));
+		metadata.setProductionCountries(rs.getString(COL_PRODUCTIONCOUNTRIES));
+		metadata.setRated(rs.getString(COL_RATED));
+		metadata.setRating(toDouble(rs, COL_RATING));
+		metadata.setReleased(getLocalDate(rs, COL_RELEASEDATE));
+		metadata.setRevenue(toLong(rs, COL_REVENUE));
+		if (metadata.isTvEpisode() && metadata.getTvSeriesId() != null) {
+			metadata.setSeriesMetadata(MediaInfoStore.getTvSeriesMetadata(metadata.getTvSeriesId()));
+		}
+		metadata.setTvSeason(toInteger(rs, COL_TVSEASON));
+		metadata.setTvEpisodeNumber(rs.getString(COL_TVEPISODENUMBER));
+		metadata.setTagline(rs.getString(COL_TAGLINE));
+		metadata.setTmdbId(toLong(rs, COL_TMDBID));
+		metadata.setTmdbTvId(toLong(rs, COL_TMDBTVID));
+		metadata.setVotes(rs.getString(COL_VOTES));
+		return metadata;
+	}
+
 	public static VideoMetadataLocalized getVideoMetadataUnLocalized(final Connection connection, final long fileId) {
 		if (connection == null || fileId < 0) {
 			return null;
@@ -22,7 +22,10 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import net.pms.media.video.metadata.ApiStringArray;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -59,6 +62,7 @@ public final class MediaTableVideoMetadataActors extends MediaTable {
 	/**
 	 * SQL Queries
 	 */
+	private static final String SQL_GET_ACTORS_FILEIDS = SELECT + TABLE_COL_ACTOR + COMMA + TABLE_COL_FILEID + FROM + TABLE_NAME + WHERE + TABLE_COL_FILEID + EQUAL + ANY_PARAMETER;
 	private static final String SQL_GET_ACTORS_FILEID = SELECT + TABLE_COL_ACTOR + FROM + TABLE_NAME + WHERE + TABLE_COL_FILEID + EQUAL + PARAMETER;
 	private static final String SQL_GET_ACTORS_TVSERIESID = SELECT + TABLE_COL_ACTOR + FROM + TABLE_NAME + WHERE + TABLE_COL_TVSERIESID + EQUAL + PARAMETER;
 	private static final String SQL_GET_ALL_FILEID = SELECT_ALL + FROM + TABLE_NAME + WHERE + TABLE_COL_FILEID + EQUAL + PARAMETER;
@@ -205,6 +209,32 @@ public final class MediaTableVideoMetadataActors extends MediaTable {
 		}
 	}
 
+	/**
+	 * Gets the actors of several files in one query.
+	 *
+	 * @param connection the db connection
+	 * @param fileIds the file IDs.
+	 * @return the actors by file ID, files without actors are absent.
+	 */
+	public static Map<Long, ApiStringArray> getActorsForFiles(final Connection connection, final Collection<Long> fileIds) {
+		Map<Long, ApiStringArray> result = new HashMap<>();
+		if (fileIds.isEmpty()) {
+			return result;
+		}
+		try (PreparedStatement ps = connection.prepareStatement(SQL_GET_ACTORS_FILEIDS)) {
+			setLongArray(ps, 1, fileIds);
+			try (ResultSet rs = ps.executeQuery()) {
+				while (rs.next()) {
+					result.computeIfAbsent(rs.getLong(2), fileId -> new ApiStringArray()).add(rs.getString(1));
+				}
+			}
+		} catch (SQLException e) {
+			LOGGER.error("Database error in " + TABLE_NAME + " for {} files: {}", fileIds.size(), e.getMessage());
+			LOGGER.trace("", e);
+		}
+		return result;
+	}
+
 	public static ApiStringArray getActorsForFile(final Connection connection, final Long fileId) {
 		ApiStringArray result = new ApiStringArray();
 		try {
@@ -22,7 +22,10 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import net.pms.media.video.metadata.ApiStringArray;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -59,6 +62,7 @@ public final class MediaTableVideoMetadataDirectors extends MediaTable {
 	/**
 	 * SQL Queries
 	 */
+	private static final String SQL_GET_DIRECTOR_FILEIDS = SELECT + TABLE_COL_DIRECTOR + COMMA + TABLE_COL_FILEID + FROM + TABLE_NAME + WHERE + TABLE_COL_FILEID + EQUAL + ANY_PARAMETER;
 	private static final String SQL_GET_DIRECTOR_FILEID = SELECT + TABLE_COL_DIRECTOR + FROM + TABLE_NAME + WHERE + TABLE_COL_FILEID + EQUAL + PARAMETER;
 	private static final String SQL_GET_DIRECTOR_TVSERIESID = SELECT + TABLE_COL_DIRECTOR + FROM + TABLE_NAME + WHERE + TABLE_COL_TVSERIESID + EQUAL + PARAMETER;
 	private static final String SQL_GET_ALL_FILEID = SELECT_ALL + FROM + TABLE_NAME + WHERE + TABLE_COL_FILEID + EQUAL + PARAMETER;
@@ -206,6 +210,32 @@ public final class MediaTableVideoMetadataDirectors extends MediaTable {
 		}
 	}
 
+	/**
+	 * Gets the directors of several files in one query.
+	 *
+	 * @param connection the db connection
+	 * @param fileIds the file IDs.
+	 * @return the directors by file ID, files without directors are absent.
+	 */
+	public static Map<Long, ApiStringArray> getDirectorsForFiles(final Connection connection, final Collection<Long> fileIds) {
+		Map<Long, ApiStringArray> result = new HashMap<>();
+		if (fileIds.isEmpty()) {
+			return result;
+		}
+		try (PreparedStatement ps = connection.prepareStatement(SQL_GET_DIRECTOR_FILEIDS)) {
+			setLongArray(ps, 1, fileIds);
+			try (ResultSet rs = ps.executeQuery()) {
+				while (rs.next()) {
+					result.computeIfAbsent(rs.getLong(2), fileId -> new ApiStringArray()).add(rs.getString(1));
+				}
+			}
+		} catch (SQLException e) {
+			LOGGER.error("Database error in " + TABLE_NAME + " for {} files: {}", fileIds.size(), e.getMessage());
+			LOGGER.trace("", e);
+		}
+		return result;
+	}
+
 	public static ApiStringArray getDirectorsForFile(final Connection connection, final long fileId) {
 		ApiStringArray result = new ApiStringArray();
 		try {
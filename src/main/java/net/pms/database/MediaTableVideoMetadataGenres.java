@@ -22,7 +22,10 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import net.pms.media.video.metadata.ApiStringArray;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -60,6 +63,7 @@ public final class MediaTableVideoMetadataGenres extends MediaTable {
 	/**
 	 * SQL Queries
 	 */
+	private static final String SQL_GET_GENRE_FILEIDS = SELECT + TABLE_COL_GENRE + COMMA + TABLE_COL_FILEID + FROM + TABLE_NAME + WHERE + TABLE_COL_FILEID + EQUAL + ANY_PARAMETER;
 	private static final String SQL_GET_GENRE_FILEID = SELECT + TABLE_COL_GENRE + FROM + TABLE_NAME + WHERE + TABLE_COL_FILEID + EQUAL + PARAMETER;
 	private static final String SQL_GET_GENRE_TVSERIESID = SELECT + TABLE_COL_GENRE + FROM + TABLE_NAME + WHERE + TABLE_COL_TVSERIESID + EQUAL + PARAMETER;
 	private static final String SQL_GET_ALL_FILEID = SELECT_ALL + FROM + TABLE_NAME + WHERE + TABLE_COL_FILEID + EQUAL + PARAMETER;
@@ -207,6 +211,32 @@ public final class MediaTableVideoMetadataGenres extends MediaTable {
 		}
 	}
 
+	/**
+	 * Gets the genres of several files in one query.
+	 *
+	 * @param connection the db connection
+	 * @param fileIds the file IDs.
+	 * @return the genres by file ID, files without genres are absent.
+	 */
+	public static Map<Long, ApiStringArray> getGenresForFiles(final Connection connection, final Collection<Long> fileIds) {
+		Map<Long, ApiStringArray> result = new HashMap<>();
+		if (fileIds.isEmpty()) {
+			return result;
+		}
+		try (PreparedStatement ps = connection.prepareStatement(SQL_GET_GENRE_FILEIDS)) {
+			setLongArray(ps, 1, fileIds);
+			try (ResultSet rs = ps.executeQuery()) {
+				while (rs.next()) {
+					result.computeIfAbsent(rs.getLong(2), fileId -> new ApiStringArray()).add(rs.getString(1));
+				}
+			}
+		} catch (SQLException e) {
+			LOGGER.error("Database error in " + TABLE_NAME + " for {} files: {}", fileIds.size(), e.getMessage());
+			LOGGER.trace("", e);
+		}
+		return result;
+	}
+
 	public static ApiStringArray getGenresForFile(final Connection connection, final Long fileId) {
 		ApiStringArray result = new ApiStringArray();
 		try {
@@ -23,6 +23,9 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import net.pms.media.video.metadata.ApiRatingSource;
 import net.pms.media.video.metadata.ApiRatingSourceArray;
 import org.apache.commons.lang3.StringUtils;
@@ -63,6 +66,7 @@ public final class MediaTableVideoMetadataRatings extends MediaTable {
 	/**
 	 * SQL Queries
 	 */
+	private static final String SQL_GET_RATING_FILEIDS = SELECT + TABLE_COL_RATINGSOURCE + ", " + TABLE_COL_RATINGVALUE + ", " + TABLE_COL_FILEID + FROM + TABLE_NAME + WHERE + TABLE_COL_FILEID + EQUAL + ANY_PARAMETER;
 	private static final String SQL_GET_RATING_FILEID = SELECT + TABLE_COL_RATINGSOURCE + ", " + TABLE_COL_RATINGVALUE + FROM + TABLE_NAME + WHERE + TABLE_COL_FILEID + EQUAL + PARAMETER;
 	private static final String SQL_GET_RATING_TVSERIESID = SELECT + TABLE_COL_RATINGSOURCE + ", " + TABLE_COL_RATINGVALUE + FROM + TABLE_NAME + WHERE + TABLE_COL_TVSERIESID + EQUAL + PARAMETER;
 	private static final String SQL_GET_TVSERIESID_EXISTS = SELECT + COL_ID + FROM + TABLE_NAME + WHERE + TABLE_COL_TVSERIESID + EQUAL + PARAMETER + AND + TABLE_COL_RATINGSOURCE + EQUAL + PARAMETER + LIMIT_1;
@@ -249,6 +253,35 @@ public final class MediaTableVideoMetadataRatings extends MediaTable {
 		return result;
 	}
 
+	/**
+	 * Gets the ratings of several files in one query.
+	 *
+	 * @param connection the db connection
+	 * @param fileIds the file IDs.
+	 * @return the ratings by file ID, files without ratings are absent.
+	 */
+	public static Map<Long, ApiRatingSourceArray> getRatingsForFiles(final Connection connection, final Collection<Long> fileIds) {
+		Map<Long, ApiRatingSourceArray> result = new HashMap<>();
+		if (fileIds.isEmpty()) {
+			return result;
+		}
+		try (PreparedStatement ps = connection.prepareStatement(SQL_GET_RATING_FILEIDS)) {
+			setLongArray(ps, 1, fileIds);
+			try (ResultSet rs = ps.executeQuery()) {
+				while (rs.next()) {
+					ApiRatingSource source = new ApiRatingSource();
+					source.setSource(rs.getString(1));
+					source.setValue(rs.getString(2));
+					result.computeIfAbsent(rs.getLong(3), fileId -> new ApiRatingSourceArray()).add(source);
+				}
+			}
+		} catch (SQLException e) {
+			LOGGER.error("Database error in " + TABLE_NAME + " for {} files: {}", fileIds.size(), e.getMessage());
+			LOGGER.trace("", e);
+		}
+		return result;
+	}
+
 	public static JsonArray getJsonArrayForFile(final Connection connection, final Long fileId) {
 		JsonArray result = new JsonArray();
 		try {
@@ -21,7 +21,10 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import net.pms.media.MediaInfo;
 import net.pms.media.video.MediaVideo;
 import org.apache.commons.lang3.StringUtils;
@@ -90,6 +93,7 @@ public class MediaTableVideotracks extends MediaTable {
 	 * SQL Queries
 	 */
 	private static final String SQL_GET_ALL_BY_FILEID = SELECT_ALL + FROM + TABLE_NAME + WHERE + TABLE_COL_FILEID + EQUAL + PARAMETER;
+	private static final String SQL_GET_ALL_BY_FILEIDS = SELECT_ALL + FROM + TABLE_NAME + WHERE + TABLE_COL_FILEID + EQUAL + ANY_PARAMETER + ORDER_BY + TABLE_COL_FILEID + COMMA + TABLE_COL_ID;
 	private static final String SQL_GET_ALL_BY_FILEID_ID = SELECT_ALL + FROM + TABLE_NAME + WHERE + TABLE_COL_FILEID + EQUAL + PARAMETER + AND + TABLE_COL_ID + EQUAL + PARAMETER;
 	private static final String SQL_DELETE_BY_FILEID_ID_GREATER_OR_EQUAL = DELETE_FROM + TABLE_NAME + WHERE + TABLE_COL_FILEID + EQUAL + PARAMETER + AND + TABLE_COL_ID + GREATER_OR_EQUAL_THAN + PARAMETER;
 	public static final String SQL_GET_FILEID_BY_VIDEO4K = SELECT + TABLE_COL_FILEID + FROM + TABLE_NAME + WHERE + TABLE_COL_WIDTH + " > 3700" + OR + TABLE_COL_HEIGHT + " > 2000";
@@ -279,6 +283,33 @@ public class MediaTableVideotracks extends MediaTable {
 		return result;
 	}
 
+	/**
+	 * Gets the video tracks of several files in one query.
+	 *
+	 * @param connection the db connection
+	 * @param fileIds the file IDs.
+	 * @return the video tracks by file ID, files without tracks are absent.
+	 */
+	protected static Map<Long, List<MediaVideo>> getVideoTracks(Connection connection, Collection<Long> fileIds) {
+		Map<Long, List<MediaVideo>> result = new HashMap<>();
+		if (connection == null || fileIds.isEmpty()) {
+			return result;
+		}
+		try (PreparedStatement stmt = connection.prepareStatement(SQL_GET_ALL_BY_FILEIDS)) {
+			setLongArray(stmt, 1, fileIds);
+			try (ResultSet resultset = stmt.executeQuery()) {
+				while (resultset.next()) {
+					MediaVideo videoTrack = getVideoTrack(resultset);
+					result.computeIfAbsent(resultset.getLong(COL_FILEID), fileId -> new ArrayList<>()).add(videoTrack);
+				}
+			}
+		} catch (SQLException e) {
+			LOGGER.error("Database error in " + TABLE_NAME + " for {} files: {}", fileIds.size(), e.getMessage());
+			LOGGER.trace("", e);
+		}
+		return result;
+	}
+
 	private static MediaVideo getVideoTrack(ResultSet resultset) throws SQLException {
 		MediaVideo result = new MediaVideo();
 		result.setId(resultset.getInt(COL_ID));
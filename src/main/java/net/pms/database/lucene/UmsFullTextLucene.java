@@ -15,15 +15,19 @@ import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.document.DateTools;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.FieldType;
 import org.apache.lucene.document.TextField;
-import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexFormatTooOldException;
-import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.Term;
@@ -31,8 +35,10 @@ import org.apache.lucene.queryparser.flexible.standard.StandardQueryParser;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.TotalHits;
+import org.apache.lucene.store.AlreadyClosedException;
 import org.apache.lucene.store.ByteBuffersDirectory;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
@@ -47,10 +53,13 @@ import org.h2.store.fs.FileUtils;
 import org.h2.tools.SimpleResultSet;
 import org.h2.util.StringUtils;
 import org.h2.util.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * COPIED from h2 version 2.2.240 - Moved all references from FullTextLucene to
- * UmsFullTextLucene - Added UmsAnalyzer for indexing
+ * UmsFullTextLucene - Added UmsAnalyzer for indexing - Trigger changes are
+ * committed in batches and searched with near-real-time searchers
  */
 public class UmsFullTextLucene extends FullText {
 
@@ -67,6 +76,28 @@ public class UmsFullTextLucene extends FullText {
 	private static final String LUCENE_FIELD_MODIFIED = "_modified";
 	private static final String LUCENE_FIELD_COLUMN_PREFIX = "_";
 
+	/**
+	 * The number of changes after which the index is committed.
+	 */
+	private static final int COMMIT_BATCH_SIZE = 1000;
+
+	/**
+	 * The maximum time in milliseconds changes stay uncommitted.
+	 */
+	private static final long COMMIT_INTERVAL = 5000;
+
+	/**
+	 * How often in milliseconds pending changes are looked at.
+	 */
+	private static final long REFRESH_INTERVAL = 1000;
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(UmsFullTextLucene.class);
+	private static final ScheduledExecutorService COMMITTER = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread thread = new Thread(r, "Full text index committer");
+		thread.setDaemon(true);
+		return thread;
+	});
+
 	/**
 	 * The prefix for a in-memory path. This prefix is only used internally
 	 * within this class and not related to the database URL.
@@ -581,20 +612,21 @@ public class UmsFullTextLucene extends FullText {
 		 */
 		@Override
 		public void fire(Connection conn, Object[] oldRow, Object[] newRow) throws SQLException {
+			// The changes are committed in batches by the index access
 			if (oldRow != null) {
 				if (newRow != null) {
 					// update
 					if (hasChanged(oldRow, newRow, indexColumns)) {
 						delete(oldRow, false);
-						insert(newRow, true);
+						insert(newRow, false);
 					}
 				} else {
 					// delete
-					delete(oldRow, true);
+					delete(oldRow, false);
 				}
 			} else if (newRow != null) {
 				// insert
-				insert(newRow, true);
+				insert(newRow, false);
 			}
 		}
 
@@ -668,6 +700,8 @@ public class UmsFullTextLucene extends FullText {
 				indexAccess.writer.addDocument(doc);
 				if (commitIndex) {
 					commitIndex();
+				} else {
+					indexAccess.changed();
 				}
 			} catch (IOException e) {
 				throw convertException(e);
@@ -694,6 +728,8 @@ public class UmsFullTextLucene extends FullText {
 				indexAccess.writer.deleteDocuments(term);
 				if (commitIndex) {
 					commitIndex();
+				} else {
+					indexAccess.changed();
 				}
 			} catch (IOException e) {
 				throw convertException(e);
@@ -725,6 +761,12 @@ public class UmsFullTextLucene extends FullText {
 
 	/**
 	 * A wrapper for the Lucene writer and searcher.
+	 *
+	 * Changes are buffered by the writer and committed in batches by a
+	 * background task, once enough of them are pending or some time has
+	 * passed, instead of once per row. Searches use a near-real-time searcher,
+	 * refreshed from the writer, so they see the changes before they are
+	 * committed.
 	 */
 	private static final class IndexAccess {
 
@@ -734,13 +776,20 @@ public class UmsFullTextLucene extends FullText {
 		final IndexWriter writer;
 
 		/**
-		 * The index searcher.
+		 * The near-real-time searchers.
 		 */
-		private IndexSearcher searcher;
+		private final SearcherManager searcherManager;
+
+		private final AtomicInteger uncommittedChanges = new AtomicInteger();
+		private final AtomicBoolean commitRequested = new AtomicBoolean();
+		private final ScheduledFuture<?> committer;
+		private volatile long lastCommit = System.currentTimeMillis();
+		private boolean closed;
 
 		IndexAccess(IndexWriter writer) throws IOException {
 			this.writer = writer;
-			initializeSearcher();
+			searcherManager = new SearcherManager(writer, null);
+			committer = COMMITTER.scheduleWithFixedDelay(this::commitIfNeeded, REFRESH_INTERVAL, REFRESH_INTERVAL, TimeUnit.MILLISECONDS);
 		}
 
 		/**
@@ -749,16 +798,10 @@ public class UmsFullTextLucene extends FullText {
 		 * @return the searcher
 		 * @throws IOException on failure
 		 */
-		synchronized IndexSearcher getSearcher() throws IOException {
-			if (!searcher.getIndexReader().tryIncRef()) {
-				initializeSearcher();
-			}
-			return searcher;
-		}
-
-		private void initializeSearcher() throws IOException {
-			IndexReader reader = DirectoryReader.open(writer);
-			searcher = new IndexSearcher(reader);
+		IndexSearcher getSearcher() throws IOException {
+			// Only reopens if the index changed since the last search
+			searcherManager.maybeRefreshBlocking();
+			return searcherManager.acquire();
 		}
 
 		/**
@@ -767,8 +810,36 @@ public class UmsFullTextLucene extends FullText {
 		 * @param searcher the searcher
 		 * @throws IOException on failure
 		 */
-		synchronized void returnSearcher(IndexSearcher searcher) throws IOException {
-			searcher.getIndexReader().decRef();
+		void returnSearcher(IndexSearcher searcher) throws IOException {
+			searcherManager.release(searcher);
+		}
+
+		/**
+		 * Records a change made with the writer, committing early when
+		 * enough of them are pending.
+		 */
+		void changed() {
+			if (uncommittedChanges.incrementAndGet() >= COMMIT_BATCH_SIZE && commitRequested.compareAndSet(false, true)) {
+				COMMITTER.execute(this::commitIfNeeded);
+			}
+		}
+
+		private void commitIfNeeded() {
+			commitRequested.set(false);
+			int changes = uncommittedChanges.get();
+			if (changes == 0) {
+				return;
+			}
+			try {
+				if (changes >= COMMIT_BATCH_SIZE || System.currentTimeMillis() - lastCommit >= COMMIT_INTERVAL) {
+					commit();
+				} else {
+					searcherManager.maybeRefresh();
+				}
+			} catch (IOException | AlreadyClosedException e) {
+				LOGGER.debug("Error while committing the full text index: {}", e.getMessage());
+				LOGGER.trace("", e);
+			}
 		}
 
 		/**
@@ -777,10 +848,18 @@ public class UmsFullTextLucene extends FullText {
 		 * @throws IOException on failure
 		 */
 		public synchronized void commit() throws IOException {
-			writer.commit();
-			IndexReader oldReader = searcher.getIndexReader();
-			searcher = new IndexSearcher(DirectoryReader.open(writer));
-			oldReader.close();
+			if (closed) {
+				return;
+			}
+			int changes = uncommittedChanges.getAndSet(0);
+			try {
+				writer.commit();
+			} catch (IOException | RuntimeException e) {
+				uncommittedChanges.addAndGet(changes);
+				throw e;
+			}
+			lastCommit = System.currentTimeMillis();
+			searcherManager.maybeRefresh();
 		}
 
 		/**
@@ -789,11 +868,19 @@ public class UmsFullTextLucene extends FullText {
 		 * @throws IOException on failure
 		 */
 		public synchronized void close() throws IOException {
-			if (searcher != null) {
-				searcher.getIndexReader().close();
-				searcher = null;
+			if (closed) {
+				return;
+			}
+			committer.cancel(false);
+			try {
+				if (uncommittedChanges.get() > 0) {
+					writer.commit();
+				}
+			} finally {
+				closed = true;
+				searcherManager.close();
+				writer.close();
 			}
-			writer.close();
 		}
 	}
 }
@@ -0,0 +1,427 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.dlna;
+
+import com.drew.imaging.ImageProcessingException;
+import com.drew.metadata.Metadata;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import net.pms.PMS;
+import net.pms.configuration.UmsConfiguration;
+import net.pms.dlna.protocolinfo.MimeType;
+import net.pms.image.BufferedImageFilterChain;
+import net.pms.image.ImageFormat;
+import net.pms.image.ImageInfo;
+import net.pms.image.ImagesUtil;
+import net.pms.parsers.MetadataExtractorParser;
+import net.pms.util.ParseException;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A cache of the thumbnails transcoded for a {@link DLNAImageProfile}.
+ *
+ * Thumbnails are keyed by the MD5 of the source image, the target profile,
+ * the padding and the filters applied, so a changed source or a different
+ * overlay never hits a stale entry. Recently used thumbnails are kept in
+ * memory, and all of them are kept on disk in the {@code thumbnails} folder of
+ * the profile directory. Both tiers are bounded in size and evict the least
+ * recently used thumbnails first.
+ *
+ * A thumbnail is stored on disk as its image bytes, preceded by its format,
+ * profile and size, so that it is read back without being parsed again.
+ */
+public class DLNAThumbnailCache {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(DLNAThumbnailCache.class);
+	private static final long MAX_MEMORY_SIZE = 16L * 1024 * 1024;
+	private static final String DIRECTORY_NAME = "thumbnails";
+	private static final String EXTENSION = ".thumb";
+	private static final int MAGIC = 0x554d5354;
+	private static final int VERSION = 1;
+
+	private static DLNAThumbnailCache instance;
+
+	private final Map<String, DLNAThumbnail> memory = new LinkedHashMap<>(16, 0.75f, true);
+	private final AtomicLong memoryHits = new AtomicLong();
+	private final AtomicLong diskHits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final File directory;
+	private final long maxMemorySize;
+	private final long maxDiskSize;
+	private long memorySize;
+	private Map<String, Long> disk;
+	private long diskSize;
+
+	/**
+	 * Creates a new cache.
+	 *
+	 * @param directory the folder of the disk tier.
+	 * @param maxMemorySize the maximum size in bytes of the memory tier.
+	 * @param maxDiskSize the maximum size in bytes of the disk tier, the disk
+	 *            tier is not used if {@code 0}.
+	 */
+	DLNAThumbnailCache(File directory, long maxMemorySize, long maxDiskSize) {
+		this.directory = directory;
+		this.maxMemorySize = maxMemorySize;
+		this.maxDiskSize = maxDiskSize;
+	}
+
+	/**
+	 * @return The cache of the transcoded thumbnails.
+	 */
+	public static synchronized DLNAThumbnailCache get() {
+		if (instance == null) {
+			UmsConfiguration configuration = PMS.getConfiguration();
+			long maxDiskSize = configuration != null ? configuration.getThumbnailCacheSize() * 1024L * 1024L : 0;
+			instance = new DLNAThumbnailCache(
+				new File(UmsConfiguration.getProfileDirectory(), DIRECTORY_NAME),
+				MAX_MEMORY_SIZE,
+				maxDiskSize
+			);
+		}
+		return instance;
+	}
+
+	/**
+	 * Gets the thumbnail transcoded for the given {@link DLNAImageProfile},
+	 * from the cache if it was transcoded before.
+	 *
+	 * @param source the source image.
+	 * @param outputProfile the DLNA media profile to adhere to for the output.
+	 * @param padToSize Whether padding should be used if source aspect doesn't
+	 *                  match target aspect.
+	 * @param filterChain a {@link BufferedImageFilterChain} to apply during the
+	 *            operation or {@code null}.
+	 * @return The transcoded thumbnail, {@code null} if the source is
+	 *         {@code null}.
+	 * @throws IOException if the operation fails.
+	 */
+	public DLNAThumbnail getTranscoded(
+		byte[] source,
+		DLNAImageProfile outputProfile,
+		boolean padToSize,
+		BufferedImageFilterChain filterChain
+	) throws IOException {
+		if (source == null) {
+			return null;
+		}
+		String key = DigestUtils.md5Hex(
+			DigestUtils.md5Hex(source) + "|" +
+			outputProfile + "|" +
+			outputProfile.getMimeType() + "|" +
+			padToSize + "|" +
+			(filterChain != null ? filterChain.toString() : "")
+		);
+		DLNAThumbnail thumbnail = getFromMemory(key);
+		if (thumbnail != null) {
+			memoryHits.incrementAndGet();
+			return thumbnail;
+		}
+		thumbnail = getFromDisk(key);
+		if (thumbnail != null) {
+			diskHits.incrementAndGet();
+			putInMemory(key, thumbnail);
+			return thumbnail;
+		}
+		misses.incrementAndGet();
+		thumbnail = (DLNAThumbnail) ImagesUtil.transcodeImage(
+			source,
+			outputProfile,
+			true,
+			padToSize,
+			filterChain
+		);
+		if (thumbnail != null) {
+			putInMemory(key, thumbnail);
+			putOnDisk(key, thumbnail);
+		}
+		LOGGER.trace("Transcoded thumbnail {} to {}, {}", key, outputProfile, this);
+		return thumbnail;
+	}
+
+	/**
+	 * Removes all the thumbnails from both tiers.
+	 */
+	public synchronized void clear() {
+		memory.clear();
+		memorySize = 0;
+		if (disk != null) {
+			disk.clear();
+			diskSize = 0;
+		}
+		File[] files = directory.listFiles((dir, name) -> name.endsWith(EXTENSION));
+		if (files != null) {
+			for (File file : files) {
+				if (!file.delete()) {
+					LOGGER.debug("Could not delete cached thumbnail \"{}\"", file);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return The number of thumbnails served from memory.
+	 */
+	public long getMemoryHits() {
+		return memoryHits.get();
+	}
+
+	/**
+	 * @return The number of thumbnails served from disk.
+	 */
+	public long getDiskHits() {
+		return diskHits.get();
+	}
+
+	/**
+	 * @return The number of thumbnails that had to be transcoded.
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * @return The size in bytes of the thumbnails in memory.
+	 */
+	public synchronized long getMemorySize() {
+		return memorySize;
+	}
+
+	/**
+	 * @return The size in bytes of the thumbnails on disk.
+	 */
+	public synchronized long getDiskSize() {
+		return diskSize;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "memory hits: " + memoryHits + ", disk hits: " + diskHits + ", misses: " + misses +
+			", memory size: " + memorySize + ", disk size: " + diskSize;
+	}
+
+	private synchronized DLNAThumbnail getFromMemory(String key) {
+		DLNAThumbnail thumbnail = memory.get(key);
+		if (thumbnail != null && disk != null) {
+			// Keep the disk tier in the same order
+			disk.get(key);
+		}
+		return thumbnail;
+	}
+
+	private synchronized void putInMemory(String key, DLNAThumbnail thumbnail) {
+		long size = thumbnail.getBytes(false).length;
+		if (size > maxMemorySize) {
+			return;
+		}
+		DLNAThumbnail previous = memory.put(key, thumbnail);
+		if (previous != null) {
+			memorySize -= previous.getBytes(false).length;
+		}
+		memorySize += size;
+		Iterator<DLNAThumbnail> iterator = memory.values().iterator();
+		while (memorySize > maxMemorySize && iterator.hasNext()) {
+			memorySize -= iterator.next().getBytes(false).length;
+			iterator.remove();
+		}
+	}
+
+	private DLNAThumbnail getFromDisk(String key) {
+		if (!isDiskKnown(key)) {
+			return null;
+		}
+		File file = new File(directory, key + EXTENSION);
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			DLNAThumbnail thumbnail = read(in);
+			if (!file.setLastModified(System.currentTimeMillis())) {
+				LOGGER.trace("Could not touch cached thumbnail \"{}\"", file);
+			}
+			return thumbnail;
+		} catch (IOException | ImageProcessingException | IllegalArgumentException e) {
+			LOGGER.debug("Could not read cached thumbnail \"{}\": {}", file, e.getMessage());
+			LOGGER.trace("", e);
+			removeFromDisk(key);
+			return null;
+		}
+	}
+
+	private void putOnDisk(String key, DLNAThumbnail thumbnail) {
+		if (maxDiskSize <= 0 || !isDiskAvailable()) {
+			return;
+		}
+		File file = new File(directory, key + EXTENSION);
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+			write(out, thumbnail);
+		} catch (IOException e) {
+			LOGGER.debug("Could not write cached thumbnail \"{}\": {}", file, e.getMessage());
+			LOGGER.trace("", e);
+			if (file.exists() && !file.delete()) {
+				LOGGER.debug("Could not delete cached thumbnail \"{}\"", file);
+			}
+			return;
+		}
+		addToDisk(key, file.length());
+	}
+
+	/**
+	 * Writes a thumbnail in the disk format.
+	 *
+	 * @param out the stream to write to.
+	 * @param thumbnail the thumbnail.
+	 * @throws IOException if the operation fails.
+	 */
+	static void write(DataOutputStream out, DLNAThumbnail thumbnail) throws IOException {
+		byte[] bytes = thumbnail.getBytes(false);
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeUTF(thumbnail.getFormat().name());
+		out.writeUTF(thumbnail.getDLNAImageProfile().toString());
+		out.writeUTF(thumbnail.getDLNAImageProfile().getMimeType().toString());
+		out.writeInt(thumbnail.getWidth());
+		out.writeInt(thumbnail.getHeight());
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Reads a thumbnail written by {@link #write}.
+	 *
+	 * @param in the stream to read from.
+	 * @return The thumbnail.
+	 * @throws IOException if the stream isn't in the disk format or the
+	 *             operation fails.
+	 * @throws ImageProcessingException if the image metadata can't be read.
+	 */
+	static DLNAThumbnail read(DataInputStream in) throws IOException, ImageProcessingException {
+		if (in.readInt() != MAGIC) {
+			throw new IOException("Not a cached thumbnail");
+		}
+		int version = in.readInt();
+		if (version != VERSION) {
+			throw new IOException("Unsupported cached thumbnail version " + version);
+		}
+		ImageFormat format = ImageFormat.valueOf(in.readUTF());
+		String profileName = in.readUTF();
+		MimeType mimeType;
+		try {
+			mimeType = MimeType.valueOf(in.readUTF());
+		} catch (ParseException e) {
+			throw new IOException("Invalid cached thumbnail mime type: " + e.getMessage(), e);
+		}
+		DLNAImageProfile profile = DLNAImageProfile.toDLNAImageProfile(profileName, mimeType);
+		if (profile == null) {
+			throw new IOException("Unknown cached thumbnail profile");
+		}
+		int width = in.readInt();
+		int height = in.readInt();
+		int length = in.readInt();
+		if (length < 0) {
+			throw new IOException("Invalid cached thumbnail size " + length);
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		Metadata metadata = MetadataExtractorParser.getMetadata(bytes, format);
+		ImageInfo imageInfo = ImageInfo.create(
+			width,
+			height,
+			format,
+			bytes.length,
+			ImageInfo.UNKNOWN,
+			ImageInfo.UNKNOWN,
+			null,
+			null,
+			metadata,
+			false,
+			true
+		);
+		return new DLNAThumbnail(bytes, imageInfo, profile, false);
+	}
+
+	private synchronized boolean isDiskKnown(String key) {
+		return isDiskAvailable() && disk.get(key) != null;
+	}
+
+	/**
+	 * Indexes the thumbnails already on disk the first time the disk tier is
+	 * used, the least recently used first.
+	 */
+	private synchronized boolean isDiskAvailable() {
+		if (maxDiskSize <= 0) {
+			return false;
+		}
+		if (disk == null) {
+			if (!directory.isDirectory() && !directory.mkdirs()) {
+				LOGGER.debug("Could not create the thumbnail cache folder \"{}\"", directory);
+				return false;
+			}
+			disk = new LinkedHashMap<>(16, 0.75f, true);
+			File[] files = directory.listFiles((dir, name) -> name.endsWith(EXTENSION));
+			if (files != null) {
+				Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+				for (File file : files) {
+					String name = file.getName();
+					addToDisk(name.substring(0, name.length() - EXTENSION.length()), file.length());
+				}
+			}
+		}
+		return true;
+	}
+
+	private synchronized void addToDisk(String key, long size) {
+		Long previous = disk.put(key, size);
+		if (previous != null) {
+			diskSize -= previous;
+		}
+		diskSize += size;
+		Iterator<Map.Entry<String, Long>> iterator = disk.entrySet().iterator();
+		while (diskSize > maxDiskSize && iterator.hasNext()) {
+			Map.Entry<String, Long> entry = iterator.next();
+			diskSize -= entry.getValue();
+			iterator.remove();
+			File file = new File(directory, entry.getKey() + EXTENSION);
+			if (file.exists() && !file.delete()) {
+				LOGGER.debug("Could not delete cached thumbnail \"{}\"", file);
+			}
+		}
+	}
+
+	private synchronized void removeFromDisk(String key) {
+		Long size = disk.remove(key);
+		if (size != null) {
+			diskSize -= size;
+		}
+		File file = new File(directory, key + EXTENSION);
+		if (file.exists() && !file.delete()) {
+			LOGGER.debug("Could not delete cached thumbnail \"{}\"", file);
+		}
+	}
+
+}
@@ -0,0 +1,106 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.dlna;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.pms.encoders.TranscodingSettings;
+import net.pms.image.ImageInfo;
+import net.pms.media.MediaInfo;
+import net.pms.media.subtitle.MediaSubtitle;
+import net.pms.network.mediaserver.MediaServer;
+import net.pms.renderers.Renderer;
+import net.pms.store.MediaStoreIds;
+import net.pms.store.StoreItem;
+
+/**
+ * The DIDL-Lite of a {@link StoreItem}, as rendered by
+ * {@link DidlHelper#getDidlString(net.pms.store.StoreResource)}, with what it
+ * was rendered from.
+ *
+ * Every renderer and user has its own media store, so the item itself stands
+ * for the resource id, the renderer and the user. The fragment is valid as
+ * long as the object update ID of the item did not change, which happens when
+ * its media info, status or thumbnail are updated in the database, and the
+ * media info, subtitles, transcoding settings and thumbnail of the item are
+ * still the same objects. Changing the configuration invalidates all the
+ * fragments.
+ */
+public final class DidlFragment {
+
+	private static final AtomicInteger GENERATION = new AtomicInteger();
+
+	private final int generation;
+	private final Renderer renderer;
+	private final int userId;
+	private final String updateId;
+	private final String serverUrl;
+	private final MediaInfo mediaInfo;
+	private final MediaSubtitle mediaSubtitle;
+	private final TranscodingSettings transcodingSettings;
+	private final ImageInfo thumbnailImageInfo;
+	private String didl;
+
+	/**
+	 * Takes the state of the item, before rendering its DIDL-Lite.
+	 */
+	DidlFragment(StoreItem item) {
+		generation = GENERATION.get();
+		renderer = item.getDefaultRenderer();
+		userId = renderer.getAccountUserId();
+		updateId = MediaStoreIds.getObjectUpdateIdAsString(item.getLongId());
+		serverUrl = MediaServer.getURL();
+		mediaInfo = item.getMediaInfo();
+		mediaSubtitle = item.getMediaSubtitle();
+		transcodingSettings = item.getTranscodingSettings();
+		thumbnailImageInfo = item.getThumbnailImageInfo();
+	}
+
+	void setDidl(String didl) {
+		this.didl = didl;
+	}
+
+	String getDidl() {
+		return didl;
+	}
+
+	/**
+	 * @param current the state of the item now.
+	 * @return whether this fragment was rendered from the same state.
+	 */
+	boolean isSameState(DidlFragment current) {
+		return didl != null &&
+			generation == current.generation &&
+			renderer == current.renderer &&
+			userId == current.userId &&
+			mediaInfo == current.mediaInfo &&
+			mediaSubtitle == current.mediaSubtitle &&
+			transcodingSettings == current.transcodingSettings &&
+			thumbnailImageInfo == current.thumbnailImageInfo &&
+			Objects.equals(updateId, current.updateId) &&
+			Objects.equals(serverUrl, current.serverUrl);
+	}
+
+	/**
+	 * Invalidates all the fragments, when something that is not tracked by
+	 * the object update IDs changed.
+	 */
+	public static void invalidateAll() {
+		GENERATION.incrementAndGet();
+	}
+
+}
@@ -87,6 +87,22 @@ public class DidlHelper extends DlnaHelper {
 			LOGGER.warn("cannot generate DIDL-Lite for null resource");
 			return "";
 		}
+		if (resource instanceof StoreItem item) {
+			// Items mostly don't change between two browses, reuse what was
+			// rendered the last time if nothing changed since.
+			DidlFragment fragment = new DidlFragment(item);
+			DidlFragment cached = item.getDidlFragment();
+			if (cached != null && cached.isSameState(fragment)) {
+				return cached.getDidl();
+			}
+			fragment.setDidl(buildDidlString(resource));
+			item.setDidlFragment(fragment);
+			return fragment.getDidl();
+		}
+		return buildDidlString(resource);
+	}
+
+	private static String buildDidlString(StoreResource resource) {
 		final Renderer renderer = resource.getDefaultRenderer();
 		final MediaInfo mediaInfo = resource.getMediaInfo();
 		final MediaStatus mediaStatus = resource.getMediaStatus();
@@ -28,6 +28,8 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import net.pms.Messages;
 import net.pms.PMS;
@@ -106,6 +108,14 @@ public abstract class Engine {
 	@GuardedBy("enabledLock")
 	protected boolean enabled = false;
 
+	/**
+	 * The times it took the transcodes of this {@link Engine} to output their
+	 * first bytes, in milliseconds.
+	 */
+	private final LongAdder timeToFirstByteCount = new LongAdder();
+	private final LongAdder timeToFirstByteTotal = new LongAdder();
+	private final AtomicLong timeToFirstByteMax = new AtomicLong();
+
 	/**
 	 * Abstract constructor that sets the final {@code programInfo} variable.
 	 */
@@ -120,6 +130,43 @@ public abstract class Engine {
 
 	public abstract int purpose();
 
+	/**
+	 * Records the time it took a transcode of this {@link Engine} to output
+	 * its first bytes.
+	 *
+	 * @param millis the time in milliseconds since the launch.
+	 */
+	public void recordTimeToFirstByte(long millis) {
+		timeToFirstByteCount.increment();
+		timeToFirstByteTotal.add(millis);
+		timeToFirstByteMax.accumulateAndGet(millis, Math::max);
+		LOGGER.debug("{} output its first bytes after {} ms", getName(), millis);
+	}
+
+	/**
+	 * @return The number of transcodes that output their first bytes.
+	 */
+	public long getTimeToFirstByteCount() {
+		return timeToFirstByteCount.sum();
+	}
+
+	/**
+	 * @return The average time in milliseconds the transcodes took to output
+	 *         their first bytes, or {@code 0} if there was none.
+	 */
+	public long getAverageTimeToFirstByte() {
+		long count = timeToFirstByteCount.sum();
+		return count > 0 ? timeToFirstByteTotal.sum() / count : 0;
+	}
+
+	/**
+	 * @return The longest time in milliseconds a transcode took to output its
+	 *         first bytes.
+	 */
+	public long getMaxTimeToFirstByte() {
+		return timeToFirstByteMax.get();
+	}
+
 	public abstract EngineId getEngineId();
 
 	/**
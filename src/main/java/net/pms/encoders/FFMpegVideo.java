@@ -881,7 +881,7 @@ public class FFMpegVideo extends Engine {
 		cmdList.add("-y");
 
 		setLogLevel(cmdList, configuration);
-		setDecodingOptions(cmdList, configuration, avisynth);
+		setDecodingOptions(cmdList, configuration, params, avisynth);
 
 		final boolean isTsMuxeRVideoEngineActive = EngineFactory.isEngineActive(TsMuxeRVideo.ID);
 		final boolean isXboxOneWebVideo = renderer.isXboxOne() && purpose() == VIDEO_WEBSTREAM_ENGINE;
@@ -1129,7 +1129,7 @@ public class FFMpegVideo extends Engine {
 		// Now configure the output streams
 
 		// Encoder threads
-		setEncodingThreads(cmdList, configuration);
+		setEncodingThreads(cmdList, configuration, params);
 
 		if (params.getTimeEnd() > 0) {
 			cmdList.add("-t");
@@ -1462,7 +1462,15 @@ public class FFMpegVideo extends Engine {
 		}
 	}
 
-	public static void setDecodingOptions(List<String> cmdList, UmsConfiguration configuration, boolean avisynth) {
+	/**
+	 * Gets the number of threads to give to FFmpeg, within the part of the
+	 * transcode thread budget given to the process.
+	 *
+	 * @param configuration the renderer configuration.
+	 * @param params the transcoding parameters.
+	 * @return The number of threads, or 0 to let FFmpeg decide.
+	 */
+	public static int getThreads(UmsConfiguration configuration, OutputParams params) {
 		/*
 		 * FFmpeg uses multithreading by default, so provided that the
 		 * user has not disabled FFmpeg multithreading and has not
@@ -1477,6 +1485,11 @@ public class FFMpegVideo extends Engine {
 				nThreads = configuration.getNumberOfCpuCores();
 			}
 		}
+		return TranscodeScheduler.getThreads(nThreads, params);
+	}
+
+	public static void setDecodingOptions(List<String> cmdList, UmsConfiguration configuration, OutputParams params, boolean avisynth) {
+		int nThreads = getThreads(configuration, params);
 		// Decoding threads and GPU decoding
 		if (nThreads > 0 && !configuration.isGPUAcceleration()) {
 			cmdList.add("-threads");
@@ -1513,21 +1526,8 @@ public class FFMpegVideo extends Engine {
 		}
 	}
 
-	public static void setEncodingThreads(List<String> cmdList, UmsConfiguration configuration) {
-		/*
-		 * FFmpeg uses multithreading by default, so provided that the
-		 * user has not disabled FFmpeg multithreading and has not
-		 * chosen to use more or less threads than are available, do not
-		 * specify how many cores to use.
-		 */
-		int nThreads = 1;
-		if (configuration.isFfmpegMultithreading()) {
-			if (Runtime.getRuntime().availableProcessors() == configuration.getNumberOfCpuCores()) {
-				nThreads = 0;
-			} else {
-				nThreads = configuration.getNumberOfCpuCores();
-			}
-		}
+	public static void setEncodingThreads(List<String> cmdList, UmsConfiguration configuration, OutputParams params) {
+		int nThreads = getThreads(configuration, params);
 		// Encoder threads
 		if (nThreads > 0) {
 			cmdList.add("-threads");
@@ -100,20 +100,7 @@ public class FFmpegAudio extends FFMpegVideo {
 		params.setWaitBeforeStart(1);
 		params.manageFastStart();
 
-		/*
-		 * FFmpeg uses multithreading by default, so provided that the
-		 * user has not disabled FFmpeg multithreading and has not
-		 * chosen to use more or less threads than are available, do not
-		 * specify how many cores to use.
-		 */
-		int nThreads = 1;
-		if (configuration.isFfmpegMultithreading()) {
-			if (Runtime.getRuntime().availableProcessors() == configuration.getNumberOfCpuCores()) {
-				nThreads = 0;
-			} else {
-				nThreads = configuration.getNumberOfCpuCores();
-			}
-		}
+		int nThreads = getThreads(configuration, params);
 
 		List<String> cmdList = new ArrayList<>();
 
@@ -16,6 +16,7 @@
  */
 package net.pms.encoders;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
@@ -23,6 +24,7 @@ import net.pms.configuration.FormatConfiguration;
 import net.pms.configuration.UmsConfiguration;
 import net.pms.io.OutputParams;
 import net.pms.io.ProcessWrapper;
+import net.pms.io.ProcessWrapperImpl;
 import net.pms.media.MediaInfo;
 import net.pms.network.HTTPResource;
 import net.pms.store.StoreItem;
@@ -58,6 +60,93 @@ public class FFmpegHlsVideo extends FFMpegVideo {
 		params.setMinBufferSize(params.getMinFileSize());
 		params.setSecondReadMinSize(100000);
 		params.setWaitBeforeStart(0);
+		HlsHelper.HlsConfiguration hlsConfiguration = params.getHlsConfiguration();
+		boolean needVideo = hlsConfiguration.video.resolutionWidth > -1;
+		boolean needAudio = hlsConfiguration.audioStream > -1;
+		boolean needSubtitle = hlsConfiguration.subtitle > -1;
+		List<String> cmdList = getCommand(resource, media, params, false);
+		if (cmdList == null) {
+			return null;
+		}
+
+		cmdList.add("-f");
+		if (needSubtitle && !needAudio && !needVideo) {
+			cmdList.add("webvtt");
+		} else {
+			cmdList.add(FormatConfiguration.MPEGTS);
+			cmdList.add("-skip_estimate_duration_from_pts");
+			cmdList.add("1");
+			cmdList.add("-use_wallclock_as_timestamps");
+			cmdList.add("1");
+			//transcodeOptions.add("-mpegts_flags");
+			//transcodeOptions.add("latm");
+			cmdList.add("-movflags");
+			cmdList.add("frag_keyframe"); //frag_keyframe
+		}
+
+		return runHlsTranscodeProcess(params, cmdList);
+	}
+
+	/**
+	 * Launches a long-running FFmpeg process that writes the HLS segments of
+	 * the rendition to a directory, starting at the given segment. Each
+	 * segment is written as {@code <n>.ts} and only appears under that name
+	 * once it is complete.
+	 *
+	 * @param resource the item to transcode.
+	 * @param media the media info of the item.
+	 * @param params the output parameters, with the HLS configuration and the
+	 * time seek of the start segment set.
+	 * @param directory the directory where the segments are written.
+	 * @param startSegment the number of the first segment written.
+	 * @return the process, not started yet, or {@code null} if the rendition
+	 * cannot be segmented.
+	 */
+	public ProcessWrapperImpl getSegmenterProcess(
+			StoreItem resource,
+			MediaInfo media,
+			OutputParams params,
+			File directory,
+			int startSegment
+	) {
+		if (!params.isHlsConfigured() || params.getHlsConfiguration().isSubtitle()) {
+			return null;
+		}
+		List<String> cmdList = getCommand(resource, media, params, true);
+		if (cmdList == null) {
+			return null;
+		}
+		String targetDuration = String.valueOf((int) HlsHelper.DEFAULT_TARGETDURATION);
+		cmdList.add("-f");
+		cmdList.add("hls");
+		cmdList.add("-hls_time");
+		cmdList.add(targetDuration);
+		cmdList.add("-hls_list_size");
+		cmdList.add("1");
+		cmdList.add("-hls_segment_type");
+		cmdList.add("mpegts");
+		cmdList.add("-hls_flags");
+		cmdList.add("temp_file+independent_segments");
+		cmdList.add("-start_number");
+		cmdList.add(String.valueOf(startSegment));
+		cmdList.add("-hls_segment_filename");
+		cmdList.add(new File(directory, "%d.ts").getAbsolutePath());
+		cmdList.add(new File(directory, "index.m3u8").getAbsolutePath());
+
+		params.setLog(true);
+		params.setNoExitCheck(true);
+		String[] cmdArray = new String[cmdList.size()];
+		cmdList.toArray(cmdArray);
+		return new ProcessWrapperImpl(cmdArray, params);
+	}
+
+	/**
+	 * Builds the FFmpeg command line up to the output format.
+	 *
+	 * @param segmenter whether the output goes to the HLS segmenter rather
+	 * than to a single segment.
+	 */
+	private List<String> getCommand(StoreItem resource, MediaInfo media, OutputParams params, boolean segmenter) {
 		// Use device-specific conf
 		UmsConfiguration configuration = params.getMediaRenderer().getUmsConfiguration();
 		HlsHelper.HlsConfiguration hlsConfiguration = params.getHlsConfiguration();
@@ -82,14 +171,14 @@ public class FFmpegHlsVideo extends FFMpegVideo {
 		}
 
 		// Decoding threads and GPU decoding
-		setDecodingOptions(cmdList, configuration, false);
+		setDecodingOptions(cmdList, configuration, params, false);
 
 		if (params.getTimeSeek() > 0) {
 			cmdList.add("-ss");
 			cmdList.add("" + (int) params.getTimeSeek());
 		}
 
-		if (params.getTimeEnd() > 0 && !needSubtitle) {
+		if (params.getTimeEnd() > 0 && !needSubtitle && !segmenter) {
 			cmdList.add("-t");
 			cmdList.add(String.valueOf(params.getTimeEnd() - params.getTimeSeek()));
 		}
@@ -134,7 +223,13 @@ public class FFmpegHlsVideo extends FFMpegVideo {
 		}
 		//remove data
 		cmdList.add("-dn");
-		cmdList.add("-copyts");
+		if (segmenter) {
+			// Keep the timestamps of the segments on the playlist timeline
+			cmdList.add("-output_ts_offset");
+			cmdList.add(String.valueOf((int) params.getTimeSeek()));
+		} else {
+			cmdList.add("-copyts");
+		}
 
 		//setup video
 		if (needVideo) {
@@ -152,6 +247,11 @@ public class FFmpegHlsVideo extends FFMpegVideo {
 			cmdList.add(selectedTranscodeAccelerationMethod);
 			cmdList.add("-keyint_min");
 			cmdList.add("25");
+			if (segmenter) {
+				// Segments must start on the playlist boundaries
+				cmdList.add("-force_key_frames");
+				cmdList.add("expr:gte(t,n_forced*" + (int) HlsHelper.DEFAULT_TARGETDURATION + ")");
+			}
 
 			if (selectedTranscodeAccelerationMethod.startsWith("libx264")) {
 				// Let x264 optimize the bitrate more for lower resolutions
@@ -231,24 +331,8 @@ public class FFmpegHlsVideo extends FFMpegVideo {
 		}
 
 		// Encoder threads
-		setEncodingThreads(cmdList, configuration);
-
-		cmdList.add("-f");
-		if (needSubtitle && !needAudio && !needVideo) {
-			cmdList.add("webvtt");
-		} else {
-			cmdList.add(FormatConfiguration.MPEGTS);
-			cmdList.add("-skip_estimate_duration_from_pts");
-			cmdList.add("1");
-			cmdList.add("-use_wallclock_as_timestamps");
-			cmdList.add("1");
-			//transcodeOptions.add("-mpegts_flags");
-			//transcodeOptions.add("latm");
-			cmdList.add("-movflags");
-			cmdList.add("frag_keyframe"); //frag_keyframe
-		}
-
-		return runHlsTranscodeProcess(params, cmdList);
+		setEncodingThreads(cmdList, configuration, params);
+		return cmdList;
 	}
 
 	@Override
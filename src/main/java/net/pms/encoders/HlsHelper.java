@@ -319,19 +319,24 @@ public class HlsHelper {
 		return null;
 	}
 
-	private static TimeRange getTimeRange(String url) {
+	private static int getSegmentNumber(String url) {
 		if (!url.contains("/")) {
-			return null;
+			return -1;
 		}
 		String positionStr = url.substring(url.lastIndexOf("/") + 1);
 		if (!positionStr.contains(".")) {
-			return null;
+			return -1;
 		}
 		positionStr = positionStr.substring(0, positionStr.indexOf("."));
-		int position;
 		try {
-			position = Integer.parseInt(positionStr);
+			return Integer.parseInt(positionStr);
 		} catch (NumberFormatException es) {
+			return -1;
+		}
+	}
+
+	private static TimeRange getTimeRange(int position) {
+		if (position < 0) {
 			return null;
 		}
 		double askedStart =  Double.valueOf(position) * HlsHelper.DEFAULT_TARGETDURATION;
@@ -346,7 +351,11 @@ public class HlsHelper {
 		rendition = rendition.substring(0, rendition.indexOf("/"));
 		//here we need to set rendition to renderer
 		HlsHelper.HlsConfiguration hlsConfiguration = getByKey(rendition);
-		Range timeRange = getTimeRange(url);
+		int position = getSegmentNumber(url);
+		if (hlsConfiguration != null && position > -1 && HlsSessionManager.isSupported(resource, hlsConfiguration)) {
+			return HlsSessionManager.getSegment(resource, rendition, hlsConfiguration, position);
+		}
+		Range timeRange = getTimeRange(position);
 		if (hlsConfiguration != null && timeRange != null) {
 			return resource.getInputStream(timeRange, hlsConfiguration);
 		}
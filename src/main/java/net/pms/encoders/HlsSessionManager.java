@@ -0,0 +1,362 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.encoders;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntPredicate;
+import net.pms.PMS;
+import net.pms.configuration.UmsConfiguration;
+import net.pms.io.OutputParams;
+import net.pms.io.ProcessWrapperImpl;
+import net.pms.media.MediaInfo;
+import net.pms.store.StoreItem;
+import net.pms.store.item.RealFile;
+import net.pms.util.SimpleThreadFactory;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps one long-running FFmpeg process per item and HLS rendition, writing
+ * the segments ahead of the playback position into a bounded on-disk cache.
+ *
+ * Segment requests are served from that cache. The process is only restarted
+ * when a segment outside of the produced window is asked (a real seek), or to
+ * resume production once the cache was filled and playback caught up with it.
+ * Sessions that are no longer requested are stopped and their segments
+ * deleted.
+ */
+public class HlsSessionManager {
+	private static final Logger LOGGER = LoggerFactory.getLogger(HlsSessionManager.class);
+	private static final UmsConfiguration CONFIGURATION = PMS.getConfiguration();
+	private static final Map<String, HlsSession> SESSIONS = new ConcurrentHashMap<>();
+	private static final AtomicInteger SESSION_COUNTER = new AtomicInteger();
+
+	/**
+	 * How many segments past the last produced one a request can be and still
+	 * be waited for, instead of restarting the process there.
+	 */
+	private static final int SEEK_DISTANCE = 3;
+
+	/**
+	 * How many segments behind the last requested one are kept, for players
+	 * that request a segment again.
+	 */
+	private static final int KEEP_BEHIND = 2;
+
+	private static final long SEGMENT_TIMEOUT = TimeUnit.SECONDS.toMillis(30);
+	private static final long SEGMENT_POLL_INTERVAL = 50;
+	private static final long REAPER_INTERVAL = 10;
+
+	private static ScheduledExecutorService reaper;
+	private static File sessionsFolder;
+
+	/**
+	 * This class is not meant to be instantiated.
+	 */
+	private HlsSessionManager() {
+	}
+
+	/**
+	 * Whether the segments of a rendition of the item can be served by a
+	 * persistent segmenter.
+	 *
+	 * @param item the item.
+	 * @param hlsConfiguration the rendition.
+	 * @return {@code true} if {@link #getSegment} can be used.
+	 */
+	public static boolean isSupported(StoreItem item, HlsHelper.HlsConfiguration hlsConfiguration) {
+		return CONFIGURATION.isHlsSegmenter() &&
+			item instanceof RealFile &&
+			item.isTranscoded() &&
+			item.getTranscodingSettings().getEngine() instanceof FFmpegHlsVideo &&
+			!hlsConfiguration.isSubtitle() &&
+			item.getMediaInfo() != null &&
+			item.getMediaInfo().getDurationInSeconds() > 0;
+	}
+
+	/**
+	 * Returns a segment of a rendition of the item, waiting for it to be
+	 * produced if needed.
+	 *
+	 * @param item the item.
+	 * @param rendition the rendition key.
+	 * @param hlsConfiguration the rendition.
+	 * @param segment the segment number.
+	 * @return the segment, or {@code null} if it could not be produced.
+	 * @throws IOException if the segment could not be read.
+	 */
+	public static InputStream getSegment(
+		StoreItem item,
+		String rendition,
+		HlsHelper.HlsConfiguration hlsConfiguration,
+		int segment
+	) throws IOException {
+		String key = item.getResourceId() + "_" + rendition;
+		HlsSession session = SESSIONS.compute(key, (k, existing) -> existing == null || existing.closed ? new HlsSession(k, item, hlsConfiguration) : existing);
+		startReaper();
+		return session.getSegment(segment);
+	}
+
+	/**
+	 * Stops all sessions and deletes their segments.
+	 */
+	public static void stopAll() {
+		for (HlsSession session : SESSIONS.values()) {
+			SESSIONS.remove(session.key);
+			session.close();
+		}
+		synchronized (HlsSessionManager.class) {
+			if (reaper != null) {
+				reaper.shutdownNow();
+				reaper = null;
+			}
+		}
+	}
+
+	private static synchronized void startReaper() {
+		if (reaper == null) {
+			reaper = Executors.newSingleThreadScheduledExecutor(new SimpleThreadFactory("HLS session reaper"));
+			reaper.scheduleWithFixedDelay(HlsSessionManager::reap, REAPER_INTERVAL, REAPER_INTERVAL, TimeUnit.SECONDS);
+		}
+	}
+
+	private static void reap() {
+		long timeout = TimeUnit.SECONDS.toMillis(CONFIGURATION.getHlsSessionTimeout());
+		long now = System.currentTimeMillis();
+		for (HlsSession session : SESSIONS.values()) {
+			try {
+				if (now - session.lastAccess > timeout) {
+					LOGGER.debug("Stopping idle HLS session {}", session.key);
+					SESSIONS.remove(session.key);
+					session.close();
+				} else {
+					session.trim();
+				}
+			} catch (RuntimeException e) {
+				LOGGER.debug("Error while reaping HLS session {}: {}", session.key, e.getMessage());
+				LOGGER.trace("", e);
+			}
+		}
+	}
+
+	private static synchronized File getSessionsFolder() throws IOException {
+		if (sessionsFolder == null) {
+			sessionsFolder = new File(CONFIGURATION.getTempFolder(), "hls");
+			// Remove what a previous run left behind
+			FileUtils.deleteQuietly(sessionsFolder);
+		}
+		return sessionsFolder;
+	}
+
+	private static class HlsSession {
+		private final String key;
+		private final StoreItem item;
+		private final HlsHelper.HlsConfiguration hlsConfiguration;
+		private final int segmentCount;
+		private File directory;
+		private ProcessWrapperImpl process;
+		private TranscodeScheduler.Session scheduled;
+		private int startSegment;
+		private int nextSegment;
+		private int lastRequested;
+		private volatile long lastAccess = System.currentTimeMillis();
+		private volatile boolean closed;
+
+		private HlsSession(String key, StoreItem item, HlsHelper.HlsConfiguration hlsConfiguration) {
+			this.key = key;
+			this.item = item;
+			this.hlsConfiguration = hlsConfiguration;
+			this.segmentCount = (int) Math.ceil(item.getMediaInfo().getDurationInSeconds() / HlsHelper.DEFAULT_TARGETDURATION);
+		}
+
+		private synchronized InputStream getSegment(int segment) throws IOException {
+			lastAccess = System.currentTimeMillis();
+			if (closed || segment < 0 || segment >= segmentCount) {
+				return null;
+			}
+			lastRequested = segment;
+			boolean restarted = false;
+			long deadline = System.currentTimeMillis() + SEGMENT_TIMEOUT;
+			while (System.currentTimeMillis() < deadline) {
+				updateProduced();
+				byte[] data = readSegment(segment);
+				if (data != null) {
+					resumeIfNeeded();
+					trim();
+					return new ByteArrayInputStream(data);
+				}
+				if (segment < startSegment || segment > nextSegment + SEEK_DISTANCE || !isProducing()) {
+					if (restarted) {
+						// The process ended without producing the segment
+						break;
+					}
+					start(segment);
+					restarted = true;
+				}
+				try {
+					wait(SEGMENT_POLL_INTERVAL);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return null;
+				}
+			}
+			LOGGER.debug("HLS segment {} of session {} was not produced in time", segment, key);
+			return null;
+		}
+
+		/**
+		 * Restarts the process where it stopped when playback gets close to
+		 * the end of the cache, after it was stopped because the cache was
+		 * full.
+		 */
+		private void resumeIfNeeded() throws IOException {
+			if (!isProducing() && nextSegment < segmentCount && nextSegment - lastRequested <= CONFIGURATION.getHlsSegmentCacheSize() / 2) {
+				start(nextSegment);
+			}
+		}
+
+		private boolean isProducing() {
+			return process != null && process.isAlive() && !process.isDestroyed();
+		}
+
+		private void updateProduced() {
+			while (nextSegment < segmentCount && getSegmentFile(nextSegment).exists()) {
+				nextSegment++;
+			}
+		}
+
+		private byte[] readSegment(int segment) throws IOException {
+			if (directory == null) {
+				return null;
+			}
+			try {
+				return Files.readAllBytes(getSegmentFile(segment).toPath());
+			} catch (NoSuchFileException e) {
+				return null;
+			}
+		}
+
+		private File getSegmentFile(int segment) {
+			return new File(directory, segment + ".ts");
+		}
+
+		private void start(int segment) throws IOException {
+			stopProcess();
+			if (directory == null) {
+				directory = new File(getSessionsFolder(), String.valueOf(SESSION_COUNTER.incrementAndGet()));
+			}
+			if (!directory.isDirectory() && !directory.mkdirs()) {
+				throw new IOException("Could not create HLS session folder " + directory);
+			}
+			// Segments from the new position on are produced again
+			deleteSegments(i -> i >= segment);
+
+			OutputParams params = new OutputParams(item.getDefaultRenderer().getUmsConfiguration());
+			params.setMediaRenderer(item.getDefaultRenderer());
+			params.setHlsConfiguration(hlsConfiguration);
+			params.setTimeSeek(segment * HlsHelper.DEFAULT_TARGETDURATION);
+			MediaInfo mediaInfo = item.getMediaInfo();
+			FFmpegHlsVideo engine = (FFmpegHlsVideo) item.getTranscodingSettings().getEngine();
+			startSegment = segment;
+			nextSegment = segment;
+			// The segmenter runs as long as a live transcode, and gets its part of the thread budget
+			scheduled = TranscodeScheduler.admit(params);
+			if (scheduled == null) {
+				throw new IOException("Could not schedule the HLS segmenter of " + item.getName());
+			}
+			process = engine.getSegmenterProcess(item, mediaInfo, params, directory, segment);
+			scheduled.attach(process);
+			if (process == null) {
+				scheduled = null;
+				throw new IOException("Could not start the HLS segmenter of " + item.getName());
+			}
+			LOGGER.debug("Starting HLS session {} at segment {}", key, segment);
+			process.runInNewThread();
+		}
+
+		/**
+		 * Deletes the segments already played and stops the process once it
+		 * has filled the cache.
+		 */
+		private synchronized void trim() {
+			if (directory == null) {
+				return;
+			}
+			int cacheSize = CONFIGURATION.getHlsSegmentCacheSize();
+			deleteSegments(i -> i < lastRequested - KEEP_BEHIND || i > lastRequested + cacheSize + SEEK_DISTANCE);
+			updateProduced();
+			if (isProducing() && nextSegment - lastRequested > cacheSize) {
+				LOGGER.trace("HLS session {} cache is full, pausing at segment {}", key, nextSegment);
+				stopProcess();
+			}
+		}
+
+		private void deleteSegments(IntPredicate filter) {
+			File[] files = directory.listFiles((dir, name) -> name.endsWith(".ts"));
+			if (files == null) {
+				return;
+			}
+			for (File file : files) {
+				String name = file.getName();
+				try {
+					if (filter.test(Integer.parseInt(name.substring(0, name.length() - 3))) && !file.delete()) {
+						LOGGER.trace("Could not delete HLS segment {}", file);
+					}
+				} catch (NumberFormatException e) {
+					// Not a segment
+				}
+			}
+		}
+
+		private void stopProcess() {
+			if (process != null) {
+				process.stopProcess();
+				try {
+					process.join(1000);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				process = null;
+			}
+			if (scheduled != null) {
+				scheduled.release();
+				scheduled = null;
+			}
+		}
+
+		private synchronized void close() {
+			closed = true;
+			stopProcess();
+			if (directory != null) {
+				FileUtils.deleteQuietly(directory);
+				directory = null;
+			}
+		}
+	}
+}
@@ -427,6 +427,7 @@ public class MEncoderVideo extends Engine {
 		// Use device-specific ums conf
 		UmsConfiguration configuration = renderer.getUmsConfiguration();
 		params.manageFastStart();
+		final int maxThreads = TranscodeScheduler.getThreads(configuration.getMencoderMaxThreads(), params);
 
 		boolean avisynth = isAviSynthEngine();
 
@@ -769,7 +770,7 @@ public class MEncoderVideo extends Engine {
 
 		int nThreads = (isDVD || filename.toLowerCase().endsWith("dvr-ms")) ?
 			1 :
-			configuration.getMencoderMaxThreads();
+			maxThreads;
 
 		// MEncoder loses audio/video sync if more than 4 decoder (lavdopts) threads are used.
 		// Multithreading for decoding offers little performance gain anyway so it's not a big deal.
@@ -939,7 +940,7 @@ public class MEncoderVideo extends Engine {
 				}
 
 				encodeSettings = "-lavcopts " + aspectRatioLavcopts + vcodecString + acodec + abitrate +
-					":threads=" + (encodeOptions.wmv && !renderer.isXbox360() ? 1 : configuration.getMencoderMaxThreads()) +
+					":threads=" + (encodeOptions.wmv && !renderer.isXbox360() ? 1 : maxThreads) +
 					("".equals(mpeg2Options) ? "" : ":" + mpeg2Options);
 
 				encodeSettings = addMaximumBitrateConstraints(encodeOptions, encodeSettings, media, mpeg2Options, renderer, audioType, encodingFormat);
@@ -976,9 +977,9 @@ public class MEncoderVideo extends Engine {
 				}
 
 				encodeSettings = "-lavcopts " + aspectRatioLavcopts + acodec + abitrate +
-					":threads=" + configuration.getMencoderMaxThreads();
+					":threads=" + maxThreads;
 
-				encodeSettings += " -x264encopts crf=" + x264CRF + ":preset=superfast:level=31:threads=auto";
+				encodeSettings += " -x264encopts crf=" + x264CRF + ":preset=superfast:level=31:threads=" + (params.getThreads() > 0 ? maxThreads : "auto");
 
 				encodeSettings = addMaximumBitrateConstraints(encodeOptions, encodeSettings, media, "", renderer, audioType, encodingFormat);
 			}
@@ -1673,7 +1674,7 @@ public class MEncoderVideo extends Engine {
 								vcodec,
 								(configuration.isMencoderAc3Fixed() ? "ac3_fixed" : "ac3"),
 								CodecUtil.getAC3Bitrate(configuration, params.getAid()),
-								configuration.getMencoderMaxThreads(),
+								maxThreads,
 								expertOptions[l + 1]
 						);
 
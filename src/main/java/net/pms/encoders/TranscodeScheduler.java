@@ -0,0 +1,278 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.encoders;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import net.pms.PMS;
+import net.pms.configuration.UmsConfiguration;
+import net.pms.io.OutputParams;
+import net.pms.io.ProcessWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Coordinates the transcoding processes so that the machine is not
+ * oversubscribed.
+ *
+ * Live transcodes are admitted up to a maximum number of sessions, and share
+ * a thread budget: each new process is given its part of the budget through
+ * {@link OutputParams#getThreads()}. Background work such as parsing and
+ * thumbnails waits for a slot, which is scarcer while live transcodes run,
+ * and is held back while a live transcode doesn't keep its buffer filled.
+ */
+public class TranscodeScheduler {
+	private static final Logger LOGGER = LoggerFactory.getLogger(TranscodeScheduler.class);
+	private static final List<Session> SESSIONS = new ArrayList<>();
+
+	/**
+	 * How long a live transcode waits for a session to end when the maximum
+	 * number is reached.
+	 */
+	private static final long ADMISSION_TIMEOUT = TimeUnit.SECONDS.toMillis(10);
+
+	/**
+	 * How long background work is held back while a live transcode doesn't
+	 * keep up, before running anyway.
+	 */
+	private static final long BACKGROUND_MAX_WAIT = TimeUnit.SECONDS.toMillis(10);
+
+	/**
+	 * The buffer level under which a live transcode is considered as not
+	 * keeping up with playback.
+	 */
+	private static final double LOW_BUFFER_LEVEL = 0.1;
+
+	private static final long POLL_INTERVAL = 250;
+
+	private static int backgroundRunning;
+
+	/**
+	 * This class is not meant to be instantiated.
+	 */
+	private TranscodeScheduler() {
+	}
+
+	/**
+	 * Waits for a live transcode to be admitted, and gives its process its
+	 * part of the thread budget.
+	 *
+	 * @param params the transcoding parameters, which get the thread count.
+	 * @return The session to attach the launched process to, or {@code null}
+	 *         if no session ended in time.
+	 */
+	public static synchronized Session admit(OutputParams params) {
+		long deadline = System.currentTimeMillis() + ADMISSION_TIMEOUT;
+		while (true) {
+			sweep();
+			int maxSessions = getConfiguration().getTranscodeMaxSessions();
+			if (maxSessions <= 0 || SESSIONS.size() < maxSessions) {
+				break;
+			}
+			long remaining = deadline - System.currentTimeMillis();
+			if (remaining <= 0) {
+				LOGGER.info("Not starting a transcode since {} are already running", SESSIONS.size());
+				return null;
+			}
+			try {
+				TranscodeScheduler.class.wait(Math.min(remaining, POLL_INTERVAL));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return null;
+			}
+		}
+		Session session = new Session();
+		SESSIONS.add(session);
+		params.setThreads(getThreadShare(SESSIONS.size()));
+		LOGGER.debug("Admitting transcode {} of {} with {} threads", SESSIONS.size(), getConfiguration().getTranscodeMaxSessions(), params.getThreads());
+		return session;
+	}
+
+	/**
+	 * Gets the part of the thread budget of each live transcode.
+	 *
+	 * @param sessions the number of live transcodes.
+	 * @return The number of threads, at least 1.
+	 */
+	public static int getThreadShare(int sessions) {
+		return Math.max(1, getConfiguration().getTranscodeThreadBudget() / Math.max(1, sessions));
+	}
+
+	/**
+	 * Limits the number of threads an engine would use to the part of the
+	 * budget given to the process.
+	 *
+	 * @param threads the number of threads the engine would use, or 0 if it
+	 *            lets the process decide.
+	 * @param params the transcoding parameters.
+	 * @return The number of threads, or 0 to let the process decide.
+	 */
+	public static int getThreads(int threads, OutputParams params) {
+		int share = params != null ? params.getThreads() : 0;
+		if (share <= 0) {
+			return threads;
+		}
+		if (threads <= 0) {
+			// The process uses all the processors by itself
+			return share >= Runtime.getRuntime().availableProcessors() ? 0 : share;
+		}
+		return Math.min(threads, share);
+	}
+
+	/**
+	 * Waits for a slot to run background work, such as parsing a file or
+	 * generating a thumbnail. {@link #releaseBackground()} must be called
+	 * when it is done.
+	 */
+	public static synchronized void acquireBackground() {
+		long deadline = System.currentTimeMillis() + BACKGROUND_MAX_WAIT;
+		while (true) {
+			sweep();
+			if (backgroundRunning < getBackgroundSlots() && (!isStarving() || System.currentTimeMillis() >= deadline)) {
+				break;
+			}
+			try {
+				TranscodeScheduler.class.wait(POLL_INTERVAL);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		backgroundRunning++;
+	}
+
+	/**
+	 * Frees the slot taken by {@link #acquireBackground()}.
+	 */
+	public static synchronized void releaseBackground() {
+		backgroundRunning--;
+		TranscodeScheduler.class.notifyAll();
+	}
+
+	/**
+	 * @return The number of live transcodes.
+	 */
+	public static synchronized int getSessionCount() {
+		sweep();
+		return SESSIONS.size();
+	}
+
+	/**
+	 * Gets the buffer levels of the live transcodes that are read, from 0 to
+	 * 1.
+	 *
+	 * @return The buffer levels.
+	 * @see ProcessWrapper#getBufferLevel()
+	 */
+	public static synchronized List<Double> getBufferLevels() {
+		sweep();
+		List<Double> levels = new ArrayList<>();
+		for (Session session : SESSIONS) {
+			double level = session.getBufferLevel();
+			if (level >= 0) {
+				levels.add(level);
+			}
+		}
+		return levels;
+	}
+
+	/**
+	 * Whether a live transcode doesn't produce its output as fast as it is
+	 * played.
+	 *
+	 * @return {@code true} if a buffer level is low.
+	 */
+	public static synchronized boolean isStarving() {
+		for (Double level : getBufferLevels()) {
+			if (level < LOW_BUFFER_LEVEL) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static int getBackgroundSlots() {
+		if (SESSIONS.isEmpty()) {
+			return Math.max(1, getConfiguration().getTranscodeThreadBudget() / 2);
+		}
+		return 1;
+	}
+
+	private static void sweep() {
+		boolean removed = false;
+		Iterator<Session> iterator = SESSIONS.iterator();
+		while (iterator.hasNext()) {
+			if (!iterator.next().isRunning()) {
+				iterator.remove();
+				removed = true;
+			}
+		}
+		if (removed) {
+			TranscodeScheduler.class.notifyAll();
+		}
+	}
+
+	private static UmsConfiguration getConfiguration() {
+		return PMS.getConfiguration();
+	}
+
+	/**
+	 * An admitted live transcode, which lasts as long as its process runs.
+	 */
+	public static class Session {
+		private volatile ProcessWrapper process;
+		private volatile boolean released;
+
+		private Session() {
+		}
+
+		/**
+		 * Attaches the launched process, or ends the session if there is none.
+		 *
+		 * @param process the process.
+		 */
+		public void attach(ProcessWrapper process) {
+			if (process == null) {
+				release();
+			} else {
+				this.process = process;
+			}
+		}
+
+		/**
+		 * Ends the session before its process ends.
+		 */
+		public void release() {
+			synchronized (TranscodeScheduler.class) {
+				released = true;
+				sweep();
+			}
+		}
+
+		private boolean isRunning() {
+			ProcessWrapper wrapper = process;
+			return !released && (wrapper == null || wrapper.isRunning());
+		}
+
+		private double getBufferLevel() {
+			ProcessWrapper wrapper = process;
+			return wrapper != null ? wrapper.getBufferLevel() : -1;
+		}
+	}
+}
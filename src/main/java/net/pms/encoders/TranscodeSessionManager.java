@@ -0,0 +1,244 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.encoders;
+
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import net.pms.configuration.UmsConfiguration;
+import net.pms.io.OutputParams;
+import net.pms.io.ProcessWrapper;
+import net.pms.io.WaitBufferedInputStream;
+import net.pms.media.audio.MediaAudio;
+import net.pms.media.subtitle.MediaSubtitle;
+import net.pms.renderers.Renderer;
+import net.pms.store.StoreItem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Shares a running transcoding process between the items that ask for the
+ * same output: same file, engine, encoding format, renderer settings, tracks
+ * and start position.
+ *
+ * An item asking for an output that is already produced joins the process
+ * instead of launching another one, as long as the part it asks for is still
+ * buffered. The process is stopped on a seek only when no other item uses it,
+ * and is kept running as long as one of its readers is open.
+ */
+public class TranscodeSessionManager {
+	private static final Logger LOGGER = LoggerFactory.getLogger(TranscodeSessionManager.class);
+	private static final Map<String, TranscodeSession> SESSIONS = new HashMap<>();
+	private static final Map<ProcessWrapper, TranscodeSession> PROCESSES = new IdentityHashMap<>();
+
+	/**
+	 * This class is not meant to be instantiated.
+	 */
+	private TranscodeSessionManager() {
+	}
+
+	/**
+	 * Whether the output asked with these parameters can be shared.
+	 *
+	 * HLS outputs are not, as they are produced per segment, and neither are
+	 * the outputs of renderers that only allow one connection per process.
+	 *
+	 * @param params the transcoding parameters.
+	 * @return {@code true} if {@link #join} and {@link #register} can be used.
+	 */
+	public static boolean isSupported(OutputParams params) {
+		Renderer renderer = params.getMediaRenderer();
+		if (renderer == null || params.isHlsConfigured()) {
+			return false;
+		}
+		UmsConfiguration configuration = renderer.getUmsConfiguration();
+		return configuration.isTranscodeSharedSessions() && !configuration.getTrancodeBlocksMultipleConnections();
+	}
+
+	/**
+	 * Gets the key of the output asked by an item with these parameters.
+	 *
+	 * Renderers with their own configuration never share an output, as their
+	 * settings can change the transcoding command.
+	 *
+	 * @param item the item.
+	 * @param params the transcoding parameters.
+	 * @return The key.
+	 */
+	public static String getKey(StoreItem item, OutputParams params) {
+		StringBuilder key = new StringBuilder(item.getSystemName());
+		key.append('|').append(item.getTranscodingSettings().getId());
+		Renderer renderer = params.getMediaRenderer();
+		key.append('|').append(renderer.getConfName());
+		key.append('@').append(Integer.toHexString(System.identityHashCode(renderer.getUmsConfiguration())));
+		MediaAudio audio = params.getAid();
+		key.append("|a").append(audio != null ? audio.getId() : "");
+		MediaSubtitle subtitle = params.getSid();
+		key.append("|s").append(subtitle != null ? subtitle.getId() : "");
+		if (subtitle != null && subtitle.getExternalFile() != null) {
+			key.append(':').append(subtitle.getExternalFile().getPath());
+		}
+		key.append('|').append(params.getTimeSeek());
+		key.append('-').append(params.getTimeEnd());
+		if (params.isShiftSscr()) {
+			key.append("|scr");
+		}
+		return key.toString();
+	}
+
+	/**
+	 * Joins the process producing the same output, if the position asked is
+	 * still in its buffer.
+	 *
+	 * @param item the item joining.
+	 * @param key the output key, from {@link #getKey}.
+	 * @param position the read position.
+	 * @return The process to read from, or {@code null} if a new one must be
+	 *         launched.
+	 */
+	public static synchronized ProcessWrapper join(StoreItem item, String key, long position) {
+		sweep();
+		TranscodeSession session = SESSIONS.get(key);
+		if (session == null) {
+			return null;
+		}
+		if (!session.process.isOutputAvailable(position)) {
+			LOGGER.debug("Transcoding session {} has already sent position {}, launching another process", key, position);
+			return null;
+		}
+		session.owners.add(item);
+		LOGGER.debug("Joining transcoding session {} at position {} ({} items)", key, position, session.owners.size());
+		return session.process;
+	}
+
+	/**
+	 * Registers a newly launched process, so that the next items asking for
+	 * the same output can join it.
+	 *
+	 * @param item the item that launched the process.
+	 * @param key the output key, from {@link #getKey}.
+	 * @param process the process.
+	 */
+	public static synchronized void register(StoreItem item, String key, ProcessWrapper process) {
+		if (process == null) {
+			return;
+		}
+		sweep();
+		TranscodeSession session = new TranscodeSession(key, process);
+		session.owners.add(item);
+		// A previous session for the same output keeps running for its
+		// items, but is not joined anymore
+		SESSIONS.put(key, session);
+		PROCESSES.put(process, session);
+	}
+
+	/**
+	 * Leaves the session of a process, when the item doesn't use it anymore.
+	 *
+	 * @param item the item leaving.
+	 * @param process the process.
+	 * @return {@code true} if the process can be stopped, because no other
+	 *         item uses it.
+	 */
+	public static synchronized boolean release(StoreItem item, ProcessWrapper process) {
+		TranscodeSession session = PROCESSES.get(process);
+		if (session == null) {
+			return true;
+		}
+		session.owners.remove(item);
+		if (!session.owners.isEmpty()) {
+			LOGGER.debug("Transcoding session {} is still used by {} items", session.key, session.owners.size());
+			return false;
+		}
+		remove(session);
+		return true;
+	}
+
+	/**
+	 * Counts a reader of a process until it is closed, so that the process is
+	 * not stopped when another of its readers is closed.
+	 *
+	 * @param process the process.
+	 * @param input the output of the process.
+	 * @return The same input stream.
+	 */
+	public static synchronized InputStream getInputStream(ProcessWrapper process, InputStream input) {
+		TranscodeSession session = PROCESSES.get(process);
+		if (session != null && input instanceof WaitBufferedInputStream reader) {
+			session.readers++;
+			reader.setCloseListener(() -> readerClosed(session));
+		}
+		return input;
+	}
+
+	/**
+	 * @return The number of sessions that can be joined.
+	 */
+	public static synchronized int getSessionCount() {
+		sweep();
+		return SESSIONS.size();
+	}
+
+	/**
+	 * Forgets all the sessions.
+	 */
+	public static synchronized void clear() {
+		SESSIONS.clear();
+		PROCESSES.clear();
+	}
+
+	private static synchronized void readerClosed(TranscodeSession session) {
+		session.readers--;
+		if (session.readers > 0 && !session.process.isDestroyed()) {
+			// Closing a reader marks the process as ready to stop, which
+			// would end it under the other readers
+			session.process.setReadyToStop(false);
+		}
+	}
+
+	private static void remove(TranscodeSession session) {
+		PROCESSES.remove(session.process);
+		SESSIONS.remove(session.key, session);
+	}
+
+	private static void sweep() {
+		Iterator<TranscodeSession> iterator = PROCESSES.values().iterator();
+		while (iterator.hasNext()) {
+			TranscodeSession session = iterator.next();
+			if (session.process.isDestroyed()) {
+				iterator.remove();
+				SESSIONS.remove(session.key, session);
+			}
+		}
+	}
+
+	private static class TranscodeSession {
+		private final String key;
+		private final ProcessWrapper process;
+		private final Set<StoreItem> owners = Collections.newSetFromMap(new IdentityHashMap<>());
+		private int readers;
+
+		private TranscodeSession(String key, ProcessWrapper process) {
+			this.key = key;
+			this.process = process;
+		}
+	}
+}
@@ -233,7 +233,7 @@ public class VLCVideo extends Engine {
 		args.put("strict-rc", null);
 
 		// Enable multi-threading
-		args.put("threads", "" + configuration.getNumberOfCpuCores());
+		args.put("threads", "" + TranscodeScheduler.getThreads(configuration.getNumberOfCpuCores(), params));
 
 		// Hardcode subtitles into video
 		args.put("soverlay", null);
@@ -229,9 +229,27 @@ public class JavaHttpClient {
 	}
 
 	public static DLNAThumbnail getThumbnail(String uri) {
+		byte[] image;
 		try {
 			LOGGER.trace("Downloading image from {}", uri);
-			byte[] image = getBytes(uri);
+			image = getBytes(uri);
+		} catch (IOException e) {
+			LOGGER.error("Error reading thumbnail from uri \"{}\": {}", uri, e.getMessage());
+			LOGGER.trace("", e);
+			return null;
+		}
+		return toThumbnail(uri, image);
+	}
+
+	/**
+	 * Converts an image downloaded from {@code uri} to a thumbnail.
+	 *
+	 * @param uri the URI the image was downloaded from, for logging.
+	 * @param image the image.
+	 * @return the thumbnail, or {@code null} if the image can't be read.
+	 */
+	public static DLNAThumbnail toThumbnail(String uri, byte[] image) {
+		try {
 			return DLNAThumbnail.toThumbnail(image, 640, 480, ScaleType.MAX, ImageFormat.JPEG, false);
 		} catch (EOFException e) {
 			LOGGER.debug(
@@ -18,6 +18,8 @@ package net.pms.io;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+import net.pms.PMS;
 
 /**
  * Interface to easily subclass different implementations while keeping most of
@@ -25,6 +27,21 @@ import java.io.InputStream;
  * {@link BufferedOutputFileImpl}.
  */
 public interface BufferedOutputFile {
+
+	/**
+	 * Creates the buffer that holds the output of a transcoding process,
+	 * using the implementation selected in the (renderer) configuration.
+	 *
+	 * @param params the {@link OutputParams} of the process.
+	 * @return The new {@link BufferedOutputFile}.
+	 */
+	public static BufferedOutputFile newInstance(OutputParams params) {
+		if (PMS.getConfiguration(params).isTranscodeRingBuffer()) {
+			return new RingBufferedOutputFile(params);
+		}
+		return new BufferedOutputFileImpl(params);
+	}
+
 	public abstract void close() throws IOException;
 
 	public abstract WaitBufferedInputStream getCurrentInputStream();
@@ -33,6 +50,42 @@ public interface BufferedOutputFile {
 
 	public abstract long getWriteCount();
 
+	/**
+	 * Gets a future completed when the first bytes are written, or when the
+	 * output ends or is reset before that, so the start of a transcode can be
+	 * awaited instead of polled.
+	 *
+	 * @return The future, completed right away by the implementations that
+	 *         don't tell.
+	 */
+	public default CompletableFuture<Void> getFirstWrite() {
+		return CompletableFuture.completedFuture(null);
+	}
+
+	/**
+	 * Whether a new reader can start at the given position: the bytes from
+	 * there on are still buffered, and the writer would not have to wait for
+	 * that reader more than the buffer allows.
+	 *
+	 * @param position the read position.
+	 * @return {@code false} by the implementations that don't tell.
+	 */
+	public default boolean isInBuffer(long position) {
+		return false;
+	}
+
+	/**
+	 * Gets how much of the buffer is filled ahead of the reader, from 0 to 1.
+	 * A level that stays low means that the output is not produced as fast
+	 * as it is played.
+	 *
+	 * @return The buffer level, or -1 if there is no reader or the
+	 *         implementation doesn't tell.
+	 */
+	public default double getBufferLevel() {
+		return -1;
+	}
+
 	public abstract void write(byte[] b, int off, int len) throws IOException;
 
 	public abstract void write(int b) throws IOException;
@@ -26,6 +26,7 @@ import java.util.Arrays;
 import java.util.Locale;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.CompletableFuture;
 import net.pms.PMS;
 import net.pms.configuration.UmsConfiguration;
 import net.pms.gui.GuiManager;
@@ -78,6 +79,7 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 	private final boolean shiftScr;
 	private final int secondReadMinSize;
 	private final FileOutputStream debugOutput = null;
+	private final CompletableFuture<Void> firstWrite = new CompletableFuture<>();
 
 	private int bufferOverflowWarning;
 	private boolean eof;
@@ -104,7 +106,7 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 	 * original size or the original buffer will be returned.
 	 * @return The resized byte array.
 	 */
-	private byte[] growBuffer(byte[] buffer, int newSize) {
+	static byte[] growBuffer(byte[] buffer, int newSize) {
 		byte[] copy;
 
 		if (buffer == null) {
@@ -230,6 +232,7 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 	public void close() throws IOException {
 		LOGGER.trace("EOF");
 		eof = true;
+		firstWrite.complete(null);
 		if (cleanup) {
 			detachInputStream();
 		}
@@ -298,6 +301,29 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 		return writeCount;
 	}
 
+	@Override
+	public CompletableFuture<Void> getFirstWrite() {
+		return firstWrite;
+	}
+
+	@Override
+	public double getBufferLevel() {
+		WaitBufferedInputStream input = getCurrentInputStream();
+		if (buffer == null || input == null) {
+			return -1;
+		}
+		if (eof) {
+			return 1;
+		}
+		return Math.min(1, Math.max(0, writeCount - input.getReadCount()) / (double) bufferOverflowWarning);
+	}
+
+	@Override
+	public boolean isInBuffer(long position) {
+		long written = writeCount;
+		return buffer != null && position >= 0 && position <= written && written - position <= bufferOverflowWarning;
+	}
+
 	@Override
 	public void write(byte[] b, int off, int len) throws IOException {
 		if (debugOutput != null) {
@@ -345,6 +371,9 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 			}
 
 			writeCount += len - off;
+			if (!firstWrite.isDone()) {
+				firstWrite.complete(null);
+			}
 			if (timeseek > 0 && timeend == 0) {
 				int packetLength = 6; // minimum to get packet size
 				while (packetpos + packetLength < writeCount && buffer != null) {
@@ -408,6 +437,9 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 			input = getCurrentInputStream();
 		}
 		int mb = (int) (writeCount++ % maxMemorySize);
+		if (!firstWrite.isDone()) {
+			firstWrite.complete(null);
+		}
 		if (buffer != null) {
 			buffer[mb] = (byte) b;
 			buffered = true;
@@ -869,6 +901,7 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 		if (timer != null) {
 			timer.cancel();
 		}
+		firstWrite.complete(null);
 
 		if (buffer != null) {
 			LOGGER.trace("Destroying buffer");
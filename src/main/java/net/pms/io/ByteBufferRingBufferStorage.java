@@ -0,0 +1,317 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Ring storage outside of the Java heap, either in direct {@link ByteBuffer}s
+ * or in a memory-mapped temporary file. The ring is split in segments so that
+ * it can be larger than 2 GB, which allows deep seek-back windows without
+ * putting any pressure on the garbage collector.
+ * <p>
+ * Segments are allocated as the writer reaches them, so a transcode only
+ * takes the memory it actually fills. If a segment can't be allocated once
+ * the ring holds more than what is buffered ahead of the reader, the ring is
+ * limited to the segments it already has. The memory is freed, or unmapped,
+ * as soon as the storage is released.
+ */
+class ByteBufferRingBufferStorage implements RingBufferStorage {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ByteBufferRingBufferStorage.class);
+	private static final int SEGMENT_SIZE = 16 * 1048576;
+	private static final Method INVOKE_CLEANER;
+	private static final Object UNSAFE;
+
+	static {
+		Method invokeCleaner = null;
+		Object unsafe = null;
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Field field = unsafeClass.getDeclaredField("theUnsafe");
+			field.setAccessible(true);
+			unsafe = field.get(null);
+			invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			LOGGER.debug("Off-heap transcode buffers will be freed by the garbage collector: {}", e.getMessage());
+		}
+		INVOKE_CLEANER = invokeCleaner;
+		UNSAFE = unsafe;
+	}
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final ByteBuffer[] segments;
+	private final long minCapacity;
+	private final File file;
+	private final RandomAccessFile randomAccessFile;
+	private volatile long capacity;
+	private int allocated;
+	private boolean released;
+
+	private ByteBufferRingBufferStorage(long capacity, long minCapacity, File file, RandomAccessFile randomAccessFile) {
+		this.segments = new ByteBuffer[getSegmentCount(capacity)];
+		this.capacity = capacity;
+		this.minCapacity = minCapacity;
+		this.file = file;
+		this.randomAccessFile = randomAccessFile;
+	}
+
+	/**
+	 * Creates a ring in direct memory. Its first segment is allocated right
+	 * away, the others when they are first written.
+	 *
+	 * @param capacity the size of the ring in bytes.
+	 * @param minCapacity the size under which the ring can't work, which is
+	 *            what is buffered ahead of the reader.
+	 * @return The storage.
+	 * @throws OutOfMemoryError if there is not enough direct memory.
+	 */
+	static ByteBufferRingBufferStorage allocateDirect(long capacity, long minCapacity) {
+		ByteBufferRingBufferStorage storage = new ByteBufferRingBufferStorage(capacity, minCapacity, null, null);
+		storage.segments[0] = ByteBuffer.allocateDirect(getSegmentSize(capacity, 0));
+		storage.allocated = 1;
+		LOGGER.trace("Created a direct transcode buffer of up to {} bytes", capacity);
+		return storage;
+	}
+
+	/**
+	 * Maps the ring to a new temporary file in {@code folder}. The file grows
+	 * as segments are written, and is deleted when the storage is released.
+	 *
+	 * @param folder the folder for the temporary file.
+	 * @param capacity the size of the ring in bytes.
+	 * @param minCapacity the size under which the ring can't work, which is
+	 *            what is buffered ahead of the reader.
+	 * @return The storage.
+	 * @throws IOException if the file can't be created or mapped.
+	 */
+	static ByteBufferRingBufferStorage map(File folder, long capacity, long minCapacity) throws IOException {
+		File file = File.createTempFile("ums-buffer-", ".tmp", folder);
+		file.deleteOnExit();
+		RandomAccessFile randomAccessFile = null;
+		try {
+			randomAccessFile = new RandomAccessFile(file, "rw");
+			ByteBufferRingBufferStorage storage = new ByteBufferRingBufferStorage(capacity, minCapacity, file, randomAccessFile);
+			storage.allocateSegment();
+			LOGGER.trace("Mapped a transcode buffer of up to {} bytes to \"{}\"", capacity, file);
+			return storage;
+		} catch (IOException e) {
+			if (randomAccessFile != null) {
+				randomAccessFile.close();
+			}
+			if (!file.delete()) {
+				LOGGER.debug("Could not delete \"{}\"", file);
+			}
+			throw e;
+		}
+	}
+
+	private static int getSegmentCount(long capacity) {
+		return (int) ((capacity + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+	}
+
+	private static int getSegmentSize(long capacity, int segment) {
+		return (int) Math.min(SEGMENT_SIZE, capacity - (long) segment * SEGMENT_SIZE);
+	}
+
+	/**
+	 * Allocates the next segment of the ring. Only called by the writer.
+	 */
+	private void allocateSegment() throws IOException {
+		int segment = allocated;
+		int size = getSegmentSize(capacity, segment);
+		if (randomAccessFile != null) {
+			long end = (long) segment * SEGMENT_SIZE + size;
+			randomAccessFile.setLength(end);
+			segments[segment] = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, (long) segment * SEGMENT_SIZE, size);
+		} else {
+			segments[segment] = ByteBuffer.allocateDirect(size);
+		}
+		allocated++;
+	}
+
+	/**
+	 * @return the size in bytes of the segments allocated so far.
+	 */
+	long getAllocatedSize() {
+		return Math.min(capacity, (long) allocated * SEGMENT_SIZE);
+	}
+
+	@Override
+	public long capacity() {
+		return capacity;
+	}
+
+	/**
+	 * Allocates the segments the write reaches. The ring hasn't wrapped yet
+	 * while segments are missing, so it can still be limited to the
+	 * allocated ones.
+	 */
+	@Override
+	public void prepareWrite(long position, int length) throws IOException {
+		long end = position + length;
+		while (allocated < segments.length && end > (long) allocated * SEGMENT_SIZE) {
+			lock.readLock().lock();
+			try {
+				if (released) {
+					return;
+				}
+				allocateSegment();
+			} catch (IOException | OutOfMemoryError e) {
+				long allocatedSize = getAllocatedSize();
+				if (allocatedSize < minCapacity) {
+					throw new IOException("Cannot allocate the transcode buffer beyond " + allocatedSize + " bytes: " + e.getMessage(), e);
+				}
+				LOGGER.debug("Cannot allocate more than {} bytes for the transcode buffer: {}", allocatedSize, e.getMessage());
+				capacity = allocatedSize;
+				return;
+			} finally {
+				lock.readLock().unlock();
+			}
+		}
+	}
+
+	@Override
+	public void put(long position, byte[] src, int off, int len) {
+		lock.readLock().lock();
+		try {
+			if (released) {
+				return;
+			}
+			while (len > 0) {
+				long index = position % capacity;
+				int segment = (int) (index / SEGMENT_SIZE);
+				int segmentOffset = (int) (index % SEGMENT_SIZE);
+				int chunk = Math.min(len, segments[segment].capacity() - segmentOffset);
+				segments[segment].put(segmentOffset, src, off, chunk);
+				position += chunk;
+				off += chunk;
+				len -= chunk;
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public void get(long position, byte[] dst, int off, int len) {
+		lock.readLock().lock();
+		try {
+			if (released) {
+				return;
+			}
+			while (len > 0) {
+				long index = position % capacity;
+				int segment = (int) (index / SEGMENT_SIZE);
+				int segmentOffset = (int) (index % SEGMENT_SIZE);
+				int chunk = Math.min(len, segments[segment].capacity() - segmentOffset);
+				segments[segment].get(segmentOffset, dst, off, chunk);
+				position += chunk;
+				off += chunk;
+				len -= chunk;
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public byte get(long position) {
+		lock.readLock().lock();
+		try {
+			if (released) {
+				return 0;
+			}
+			long index = Math.floorMod(position, capacity);
+			return segments[(int) (index / SEGMENT_SIZE)].get((int) (index % SEGMENT_SIZE));
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public void set(long position, byte value) {
+		lock.readLock().lock();
+		try {
+			if (released) {
+				return;
+			}
+			long index = Math.floorMod(position, capacity);
+			segments[(int) (index / SEGMENT_SIZE)].put((int) (index % SEGMENT_SIZE), value);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Frees the direct memory or unmaps the file, then closes and deletes the
+	 * temporary file of a mapped storage. Reads and writes still running are
+	 * waited for, the later ones do nothing.
+	 */
+	@Override
+	public void release() {
+		lock.writeLock().lock();
+		try {
+			if (released) {
+				return;
+			}
+			released = true;
+			for (int i = 0; i < segments.length; i++) {
+				if (segments[i] != null) {
+					free(segments[i]);
+					segments[i] = null;
+				}
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+		if (randomAccessFile != null) {
+			try {
+				randomAccessFile.close();
+			} catch (IOException e) {
+				LOGGER.debug("Error closing \"{}\": {}", file, e.getMessage());
+			}
+			if (!file.delete()) {
+				LOGGER.trace("Could not delete \"{}\" yet, it will be deleted on exit", file);
+			}
+		}
+	}
+
+	/**
+	 * Frees a direct or mapped buffer right away, instead of when it is
+	 * garbage collected.
+	 */
+	private static void free(ByteBuffer buffer) {
+		if (INVOKE_CLEANER == null) {
+			return;
+		}
+		try {
+			INVOKE_CLEANER.invoke(UNSAFE, buffer);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			LOGGER.trace("Could not free a transcode buffer segment: {}", e.getMessage());
+		}
+	}
+}
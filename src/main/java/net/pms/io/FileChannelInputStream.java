@@ -0,0 +1,168 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An {@link InputStream} over a region of a plain file, either the whole file
+ * or the data of an entry stored in an archive file.
+ *
+ * Skipping only moves the position in the {@link FileChannel}, and the HTTP
+ * servlets detect this stream to send the region straight from the file
+ * (see {@link net.pms.network.HttpServletHelper}) instead of copying it
+ * through a buffer.
+ */
+public class FileChannelInputStream extends InputStream {
+	private final File file;
+	private final FileChannel channel;
+	private final long offset;
+	private final long size;
+	private long position;
+	private long end;
+
+	public FileChannelInputStream(File file) throws IOException {
+		this.file = file;
+		this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		this.offset = 0;
+		this.size = channel.size();
+		this.end = size;
+	}
+
+	/**
+	 * Creates a stream over a part of a file, the positions of this stream
+	 * are relative to the start of that part.
+	 *
+	 * @param file the file.
+	 * @param offset the position in the file of the first byte of the part.
+	 * @param size the size of the part.
+	 * @throws IOException if the file can't be opened.
+	 */
+	public FileChannelInputStream(File file, long offset, long size) throws IOException {
+		this.file = file;
+		this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		this.offset = offset;
+		this.size = Math.max(0, Math.min(size, channel.size() - offset));
+		this.end = this.size;
+	}
+
+	/**
+	 * Limits this stream to a byte range of the file.
+	 *
+	 * @param start the first byte to read.
+	 * @param last the last byte to read (inclusive), or a value lower than
+	 * {@code start} to read until the end of the file.
+	 */
+	public void setRange(long start, long last) {
+		position = Math.min(Math.max(0, start), size);
+		end = last >= start ? Math.min(size, last + 1) : size;
+	}
+
+	/**
+	 * @return the size of the file, or of the part of the file this stream
+	 * reads.
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public FileChannel getChannel() {
+		return channel;
+	}
+
+	/**
+	 * @return the position of the next byte to read.
+	 */
+	public long getPosition() {
+		return position;
+	}
+
+	/**
+	 * @return the position in the {@link FileChannel} of the next byte to
+	 * read.
+	 */
+	public long getChannelPosition() {
+		return offset + position;
+	}
+
+	/**
+	 * @return the number of bytes left to read, which can exceed
+	 * {@link #available()}.
+	 */
+	public long getRemaining() {
+		return Math.max(0, end - position);
+	}
+
+	/**
+	 * Marks bytes as read after they were sent by other means than this
+	 * stream.
+	 *
+	 * @param count the number of bytes.
+	 */
+	public void advance(long count) {
+		position = Math.min(end, position + count);
+	}
+
+	@Override
+	public int read() throws IOException {
+		byte[] b = new byte[1];
+		return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		long remaining = getRemaining();
+		if (remaining == 0) {
+			return -1;
+		}
+		ByteBuffer buffer = ByteBuffer.wrap(b, off, (int) Math.min(len, remaining));
+		int read = channel.read(buffer, offset + position);
+		if (read > 0) {
+			position += read;
+		}
+		return read;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		long skipped = Math.min(Math.max(0, n), getRemaining());
+		position += skipped;
+		return skipped;
+	}
+
+	@Override
+	public int available() throws IOException {
+		return (int) Math.min(getRemaining(), Integer.MAX_VALUE);
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.io;
+
+/**
+ * Ring storage on the Java heap. It starts with a modest allocation and grows
+ * once to its maximum size if that is needed before the first wrap, so that
+ * its content can be copied as is.
+ */
+class HeapRingBufferStorage implements RingBufferStorage {
+	private final int maxCapacity;
+	private volatile byte[] buffer;
+
+	private HeapRingBufferStorage(byte[] buffer, int maxCapacity) {
+		this.buffer = buffer;
+		this.maxCapacity = maxCapacity;
+	}
+
+	/**
+	 * @return the storage, or {@code null} if no memory could be allocated.
+	 */
+	static HeapRingBufferStorage allocate(int initialSize, int maxCapacity) {
+		byte[] initial = BufferedOutputFileImpl.growBuffer(null, Math.min(initialSize, maxCapacity));
+		if (initial.length == 0) {
+			return null;
+		}
+		return new HeapRingBufferStorage(initial, maxCapacity);
+	}
+
+	@Override
+	public long capacity() {
+		return buffer.length;
+	}
+
+	@Override
+	public void prepareWrite(long position, int length) {
+		byte[] buf = buffer;
+		if (position + length > buf.length && position <= buf.length && buf.length < maxCapacity) {
+			// Nothing has wrapped yet
+			buffer = BufferedOutputFileImpl.growBuffer(buf, maxCapacity);
+		}
+	}
+
+	@Override
+	public void put(long position, byte[] src, int off, int len) {
+		byte[] buf = buffer;
+		int capacity = buf.length;
+		while (len > 0) {
+			int pos = (int) (position % capacity);
+			int chunk = Math.min(len, capacity - pos);
+			System.arraycopy(src, off, buf, pos, chunk);
+			position += chunk;
+			off += chunk;
+			len -= chunk;
+		}
+	}
+
+	@Override
+	public void get(long position, byte[] dst, int off, int len) {
+		byte[] buf = buffer;
+		int capacity = buf.length;
+		while (len > 0) {
+			int pos = (int) (position % capacity);
+			int chunk = Math.min(len, capacity - pos);
+			System.arraycopy(buf, pos, dst, off, chunk);
+			position += chunk;
+			off += chunk;
+			len -= chunk;
+		}
+	}
+
+	@Override
+	public byte get(long position) {
+		byte[] buf = buffer;
+		return buf[(int) Math.floorMod(position, (long) buf.length)];
+	}
+
+	@Override
+	public void set(long position, byte value) {
+		byte[] buf = buffer;
+		buf[(int) Math.floorMod(position, (long) buf.length)] = value;
+	}
+
+	@Override
+	public void release() {
+		// The array is garbage collected once it isn't referenced anymore
+	}
+}
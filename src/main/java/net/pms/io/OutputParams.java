@@ -59,6 +59,7 @@ public final class OutputParams {
 	private boolean shiftScr;
 	private boolean cleanup;
 	private HlsConfiguration hlsConfiguration;
+	private int threads;
 
 	public OutputParams(UmsConfiguration configuration) {
 		if (configuration != null) {
@@ -118,6 +119,7 @@ public final class OutputParams {
 			", shift_scr=" + isShiftSscr() +
 			", sid=" + getSid() +
 			", stdin=" + getStdIn() +
+			", threads=" + getThreads() +
 			", timeend=" + getTimeEnd() +
 			", timeseek=" + getTimeSeek() +
 			", toFrame=" + getToFrame() +
@@ -377,4 +379,16 @@ public final class OutputParams {
 	public void setHlsConfiguration(HlsConfiguration hlsConfiguration) {
 		this.hlsConfiguration = hlsConfiguration;
 	}
+
+	/**
+	 * @return The maximum number of threads the process may use, or 0 if the
+	 *         engine picks it.
+	 */
+	public int getThreads() {
+		return threads;
+	}
+
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
 }
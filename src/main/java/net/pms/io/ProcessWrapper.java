@@ -19,6 +19,7 @@ package net.pms.io;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Wrapper for executing a command line process while keeping an eye on it from UMS.
@@ -33,6 +34,49 @@ public interface ProcessWrapper {
 	 */
 	public InputStream getInputStream(long seek) throws IOException;
 
+	/**
+	 * Gets a future completed with {@code true} once the first output of the
+	 * process is buffered and {@link #getInputStream(long)} can be called, or
+	 * with {@code false} if the process ends or is stopped before that.
+	 *
+	 * @return The future, or {@code null} if this process doesn't tell.
+	 */
+	public default CompletableFuture<Boolean> getFirstOutput() {
+		return null;
+	}
+
+	/**
+	 * Whether another reader of the output can start at the given position,
+	 * because the process is still running and that part of its output is
+	 * still buffered, or not produced yet.
+	 *
+	 * @param position the read position.
+	 * @return {@code false} by the implementations that don't tell.
+	 */
+	public default boolean isOutputAvailable(long position) {
+		return false;
+	}
+
+	/**
+	 * Gets how much of the output buffer is filled ahead of the readers, from
+	 * 0 to 1.
+	 *
+	 * @return The buffer level, or -1 if unknown.
+	 * @see BufferedOutputFile#getBufferLevel()
+	 */
+	public default double getBufferLevel() {
+		return -1;
+	}
+
+	/**
+	 * Whether the process is still running, or about to run.
+	 *
+	 * @return {@code true} until the process ends or is stopped.
+	 */
+	public default boolean isRunning() {
+		return !isDestroyed();
+	}
+
 	public List<String> getResults();
 
 	/**
@@ -24,6 +24,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicInteger;
 import net.pms.encoders.AviDemuxerInputStream;
 import net.pms.util.ProcessUtil;
@@ -46,11 +47,12 @@ public class ProcessWrapperImpl extends Thread implements ProcessWrapper {
 	private String[] cmdArray;
 	private boolean nullable;
 	private ArrayList<ProcessWrapper> attachedProcesses;
-	private BufferedOutputFile bo = null;
+	private volatile BufferedOutputFile bo = null;
 	private boolean keepStdout;
 	private boolean keepStderr;
 	private volatile boolean success;
 	private final boolean useByteArrayStdConsumer;
+	private final CompletableFuture<Boolean> firstOutput = new CompletableFuture<>();
 
 	@Override
 	public String toString() {
@@ -230,6 +232,12 @@ public class ProcessWrapperImpl extends Thread implements ProcessWrapper {
 				stdoutConsumer.start();
 			}
 
+			if (bo != null) {
+				bo.getFirstWrite().thenRun(() -> firstOutput.complete(true));
+			} else {
+				firstOutput.complete(false);
+			}
+
 			if (params.getStdIn() != null) {
 				params.getStdIn().push(process.getOutputStream());
 			}
@@ -290,6 +298,7 @@ public class ProcessWrapperImpl extends Thread implements ProcessWrapper {
 				}
 			}
 			CURRENT_PROCESSES.remove(process);
+			firstOutput.complete(false);
 		}
 	}
 
@@ -340,6 +349,35 @@ public class ProcessWrapperImpl extends Thread implements ProcessWrapper {
 		return null;
 	}
 
+	@Override
+	public CompletableFuture<Boolean> getFirstOutput() {
+		return firstOutput;
+	}
+
+	@Override
+	public double getBufferLevel() {
+		BufferedOutputFile buffer = bo;
+		return buffer != null && !destroyed ? buffer.getBufferLevel() : -1;
+	}
+
+	@Override
+	public boolean isRunning() {
+		return !destroyed && (isAlive() || getState() == State.NEW);
+	}
+
+	@Override
+	public boolean isOutputAvailable(long position) {
+		if (destroyed || (firstOutput.isDone() && !firstOutput.getNow(false))) {
+			return false;
+		}
+		BufferedOutputFile buffer = bo;
+		if (buffer == null) {
+			// Not started yet, the whole output is to come
+			return !params.isLog() && position == 0;
+		}
+		return buffer.isInBuffer(position);
+	}
+
 	public List<String> getOtherResults() {
 		if (stdoutConsumer == null) {
 			return null;
@@ -364,6 +402,7 @@ public class ProcessWrapperImpl extends Thread implements ProcessWrapper {
 	public synchronized void stopProcess() {
 		if (!destroyed) {
 			destroyed = true;
+			firstOutput.complete(false);
 			if (process != null) {
 				long pid = ProcessUtil.getProcessId(process);
 				if (pid != 0) {
@@ -0,0 +1,108 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.io;
+
+import java.io.File;
+import java.io.IOException;
+import net.pms.configuration.UmsConfiguration;
+import net.pms.configuration.UmsConfiguration.TranscodeBufferStorage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The memory that backs a {@link RingBufferedOutputFile}.
+ * <p>
+ * Positions are absolute stream positions, they are mapped to the ring by the
+ * implementation. Reads may run concurrently with the (single) writer.
+ */
+interface RingBufferStorage {
+
+	/**
+	 * Buffers up to this size are always kept on the heap, they are used for
+	 * parsing and piping rather than for streaming.
+	 */
+	static final int OFF_HEAP_MIN_SIZE = 15 * 1048576;
+
+	/**
+	 * Allocates the storage for a transcode buffer, using the storage type
+	 * selected in the configuration. When the selected type can't be
+	 * allocated, the next one in the order mapped, direct, heap is tried.
+	 *
+	 * @param configuration the (renderer) configuration.
+	 * @param maxMemorySize the maximum amount of bytes buffered ahead of the
+	 * reader.
+	 * @param initialSize the initial size of a heap buffer.
+	 * @return The storage, or {@code null} if no memory could be allocated.
+	 */
+	static RingBufferStorage allocate(UmsConfiguration configuration, int maxMemorySize, int initialSize) {
+		Logger logger = LoggerFactory.getLogger(RingBufferStorage.class);
+		TranscodeBufferStorage type = configuration.getTranscodeBufferStorage();
+		if (maxMemorySize > OFF_HEAP_MIN_SIZE && type != TranscodeBufferStorage.HEAP) {
+			long capacity = Math.max(maxMemorySize, configuration.getTranscodeBufferOffHeapSize() * 1048576L);
+			if (type == TranscodeBufferStorage.MAPPED) {
+				try {
+					File folder = configuration.getTempFolder();
+					return ByteBufferRingBufferStorage.map(folder, capacity, maxMemorySize);
+				} catch (IOException e) {
+					logger.warn("Cannot map a transcode buffer of {} MB, using direct memory: {}", capacity / 1048576, e.getMessage());
+					logger.trace("", e);
+				}
+			}
+			try {
+				return ByteBufferRingBufferStorage.allocateDirect(capacity, maxMemorySize);
+			} catch (OutOfMemoryError e) {
+				logger.warn("Cannot allocate a direct transcode buffer of {} MB, using the heap: {}", capacity / 1048576, e.getMessage());
+			}
+		}
+		return HeapRingBufferStorage.allocate(initialSize, maxMemorySize);
+	}
+
+	/**
+	 * @return the current size of the ring in bytes.
+	 */
+	long capacity();
+
+	/**
+	 * Called by the writer before {@code length} bytes are written at
+	 * {@code position}, which gives a growable storage the opportunity to grow.
+	 *
+	 * @param position the stream position of the first byte.
+	 * @param length the number of bytes.
+	 * @throws IOException if the storage can't grow enough to hold them.
+	 */
+	void prepareWrite(long position, int length) throws IOException;
+
+	/**
+	 * Copies {@code len} bytes to the ring, wrapping as needed.
+	 */
+	void put(long position, byte[] src, int off, int len);
+
+	/**
+	 * Copies {@code len} bytes from the ring, wrapping as needed.
+	 */
+	void get(long position, byte[] dst, int off, int len);
+
+	byte get(long position);
+
+	void set(long position, byte value);
+
+	/**
+	 * Releases the memory, the storage can't be used anymore afterwards.
+	 * Reads and writes done after it have no effect.
+	 */
+	void release();
+}
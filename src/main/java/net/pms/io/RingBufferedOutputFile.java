@@ -0,0 +1,881 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.text.NumberFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import net.pms.PMS;
+import net.pms.configuration.UmsConfiguration;
+import net.pms.gui.GuiManager;
+import net.pms.renderers.Renderer;
+import net.pms.util.SimpleThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Single producer / multiple readers ring buffer used to hold the output of a
+ * transcoding process until it is requested by a renderer. The writer is
+ * throttled by the slowest reader that is still reading, so that several
+ * readers can consume the same output.
+ * <p>
+ * Unlike {@link BufferedOutputFileImpl}, neither side polls: the writer
+ * publishes a monotonic write sequence ({@link #getWriteCount()}) and readers
+ * compare it to their own read sequence. When a reader is waiting for data or
+ * the writer is waiting for room, the other side wakes it up through a
+ * {@link Condition} as soon as the state changes. Wrapping writes and reads are
+ * done with (at most) two bulk copies.
+ * <p>
+ * The ring itself is a {@link RingBufferStorage}. It is on the heap by default,
+ * or in direct memory or a memory-mapped temporary file depending on
+ * {@link UmsConfiguration#getTranscodeBufferStorage()}. Off-heap rings can be
+ * larger than what is buffered ahead of the reader, what remains behind the
+ * reader can then be read again when the renderer seeks back.
+ * <p>
+ * The MPEG timestamp rewriting done on time seeks is the same as in
+ * {@link BufferedOutputFileImpl}, expressed with absolute stream positions.
+ */
+public class RingBufferedOutputFile extends OutputStream implements BufferedOutputFile {
+	private static final Logger LOGGER = LoggerFactory.getLogger(RingBufferedOutputFile.class);
+	private static final NumberFormat FORMATTER = NumberFormat.getInstance(Locale.US);
+
+	/**
+	 * Initial size for the buffer in bytes.
+	 * The current value is 50MB.
+	 */
+	private static final int INITIAL_BUFFER_SIZE = 52428800;
+
+	/**
+	 * Amount of bytes to keep free between the writer and the current reader.
+	 */
+	private static final int MARGIN_LARGE = 20000000;
+	private static final int MARGIN_MEDIUM = 2000000;
+	private static final int MARGIN_SMALL = 600000;
+
+	/**
+	 * How long a reader waits for the minimum buffer to be filled before it
+	 * accepts whatever is available. This is the same upper bound as the 15
+	 * polls of 500 ms done by {@link BufferedOutputFileImpl}.
+	 */
+	private static final long MIN_BUFFER_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(7500);
+
+	/**
+	 * Safety net for the writer, so that it re-evaluates the current reader
+	 * when readers are added or removed without reading anything.
+	 */
+	private static final long WRITER_RECHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+	private static final long IDLE_READER_NANOS = TimeUnit.SECONDS.toNanos(5);
+	private static final int CHECK_END_OF_PROCESS = 2500;
+
+	/**
+	 * Re-checks the readers waiting with {@link #onReadReady} once they have
+	 * waited long enough to accept whatever is available, in case nothing is
+	 * written by then.
+	 */
+	private static final ScheduledThreadPoolExecutor READ_READY_TIMER = new ScheduledThreadPoolExecutor(
+		1,
+		new SimpleThreadFactory("Transcode buffer read-ready timer")
+	);
+
+	static {
+		READ_READY_TIMER.setKeepAliveTime(30, TimeUnit.SECONDS);
+		READ_READY_TIMER.allowCoreThreadTimeOut(true);
+		READ_READY_TIMER.setRemoveOnCancelPolicy(true);
+	}
+
+	private final UmsConfiguration configuration;
+	private final Renderer renderer;
+	private final int minMemorySize;
+	private final int maxMemorySize;
+	private final boolean forcefirst;
+	private final double timeseek;
+	private final double timeend;
+	private final boolean hidebuffer;
+	private final boolean cleanup;
+	private final boolean shiftScr;
+	private final int secondReadMinSize;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition dataWritten = lock.newCondition();
+	private final Condition dataConsumed = lock.newCondition();
+	private final List<WaitBufferedInputStream> inputStreams = new CopyOnWriteArrayList<>();
+	private final Queue<ReadReadyCallback> readReadyCallbacks = new ConcurrentLinkedQueue<>();
+	private final CompletableFuture<Void> firstWrite = new CompletableFuture<>();
+
+	private volatile RingBufferStorage storage;
+	private volatile long writeCount;
+	private volatile boolean eof;
+	private volatile int bufferOverflowWarning;
+	private volatile int waitingReaders;
+	private volatile boolean writerWaiting;
+	private volatile ProcessWrapper attachedThread;
+	private Timer timer;
+	private long packetpos = 0;
+
+	/**
+	 * Creates a ring buffer based on the settings that are passed on. A timer
+	 * task to display buffer size and usage is started when a process is
+	 * attached.
+	 *
+	 * @param params {@link OutputParams} object that contains preferences for
+	 * the buffers dimensions and behavior.
+	 */
+	public RingBufferedOutputFile(OutputParams params) {
+		configuration = PMS.getConfiguration(params);
+		this.renderer = params.getMediaRenderer();
+		this.forcefirst = (configuration.getTrancodeBlocksMultipleConnections() && configuration.getTrancodeKeepFirstConnections());
+		this.minMemorySize = (int) (1048576 * params.getMinBufferSize());
+		this.maxMemorySize = (int) (1048576 * params.getMaxBufferSize());
+
+		int margin = MARGIN_LARGE;
+		if (this.maxMemorySize < margin) {
+			margin = MARGIN_MEDIUM;
+			if (this.maxMemorySize < margin) {
+				margin = MARGIN_SMALL;
+			}
+		}
+		this.bufferOverflowWarning = this.maxMemorySize - margin;
+		this.secondReadMinSize = params.getSecondReadMinSize();
+		this.timeseek = params.getTimeSeek();
+		this.timeend = params.getTimeEnd();
+		this.shiftScr = params.isShiftSscr();
+		this.hidebuffer = params.isHideBuffer();
+		this.cleanup = params.isCleanup();
+
+		storage = RingBufferStorage.allocate(configuration, maxMemorySize, INITIAL_BUFFER_SIZE);
+		if (storage == null) {
+			LOGGER.error("Cannot allocate a transcode buffer of {} bytes", FORMATTER.format(Math.min(maxMemorySize, INITIAL_BUFFER_SIZE)));
+			LOGGER.trace("freeMemory: " + Runtime.getRuntime().freeMemory());
+			LOGGER.trace("totalMemory: " + Runtime.getRuntime().totalMemory());
+			LOGGER.trace("maxMemory: " + Runtime.getRuntime().maxMemory());
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		LOGGER.trace("EOF");
+		eof = true;
+		firstWrite.complete(null);
+		signalAll();
+		if (cleanup) {
+			detachInputStream();
+		}
+	}
+
+	@Override
+	public WaitBufferedInputStream getCurrentInputStream() {
+		WaitBufferedInputStream wai = null;
+		try {
+			if (!inputStreams.isEmpty()) {
+				wai = forcefirst ? inputStreams.get(0) : inputStreams.get(inputStreams.size() - 1);
+			}
+		} catch (IndexOutOfBoundsException e) {
+			// The last input stream was removed in between
+		}
+		return wai;
+	}
+
+	@Override
+	public InputStream getInputStream(long newReadPosition) {
+		ProcessWrapper thread = attachedThread;
+		if (thread != null) {
+			thread.setReadyToStop(false);
+		}
+
+		WaitBufferedInputStream atominputStream;
+
+		if (!configuration.getTrancodeBlocksMultipleConnections() || getCurrentInputStream() == null) {
+			atominputStream = new WaitBufferedInputStream(this);
+			inputStreams.add(atominputStream);
+		} else {
+			if (configuration.getTrancodeKeepFirstConnections()) {
+				LOGGER.debug("BufferedOutputFile is already attached to an InputStream: " + getCurrentInputStream());
+			} else {
+				while (!inputStreams.isEmpty()) {
+					try {
+						inputStreams.get(0).close();
+					} catch (IOException | IndexOutOfBoundsException e) {
+						LOGGER.error("Error: ", e);
+					}
+				}
+
+				inputStreams.clear();
+				atominputStream = new WaitBufferedInputStream(this);
+				inputStreams.add(atominputStream);
+				LOGGER.debug("Reassign inputstream: " + getCurrentInputStream());
+			}
+
+			return null;
+		}
+
+		if (newReadPosition > 0) {
+			LOGGER.debug("Setting InputStream new position to: " + FORMATTER.format(newReadPosition));
+			atominputStream.setReadCount(newReadPosition);
+		}
+
+		return atominputStream;
+	}
+
+	@Override
+	public long getWriteCount() {
+		return writeCount;
+	}
+
+	@Override
+	public CompletableFuture<Void> getFirstWrite() {
+		return firstWrite;
+	}
+
+	@Override
+	public double getBufferLevel() {
+		long slowest = getSlowestReadCount();
+		if (storage == null || slowest < 0) {
+			return -1;
+		}
+		if (eof) {
+			return 1;
+		}
+		return Math.min(1, Math.max(0, writeCount - slowest) / (double) bufferOverflowWarning);
+	}
+
+	@Override
+	public boolean isInBuffer(long position) {
+		long written = writeCount;
+		return storage != null && position >= 0 && position <= written && written - position <= bufferOverflowWarning;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		if (len <= 0) {
+			return;
+		}
+
+		awaitRoom();
+
+		RingBufferStorage buf = storage;
+		if (buf == null) {
+			// The buffer was reset, the output is not wanted anymore
+			return;
+		}
+
+		long start = writeCount;
+		buf.prepareWrite(start, len);
+		buf.put(start, b, off, len);
+
+		long end = start + len;
+		if (timeseek > 0) {
+			shiftTimestamps(buf, start, end);
+		}
+
+		writeCount = end;
+		if (!firstWrite.isDone()) {
+			firstWrite.complete(null);
+		}
+		if (waitingReaders > 0) {
+			signalReaders();
+		}
+		if (!readReadyCallbacks.isEmpty()) {
+			runReadReadyCallbacks();
+		}
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		write(new byte[] {(byte) b}, 0, 1);
+	}
+
+	@Override
+	public void write(byte[] byteArray) throws IOException {
+		write(byteArray, 0, byteArray.length);
+	}
+
+	/**
+	 * Blocks the writer while the current reader is too far behind, so that
+	 * unread data is not overwritten.
+	 */
+	private void awaitRoom() {
+		if (!isFull()) {
+			return;
+		}
+
+		lock.lock();
+		try {
+			writerWaiting = true;
+			while (isFull() && storage != null) {
+				dataConsumed.awaitNanos(WRITER_RECHECK_NANOS);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			writerWaiting = false;
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * The writer is held back by the current reader, and by any other reader
+	 * that is still actively reading. Readers that have been idle for a while
+	 * are typically abandoned connections and must not stall the others.
+	 */
+	private boolean isFull() {
+		long slowest = getSlowestReadCount();
+		if (slowest < 0) {
+			return writeCount > bufferOverflowWarning;
+		}
+		return writeCount - slowest > bufferOverflowWarning;
+	}
+
+	/**
+	 * @return The read position of the slowest reader that is still actively
+	 *         reading, or -1 if there is no reader.
+	 */
+	private long getSlowestReadCount() {
+		WaitBufferedInputStream current = getCurrentInputStream();
+		if (current == null) {
+			return -1;
+		}
+
+		long slowest = current.getReadCount();
+		long now = System.nanoTime();
+		for (WaitBufferedInputStream input : inputStreams) {
+			if (now - input.getLastReadTime() < IDLE_READER_NANOS) {
+				slowest = Math.min(slowest, input.getReadCount());
+			}
+		}
+		return slowest;
+	}
+
+	@Override
+	public int read(boolean firstRead, long readCount, byte[] buf, int off, int len) {
+		if (len == 0) {
+			return 0;
+		}
+
+		RingBufferStorage data = storage;
+		long available = awaitData(firstRead, readCount, data);
+		if (available <= 0) {
+			return -1;
+		}
+
+		int length = (int) Math.min(len, available);
+		data.get(readCount, buf, off, length);
+		return length;
+	}
+
+	@Override
+	public int read(boolean firstRead, long readCount) {
+		RingBufferStorage data = storage;
+		long available = awaitData(firstRead, readCount, data);
+		if (available <= 0) {
+			return -1;
+		}
+
+		return 0xff & data.get(readCount);
+	}
+
+	/**
+	 * Waits until enough data is buffered for a reader at {@code readCount}.
+	 *
+	 * @param firstRead whether this is the first read of the input stream.
+	 * @param readCount the reader's position.
+	 * @param data the storage the reader will read from.
+	 * @return The number of bytes that can be read, or {@code -1} on EOF.
+	 */
+	private long awaitData(boolean firstRead, long readCount, RingBufferStorage data) {
+		if (data == null) {
+			return -1;
+		}
+
+		prepareRead(readCount);
+
+		int minBufferSize = firstRead ? minMemorySize : secondReadMinSize;
+		if (!hasEnoughData(readCount, minBufferSize)) {
+			lock.lock();
+			waitingReaders++;
+			try {
+				LOGGER.trace("Suspend Read: readCount=" + readCount + " / writeCount=" + writeCount);
+				long nanos = MIN_BUFFER_WAIT_NANOS;
+				while (!hasEnoughData(readCount, minBufferSize)) {
+					if (nanos <= 0) {
+						if (writeCount > readCount) {
+							// Waited long enough, make do with what there is
+							break;
+						}
+						nanos = MIN_BUFFER_WAIT_NANOS;
+					}
+					nanos = dataWritten.awaitNanos(nanos);
+				}
+				LOGGER.trace("Resume Read: readCount=" + readCount + " / writeCount=" + writeCount);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return -1;
+			} finally {
+				waitingReaders--;
+				lock.unlock();
+			}
+		}
+
+		return getAvailable(readCount, data);
+	}
+
+	/**
+	 * Non-blocking variant of {@link #read(boolean, long, byte[], int, int)},
+	 * for readers that use {@link #onReadReady} to be told when to read
+	 * again.
+	 *
+	 * @param firstRead whether this is the first read of the input stream.
+	 * @param readCount the reader's position.
+	 * @param waitStart the {@link System#nanoTime()} at which the reader
+	 * started waiting for data.
+	 * @return The number of bytes read, {@code 0} if the reader has to wait,
+	 * or {@code -1} on EOF.
+	 */
+	int readNonBlocking(boolean firstRead, long readCount, long waitStart, byte[] buf, int off, int len) {
+		RingBufferStorage data = storage;
+		if (data == null) {
+			return -1;
+		}
+		if (len == 0) {
+			return 0;
+		}
+
+		prepareRead(readCount);
+		if (!isReadReady(firstRead, readCount, waitStart)) {
+			return 0;
+		}
+
+		long available = getAvailable(readCount, data);
+		if (available <= 0) {
+			return -1;
+		}
+
+		int length = (int) Math.min(len, available);
+		data.get(readCount, buf, off, length);
+		return length;
+	}
+
+	/**
+	 * Runs the callback once, when a reader at {@code readCount} can read
+	 * without blocking: when its minimum buffer is filled, when it has waited
+	 * long enough and something was written, or when the output ended. The
+	 * callback is run by the thread that writes or closes the output, by a
+	 * timer once the reader has waited long enough, or right away if the
+	 * reader can already read.
+	 */
+	void onReadReady(boolean firstRead, long readCount, long waitStart, Runnable callback) {
+		if (waitStart == 0) {
+			waitStart = System.nanoTime();
+		}
+		ReadReadyCallback readReady = new ReadReadyCallback(firstRead, readCount, waitStart, callback);
+		readReadyCallbacks.add(readReady);
+		if (isReadReady(readReady)) {
+			runReadReadyCallbacks();
+			return;
+		}
+		long delay = waitStart + MIN_BUFFER_WAIT_NANOS - System.nanoTime();
+		if (delay > 0) {
+			READ_READY_TIMER.schedule(this::runReadReadyCallbacks, delay, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	private boolean isReadReady(boolean firstRead, long readCount, long waitStart) {
+		int minBufferSize = firstRead ? minMemorySize : secondReadMinSize;
+		return hasEnoughData(readCount, minBufferSize) ||
+			(writeCount > readCount && System.nanoTime() - waitStart >= MIN_BUFFER_WAIT_NANOS);
+	}
+
+	private boolean isReadReady(ReadReadyCallback readReady) {
+		return isReadReady(readReady.firstRead(), readReady.readCount(), readReady.waitStart());
+	}
+
+	/**
+	 * Runs the callbacks of the readers that can read now, the others keep
+	 * waiting.
+	 */
+	private void runReadReadyCallbacks() {
+		for (ReadReadyCallback readReady : readReadyCallbacks) {
+			// Only the thread that removes it runs it
+			if (isReadReady(readReady) && readReadyCallbacks.remove(readReady)) {
+				try {
+					readReady.callback().run();
+				} catch (RuntimeException e) {
+					LOGGER.debug("Error while notifying a reader: {}", e.getMessage());
+					LOGGER.trace("", e);
+				}
+			}
+		}
+	}
+
+	private void prepareRead(long readCount) {
+		if (readCount > INITIAL_BUFFER_SIZE && readCount < maxMemorySize) {
+			int newMargin = maxMemorySize - MARGIN_MEDIUM;
+			if (bufferOverflowWarning != newMargin) {
+				LOGGER.debug("Setting margin to 2Mb");
+				bufferOverflowWarning = newMargin;
+			}
+		}
+
+		// The previous read of this reader has been accounted for by now
+		if (writerWaiting) {
+			signalWriter();
+		}
+
+		ProcessWrapper thread = attachedThread;
+		if (thread != null) {
+			thread.setReadyToStop(false);
+		}
+	}
+
+	/**
+	 * @return The number of bytes buffered for a reader at {@code readCount},
+	 * or {@code -1} on EOF or if that position is not buffered anymore.
+	 */
+	private long getAvailable(long readCount, RingBufferStorage data) {
+		if (storage == null) {
+			return -1;
+		}
+
+		long available = writeCount - readCount;
+		if (eof && available <= 0) {
+			return -1;
+		}
+		if (available > data.capacity()) {
+			LOGGER.debug("Position {} is not buffered anymore, the oldest buffered position is {}", FORMATTER.format(readCount), FORMATTER.format(writeCount - data.capacity()));
+			return -1;
+		}
+		return available;
+	}
+
+	private boolean hasEnoughData(long readCount, int minBufferSize) {
+		return eof || storage == null || writeCount - readCount > minBufferSize;
+	}
+
+	private void signalReaders() {
+		lock.lock();
+		try {
+			dataWritten.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void signalWriter() {
+		lock.lock();
+		try {
+			dataConsumed.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void signalAll() {
+		lock.lock();
+		try {
+			dataWritten.signalAll();
+			dataConsumed.signalAll();
+		} finally {
+			lock.unlock();
+		}
+		runReadReadyCallbacks();
+	}
+
+	/**
+	 * Rewrites the MPEG timestamps of the bytes in [{@code start}, {@code end})
+	 * by the time seek offset, see {@link BufferedOutputFileImpl}.
+	 */
+	private void shiftTimestamps(RingBufferStorage buf, long start, long end) {
+		// Ditlew - WDTV Live - update any SCR headers
+		if (shiftScr && start > 10) {
+			for (long position = start; position < end; position++) {
+				shiftSCRByTimeSeek(buf, position, (int) timeseek);
+			}
+		}
+
+		if (timeend == 0) {
+			int packetLength = 6; // minimum to get packet size
+			while (packetpos + packetLength < end) {
+				int streamPos = 0;
+				if (get(buf, packetpos) == 71) { // TS
+					packetLength = 188;
+					streamPos = 4;
+
+					// adaptation field
+					if ((get(buf, packetpos + 3) & 0x20) == 0x20) {
+						streamPos += 1 + (get(buf, packetpos + 4) & 0xff);
+					}
+
+					if (streamPos == 188) {
+						streamPos = -1;
+					}
+				} else if (get(buf, packetpos + 3) == -70) { // BA
+					packetLength = 14;
+					streamPos = -1;
+				} else {
+					packetLength = 6 + (get(buf, packetpos + 4) & 0xff) * 256 + (get(buf, packetpos + 5) & 0xff);
+				}
+
+				if (streamPos != -1) {
+					long position = packetpos + streamPos + 18;
+					if (!shiftVideo(buf, position)) {
+						shiftAudio(buf, position - 5);
+					}
+				}
+				packetpos += packetLength;
+			}
+		}
+	}
+
+	private static byte get(RingBufferStorage buf, long position) {
+		return buf.get(position);
+	}
+
+	private static void set(RingBufferStorage buf, long position, byte value) {
+		buf.set(position, value);
+	}
+
+	// Ditlew - Modify SCR
+	private static void shiftSCRByTimeSeek(RingBufferStorage buf, long position, int offsetSec) {
+		if (get(buf, position - 9) == 0 &&
+			get(buf, position - 8) == 0 &&
+			get(buf, position - 7) == 1 &&
+			get(buf, position - 6) == -70 && // 0xBA
+			// control bits
+			((get(buf, position - 5) & 128) != 128) &&
+			((get(buf, position - 5) & 64) == 64) &&
+			((get(buf, position - 5) & 4) == 4) &&
+			((get(buf, position - 3) & 4) == 4) &&
+			((get(buf, position - 1) & 4) == 4) &&
+			((get(buf, position) & 1) == 1)) {
+			byte m5 = get(buf, position - 5);
+			byte m4 = get(buf, position - 4);
+			byte m3 = get(buf, position - 3);
+			byte m2 = get(buf, position - 2);
+			byte m1 = get(buf, position - 1);
+
+			long scr3230 = ((m5 & 56) >> 3);
+			long scr2915 = ((m5 & 3) << 13) + (m4 << 5) + ((m3 & 248) >> 3);
+			long scr1400 = ((m3 & 3) << 13) + (m2 << 5) + ((m1 & 248) >> 3);
+
+			long scr = (scr3230 << 30) + (scr2915 << 15) + scr1400;
+			long scrNew = scr + (90000L * offsetSec);
+
+			long scr3230New = (scrNew & 7516192768L) >> 30;
+			long scr2915New = (scrNew & 1073709056L) >> 15;
+			long scr1400New = (scrNew & 32767L);
+
+			m5 = (byte) ((m5 & 199) + ((scr3230New << 3) & 56));
+			m5 = (byte) ((m5 & 252) + ((scr2915New >> 13) & 3));
+			m4 = (byte) (scr2915New >> 5);
+			m3 = (byte) ((m3 & 7) + ((scr2915New << 3) & 248));
+			m3 = (byte) ((m3 & 252) + ((scr1400New >> 13) & 3));
+			m2 = (byte) (scr1400New >> 5);
+			m1 = (byte) ((m1 & 7) + ((scr1400New << 3) & 248));
+
+			set(buf, position - 5, m5);
+			set(buf, position - 4, m4);
+			set(buf, position - 3, m3);
+			set(buf, position - 2, m2);
+			set(buf, position - 1, m1);
+		}
+	}
+
+	private boolean shiftAudio(RingBufferStorage buf, long position) {
+		if ((get(buf, position - 10) == -67 || get(buf, position - 10) == -64) &&
+			get(buf, position - 11) == 1 &&
+			get(buf, position - 12) == 0 &&
+			get(buf, position - 13) == 0 &&
+			(get(buf, position - 6) & 128) == 128) {
+			int pts = getTS(buf, position);
+			pts += (int) (timeseek * 90000);
+			setTS(buf, pts, position);
+			return true;
+		}
+		return false;
+	}
+
+	private boolean shiftVideo(RingBufferStorage buf, long position) {
+		if ((get(buf, position - 15) == -32 || get(buf, position - 15) == -3) &&
+			get(buf, position - 16) == 1 &&
+			get(buf, position - 17) == 0 &&
+			get(buf, position - 18) == 0 &&
+			(get(buf, position - 11) & 128) == 128 &&
+			(get(buf, position - 9) & 32) == 32) { // check EO or FD (tsMuxeR)
+			int pts = getTS(buf, position - 5);
+			int dts = 0;
+			boolean dtsPresent = (get(buf, position - 11) & 64) == 64;
+			if (dtsPresent) {
+				if ((get(buf, position - 4) & 15) == 15) {
+					dts = (((((255 - (get(buf, position - 3) & 0xff)) << 8) + (255 - (get(buf, position - 2) & 0xff))) >> 1) << 15) +
+						((((255 - (get(buf, position - 1) & 0xff)) << 8) + (255 - (get(buf, position) & 0xff))) >> 1);
+					dts = -dts;
+				} else {
+					dts = getTS(buf, position);
+				}
+			}
+
+			int ts = (int) (timeseek * 90000);
+			if (position == 50) {
+				dts--;
+			}
+			pts += ts;
+
+			setTS(buf, pts, position - 5);
+			if (dtsPresent) {
+				if (dts < 0) {
+					set(buf, position - 4, (byte) 17);
+				}
+				dts += ts;
+				setTS(buf, dts, position);
+			}
+			return true;
+		}
+		return false;
+	}
+
+	private static int getTS(RingBufferStorage buf, long position) {
+		return (((((get(buf, position - 3) & 0xff) << 8) + (get(buf, position - 2) & 0xff)) >> 1) << 15) +
+			((((get(buf, position - 1) & 0xff) << 8) + (get(buf, position) & 0xff)) >> 1);
+	}
+
+	private static void setTS(RingBufferStorage buf, int ts, long position) {
+		int ptsLow = ts & 32767;
+		int ptsHigh = (ts >> 15) & 32767;
+		int ptsLeftLow = 1 + (ptsLow << 1);
+		int ptsLeftHigh = 1 + (ptsHigh << 1);
+		set(buf, position - 3, (byte) ((ptsLeftHigh & 65280) >> 8));
+		set(buf, position - 2, (byte) (ptsLeftHigh & 255));
+		set(buf, position - 1, (byte) ((ptsLeftLow & 65280) >> 8));
+		set(buf, position, (byte) (ptsLeftLow & 255));
+	}
+
+	@Override
+	public synchronized void attachThread(ProcessWrapper thread) {
+		if (attachedThread != null) {
+			throw new RuntimeException("BufferedOutputFile is already attached to a Thread: " + attachedThread);
+		}
+
+		LOGGER.debug("Attaching thread: " + thread);
+		attachedThread = thread;
+		startTimer();
+	}
+
+	private void startTimer() {
+		if (!hidebuffer && maxMemorySize > (15 * 1048576)) {
+			timer = new Timer(attachedThread + "-Timer");
+			timer.schedule(new TimerTask() {
+				@Override
+				public void run() {
+					long rc = 0;
+					WaitBufferedInputStream input = getCurrentInputStream();
+					if (input != null) {
+						rc = input.getReadCount();
+						GuiManager.setReadValue(rc);
+					}
+
+					long space = (writeCount - rc);
+					LOGGER.trace("buffered: " + FORMATTER.format(space) + " bytes / inputs: " + inputStreams.size());
+
+					// There are 1048576 bytes in a megabyte
+					long bufferInMBs = space / 1048576;
+					if (renderer != null) {
+						renderer.setBuffer(bufferInMBs);
+					}
+					GuiManager.updateBuffer();
+				}
+			}, 0, 2000);
+		}
+	}
+
+	@Override
+	public void removeInputStream(WaitBufferedInputStream inputStream) {
+		inputStreams.remove(inputStream);
+		if (writerWaiting) {
+			signalWriter();
+		}
+	}
+
+	@Override
+	public void detachInputStream() {
+		if (!hidebuffer) {
+			GuiManager.setReadValue(0);
+		}
+
+		ProcessWrapper thread = attachedThread;
+		if (thread != null) {
+			thread.setReadyToStop(true);
+		}
+
+		Runnable checkEnd = () -> {
+			try {
+				Thread.sleep(CHECK_END_OF_PROCESS);
+			} catch (InterruptedException e) {
+				LOGGER.error(null, e);
+			}
+
+			if (thread != null && thread.isReadyToStop()) {
+				if (!thread.isDestroyed()) {
+					thread.stopProcess();
+				}
+
+				reset();
+			}
+		};
+		new Thread(checkEnd, thread + "-Cleanup").start();
+	}
+
+	@Override
+	public synchronized void reset() {
+		if (timer != null) {
+			timer.cancel();
+		}
+
+		RingBufferStorage buf = storage;
+		if (buf != null) {
+			LOGGER.trace("Destroying buffer");
+			storage = null;
+			buf.release();
+		}
+		firstWrite.complete(null);
+		signalAll();
+
+		if (renderer != null) {
+			renderer.setBuffer(0);
+		}
+		if (!hidebuffer && maxMemorySize != 1048576) {
+			GuiManager.updateBuffer();
+		}
+	}
+
+	/**
+	 * A reader waiting with {@link #onReadReady}, with what it waits for.
+	 */
+	private record ReadReadyCallback(boolean firstRead, long readCount, long waitStart, Runnable callback) {
+	}
+}
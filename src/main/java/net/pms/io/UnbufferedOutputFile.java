@@ -39,9 +39,8 @@ import org.slf4j.LoggerFactory;
  * This has not been implemented yet, so seeking is not an option right now.
  * <p>
  * Because of the missing feature, this class is currently not used anywhere in UMS. If
- * you want to experiment with it, search for "new BufferedOutputFileImpl(" and replace it
- * with "new UnbufferedOutputFile(" in the classes {@link OutputBufferConsumer} and
- * {@link WindowsNamedPipe}.
+ * you want to experiment with it, return "new UnbufferedOutputFile(" from
+ * {@link BufferedOutputFile#newInstance(OutputParams)}.
  */
 public class UnbufferedOutputFile implements BufferedOutputFile {
 
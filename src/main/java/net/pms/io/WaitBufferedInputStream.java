@@ -21,8 +21,11 @@ import java.io.InputStream;
 
 public class WaitBufferedInputStream extends InputStream {
 	private final BufferedOutputFile outputStream;
-	private long readCount;
+	private volatile long readCount;
+	private volatile long lastReadTime;
 	private boolean firstRead;
+	private long waitStart;
+	private volatile Runnable closeListener;
 
 	public void setReadCount(long readCount) {
 		this.readCount = readCount;
@@ -32,13 +35,33 @@ public class WaitBufferedInputStream extends InputStream {
 		return readCount;
 	}
 
+	/**
+	 * @return the {@link System#nanoTime()} of the last read call, or of the
+	 * creation of this stream if nothing was read yet.
+	 */
+	long getLastReadTime() {
+		return lastReadTime;
+	}
+
+	/**
+	 * Sets what to run once this stream is closed, after the buffer was told
+	 * that it has one reader less.
+	 *
+	 * @param closeListener the listener.
+	 */
+	public void setCloseListener(Runnable closeListener) {
+		this.closeListener = closeListener;
+	}
+
 	WaitBufferedInputStream(BufferedOutputFile outputStream) {
 		this.outputStream = outputStream;
 		firstRead = true;
+		lastReadTime = System.nanoTime();
 	}
 
 	@Override
 	public int read() throws IOException {
+		lastReadTime = System.nanoTime();
 		int r = outputStream.read(firstRead, getReadCount());
 		if (r != -1) {
 			setReadCount(getReadCount() + 1);
@@ -49,6 +72,7 @@ public class WaitBufferedInputStream extends InputStream {
 
 	@Override
 	public int read(byte[] b, int off, int len) throws IOException {
+		lastReadTime = System.nanoTime();
 		int returned = outputStream.read(firstRead, getReadCount(), b, off, len);
 		if (returned != -1) {
 			setReadCount(getReadCount() + returned);
@@ -57,6 +81,63 @@ public class WaitBufferedInputStream extends InputStream {
 		return returned;
 	}
 
+	/**
+	 * Whether {@link #readNonBlocking(byte[], int, int)} and
+	 * {@link #onReadReady(Runnable)} can be used. Only the
+	 * {@link RingBufferedOutputFile} supports them.
+	 *
+	 * @return {@code true} if this stream can be read without blocking.
+	 */
+	public boolean isNonBlocking() {
+		return outputStream instanceof RingBufferedOutputFile;
+	}
+
+	/**
+	 * Reads what can be read without waiting for the transcoder.
+	 *
+	 * @return The number of bytes read, {@code 0} if nothing can be read yet,
+	 * or {@code -1} at the end of the stream.
+	 * @throws IOException
+	 * @throws UnsupportedOperationException if the buffer can't be read
+	 *             without blocking.
+	 * @see #isNonBlocking()
+	 * @see #onReadReady(Runnable)
+	 */
+	public int readNonBlocking(byte[] b, int off, int len) throws IOException {
+		if (!(outputStream instanceof RingBufferedOutputFile ring)) {
+			throw new UnsupportedOperationException("The transcode buffer can't be read without blocking");
+		}
+		lastReadTime = System.nanoTime();
+		if (waitStart == 0) {
+			waitStart = lastReadTime;
+		}
+		int returned = ring.readNonBlocking(firstRead, getReadCount(), waitStart, b, off, len);
+		if (returned != 0) {
+			if (returned > 0) {
+				setReadCount(getReadCount() + returned);
+			}
+			firstRead = false;
+			waitStart = 0;
+		}
+		return returned;
+	}
+
+	/**
+	 * Runs the callback once {@link #readNonBlocking(byte[], int, int)} can
+	 * return something other than {@code 0}.
+	 *
+	 * @param callback the callback, which must not block.
+	 * @throws UnsupportedOperationException if the buffer can't be read
+	 *             without blocking.
+	 * @see #isNonBlocking()
+	 */
+	public void onReadReady(Runnable callback) {
+		if (!(outputStream instanceof RingBufferedOutputFile ring)) {
+			throw new UnsupportedOperationException("The transcode buffer can't be read without blocking");
+		}
+		ring.onReadReady(firstRead, getReadCount(), waitStart, callback);
+	}
+
 	@Override
 	public int read(byte[] b) throws IOException {
 		return read(b, 0, b.length);
@@ -71,6 +152,11 @@ public class WaitBufferedInputStream extends InputStream {
 	public void close() throws IOException {
 		outputStream.removeInputStream(this);
 		outputStream.detachInputStream();
+		Runnable listener = closeListener;
+		closeListener = null;
+		if (listener != null) {
+			listener.run();
+		}
 	}
 }
 
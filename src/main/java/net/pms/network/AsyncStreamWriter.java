@@ -0,0 +1,478 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.network;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import net.pms.io.FileChannelInputStream;
+import net.pms.io.WaitBufferedInputStream;
+import net.pms.util.ByteRange;
+import net.pms.util.SimpleThreadFactory;
+import org.eclipse.jetty.ee10.servlet.HttpOutput;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Streams a response body with a {@link WriteListener}.
+ *
+ * Data is only pulled from the source when the connection can take it, and
+ * no container thread is held while the client is slow, or while the source
+ * has nothing to give yet. Every body is sent through a {@link Source}:
+ * <ul>
+ * <li>files by reading them into pooled direct buffers, ranges included;</li>
+ * <li>transcodes by reading their ring buffer without blocking, and waiting
+ * for its read-ready callback;</li>
+ * <li>any other stream by reading what it has available, and reading the
+ * rest on a stream reader thread.</li>
+ * </ul>
+ */
+class AsyncStreamWriter implements WriteListener {
+	private static final Logger LOGGER = LoggerFactory.getLogger(AsyncStreamWriter.class);
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final int FILE_BUFFER_SIZE = 512 * 1024;
+	private static final int FILE_BUFFER_POOL_SIZE = 16;
+	private static final BlockingQueue<ByteBuffer> FILE_BUFFERS = new ArrayBlockingQueue<>(FILE_BUFFER_POOL_SIZE);
+	private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+	private static final ExecutorService READER = Executors.newCachedThreadPool(
+		new SimpleThreadFactory("Stream reader", "Stream readers group", Thread.NORM_PRIORITY)
+	);
+
+	private final Source source;
+	private final ServletOutputStream os;
+	private final AsyncContext context;
+	private final UmsAsyncListener umsAsyncListener;
+	private long sendBytes;
+	private boolean done;
+
+	private AsyncStreamWriter(Source source, ServletOutputStream os, AsyncContext context, UmsAsyncListener umsAsyncListener) {
+		this.source = source;
+		this.os = os;
+		this.context = context;
+		this.umsAsyncListener = umsAsyncListener;
+	}
+
+	/**
+	 * Starts streaming the input stream to the output.
+	 */
+	static void start(InputStream in, ServletOutputStream os, AsyncContext context, UmsAsyncListener umsAsyncListener) {
+		start(getSource(in), os, context, umsAsyncListener);
+	}
+
+	/**
+	 * Starts streaming the ranges of the file, each preceded by its part
+	 * header, followed by the end of the multipart body.
+	 */
+	static void start(
+		FileChannelInputStream in,
+		List<ByteRange> ranges,
+		List<byte[]> partHeaders,
+		byte[] end,
+		ServletOutputStream os,
+		AsyncContext context,
+		UmsAsyncListener umsAsyncListener
+	) {
+		start(new FileRegionSource(in, ranges, partHeaders, end), os, context, umsAsyncListener);
+	}
+
+	private static Source getSource(InputStream in) {
+		if (in instanceof FileChannelInputStream fileInput) {
+			return new FileRegionSource(fileInput, null, null, null);
+		}
+		if (in instanceof WaitBufferedInputStream transcodeInput && transcodeInput.isNonBlocking()) {
+			return new TranscodeSource(transcodeInput);
+		}
+		return new InputStreamSource(in);
+	}
+
+	private static void start(Source source, ServletOutputStream os, AsyncContext context, UmsAsyncListener umsAsyncListener) {
+		AsyncStreamWriter writer = new AsyncStreamWriter(source, os, context, umsAsyncListener);
+		context.addListener(writer.new EndListener());
+		os.setWriteListener(writer);
+	}
+
+	@Override
+	public void onWritePossible() throws IOException {
+		pump();
+	}
+
+	@Override
+	public void onError(Throwable t) {
+		String reason = t.getMessage();
+		if (reason == null && t.getCause() != null) {
+			reason = t.getCause().getMessage();
+		}
+		finish("Sending stream with premature end: {} bytes. Reason: {}", reason);
+		if (umsAsyncListener != null) {
+			umsAsyncListener.onPrematureEnd(reason);
+		}
+	}
+
+	/**
+	 * Sends data as long as the connection can take it without blocking.
+	 */
+	private synchronized void pump() {
+		if (done) {
+			return;
+		}
+		try {
+			while (os.isReady()) {
+				ByteBuffer buffer = source.next();
+				if (buffer == null) {
+					// Everything was written, and the last write completed
+					finish("Sending stream finished after: {} bytes.", null);
+					return;
+				}
+				if (!buffer.hasRemaining()) {
+					// Wait for the source, the connection is still writable
+					source.onReady(this::resume);
+					return;
+				}
+				int length = buffer.remaining();
+				write(buffer);
+				sendBytes += length;
+				if (umsAsyncListener != null) {
+					umsAsyncListener.setBytesSent(sendBytes);
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			onError(e);
+		}
+	}
+
+	private void write(ByteBuffer buffer) throws IOException {
+		if (os instanceof HttpOutput httpOutput) {
+			// Large buffers are written to the connection as they are
+			httpOutput.write(buffer);
+		} else if (buffer.hasArray()) {
+			os.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+		} else {
+			byte[] bytes = new byte[buffer.remaining()];
+			buffer.get(bytes);
+			os.write(bytes);
+		}
+	}
+
+	/**
+	 * Continues when the source has data, on a container thread since the
+	 * source notifies from its producing thread.
+	 */
+	private void resume() {
+		synchronized (this) {
+			if (done) {
+				return;
+			}
+		}
+		try {
+			context.start(this::pump);
+		} catch (IllegalStateException e) {
+			// The request was completed in between
+			LOGGER.trace("Could not resume stream: {}", e.getMessage());
+		}
+	}
+
+	private synchronized void finish(String message, String reason) {
+		if (done) {
+			return;
+		}
+		done = true;
+		if (reason == null) {
+			LOGGER.trace(message, sendBytes);
+		} else {
+			LOGGER.debug(message, sendBytes, reason);
+		}
+		try {
+			source.close();
+		} catch (IOException e) {
+			LOGGER.trace("Error closing stream source: {}", e.getMessage());
+		}
+		try {
+			context.complete();
+		} catch (IllegalStateException e) {
+			LOGGER.trace("Stream already completed: {}", e.getMessage());
+		}
+	}
+
+	/**
+	 * Releases the source when the request ends without the stream being
+	 * finished, as no further write callback comes then.
+	 */
+	private class EndListener implements AsyncListener {
+
+		@Override
+		public void onComplete(AsyncEvent event) {
+			finish("Sending stream ended after: {} bytes. Reason: {}", "request completed");
+		}
+
+		@Override
+		public void onTimeout(AsyncEvent event) {
+			finish("Sending stream timed out after: {} bytes. Reason: {}", "timeout");
+		}
+
+		@Override
+		public void onError(AsyncEvent event) {
+			String reason = event.getThrowable() != null ? event.getThrowable().getMessage() : null;
+			finish("Sending stream with premature end: {} bytes. Reason: {}", reason);
+		}
+
+		@Override
+		public void onStartAsync(AsyncEvent event) {
+			// Not used
+		}
+	}
+
+	/**
+	 * The data to send.
+	 */
+	private interface Source extends Closeable {
+
+		/**
+		 * @return The next data to send, an empty buffer if none is available
+		 * without blocking yet, or {@code null} at the end. The returned buffer
+		 * is not reused before the next call.
+		 */
+		ByteBuffer next() throws IOException;
+
+		/**
+		 * Runs the callback once when data is available.
+		 */
+		void onReady(Runnable callback);
+	}
+
+	/**
+	 * Reads a transcode from its ring buffer, without blocking.
+	 */
+	private static class TranscodeSource implements Source {
+		private final WaitBufferedInputStream in;
+		private final byte[] buffer = new byte[BUFFER_SIZE];
+
+		private TranscodeSource(WaitBufferedInputStream in) {
+			this.in = in;
+		}
+
+		@Override
+		public ByteBuffer next() throws IOException {
+			int read = in.readNonBlocking(buffer, 0, buffer.length);
+			if (read == -1) {
+				return null;
+			}
+			return read == 0 ? EMPTY : ByteBuffer.wrap(buffer, 0, read);
+		}
+
+		@Override
+		public void onReady(Runnable callback) {
+			in.onReadReady(callback);
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+	}
+
+	/**
+	 * Reads any other stream. What the stream has available is read right
+	 * away, the rest is read on a stream reader thread so that a stream that
+	 * blocks never holds a container thread. The reader thread reads the next
+	 * data into a second buffer while the previous data is sent.
+	 */
+	private static class InputStreamSource implements Source {
+		private final InputStream in;
+		private final byte[][] buffers = {new byte[BUFFER_SIZE], new byte[BUFFER_SIZE]};
+		private int current;
+		private boolean reading;
+		private int filled;
+		private boolean ended;
+		private IOException failure;
+		private Runnable callback;
+
+		private InputStreamSource(InputStream in) {
+			this.in = in;
+		}
+
+		@Override
+		public synchronized ByteBuffer next() throws IOException {
+			if (!reading && filled > 0) {
+				// The data read ahead, the other buffer gets the next data
+				ByteBuffer data = ByteBuffer.wrap(buffers[current], 0, filled);
+				filled = 0;
+				current = 1 - current;
+				readAhead();
+				return data;
+			}
+			if (failure != null) {
+				throw failure;
+			}
+			if (ended) {
+				return null;
+			}
+			if (!reading) {
+				int available = in instanceof WaitBufferedInputStream ? 0 : in.available();
+				if (available > 0) {
+					int read = in.read(buffers[current], 0, Math.min(available, BUFFER_SIZE));
+					if (read == -1) {
+						return null;
+					}
+					return ByteBuffer.wrap(buffers[current], 0, read);
+				}
+				readAhead();
+			}
+			return EMPTY;
+		}
+
+		private void readAhead() {
+			if (!ended && failure == null) {
+				reading = true;
+				byte[] buffer = buffers[current];
+				READER.execute(() -> read(buffer));
+			}
+		}
+
+		private void read(byte[] buffer) {
+			int read;
+			IOException error = null;
+			try {
+				read = in.read(buffer, 0, buffer.length);
+			} catch (IOException e) {
+				read = 0;
+				error = e;
+			}
+			Runnable ready;
+			synchronized (this) {
+				reading = false;
+				if (error != null) {
+					failure = error;
+				} else if (read == -1) {
+					ended = true;
+				} else {
+					filled = read;
+				}
+				ready = callback;
+				callback = null;
+			}
+			if (ready != null) {
+				ready.run();
+			}
+		}
+
+		@Override
+		public void onReady(Runnable callback) {
+			synchronized (this) {
+				if (reading) {
+					this.callback = callback;
+					return;
+				}
+			}
+			callback.run();
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+	}
+
+	/**
+	 * Reads regions of a file into a direct buffer, which is written to the
+	 * connection without being copied to the heap. The buffers are pooled
+	 * between streams instead of being left to the garbage collector.
+	 */
+	private static class FileRegionSource implements Source {
+		private final FileChannelInputStream in;
+		private final List<ByteRange> ranges;
+		private final List<byte[]> partHeaders;
+		private byte[] end;
+		private int part = -1;
+		private ByteBuffer buffer;
+		private boolean writing;
+
+		private FileRegionSource(FileChannelInputStream in, List<ByteRange> ranges, List<byte[]> partHeaders, byte[] end) {
+			this.in = in;
+			this.ranges = ranges;
+			this.partHeaders = partHeaders;
+			this.end = end;
+		}
+
+		@Override
+		public synchronized ByteBuffer next() throws IOException {
+			// The previous data was written, the buffer is free again
+			writing = false;
+			if (ranges != null && (part < 0 || in.getRemaining() == 0)) {
+				// Next part of the multipart body
+				part++;
+				if (part < ranges.size()) {
+					ByteRange range = ranges.get(part);
+					in.setRange(range.getStart(), range.getEnd());
+					return ByteBuffer.wrap(partHeaders.get(part));
+				}
+				if (end != null) {
+					ByteBuffer data = ByteBuffer.wrap(end);
+					end = null;
+					return data;
+				}
+				return null;
+			}
+			if (in.getRemaining() == 0) {
+				return null;
+			}
+			if (buffer == null) {
+				buffer = FILE_BUFFERS.poll();
+				if (buffer == null) {
+					buffer = ByteBuffer.allocateDirect(FILE_BUFFER_SIZE);
+				}
+			}
+			buffer.clear();
+			buffer.limit((int) Math.min(in.getRemaining(), buffer.capacity()));
+			int read = in.getChannel().read(buffer, in.getChannelPosition());
+			if (read == -1) {
+				throw new EOFException("File " + in.getFile() + " ended before the data to send");
+			}
+			in.advance(read);
+			buffer.flip();
+			writing = true;
+			return buffer;
+		}
+
+		@Override
+		public void onReady(Runnable callback) {
+			callback.run();
+		}
+
+		@Override
+		public synchronized void close() throws IOException {
+			// A buffer the connection may still be writing is left to the
+			// garbage collector
+			if (buffer != null && !writing) {
+				FILE_BUFFERS.offer(buffer);
+			}
+			buffer = null;
+			in.close();
+		}
+	}
+}
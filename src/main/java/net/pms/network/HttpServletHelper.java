@@ -21,6 +21,7 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonSyntaxException;
 import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ServletOutputStream;
 import jakarta.servlet.ServletRequest;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
@@ -31,19 +32,19 @@ import java.io.OutputStream;
 import java.net.InetAddress;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.nio.ByteBuffer;
-import java.nio.channels.Channels;
-import java.nio.channels.ReadableByteChannel;
-import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.List;
 import java.util.Locale;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.TransformerException;
 import javax.xml.xpath.XPathExpressionException;
 import net.pms.PMS;
 import net.pms.configuration.UmsConfiguration;
+import net.pms.io.FileChannelInputStream;
 import net.pms.network.mediaserver.MediaServer;
+import net.pms.util.ByteRange;
 import net.pms.util.StringUtil;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -66,7 +67,7 @@ public abstract class HttpServletHelper extends HttpServlet {
 
 	protected static final UmsConfiguration CONFIGURATION = PMS.getConfiguration();
 
-	private static final ThreadLocal<ByteBuffer> BUFFER = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(64 * 1024));
+	private static final String HTTP_HEADER_RANGE_PREFIX = "bytes=";
 	/**
 	 * This class is not meant to be instantiated directly.
 	 */
@@ -253,65 +254,198 @@ public abstract class HttpServletHelper extends HttpServlet {
 		return formattedContent;
 	}
 
-	private static void copyStream(final InputStream in, final OutputStream os, final AsyncContext context, final UmsAsyncListener umsAsyncListener) {
-		ByteBuffer buffer = BUFFER.get();
-		buffer.clear();
-		long sendBytes = 0;
-		boolean hasListener = umsAsyncListener != null;
-		int flushInterval = 512 * 1024;
-		long lastFlushBytes = 0;
-
-		try (ReadableByteChannel inChannel = Channels.newChannel(in);
-			WritableByteChannel outChannel = Channels.newChannel(os)) {
+	/**
+	 * Sends a response body asynchronously, as the client can take it.
+	 *
+	 * Plain files are read into pooled direct buffers, which are handed to
+	 * the connector as they are. Transcodes are read from their buffer
+	 * without blocking, and other streams are read off the container threads.
+	 *
+	 * @param in the body to send, closed when done.
+	 * @param os the servlet output stream.
+	 * @param context the async context, completed when done.
+	 * @param startStopListener the listener to notify, or {@code null}.
+	 * @see AsyncStreamWriter
+	 */
+	protected static void copyStreamAsync(final InputStream in, final ServletOutputStream os, final AsyncContext context, final StartStopListener startStopListener) {
+		UmsAsyncListener umsAsyncListener = startAsyncListener(context, startStopListener);
+		AsyncStreamWriter.start(in, os, context, umsAsyncListener);
+	}
 
-			while (inChannel.read(buffer) != -1) {
-				buffer.flip();
-				while (buffer.hasRemaining()) {
-					int bytesWritten = outChannel.write(buffer);
-					if (bytesWritten == 0) {
-						continue;
-					}
-					sendBytes += bytesWritten;
+	protected static void copyStreamAsync(final InputStream in, final ServletOutputStream os, final AsyncContext context) {
+		copyStreamAsync(in, os, context, null);
+	}
 
-					if (sendBytes - lastFlushBytes >= flushInterval) {
-						os.flush();
-						lastFlushBytes = sendBytes;
-					}
-					if (hasListener) {
-						umsAsyncListener.setBytesSent(sendBytes);
-					}
-				}
-				buffer.clear();
-			}
+	/**
+	 * Sends a file asynchronously, straight from the file: the range it was
+	 * opened at, or several ranges as a {@code multipart/byteranges} response
+	 * when the request asks for them.
+	 *
+	 * @param req the request.
+	 * @param resp the response, its status and headers are set here.
+	 * @param in the file to send, opened at the requested range.
+	 * @param length the length of the file.
+	 * @param contentType the content type of the file.
+	 * @param context the async context, completed when done.
+	 */
+	protected static void sendFileAsync(
+		final HttpServletRequest req,
+		final HttpServletResponse resp,
+		final FileChannelInputStream in,
+		final long length,
+		final String contentType,
+		final AsyncContext context
+	) throws IOException {
+		List<ByteRange> ranges = parseRanges(req.getHeader("Range"), length);
+		if (ranges.size() > 1) {
+			sendFileRangesAsync(in, ranges, contentType, resp, context, null, true);
+			return;
+		}
+		long remaining = in.getRemaining();
+		if (remaining != length) {
+			resp.setHeader("Content-Range", "bytes " + in.getPosition() + "-" + (in.getPosition() + remaining - 1) + "/" + length);
+			resp.setStatus(206);
+		} else {
+			resp.setStatus(200);
+		}
+		resp.setContentLengthLong(remaining);
+		if (LOGGER.isTraceEnabled()) {
+			logHttpServletResponse(req, resp, null, true);
+		}
+		copyStreamAsync(in, resp.getOutputStream(), context);
+	}
 
-			os.flush();
-			LOGGER.trace("Sending stream finished after: {} bytes.", sendBytes);
-		} catch (IOException | IndexOutOfBoundsException e) {
-			String reason = e.getMessage();
-			if (reason == null && e.getCause() != null) {
-				reason = e.getCause().getMessage();
+	/**
+	 * Sends several ranges of a file asynchronously as a
+	 * {@code multipart/byteranges} response.
+	 *
+	 * @param in the file to send.
+	 * @param ranges the ranges, as returned by {@link #parseRanges}.
+	 * @param contentType the content type of the file.
+	 * @param resp the response, its status and headers are set here.
+	 * @param context the async context, completed when done.
+	 * @param startStopListener the listener to notify, or {@code null}.
+	 * @param writeStream whether to send the body, {@code false} for HEAD
+	 * requests.
+	 */
+	protected static void sendFileRangesAsync(
+		final FileChannelInputStream in,
+		final List<ByteRange> ranges,
+		final String contentType,
+		final HttpServletResponse resp,
+		final AsyncContext context,
+		final StartStopListener startStopListener,
+		final boolean writeStream
+	) throws IOException {
+		String boundary = Long.toHexString(System.nanoTime()) + Long.toHexString(in.getSize());
+		long total = in.getSize();
+		List<byte[]> partHeaders = new ArrayList<>();
+		long contentLength = 0;
+		for (ByteRange range : ranges) {
+			StringBuilder sb = new StringBuilder();
+			if (!partHeaders.isEmpty()) {
+				sb.append("\r\n");
 			}
-			LOGGER.debug("Sending stream with premature end: {} bytes. Reason: {}", sendBytes, reason);
-			if (hasListener) {
-				umsAsyncListener.onPrematureEnd(reason);
+			sb.append("--").append(boundary).append("\r\n");
+			if (StringUtils.isNotBlank(contentType)) {
+				sb.append("Content-Type: ").append(contentType).append("\r\n");
 			}
-		} finally {
+			sb.append("Content-Range: bytes ").append(range.getStart()).append("-").append(range.getEnd()).append("/").append(total).append("\r\n\r\n");
+			byte[] partHeader = sb.toString().getBytes(StandardCharsets.US_ASCII);
+			partHeaders.add(partHeader);
+			contentLength += partHeader.length + range.getEnd() - range.getStart() + 1;
+		}
+		byte[] end = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+		contentLength += end.length;
+
+		resp.setHeader("Content-Range", null);
+		resp.setContentType("multipart/byteranges; boundary=" + boundary);
+		resp.setContentLengthLong(contentLength);
+		resp.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+		if (!writeStream) {
+			in.close();
 			context.complete();
+			return;
 		}
+		UmsAsyncListener umsAsyncListener = startAsyncListener(context, startStopListener);
+		AsyncStreamWriter.start(in, ranges, partHeaders, end, resp.getOutputStream(), context, umsAsyncListener);
 	}
 
-	protected static void copyStreamAsync(final InputStream in, final OutputStream os, final AsyncContext context, final StartStopListener startStopListener) {
+	private static UmsAsyncListener startAsyncListener(final AsyncContext context, final StartStopListener startStopListener) {
 		UmsAsyncListener umsAsyncListener = new UmsAsyncListener(System.currentTimeMillis(), 0, startStopListener);
 		if (umsAsyncListener.noTimeout()) {
 			context.setTimeout(0);
 		}
 		context.addListener(umsAsyncListener);
-		Runnable r = () -> copyStream(in, os, context, umsAsyncListener);
-		context.start(r);
+		return umsAsyncListener;
 	}
 
-	protected static void copyStreamAsync(final InputStream in, final OutputStream os, final AsyncContext context) {
-		copyStreamAsync(in, os, context, null);
+	/**
+	 * Parses the ranges of an HTTP {@code Range} header.
+	 *
+	 * @param rangesStr the header value.
+	 * @param streamLength the length of the content.
+	 * @return the satisfiable ranges, with inclusive ends.
+	 */
+	protected static List<ByteRange> parseRanges(String rangesStr, long streamLength) {
+		List<ByteRange> ranges = new ArrayList<>();
+		if (rangesStr == null || StringUtils.isEmpty(rangesStr)) {
+			return ranges;
+		}
+		long streamEnd = streamLength - 1;
+		rangesStr = rangesStr.toLowerCase().trim();
+		if (!rangesStr.startsWith(HTTP_HEADER_RANGE_PREFIX)) {
+			LOGGER.warn("Range '{}' does not start with '{}'", rangesStr, HTTP_HEADER_RANGE_PREFIX);
+			return ranges;
+		}
+		for (String rangeStr : rangesStr.split(",")) {
+			try {
+				rangeStr = rangeStr.trim();
+				if (rangeStr.startsWith(HTTP_HEADER_RANGE_PREFIX)) {
+					rangeStr = rangeStr.substring(HTTP_HEADER_RANGE_PREFIX.length());
+				}
+				long start = -1;
+				long end = -1;
+				int dash = rangeStr.indexOf('-');
+				if (dash < 0 || rangeStr.indexOf("-", dash + 1) >= 0) {
+					LOGGER.warn("Range header '{}' is not well formed on '{}'", rangesStr, rangeStr);
+					break;
+				}
+				if (dash > 0) {
+					start = Long.parseLong(rangeStr.substring(0, dash).trim());
+				}
+				if (dash < (rangeStr.length() - 1)) {
+					end = Long.parseLong(rangeStr.substring(dash + 1).trim());
+				}
+				if (start == -1) {
+					if (end == 0) {
+						continue;
+					}
+					if (end == -1) {
+						LOGGER.warn("Range header '{}' is not well formed on '{}'", rangesStr, rangeStr);
+						break;
+					}
+
+					start = Math.max(0, streamEnd - end + 1);
+					end = streamEnd;
+				} else {
+					if (start > streamEnd) {
+						continue;
+					}
+					if (end == -1 || end > streamEnd) {
+						end = streamEnd;
+					}
+				}
+				if (end < start) {
+					LOGGER.warn("Range header '{}' is not well formed on '{}'", rangesStr, rangeStr);
+					break;
+				}
+				ranges.add(new ByteRange(start, end));
+			} catch (NumberFormatException x) {
+				LOGGER.warn("Range header '{}' is not well formed on '{}'", rangesStr, rangeStr);
+			}
+		}
+		return ranges;
 	}
 
 	protected static void respond(HttpServletRequest req, HttpServletResponse resp, String response, int status, String mime) {
@@ -94,6 +94,10 @@ public class UmsAsyncListener implements AsyncListener {
 		LOGGER.trace(data);
 	}
 
+	public long getBytesSent() {
+		return bytesSent;
+	}
+
 	public void setBytesSent(long bytesSent) {
 		this.bytesSent = bytesSent;
 		if (startStopListener != null) {
@@ -762,66 +762,67 @@ public class UmsContentDirectoryService {
 
 		boolean browseDirectChildren = browseFlag == BrowseFlag.DIRECT_CHILDREN;
 
-		List<StoreResource> resources = renderer.getMediaStore().getResources(
-				objectID,
-				browseDirectChildren
-		);
-
-		List<StoreResource> resultResources = new ArrayList<>();
-		long resourcesCount = 0;
-		long badResourceCount = 0;
+		List<StoreResource> resultResources;
+		long totalMatches;
+		StoreContainer browsedFolder = browseDirectChildren ? renderer.getMediaStore().getDiscoveredContainer(objectID) : null;
+		if (browsedFolder != null) {
+			// compatible children, filtered and sorted once until they change
+			resultResources = browsedFolder.getSortedChildren(sortCriteria);
+			totalMatches = resultResources.size();
+		} else {
+			List<StoreResource> resources = renderer.getMediaStore().getResources(
+					objectID,
+					browseDirectChildren
+			);
 
-		//keep only compatible resources
-		if (resources != null) {
-			resourcesCount = resources.size();
-			for (StoreResource resource : resources) {
-				if (resource instanceof PlaylistFolder playlistFolder) {
-					File f = new File(resource.getFileName());
-					if (resource.getLastModified() < f.lastModified()) {
-						playlistFolder.resolve();
+			resultResources = new ArrayList<>();
+			long resourcesCount = 0;
+			long badResourceCount = 0;
+
+			//keep only compatible resources
+			if (resources != null) {
+				resourcesCount = resources.size();
+				for (StoreResource resource : resources) {
+					if (resource instanceof StoreContainer container) {
+						resultResources.add(container);
+					} else if (resource instanceof StoreItem item && item.isCompatible()) {
+						resultResources.add(item);
+					} else {
+						badResourceCount++;
 					}
 				}
-
-				if (resource instanceof StoreContainer container) {
-					resultResources.add(container);
-				} else if (resource instanceof StoreItem item && item.isCompatible()) {
-					resultResources.add(item);
-				} else {
-					badResourceCount++;
-				}
 			}
-		}
 
-		//sort
-		StoreResourceSorter.sortResources(resultResources, sortCriteria);
+			//sort
+			StoreResourceSorter.sortResources(resultResources, sortCriteria);
 
-		long totalMatches;
-		if (browseDirectChildren) {
-			StoreContainer parentFolder;
-			if (resources != null && resourcesCount > 0) {
-				parentFolder = resources.get(0).getParent();
-			} else {
-				StoreResource resource = renderer.getMediaStore().getResource(objectID);
-				if (resource instanceof StoreContainer storeContainer) {
-					parentFolder = storeContainer;
+			if (browseDirectChildren) {
+				StoreContainer parentFolder;
+				if (resources != null && resourcesCount > 0) {
+					parentFolder = resources.get(0).getParent();
 				} else {
-					if (resource instanceof StoreItem) {
-						LOGGER.debug("Trying to browse direct children on a store item for objectID '{}' !", objectID);
+					StoreResource resource = renderer.getMediaStore().getResource(objectID);
+					if (resource instanceof StoreContainer storeContainer) {
+						parentFolder = storeContainer;
 					} else {
-						LOGGER.debug("Trying to browse direct children on a null object for objectID '{}' !", objectID);
+						if (resource instanceof StoreItem) {
+							LOGGER.debug("Trying to browse direct children on a store item for objectID '{}' !", objectID);
+						} else {
+							LOGGER.debug("Trying to browse direct children on a null object for objectID '{}' !", objectID);
+						}
+						LOGGER.warn("Undefined or unknown objectID '{}' !", objectID);
+						throw new ContentDirectoryException(ContentDirectoryErrorCode.NO_SUCH_OBJECT);
 					}
-					LOGGER.warn("Undefined or unknown objectID '{}' !", objectID);
-					throw new ContentDirectoryException(ContentDirectoryErrorCode.NO_SUCH_OBJECT);
 				}
-			}
-			if (parentFolder != null) {
-				totalMatches = parentFolder.childrenCount() - badResourceCount;
+				if (parentFolder != null) {
+					totalMatches = parentFolder.childrenCount() - badResourceCount;
+				} else {
+					totalMatches = resourcesCount - badResourceCount;
+				}
 			} else {
-				totalMatches = resourcesCount - badResourceCount;
+				// From upnp spec: If BrowseMetadata is specified in the BrowseFlags then TotalMatches = 1
+				totalMatches = 1;
 			}
-		} else {
-			// From upnp spec: If BrowseMetadata is specified in the BrowseFlags then TotalMatches = 1
-			totalMatches = 1;
 		}
 
 		//handle startingIndex and requestedCount
@@ -840,13 +841,23 @@ public class UmsContentDirectoryService {
 			count = 0;
 		}
 
+		List<StoreResource> pageResources = resultResources.subList(fromIndex, toIndex);
+		for (StoreResource resource : pageResources) {
+			if (resource instanceof PlaylistFolder playlistFolder) {
+				File f = new File(resource.getFileName());
+				if (resource.getLastModified() < f.lastModified()) {
+					playlistFolder.resolve();
+				}
+			}
+		}
+
 		long containerUpdateID = MediaStoreIds.getSystemUpdateId().getValue();
 		LOGGER.trace("Creating DIDL result");
 		String result;
 		if (renderer.getUmsConfiguration().isUpnpJupnpDidl()) {
-			result = getJUPnPDidlResults(resultResources.subList(fromIndex, toIndex), filter);
+			result = getJUPnPDidlResults(pageResources, filter);
 		} else {
-			result = DidlHelper.getDidlResults(resultResources.subList(fromIndex, toIndex));
+			result = DidlHelper.getDidlResults(pageResources);
 		}
 		LOGGER.trace("DIDL result created");
 		if (renderer.getUmsConfiguration().isUpnpDebugMediaServer()) {
@@ -17,6 +17,7 @@
 package net.pms.network.mediaserver.jupnp.support.contentdirectory.result;
 
 import java.io.StringWriter;
+import java.util.List;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.OutputKeys;
@@ -42,19 +43,69 @@ import org.w3c.dom.DOMException;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
+/**
+ * Generates the DIDL-Lite XML of a {@link Result}.
+ *
+ * The XML is written directly into a per thread buffer that is reused from
+ * one call to the next, without building a DOM tree. The output is the same
+ * as the serialization of the DOM tree built by {@link #buildDOM(Result)},
+ * which is kept as the reference: attributes sorted by name, empty elements
+ * collapsed, and the same characters escaped.
+ */
 public class Generator {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(Generator.class);
 	private static final String XMLNS_NAMESPACE_URI = "http://www.w3.org/2000/xmlns/";
+	private static final String ROOT_START_TAG = "<DIDL-Lite xmlns=\"" + DIDL_LITE.NAMESPACE_URI + "\"" +
+		" xmlns:dc=\"" + DC.NAMESPACE_URI + "\"" +
+		" xmlns:dlna=\"" + DLNA.NAMESPACE_URI + "\"" +
+		" xmlns:pv=\"" + PV.NAMESPACE_URI + "\"" +
+		" xmlns:sec=\"" + SEC.NAMESPACE_URI + "\"" +
+		" xmlns:upnp=\"" + UPNP.NAMESPACE_URI + "\">";
+	private static final String ROOT_END_TAG = "</DIDL-Lite>";
+
+	/**
+	 * The buffers are kept between calls, unless a very large result made
+	 * them grow past this capacity.
+	 */
+	private static final int MAX_KEPT_BUFFER_CAPACITY = 1024 * 1024;
+	private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(16 * 1024));
 
 	/**
 	 * Generates an XML representation of the content model.
 	 *
 	 * @param content The content model.
 	 * @return An XML representation.
-	 * @throws Exception
 	 */
 	public String generate(Result content) {
+		StringBuilder out = BUFFER.get();
+		out.setLength(0);
+		try {
+			writeRoot(out, content);
+			return out.toString();
+		} catch (IllegalArgumentException ex) {
+			LOGGER.trace("\n" + ex);
+		} finally {
+			if (out.capacity() > MAX_KEPT_BUFFER_CAPACITY) {
+				BUFFER.remove();
+			} else {
+				out.setLength(0);
+			}
+		}
+		return "";
+	}
+
+	/**
+	 * Generates an XML representation of the content model by serializing a
+	 * DOM tree.
+	 *
+	 * This is much slower than {@link #generate(Result)}, and gives the same
+	 * output.
+	 *
+	 * @param content The content model.
+	 * @return An XML representation.
+	 */
+	public String generateFromDOM(Result content) {
 		try {
 			return documentToString(buildDOM(content), true);
 		} catch (ParserConfigurationException | TransformerException ex) {
@@ -63,6 +114,219 @@ public class Generator {
 		return "";
 	}
 
+	protected void writeRoot(StringBuilder out, Result content) {
+		out.append(ROOT_START_TAG);
+		int empty = out.length();
+
+		for (Container container : content.getContainers()) {
+			if (container == null) {
+				continue;
+			}
+			writeContainer(out, container);
+		}
+
+		for (Item item : content.getItems()) {
+			if (item == null) {
+				continue;
+			}
+			writeItem(out, item);
+		}
+
+		for (Property<?> property : content.getDescriptions()) {
+			writeElement(out, null, property.getQualifiedName(), property);
+		}
+
+		writeEndTag(out, empty, "DIDL-Lite");
+	}
+
+	protected void writeContainer(StringBuilder out, Container container) {
+		if (container.getUpnpClassName() == null) {
+			throw new RuntimeException("Missing 'upnp:class' element for container: " + container.getId());
+		}
+
+		writeStartTag(out, "container", container);
+		int empty = out.length();
+		writeProperties(out, container, DC.NAMESPACE.class, DC.NAMESPACE_URI);
+		writeProperties(out, container, UPNP.NAMESPACE.class, UPNP.NAMESPACE_URI);
+		writeProperties(out, container, DIDL_LITE.NAMESPACE.class, DIDL_LITE.NAMESPACE_URI);
+		writeEndTag(out, empty, "container");
+	}
+
+	protected void writeItem(StringBuilder out, Item item) {
+		writeStartTag(out, "item", item);
+		int empty = out.length();
+		writeProperties(out, item, DC.NAMESPACE.class, DC.NAMESPACE_URI);
+		writeProperties(out, item, UPNP.NAMESPACE.class, UPNP.NAMESPACE_URI);
+		writeProperties(out, item, SEC.NAMESPACE.class, SEC.NAMESPACE_URI);
+		writeProperties(out, item, DIDL_LITE.NAMESPACE.class, DIDL_LITE.NAMESPACE_URI);
+		writeEndTag(out, empty, "item");
+	}
+
+	protected void writeProperties(StringBuilder out, BaseObject object, Class<?> namespace, String namespaceURI) {
+		String prefix = getPrefix(namespaceURI);
+		for (Property<?> property : object.getProperties().getPropertiesInstanceOf(namespace)) {
+			String qualifiedName = property.getQualifiedName();
+			if (qualifiedName == null || qualifiedName.isEmpty()) {
+				LOGGER.warn("Property '{}' has no valid name", qualifiedName);
+				continue;
+			}
+			writeElement(out, prefix, getLocalName(qualifiedName), property);
+		}
+	}
+
+	private static void writeElement(StringBuilder out, String prefix, String localName, Property<?> property) {
+		String name = prefix == null ? localName : prefix + ":" + localName;
+		writeStartTag(out, name, property);
+		int empty = out.length();
+		writeText(out, property.toString());
+		writeEndTag(out, empty, name);
+	}
+
+	/**
+	 * Writes the start tag of an element with the dependent properties of a
+	 * property as attributes, sorted by name. An attribute set twice keeps the
+	 * last value.
+	 */
+	private static void writeStartTag(StringBuilder out, String name, Property<?> property) {
+		out.append('<').append(name);
+		List<Property<?>> attributes = property.getDependentProperties().get();
+		int count = 0;
+		String[] names = new String[attributes.size()];
+		String[] values = new String[attributes.size()];
+		for (Property<?> attribute : attributes) {
+			String attributeName = attribute.getQualifiedName();
+			String prefix = getPrefix(attribute.getNamespaceURI());
+			if (prefix != null) {
+				attributeName = prefix + ":" + getLocalName(attributeName);
+			}
+			String value = attribute.toString();
+			int i = count;
+			while (i > 0 && names[i - 1].compareTo(attributeName) > 0) {
+				i--;
+			}
+			if (i > 0 && names[i - 1].equals(attributeName)) {
+				values[i - 1] = value;
+				continue;
+			}
+			System.arraycopy(names, i, names, i + 1, count - i);
+			System.arraycopy(values, i, values, i + 1, count - i);
+			names[i] = attributeName;
+			values[i] = value;
+			count++;
+		}
+		for (int i = 0; i < count; i++) {
+			out.append(' ').append(names[i]).append("=\"");
+			writeAttributeValue(out, values[i]);
+			out.append('"');
+		}
+		out.append('>');
+	}
+
+	/**
+	 * Closes the element, collapsing it if nothing was written after the start
+	 * tag which ends at {@code empty}.
+	 */
+	private static void writeEndTag(StringBuilder out, int empty, String name) {
+		if (out.length() == empty) {
+			out.setLength(empty - 1);
+			out.append("/>");
+		} else {
+			out.append("</").append(name).append('>');
+		}
+	}
+
+	private static void writeText(StringBuilder out, String text) {
+		int length = text.length();
+		for (int i = 0; i < length; i++) {
+			char c = text.charAt(i);
+			switch (c) {
+				case '&' -> out.append("&amp;");
+				case '<' -> out.append("&lt;");
+				case '>' -> out.append("&gt;");
+				case '\t', '\n' -> out.append(c);
+				default -> {
+					if (c < 0x20 || (c >= 0x7F && c <= 0x9F)) {
+						appendCharacterReference(out, c);
+					} else if (Character.isSurrogate(c)) {
+						i = writeSurrogate(out, text, i);
+					} else {
+						out.append(c);
+					}
+				}
+			}
+		}
+	}
+
+	private static void writeAttributeValue(StringBuilder out, String value) {
+		int length = value.length();
+		for (int i = 0; i < length; i++) {
+			char c = value.charAt(i);
+			switch (c) {
+				case '&' -> out.append("&amp;");
+				case '<' -> out.append("&lt;");
+				case '>' -> out.append("&gt;");
+				case '"' -> out.append("&quot;");
+				default -> {
+					if (c < 0x20) {
+						appendCharacterReference(out, c);
+					} else if (Character.isSurrogate(c)) {
+						i = writeSurrogate(out, value, i);
+					} else {
+						out.append(c);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes a character outside of the BMP as a character reference, like
+	 * the XML serializer does.
+	 *
+	 * @return the index of the last char used.
+	 * @throws IllegalArgumentException if the high surrogate is not followed
+	 *             by a low surrogate, which can't be written.
+	 */
+	private static int writeSurrogate(StringBuilder out, String text, int index) {
+		char c = text.charAt(index);
+		if (Character.isLowSurrogate(c)) {
+			appendCharacterReference(out, c);
+			return index;
+		}
+		if (index + 1 < text.length() && Character.isLowSurrogate(text.charAt(index + 1))) {
+			appendCharacterReference(out, Character.toCodePoint(c, text.charAt(index + 1)));
+			return index + 1;
+		}
+		throw new IllegalArgumentException("Invalid UTF-16 surrogate detected: " + Integer.toHexString(c));
+	}
+
+	private static void appendCharacterReference(StringBuilder out, int codePoint) {
+		out.append("&#").append(codePoint).append(';');
+	}
+
+	private static String getLocalName(String qualifiedName) {
+		int colon = qualifiedName.indexOf(':');
+		return colon < 0 ? qualifiedName : qualifiedName.substring(colon + 1);
+	}
+
+	/**
+	 * @return the prefix declared on the root element for a namespace, or
+	 *         {@code null} for the default DIDL-Lite namespace.
+	 */
+	private static String getPrefix(String namespaceURI) {
+		if (namespaceURI == null) {
+			return null;
+		}
+		return switch (namespaceURI) {
+			case DC.NAMESPACE_URI -> "dc";
+			case DLNA.NAMESPACE_URI -> "dlna";
+			case PV.NAMESPACE_URI -> "pv";
+			case SEC.NAMESPACE_URI -> "sec";
+			case UPNP.NAMESPACE_URI -> "upnp";
+			default -> null;
+		};
+	}
+
 	protected String documentToString(Document document, boolean omitProlog) throws TransformerException {
 		TransformerFactory transFactory = TransformerFactory.newInstance();
 
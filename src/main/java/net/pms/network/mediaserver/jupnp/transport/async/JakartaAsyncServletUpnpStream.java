@@ -25,6 +25,7 @@ import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import net.pms.network.mediaserver.jupnp.transport.impl.JakartaServletConnection;
 import net.pms.network.mediaserver.jupnp.transport.impl.JakartaServletUpnpStream;
+import net.pms.store.DiscoveryCancellation;
 import org.jupnp.model.message.Connection;
 import org.jupnp.protocol.ProtocolFactory;
 import org.slf4j.Logger;
@@ -46,6 +47,8 @@ public class JakartaAsyncServletUpnpStream extends JakartaServletUpnpStream impl
 
 	protected final AsyncContext asyncContext;
 	protected final HttpServletRequest request;
+	private volatile DiscoveryCancellation cancellation;
+	private volatile boolean ended;
 
 	protected JakartaAsyncServletUpnpStream(ProtocolFactory protocolFactory, AsyncContext asyncContext, HttpServletRequest request) {
 		super(protocolFactory);
@@ -54,6 +57,24 @@ public class JakartaAsyncServletUpnpStream extends JakartaServletUpnpStream impl
 		asyncContext.addListener(this);
 	}
 
+	/**
+	 * Handles the request with a {@link DiscoveryCancellation} that ends at
+	 * the asynchronous timeout, so that the discovery stops when the client is
+	 * gone.
+	 */
+	@Override
+	public void run() {
+		cancellation = DiscoveryCancellation.start(toString(), asyncContext.getTimeout());
+		if (ended) {
+			cancellation.cancel();
+		}
+		try {
+			super.run();
+		} finally {
+			cancellation.end();
+		}
+	}
+
 	@Override
 	protected Connection createConnection() {
 		return new JakartaServletConnection(getRequest());
@@ -99,15 +120,25 @@ public class JakartaAsyncServletUpnpStream extends JakartaServletUpnpStream impl
 	@Override
 	public void onTimeout(AsyncEvent event) throws IOException {
 		LOGGER.trace("Asynchronous processing of HTTP request timed out: {}", event.getSuppliedRequest());
+		cancelDiscovery();
 		responseException(new Exception("Asynchronous request timed out"));
 	}
 
 	@Override
 	public void onError(AsyncEvent event) throws IOException {
 		LOGGER.trace("Asynchronous processing of HTTP request error", event.getThrowable());
+		cancelDiscovery();
 		responseException(event.getThrowable());
 	}
 
+	private void cancelDiscovery() {
+		ended = true;
+		DiscoveryCancellation current = cancellation;
+		if (current != null) {
+			current.cancel();
+		}
+	}
+
 	@Override
 	public String toString() {
 		return "" + hashCode();
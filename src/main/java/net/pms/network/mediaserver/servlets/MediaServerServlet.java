@@ -20,7 +20,6 @@ import jakarta.servlet.AsyncContext;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import java.io.BufferedOutputStream;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -42,6 +41,7 @@ import net.pms.formats.Format;
 import net.pms.formats.v2.SubtitleType;
 import net.pms.image.BufferedImageFilterChain;
 import net.pms.image.ImagesUtil;
+import net.pms.io.FileChannelInputStream;
 import net.pms.io.OutputParams;
 import net.pms.io.ProcessWrapper;
 import net.pms.media.MediaInfo;
@@ -81,8 +81,6 @@ public class MediaServerServlet extends MediaServerHttpServlet {
 	private static final SimpleDateFormat SDF = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss", Locale.US);
 	private static final String GET = "GET";
 	private static final String HEAD = "HEAD";
-	private static final int BUFFER_SIZE = 8 * 1024;
-	private static final String HTTP_HEADER_RANGE_PREFIX = "bytes=";
 
 	@Override
 	protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
@@ -255,7 +253,7 @@ public class MediaServerServlet extends MediaServerHttpServlet {
 				contentLength = 0;
 			}
 		} else {
-			contentLength = inputStream.available();
+			contentLength = inputStream instanceof FileChannelInputStream fileInput ? fileInput.getRemaining() : inputStream.available();
 			LOGGER.trace("Available Content-Length: {}", contentLength);
 		}
 		if (contentLength > 0) {
@@ -268,9 +266,9 @@ public class MediaServerServlet extends MediaServerHttpServlet {
 		}
 		// send only if no HEAD method is being used.
 		if (writeStream && !HEAD.equalsIgnoreCase(req.getMethod())) {
-			// Send the response body to the client in chunks.
-			OutputStream os = new BufferedOutputStream(resp.getOutputStream(), BUFFER_SIZE);
-			copyStreamAsync(inputStream, os, async, startStopListener);
+			// Send the response body to the client as it can take it, plain
+			// files straight from the file.
+			copyStreamAsync(inputStream, resp.getOutputStream(), async, startStopListener);
 		} else {
 			if (HEAD.equalsIgnoreCase(req.getMethod()) && contentLength < 1) {
 				resp.flushBuffer();
@@ -613,6 +611,14 @@ public class MediaServerServlet extends MediaServerHttpServlet {
 				resp.setHeader("X-Seek-Range", "npt=" + timeseekValue + "-" + timeEndValue + "/" + timetotalValue);
 			}
 
+			if (status == 206 && inputStream instanceof FileChannelInputStream fileInput) {
+				List<ByteRange> ranges = parseRanges(req.getHeader("Range"), item.length());
+				if (ranges.size() > 1) {
+					resp.setHeader("Server", MediaServer.getServerName());
+					sendFileRangesAsync(fileInput, ranges, item.getMimeType(), resp, req.startAsync(), startStopListener, !HEAD.equalsIgnoreCase(req.getMethod()));
+					return;
+				}
+			}
 			sendResponse(req, resp, renderer, status, inputStream, cLoverride, (range.getStart() != MediaInfo.ENDFILE_POS), startStopListener);
 		} else {
 			respondBadRequest(req, resp);
@@ -628,67 +634,6 @@ public class MediaServerServlet extends MediaServerHttpServlet {
 		}
 	}
 
-	private static List<ByteRange> parseRanges(String rangesStr, long streamLength) {
-		List<ByteRange> ranges = new ArrayList<>();
-		if (rangesStr == null || StringUtils.isEmpty(rangesStr)) {
-			return ranges;
-		}
-		long streamEnd = streamLength - 1;
-		rangesStr = rangesStr.toLowerCase().trim();
-		if (!rangesStr.startsWith(HTTP_HEADER_RANGE_PREFIX)) {
-			LOGGER.warn("Range '{}' does not start with '{}'", rangesStr, HTTP_HEADER_RANGE_PREFIX);
-			return ranges;
-		}
-		for (String rangeStr : rangesStr.split(",")) {
-			try {
-				rangeStr = rangeStr.trim();
-				if (rangeStr.startsWith(HTTP_HEADER_RANGE_PREFIX)) {
-					rangeStr = rangeStr.substring(HTTP_HEADER_RANGE_PREFIX.length());
-				}
-				long start = -1;
-				long end = -1;
-				int dash = rangeStr.indexOf('-');
-				if (dash < 0 || rangeStr.indexOf("-", dash + 1) >= 0) {
-					LOGGER.warn("Range header '{}' is not well formed on '{}'", rangesStr, rangeStr);
-					break;
-				}
-				if (dash > 0) {
-					start = Long.parseLong(rangeStr.substring(0, dash).trim());
-				}
-				if (dash < (rangeStr.length() - 1)) {
-					end = Long.parseLong(rangeStr.substring(dash + 1).trim());
-				}
-				if (start == -1) {
-					if (end == 0) {
-						continue;
-					}
-					if (end == -1) {
-						LOGGER.warn("Range header '{}' is not well formed on '{}'", rangesStr, rangeStr);
-						break;
-					}
-
-					start = Math.max(0, streamEnd - end + 1);
-					end = streamEnd;
-				} else {
-					if (start > streamEnd) {
-						continue;
-					}
-					if (end == -1 || end > streamEnd) {
-						end = streamEnd;
-					}
-				}
-				if (end < start) {
-					LOGGER.warn("Range header '{}' is not well formed on '{}'", rangesStr, rangeStr);
-					break;
-				}
-				ranges.add(new ByteRange(start, end));
-			} catch (NumberFormatException x) {
-				LOGGER.warn("Range header '{}' is not well formed on '{}'", rangesStr, rangeStr);
-			}
-		}
-		return ranges;
-	}
-
 	private static TimeRange getTimeSeekRange(String timeSeekRangeStr) {
 		TimeRange timeSeekRange = new TimeRange();
 		if (timeSeekRangeStr != null && timeSeekRangeStr.startsWith("npt=")) {
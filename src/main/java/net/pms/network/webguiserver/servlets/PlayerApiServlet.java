@@ -20,15 +20,14 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ServletOutputStream;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.sql.Connection;
 import java.util.List;
 import net.pms.PMS;
@@ -48,6 +47,7 @@ import net.pms.image.Image;
 import net.pms.image.ImageFormat;
 import net.pms.image.ImageInfo;
 import net.pms.image.ImagesUtil;
+import net.pms.io.FileChannelInputStream;
 import net.pms.io.OutputParams;
 import net.pms.io.ProcessWrapper;
 import net.pms.media.MediaInfo;
@@ -1105,7 +1105,10 @@ public class PlayerApiServlet extends GuiHttpServlet {
 			if (isDownload) {
 				resp.setHeader("Content-Disposition", "attachment; filename=\"" + new File(item.getFileName()).getName() + "\"");
 			}
-			if (in != null) {
+			if (in instanceof FileChannelInputStream fileInput) {
+				// Plain file, send it straight from the file
+				sendFileAsync(req, resp, fileInput, len, mime, async);
+			} else if (in != null) {
 				if (in.available() != len) {
 					resp.setHeader("Content-Range", "bytes " + range.getStart() + "-" + in.available() + "/" + len);
 					resp.setStatus(206);
@@ -1117,7 +1120,7 @@ public class PlayerApiServlet extends GuiHttpServlet {
 				if (LOGGER.isTraceEnabled()) {
 					logHttpServletResponse(req, resp, null, true);
 				}
-				OutputStream os = new BufferedOutputStream(resp.getOutputStream(), 512 * 1024);
+				ServletOutputStream os = resp.getOutputStream();
 				LOGGER.debug("start raw dump");
 				copyStreamAsync(in, os, async);
 			} else {
@@ -1167,7 +1170,7 @@ public class PlayerApiServlet extends GuiHttpServlet {
 				logHttpServletResponse(req, resp, null, true);
 			}
 			AsyncContext async = req.startAsync();
-			OutputStream os = resp.getOutputStream();
+			ServletOutputStream os = resp.getOutputStream();
 			copyStreamAsync(in, os, async);
 		} catch (IOException ex) {
 			respondInternalServerError(req, resp);
@@ -1238,7 +1241,10 @@ public class PlayerApiServlet extends GuiHttpServlet {
 			resp.setHeader("Accept-Ranges", "bytes");
 			resp.setHeader("Server", MediaServer.getServerName());
 			resp.setHeader("Connection", "keep-alive");
-			if (in != null) {
+			if (in instanceof FileChannelInputStream fileInput) {
+				// Plain file, send it straight from the file
+				sendFileAsync(req, resp, fileInput, len, mime, async);
+			} else if (in != null) {
 				if (in.available() != len) {
 					resp.setHeader("Content-Range", "bytes " + range.getStart() + "-" + in.available() + "/" + len);
 					resp.setStatus(206);
@@ -1250,7 +1256,7 @@ public class PlayerApiServlet extends GuiHttpServlet {
 				if (LOGGER.isTraceEnabled()) {
 					logHttpServletResponse(req, resp, null, true);
 				}
-				OutputStream os = new BufferedOutputStream(resp.getOutputStream(), 512 * 1024);
+				ServletOutputStream os = resp.getOutputStream();
 				copyStreamAsync(in, os, async);
 			} else {
 				resp.setStatus(500);
@@ -1337,7 +1343,7 @@ public class PlayerApiServlet extends GuiHttpServlet {
 							if (LOGGER.isTraceEnabled()) {
 								logHttpServletResponse(req, resp, null, true);
 							}
-							OutputStream os = new BufferedOutputStream(resp.getOutputStream(), 512 * 1024);
+							ServletOutputStream os = resp.getOutputStream();
 							copyStreamAsync(in, os, async, startStopListener);
 						} else {
 							resp.setStatus(500);
@@ -1382,7 +1388,7 @@ public class PlayerApiServlet extends GuiHttpServlet {
 						item.setMediaSubtitle(sid);
 					}
 					StartStopListener startStopListener = new StartStopListener(req.getRemoteAddr(), item);
-					OutputStream os = new BufferedOutputStream(resp.getOutputStream(), 8 * 1024);
+					ServletOutputStream os = resp.getOutputStream();
 					copyStreamAsync(in, os, async, startStopListener);
 				} else {
 					resp.setStatus(500);
@@ -1412,7 +1418,7 @@ public class PlayerApiServlet extends GuiHttpServlet {
 			resp.setHeader("Connection", "keep-alive");
 			resp.setStatus(200);
 			resp.setContentLengthLong(thumb.getSize());
-			OutputStream os = resp.getOutputStream();
+			ServletOutputStream os = resp.getOutputStream();
 			copyStreamAsync(thumb, os, async);
 		} else {
 			respondNotFound(req, resp);
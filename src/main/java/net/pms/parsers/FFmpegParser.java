@@ -28,6 +28,7 @@ import net.pms.configuration.UmsConfiguration;
 import net.pms.dlna.DLNAThumbnail;
 import net.pms.encoders.EngineFactory;
 import net.pms.encoders.StandardEngineId;
+import net.pms.encoders.TranscodeScheduler;
 import net.pms.formats.AudioAsVideo;
 import net.pms.formats.Format;
 import net.pms.formats.v2.SubtitleType;
@@ -158,7 +159,12 @@ public class FFmpegParser {
 		final ProcessWrapperImpl pw = new ProcessWrapperImpl(args.toArray(String[]::new), true, params, false, true);
 		FailSafeProcessWrapper fspw = new FailSafeProcessWrapper(pw, 10000);
 		media.setParsing(true);
-		fspw.runInSameThread();
+		TranscodeScheduler.acquireBackground();
+		try {
+			fspw.runInSameThread();
+		} finally {
+			TranscodeScheduler.releaseBackground();
+		}
 
 		if (fspw.hasFail()) {
 			LOGGER.info("Error parsing information from the file: " + input);
@@ -255,7 +261,12 @@ public class FFmpegParser {
 		media.waitMediaParsing(5);
 		media.setParsing(true);
 		FailSafeProcessWrapper fspw = new FailSafeProcessWrapper(pw, 3000);
-		fspw.runInSameThread();
+		TranscodeScheduler.acquireBackground();
+		try {
+			fspw.runInSameThread();
+		} finally {
+			TranscodeScheduler.releaseBackground();
+		}
 
 		if (fspw.hasFail()) {
 			LOGGER.info("Error generating thumbnail from the file: " + inputFile.getFile());
@@ -26,6 +26,8 @@ import java.util.ArrayList;
 import java.util.Base64;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import net.pms.configuration.FormatConfiguration;
@@ -74,6 +76,12 @@ public class MediaInfoParser {
 	public static final String PARSER_NAME;
 	public static final Throwable LOADING_ERROR;
 
+	private static final int POOL_SIZE = Math.max(2, Runtime.getRuntime().availableProcessors());
+	/**
+	 * Idle MediaInfo handles, already configured, ready for the next file.
+	 */
+	private static final BlockingQueue<MediaInfoHelper> POOL = new ArrayBlockingQueue<>(POOL_SIZE);
+
 	private static boolean blocked;
 
 	static {
@@ -141,6 +149,33 @@ public class MediaInfoParser {
 		return mediaInfoHelper;
 	}
 
+	/**
+	 * Takes an idle MediaInfo handle from the pool, or creates a new one.
+	 */
+	private static MediaInfoHelper acquireMediaInfoHelper() {
+		MediaInfoHelper mediaInfoHelper = POOL.poll();
+		if (mediaInfoHelper == null) {
+			mediaInfoHelper = getMediaInfoHelper(false);
+			mediaInfoHelper.setBulkExtraction(true);
+		}
+		return mediaInfoHelper;
+	}
+
+	/**
+	 * Gives a MediaInfo handle back to the pool, or closes it if the pool is
+	 * full.
+	 */
+	private static void releaseMediaInfoHelper(MediaInfoHelper mediaInfoHelper) {
+		if (mediaInfoHelper.isValid() && POOL.offer(mediaInfoHelper)) {
+			return;
+		}
+		try {
+			mediaInfoHelper.close();
+		} catch (Exception ex) {
+			LOGGER.warn("MediaInfoHelper on close: ", ex);
+		}
+	}
+
 	/**
 	 * Parse media via MediaInfoHelper.
 	 */
@@ -151,8 +186,9 @@ public class MediaInfoParser {
 			media.setParsing(false);
 			return;
 		}
-		MediaInfoHelper mediaInfoHelper = getMediaInfoHelper(false);
+		MediaInfoHelper mediaInfoHelper = acquireMediaInfoHelper();
 		if (!mediaInfoHelper.isValid()) {
+			releaseMediaInfoHelper(mediaInfoHelper);
 			media.setParsing(false);
 			return;
 		}
@@ -577,11 +613,7 @@ public class MediaInfoParser {
 				media.setMediaParser(PARSER_NAME);
 			}
 		}
-		try {
-			mediaInfoHelper.close();
-		} catch (Exception ex) {
-			LOGGER.warn("MediaInfoHelper on close: ", ex);
-		}
+		releaseMediaInfoHelper(mediaInfoHelper);
 		media.setParsing(false);
 	}
 
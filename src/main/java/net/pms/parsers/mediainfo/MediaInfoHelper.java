@@ -33,6 +33,10 @@ public class MediaInfoHelper implements AutoCloseable {
 
 	private Pointer handle;
 	private Throwable loadingError;
+	private boolean bulkExtraction;
+	private int informVersion = -1;
+	private boolean snapshotRead;
+	private MediaInfoSnapshot snapshot;
 
 	// Constructor/Destructor
 	public MediaInfoHelper(boolean log) {
@@ -69,6 +73,17 @@ public class MediaInfoHelper implements AutoCloseable {
 		return handle != null;
 	}
 
+	/**
+	 * Sets whether the values of an opened file are read in a single
+	 * {@code Inform} call, see {@link MediaInfoSnapshot}. This changes the
+	 * {@code Inform} option of this handle.
+	 *
+	 * @param bulkExtraction whether to read the values in bulk.
+	 */
+	public void setBulkExtraction(boolean bulkExtraction) {
+		this.bulkExtraction = bulkExtraction;
+	}
+
 	public void dispose() {
 		if (handle == null) {
 			throw new IllegalStateException();
@@ -94,6 +109,7 @@ public class MediaInfoHelper implements AutoCloseable {
 	 */
 	public int openFile(String fileName) {
 		String path = ProcessUtil.getSystemPathName(fileName);
+		resetSnapshot();
 		return MediaInfoLibrary.INSTANCE.Open(handle, new WString(path)).intValue();
 	}
 
@@ -102,9 +118,51 @@ public class MediaInfoHelper implements AutoCloseable {
 	 *
 	 */
 	public void closeFile() {
+		resetSnapshot();
 		MediaInfoLibrary.INSTANCE.Close(handle);
 	}
 
+	private void resetSnapshot() {
+		snapshotRead = false;
+		snapshot = null;
+	}
+
+	/**
+	 * Reads the values of the opened file in a single {@code Inform} call the
+	 * first time they are asked for. The snapshot is only used if it has as
+	 * many streams as MediaInfo counts.
+	 *
+	 * @return The snapshot of the opened file or {@code null}.
+	 */
+	private MediaInfoSnapshot getSnapshot() {
+		if (!bulkExtraction || snapshotRead) {
+			return snapshot;
+		}
+		snapshotRead = true;
+		MediaInfoSnapshot.Template template = MediaInfoSnapshot.getTemplate();
+		if (template.isEmpty()) {
+			return null;
+		}
+		if (informVersion != template.version()) {
+			option("Inform", template.toInformOption());
+			informVersion = template.version();
+		}
+		MediaInfoSnapshot result = MediaInfoSnapshot.parse(template, inform());
+		if (result != null) {
+			for (StreamKind streamKind : template.parameters().keySet()) {
+				if (result.getCount(streamKind) != countGet(streamKind, -1)) {
+					result = null;
+					break;
+				}
+			}
+		}
+		if (result == null) {
+			LOGGER.debug("MediaInfo bulk output doesn't match, reading values one by one");
+		}
+		snapshot = result;
+		return snapshot;
+	}
+
 	// Information
 	/**
 	 * Get all details about a file.
@@ -125,7 +183,18 @@ public class MediaInfoHelper implements AutoCloseable {
 	 * @return a string about information you search, an empty string if there is a problem
 	 */
 	public String get(StreamKind streamType, int streamNumber, String parameter) {
-		return get(streamType, streamNumber, parameter, InfoKind.TEXT, InfoKind.NAME);
+		MediaInfoSnapshot current = getSnapshot();
+		if (current != null) {
+			String value = current.get(streamType, streamNumber, parameter);
+			if (value != null) {
+				return value;
+			}
+		}
+		String value = get(streamType, streamNumber, parameter, InfoKind.TEXT, InfoKind.NAME);
+		if (bulkExtraction) {
+			MediaInfoSnapshot.register(streamType, parameter);
+		}
+		return value;
 	}
 
 	/**
@@ -239,6 +308,10 @@ public class MediaInfoHelper implements AutoCloseable {
 	 * @return number of Streams of the given Stream kind
 	 */
 	public int countGet(StreamKind streamType) {
+		MediaInfoSnapshot current = getSnapshot();
+		if (current != null && current.hasStreamKind(streamType)) {
+			return current.getCount(streamType);
+		}
 		return countGet(streamType, -1);
 	}
 
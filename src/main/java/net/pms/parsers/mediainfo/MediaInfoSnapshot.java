@@ -0,0 +1,189 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.parsers.mediainfo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * The values of all the streams of an opened file, read from MediaInfo in a
+ * single {@code Inform} call instead of one {@code Get} call per value.
+ *
+ * The {@code Inform} output is shaped by a custom template made of the
+ * parameters that were asked for before, so the values are the same that
+ * {@code Get} returns for them. Parameters that are not in the template yet
+ * are read with {@code Get} and added to the template of the next files.
+ */
+public class MediaInfoSnapshot {
+
+	private static final char FIELD_SEPARATOR = '\u001F';
+	private static final char STREAM_SEPARATOR = '\u001E';
+	private static final String[] SECTIONS = {"General", "Video", "Audio", "Text", "Other", "Image", "Menu"};
+	private static final Map<StreamKind, Set<String>> PARAMETERS = new EnumMap<>(StreamKind.class);
+
+	private static Template template = new Template(0, Collections.emptyMap());
+
+	private final Map<StreamKind, List<Map<String, String>>> streams = new EnumMap<>(StreamKind.class);
+	private final Template source;
+
+	private MediaInfoSnapshot(Template source) {
+		this.source = source;
+	}
+
+	/**
+	 * Adds a parameter to the template of the next snapshots.
+	 *
+	 * @param streamKind the {@link StreamKind} of the parameter.
+	 * @param parameter the parameter name, as given to {@code Get}.
+	 */
+	public static synchronized void register(StreamKind streamKind, String parameter) {
+		if (parameter.indexOf('%') >= 0 || parameter.indexOf(FIELD_SEPARATOR) >= 0) {
+			return;
+		}
+		if (PARAMETERS.computeIfAbsent(streamKind, kind -> new LinkedHashSet<>()).add(parameter)) {
+			Map<StreamKind, List<String>> parameters = new EnumMap<>(StreamKind.class);
+			for (Map.Entry<StreamKind, Set<String>> entry : PARAMETERS.entrySet()) {
+				parameters.put(entry.getKey(), List.copyOf(entry.getValue()));
+			}
+			template = new Template(template.version() + 1, parameters);
+		}
+	}
+
+	/**
+	 * @return The current template.
+	 */
+	public static synchronized Template getTemplate() {
+		return template;
+	}
+
+	/**
+	 * Parses the output of {@code Inform} for the given template.
+	 *
+	 * @param template the {@link Template} that was set as the {@code Inform}
+	 *            option.
+	 * @param inform the output of {@code Inform}.
+	 * @return The snapshot, or {@code null} if the output doesn't match the
+	 *         template.
+	 */
+	public static MediaInfoSnapshot parse(Template template, String inform) {
+		if (inform == null) {
+			return null;
+		}
+		MediaInfoSnapshot snapshot = new MediaInfoSnapshot(template);
+		for (String stream : inform.split(String.valueOf(STREAM_SEPARATOR), -1)) {
+			stream = StringUtils.strip(stream, "\r\n");
+			if (stream.isEmpty()) {
+				continue;
+			}
+			String[] fields = stream.split(String.valueOf(FIELD_SEPARATOR), -1);
+			StreamKind streamKind = toStreamKind(fields[0]);
+			List<String> parameters = streamKind != null ? template.parameters().get(streamKind) : null;
+			if (parameters == null || fields.length != parameters.size() + 1) {
+				return null;
+			}
+			Map<String, String> values = new HashMap<>(parameters.size() * 2);
+			for (int i = 0; i < parameters.size(); i++) {
+				values.put(parameters.get(i), fields[i + 1]);
+			}
+			snapshot.streams.computeIfAbsent(streamKind, kind -> new ArrayList<>()).add(values);
+		}
+		return snapshot;
+	}
+
+	private static StreamKind toStreamKind(String value) {
+		for (StreamKind streamKind : StreamKind.values()) {
+			if (String.valueOf(streamKind.getValue()).equals(value)) {
+				return streamKind;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @param streamKind the {@link StreamKind}.
+	 * @return Whether the streams of this kind are in this snapshot.
+	 */
+	public boolean hasStreamKind(StreamKind streamKind) {
+		return source.parameters().containsKey(streamKind);
+	}
+
+	/**
+	 * @param streamKind the {@link StreamKind}.
+	 * @return The number of streams of this kind.
+	 */
+	public int getCount(StreamKind streamKind) {
+		List<Map<String, String>> values = streams.get(streamKind);
+		return values != null ? values.size() : 0;
+	}
+
+	/**
+	 * Gets a value like {@code Get} with {@link InfoKind#TEXT} and
+	 * {@link InfoKind#NAME}.
+	 *
+	 * @param streamKind the {@link StreamKind}.
+	 * @param streamNumber the stream number in the streams of this kind.
+	 * @param parameter the parameter name.
+	 * @return The value, or {@code null} if the parameter is not in this
+	 *         snapshot.
+	 */
+	public String get(StreamKind streamKind, int streamNumber, String parameter) {
+		List<Map<String, String>> values = streams.get(streamKind);
+		if (values != null && streamNumber >= 0 && streamNumber < values.size()) {
+			return values.get(streamNumber).get(parameter);
+		}
+		List<String> parameters = source.parameters().get(streamKind);
+		return parameters != null && parameters.contains(parameter) ? "" : null;
+	}
+
+	/**
+	 * The parameters asked for each {@link StreamKind}, with the version that
+	 * changes each time a parameter is added.
+	 */
+	public record Template(int version, Map<StreamKind, List<String>> parameters) {
+
+		public boolean isEmpty() {
+			return parameters.isEmpty();
+		}
+
+		/**
+		 * @return The value of the {@code Inform} option for this template.
+		 */
+		public String toInformOption() {
+			StringBuilder sb = new StringBuilder();
+			for (Map.Entry<StreamKind, List<String>> entry : parameters.entrySet()) {
+				if (!sb.isEmpty()) {
+					sb.append("\r\n");
+				}
+				sb.append(SECTIONS[entry.getKey().getValue()]).append(';').append(entry.getKey().getValue());
+				for (String parameter : entry.getValue()) {
+					sb.append(FIELD_SEPARATOR).append('%').append(parameter).append('%');
+				}
+				sb.append(STREAM_SEPARATOR);
+			}
+			return sb.toString();
+		}
+
+	}
+
+}
@@ -22,7 +22,6 @@ import com.sun.jna.ptr.IntByReference;
 import java.io.*;
 import java.util.ArrayList;
 import net.pms.io.BufferedOutputFile;
-import net.pms.io.BufferedOutputFileImpl;
 import net.pms.io.OutputParams;
 import net.pms.io.ProcessWrapper;
 import net.pms.util.UMSUtils;
@@ -148,7 +147,7 @@ public class WindowsNamedPipe extends Thread implements ProcessWrapper {
 			}
 
 			if (params != null) {
-				directBuffer = new BufferedOutputFileImpl(params);
+				directBuffer = BufferedOutputFile.newInstance(params);
 			} else {
 				writable = new PipedOutputStream();
 				readable = new PipedInputStream((PipedOutputStream) writable, BUFSIZE);
@@ -30,6 +30,7 @@ import java.util.Optional;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import net.pms.PMS;
@@ -38,6 +39,7 @@ import net.pms.configuration.RendererConfigurations;
 import net.pms.network.SpeedStats;
 import net.pms.renderers.devices.WebGuiRenderer;
 import net.pms.store.MediaInfoStore;
+import net.pms.store.SharedStoreTree;
 import net.pms.util.SortedHeaderMap;
 import org.apache.commons.configuration2.ex.ConfigurationException;
 import org.apache.commons.lang3.StringUtils;
@@ -50,7 +52,10 @@ import org.slf4j.LoggerFactory;
 public class ConnectedRenderers {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(ConnectedRenderers.class);
-	private static final Map<InetAddress, Renderer> ADDRESS_RENDERER_ASSOCIATION = Collections.synchronizedMap(new HashMap<>());
+	/**
+	 * Renderers by address, read without locking on every request.
+	 */
+	private static final Map<InetAddress, Renderer> ADDRESS_RENDERER_ASSOCIATION = new ConcurrentHashMap<>();
 	private static final Map<String, InetAddress> UUID_ADDRESS_ASSOCIATION = Collections.synchronizedMap(new HashMap<>());
 	private static final Map<String, WebGuiRenderer> REACT_CLIENT_RENDERERS = Collections.synchronizedMap(new HashMap<>());
 	private static final Map<String, Renderer> UUID_RENDERER_ASSOCIATION = Collections.synchronizedMap(new HashMap<>());
@@ -95,7 +100,12 @@ public class ConnectedRenderers {
 	 * @return
 	 */
 	public static Renderer getRenderer(InetAddress ia, String userAgentString, Collection<Map.Entry<String, String>> headers) {
-		Renderer renderer = null;
+		// Known renderers are found without the lock, it is only needed to
+		// create or finish them
+		Renderer renderer = getRendererBySocketAddress(ia);
+		if (renderer != null && renderer.isLoaded()) {
+			return renderer;
+		}
 		RENDERER_LOCK.lock();
 		try {
 			// Attempt 1: try to recognize the renderer by its socket address from previous requests
@@ -191,7 +201,7 @@ public class ConnectedRenderers {
 		Renderer r = null;
 		RendererConfiguration ref = RendererConfigurations.getRendererConfigurationByHeaders(sortedHeaders);
 		if (ref != null) {
-			boolean isNew = !ADDRESS_RENDERER_ASSOCIATION.containsKey(ia);
+			boolean isNew = ia == null || !ADDRESS_RENDERER_ASSOCIATION.containsKey(ia);
 			r = resolve(ia, ref);
 			if (r != null) {
 				LOGGER.trace(
@@ -206,6 +216,9 @@ public class ConnectedRenderers {
 	}
 
 	public static Renderer getRendererBySocketAddress(InetAddress sa) {
+		if (sa == null) {
+			return null;
+		}
 		Renderer r = ADDRESS_RENDERER_ASSOCIATION.get(sa);
 		if (r != null) {
 			LOGGER.trace("Matched media renderer \"{}\" based on address {}", r.getRendererName(), sa.getHostAddress());
@@ -256,7 +269,7 @@ public class ConnectedRenderers {
 			ref = RendererConfigurations.getDefaultConf();
 		}
 		try {
-			if (ADDRESS_RENDERER_ASSOCIATION.containsKey(ia)) {
+			if (ia != null && ADDRESS_RENDERER_ASSOCIATION.containsKey(ia)) {
 				// Already seen, finish configuration if required
 				renderer = ADDRESS_RENDERER_ASSOCIATION.get(ia);
 				boolean higher = ref != null && ref.getLoadingPriority() > renderer.getLoadingPriority() && recognized;
@@ -320,8 +333,8 @@ public class ConnectedRenderers {
 					renderer.deleteGuis();
 					PMS.get().getFoundRenderers().remove(renderer);
 					InetAddress ia = renderer.getAddress();
-					if (ADDRESS_RENDERER_ASSOCIATION.get(ia) == renderer) {
-						ADDRESS_RENDERER_ASSOCIATION.remove(ia);
+					if (ia != null) {
+						ADDRESS_RENDERER_ASSOCIATION.remove(ia, renderer);
 					}
 					String uuid = renderer.getUUID();
 					if (uuid != null) {
@@ -370,6 +383,9 @@ public class ConnectedRenderers {
 
 	public static void addRendererAssociation(InetAddress sa, Renderer r) {
 		// FIXME: handle multiple clients with same ip properly, now newer overwrites older
+		if (sa == null) {
+			return;
+		}
 		Renderer prev = ADDRESS_RENDERER_ASSOCIATION.put(sa, r);
 		if (prev != null) {
 			// We've displaced a previous renderer at this address, so
@@ -582,6 +598,7 @@ public class ConnectedRenderers {
 	 */
 	public static void invalidateRendererCache(File file) {
 		MediaInfoStore.removeMediaEntryFromCache(file.getAbsolutePath());
+		SharedStoreTree.invalidate(file);
 		for (Renderer connectedRenderer : getConnectedRenderers()) {
 			connectedRenderer.getMediaStore().fileUpdated(file);
 		}
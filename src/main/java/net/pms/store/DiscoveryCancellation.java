@@ -0,0 +1,125 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.store;
+
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Ties the discovery done while handling a request to that request, so that
+ * it stops when the client is gone instead of resolving files nobody waits
+ * for.
+ *
+ * The request handler starts a cancellation on the thread handling the
+ * request, and cancels it when the client disconnects or the request times
+ * out. The discovery then stops at its next check, without the thread being
+ * interrupted. A cancellation also ends by itself at its deadline.
+ */
+public class DiscoveryCancellation {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(DiscoveryCancellation.class);
+	private static final ThreadLocal<DiscoveryCancellation> CURRENT = new ThreadLocal<>();
+
+	private final String name;
+	private final long deadline;
+	private volatile boolean cancelled;
+
+	private DiscoveryCancellation(String name, long timeout) {
+		this.name = name;
+		this.deadline = timeout > 0 ? System.currentTimeMillis() + timeout : Long.MAX_VALUE;
+	}
+
+	/**
+	 * Starts a cancellation for the request handled by the current thread.
+	 * {@link #end()} must be called when the request is handled.
+	 *
+	 * @param name the request, for logging.
+	 * @param timeout the time in milliseconds after which the discovery is
+	 *            cancelled, or 0 for no deadline.
+	 * @return The cancellation.
+	 */
+	public static DiscoveryCancellation start(String name, long timeout) {
+		DiscoveryCancellation cancellation = new DiscoveryCancellation(name, timeout);
+		CURRENT.set(cancellation);
+		return cancellation;
+	}
+
+	/**
+	 * @return The cancellation of the request handled by the current thread,
+	 *         or {@code null} if there is none.
+	 */
+	public static DiscoveryCancellation current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * Cancels the discovery, e.g. because the client disconnected.
+	 */
+	public void cancel() {
+		if (!cancelled) {
+			LOGGER.trace("Cancelling the discovery of request {}", name);
+			cancelled = true;
+		}
+	}
+
+	/**
+	 * @return {@code true} if the discovery was cancelled or its deadline is
+	 *         reached.
+	 */
+	public boolean isCancelled() {
+		return cancelled || System.currentTimeMillis() >= deadline;
+	}
+
+	/**
+	 * Detaches the cancellation from the current thread, once the request is
+	 * handled.
+	 */
+	public void end() {
+		if (CURRENT.get() == this) {
+			CURRENT.remove();
+		}
+	}
+
+	/**
+	 * Runs a task with this cancellation attached to the current thread, for
+	 * work done on behalf of the request by another thread.
+	 *
+	 * @param <T> the result type.
+	 * @param task the task.
+	 * @return The result of the task.
+	 */
+	<T> T callAttached(Supplier<T> task) {
+		DiscoveryCancellation previous = CURRENT.get();
+		CURRENT.set(this);
+		try {
+			return task.get();
+		} finally {
+			if (previous == null) {
+				CURRENT.remove();
+			} else {
+				CURRENT.set(previous);
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+
+}
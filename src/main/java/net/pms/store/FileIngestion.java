@@ -0,0 +1,287 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.store;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import net.pms.renderers.ConnectedRenderers;
+import net.pms.renderers.Renderer;
+import net.pms.util.FileUtil;
+import net.pms.util.SimpleThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Turns the file watcher events of the shared folders into parsed media.
+ *
+ * Events are coalesced per file: a file that is still being written only has
+ * one pending entry, checked on a scheduler until its size and modification
+ * time stop changing and it is no longer locked. Stable files are parsed on
+ * a small pool, and the system update ID increment and the renderer
+ * notifications of all the files parsed in a short window are sent once,
+ * with one folder refresh per parent folder.
+ */
+public class FileIngestion {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(FileIngestion.class);
+	private static final int MAX_PARSER_THREADS = 2;
+	private static final long STABILITY_DELAY = 500;
+	private static final long MAX_STABILITY_DELAY = TimeUnit.SECONDS.toMillis(5);
+	private static final long MAX_LOCKED_WAIT = TimeUnit.MINUTES.toMillis(10);
+	private static final long NOTIFY_DELAY = TimeUnit.SECONDS.toMillis(1);
+
+	private static final ScheduledThreadPoolExecutor SCHEDULER = new ScheduledThreadPoolExecutor(
+			1,
+			new SimpleThreadFactory("File ingestion scheduler", "File ingestion group", Thread.NORM_PRIORITY - 1)
+	);
+	private static final ThreadPoolExecutor PARSER = new ThreadPoolExecutor(
+			MAX_PARSER_THREADS,
+			MAX_PARSER_THREADS,
+			30, TimeUnit.SECONDS,
+			new LinkedBlockingQueue<>(),
+			new SimpleThreadFactory("File ingestion parser", "File ingestion group", Thread.NORM_PRIORITY - 1)
+	);
+
+	/**
+	 * The files waiting to be stable, by full path.
+	 */
+	private static final Map<String, PendingFile> PENDING = new HashMap<>();
+
+	/**
+	 * The parsed files to advise renderers about, one per parent folder.
+	 */
+	private static final Map<File, File> ADDED = new LinkedHashMap<>();
+	private static boolean systemUpdateNeeded;
+	private static boolean gcNeeded;
+	private static boolean flushScheduled;
+
+	static {
+		SCHEDULER.setKeepAliveTime(30, TimeUnit.SECONDS);
+		SCHEDULER.allowCoreThreadTimeOut(true);
+		PARSER.allowCoreThreadTimeOut(true);
+		Runtime.getRuntime().addShutdownHook(new Thread("File Ingestion Shutdown Hook") {
+			@Override
+			public void run() {
+				SCHEDULER.shutdownNow();
+				PARSER.shutdownNow();
+			}
+		});
+	}
+
+	private FileIngestion() {
+		//should not be instantiated
+	}
+
+	/**
+	 * Queues a file that was created or modified, to be parsed once it is
+	 * fully written.
+	 *
+	 * @param file the file.
+	 * @param adviseRenderers whether renderers should refresh the folder of
+	 *            the file once it is parsed.
+	 * @param parser parses the file once stable, and returns whether it was
+	 *            added to the media store.
+	 */
+	public static void add(File file, boolean adviseRenderers, Predicate<File> parser) {
+		String filename = file.getAbsolutePath();
+		PendingFile pending;
+		synchronized (PENDING) {
+			pending = PENDING.get(filename);
+			if (pending != null) {
+				// already waiting, the next check will see what changed
+				pending.adviseRenderers |= adviseRenderers;
+				return;
+			}
+			pending = new PendingFile(file, adviseRenderers, parser);
+			PENDING.put(filename, pending);
+		}
+		schedule(pending, STABILITY_DELAY);
+	}
+
+	/**
+	 * Runs a parsing task on the ingestion pool.
+	 *
+	 * @param task the task.
+	 */
+	public static void execute(Runnable task) {
+		try {
+			PARSER.execute(task);
+		} catch (RejectedExecutionException e) {
+			LOGGER.debug("File ingestion is shut down, not running the task");
+		}
+	}
+
+	/**
+	 * @return the number of files waiting to be fully written.
+	 */
+	public static int getPendingCount() {
+		synchronized (PENDING) {
+			return PENDING.size();
+		}
+	}
+
+	private static void schedule(PendingFile pending, long delay) {
+		try {
+			SCHEDULER.schedule(() -> check(pending), delay, TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException e) {
+			remove(pending);
+		}
+	}
+
+	private static void remove(PendingFile pending) {
+		synchronized (PENDING) {
+			PENDING.remove(pending.file.getAbsolutePath());
+		}
+	}
+
+	private static void check(PendingFile pending) {
+		File file = pending.file;
+		if (!file.exists()) {
+			LOGGER.debug("File {} does not exist anymore", file);
+			remove(pending);
+			return;
+		}
+		long size = file.length();
+		long modified = file.lastModified();
+		if (size != pending.size || modified != pending.modified) {
+			// Still being written (copying, downloading)
+			LOGGER.trace("Waiting until file {} is fully written", file);
+			pending.size = size;
+			pending.modified = modified;
+			pending.lockedSince = 0;
+			pending.delay = STABILITY_DELAY;
+			schedule(pending, pending.delay);
+			return;
+		}
+		if (FileUtil.isLocked(file)) {
+			long now = System.currentTimeMillis();
+			if (pending.lockedSince == 0) {
+				pending.lockedSince = now;
+			} else if (now - pending.lockedSince > MAX_LOCKED_WAIT) {
+				LOGGER.debug("File {} will not be parsed because it is open in another process", file);
+				remove(pending);
+				return;
+			}
+			pending.delay = Math.min(pending.delay * 2, MAX_STABILITY_DELAY);
+			schedule(pending, pending.delay);
+			return;
+		}
+
+		// Here the file is fully written, a new event now starts a new entry
+		remove(pending);
+		execute(() -> parse(pending));
+	}
+
+	private static void parse(PendingFile pending) {
+		try {
+			if (pending.parser.test(pending.file)) {
+				added(pending.file, pending.adviseRenderers);
+			}
+		} catch (RuntimeException e) {
+			LOGGER.error("Error while parsing file {}: {}", pending.file, e.getMessage());
+			LOGGER.trace("", e);
+		}
+	}
+
+	private static void added(File file, boolean adviseRenderers) {
+		/*
+		 * Something about parsing causes Java to hold onto the file, which
+		 * prevents things happening to it on the filesystem until the garbage
+		 * collector runs. Until we have a real fix for it, we ask Java to
+		 * collect the garbage once per batch.
+		 */
+		boolean locked = FileUtil.isLocked(file);
+		synchronized (ADDED) {
+			systemUpdateNeeded = true;
+			gcNeeded |= locked;
+			if (adviseRenderers) {
+				ADDED.putIfAbsent(file.getAbsoluteFile().getParentFile(), file);
+			}
+			if (flushScheduled) {
+				return;
+			}
+			flushScheduled = true;
+		}
+		try {
+			SCHEDULER.schedule(FileIngestion::flush, NOTIFY_DELAY, TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException e) {
+			// shutting down
+		}
+	}
+
+	private static void flush() {
+		List<File> files;
+		boolean systemUpdate;
+		boolean gc;
+		synchronized (ADDED) {
+			files = new ArrayList<>(ADDED.values());
+			ADDED.clear();
+			systemUpdate = systemUpdateNeeded;
+			gc = gcNeeded;
+			systemUpdateNeeded = false;
+			gcNeeded = false;
+			flushScheduled = false;
+		}
+		if (gc) {
+			System.gc();
+		}
+		if (systemUpdate) {
+			MediaStoreIds.incrementSystemUpdateId();
+		}
+		if (files.isEmpty()) {
+			return;
+		}
+		// Refreshing folders may be slow, it doesn't belong on the scheduler
+		execute(() -> {
+			LOGGER.debug("Advising renderers about new files in {} folders", files.size());
+			for (Renderer connectedRenderer : ConnectedRenderers.getConnectedRenderers()) {
+				for (File file : files) {
+					connectedRenderer.getMediaStore().fileAdded(file);
+				}
+			}
+		});
+	}
+
+	private static class PendingFile {
+		private final File file;
+		private final Predicate<File> parser;
+		private volatile boolean adviseRenderers;
+		private long size;
+		private long modified;
+		private long lockedSince;
+		private long delay = STABILITY_DELAY;
+
+		private PendingFile(File file, boolean adviseRenderers, Predicate<File> parser) {
+			this.file = file;
+			this.adviseRenderers = adviseRenderers;
+			this.parser = parser;
+			this.size = file.length();
+			this.modified = file.lastModified();
+		}
+	}
+
+}
@@ -0,0 +1,143 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The state of a folder on the disk at the time it was scanned: its
+ * modification time, its number of entries and a hash of the names, sizes
+ * and modification times of its entries.
+ *
+ * The modification time of a folder only changes when entries are added,
+ * removed or renamed, the hash also catches files rewritten in place.
+ * Subfolders are only hashed by name, they have their own fingerprint.
+ */
+public final class FolderFingerprint {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(FolderFingerprint.class);
+
+	private final long modified;
+	private final int entries;
+	private final String hash;
+	private final List<File> subdirectories;
+
+	public FolderFingerprint(long modified, int entries, String hash) {
+		this(modified, entries, hash, Collections.emptyList());
+	}
+
+	private FolderFingerprint(long modified, int entries, String hash, List<File> subdirectories) {
+		this.modified = modified;
+		this.entries = entries;
+		this.hash = hash;
+		this.subdirectories = subdirectories;
+	}
+
+	public long getModified() {
+		return modified;
+	}
+
+	public int getEntries() {
+		return entries;
+	}
+
+	public String getHash() {
+		return hash;
+	}
+
+	/**
+	 * @return the subfolders found while reading the folder, empty for a
+	 *         fingerprint read from the database.
+	 */
+	public List<File> getSubdirectories() {
+		return subdirectories;
+	}
+
+	/**
+	 * @param other the fingerprint to compare to, may be {@code null}.
+	 * @return whether both fingerprints describe the same folder content.
+	 */
+	public boolean matches(FolderFingerprint other) {
+		return other != null &&
+			modified == other.modified &&
+			entries == other.entries &&
+			Objects.equals(hash, other.hash);
+	}
+
+	@Override
+	public String toString() {
+		return "[modified=" + modified + ", entries=" + entries + ", hash=" + hash + "]";
+	}
+
+	/**
+	 * Reads the fingerprint of a folder, with one file system query per
+	 * entry.
+	 *
+	 * @param directory the folder.
+	 * @return the fingerprint, or {@code null} if the folder can't be read.
+	 */
+	public static FolderFingerprint of(File directory) {
+		Path path = directory.toPath();
+		try {
+			long modified = Files.getLastModifiedTime(path).toMillis();
+			TreeMap<String, BasicFileAttributes> sorted = new TreeMap<>();
+			try (DirectoryStream<Path> stream = Files.newDirectoryStream(path)) {
+				for (Path entry : stream) {
+					sorted.put(entry.getFileName().toString(), Files.readAttributes(entry, BasicFileAttributes.class));
+				}
+			}
+			MessageDigest digest = DigestUtils.getMd5Digest();
+			List<File> subdirectories = new ArrayList<>();
+			for (Map.Entry<String, BasicFileAttributes> entry : sorted.entrySet()) {
+				BasicFileAttributes attributes = entry.getValue();
+				digest.update(entry.getKey().getBytes(StandardCharsets.UTF_8));
+				if (attributes.isDirectory()) {
+					digest.update((byte) '/');
+					subdirectories.add(new File(directory, entry.getKey()));
+				} else {
+					digest.update((byte) ':');
+					digest.update(Long.toString(attributes.size()).getBytes(StandardCharsets.US_ASCII));
+					digest.update((byte) ':');
+					digest.update(Long.toString(attributes.lastModifiedTime().toMillis()).getBytes(StandardCharsets.US_ASCII));
+				}
+				digest.update((byte) 0);
+			}
+			return new FolderFingerprint(modified, sorted.size(), Hex.encodeHexString(digest.digest()), subdirectories);
+		} catch (IOException | SecurityException e) {
+			LOGGER.debug("Can't read the fingerprint of \"{}\": {}", directory, e.getMessage());
+			return null;
+		}
+	}
+
+}
@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.lang.ref.WeakReference;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -112,6 +113,57 @@ public class MediaInfoStore {
 		return null;
 	}
 
+	/**
+	 * Loads the stored information of several files at once, so that the
+	 * following {@link #getMediaInfo(String, File, Format, int)} calls for
+	 * them don't query the database one file at a time.
+	 *
+	 * Only complete information is kept, other files are handled as usual
+	 * when they are resolved.
+	 *
+	 * @param files the files, typically the content of a folder.
+	 * @return the loaded information, to be kept reachable until the files
+	 *         are resolved.
+	 */
+	public static List<MediaInfo> preload(List<File> files) {
+		List<MediaInfo> result = new ArrayList<>();
+		Map<String, Long> filesModified = new HashMap<>();
+		for (File file : files) {
+			String filename = file.getAbsolutePath();
+			if (file.isFile() && getMediaInfoStored(filename) == null) {
+				filesModified.put(filename, file.lastModified());
+			}
+		}
+		if (filesModified.isEmpty()) {
+			return result;
+		}
+		Connection connection = null;
+		try {
+			connection = MediaDatabase.getConnectionIfAvailable();
+			if (connection != null) {
+				Map<String, MediaInfo> mediaInfos = MediaTableFiles.getMediaInfos(connection, filesModified);
+				for (Map.Entry<String, MediaInfo> entry : mediaInfos.entrySet()) {
+					MediaInfo mediaInfo = entry.getValue();
+					if (mediaInfo.isMediaParsed() && mediaInfo.getMimeType() != null && mediaInfo.getResourceId() != null) {
+						synchronized (getLock(entry.getKey())) {
+							if (getMediaInfoStored(entry.getKey()) == null) {
+								storeMediaInfo(entry.getKey(), mediaInfo);
+								result.add(mediaInfo);
+							}
+						}
+					}
+				}
+				LOGGER.trace("Preloaded {} of {} media information from the database", result.size(), filesModified.size());
+			}
+		} catch (SQLException e) {
+			LOGGER.debug("Error while getting cached information about {} files: {}", filesModified.size(), e.getMessage());
+			LOGGER.trace("", e);
+		} finally {
+			MediaDatabase.close(connection);
+		}
+		return result;
+	}
+
 	public static MediaInfo getMediaInfo(String filename, File file, Format format, int type) {
 		Object lock = getLock(filename);
 		synchronized (lock) {
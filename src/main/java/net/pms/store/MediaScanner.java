@@ -24,7 +24,19 @@ import java.nio.file.StandardWatchEventKinds;
 import java.sql.Connection;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -36,6 +48,8 @@ import net.pms.configuration.sharedcontent.SharedContentConfiguration;
 import net.pms.configuration.sharedcontent.SharedContentListener;
 import net.pms.database.MediaDatabase;
 import net.pms.database.MediaTableFiles;
+import net.pms.database.MediaTableFolderFingerprints;
+import net.pms.database.MediaTableScanCheckpoint;
 import net.pms.formats.Format;
 import net.pms.formats.FormatFactory;
 import net.pms.gui.GuiManager;
@@ -47,9 +61,9 @@ import net.pms.store.container.DVDISOFile;
 import net.pms.store.container.PlaylistFolder;
 import net.pms.store.container.RealFolder;
 import net.pms.store.item.RealFile;
-import net.pms.util.FileUtil;
 import net.pms.util.FileWatcher;
 import net.pms.util.InputFile;
+import net.pms.util.SimpleThreadFactory;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -67,12 +81,41 @@ public class MediaScanner implements SharedContentListener {
 	private static final List<String> SHARED_FOLDERS = new ArrayList<>();
 	private static final Renderer RENDERER = MediaScannerDevice.getRenderer();
 	private static final MediaScanner INSTANCE = new MediaScanner();
-	private static final List<String> FILES_PARSING = Collections.synchronizedList(new ArrayList<>());
+
+	private static final Set<String> PARTIAL_SCANS_PENDING = new HashSet<>();
+	private static final ThreadPoolExecutor PARTIAL_SCANNER = new ThreadPoolExecutor(
+			1,
+			1,
+			30, TimeUnit.SECONDS,
+			new LinkedBlockingQueue<>(),
+			new SimpleThreadFactory("MediaScanner partial scan", "MediaScanner group", Thread.NORM_PRIORITY - 1)
+	);
+
+	static {
+		PARTIAL_SCANNER.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * The age after which an interrupted scan is started over instead of
+	 * resumed.
+	 */
+	private static final long CHECKPOINT_MAX_AGE = TimeUnit.DAYS.toMillis(7);
+
+	/**
+	 * The scan threads run at the lowest priority, and so do the threads
+	 * parsing the files they find.
+	 */
+	private static final ForkJoinWorkerThreadFactory SCAN_THREAD_FACTORY = pool -> {
+		ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+		thread.setName("Media Scanner worker " + thread.getPoolIndex());
+		thread.setPriority(Thread.MIN_PRIORITY);
+		return thread;
+	};
 
 	@GuardedBy("DEFAULT_FOLDERS_LOCK")
 	private static List<String> defaultFolders = null;
 	private static Thread scannerThread;
-	private static boolean running;
+	private static volatile boolean running;
 
 	private MediaScanner() {
 	}
@@ -103,10 +146,27 @@ public class MediaScanner implements SharedContentListener {
 			try {
 				connection = MediaDatabase.getConnectionIfAvailable();
 				if (connection != null) {
-					scan(RENDERER.getMediaStore());
+					long since = System.currentTimeMillis() - CHECKPOINT_MAX_AGE;
+					ScanContext context = new ScanContext(
+						MediaTableScanCheckpoint.getCompletedFolders(connection, since),
+						MediaTableFolderFingerprints.getAll(connection),
+						!RENDERER.getUmsConfiguration().isFlattenFolders()
+					);
+					if (!context.completedFolders.isEmpty()) {
+						LOGGER.info("Resuming the previous media scan, {} folders were already scanned", context.completedFolders.size());
+					}
+					scan(RENDERER.getMediaStore(), context);
 					// Running might have been set false during scan
 					if (running) {
-						MediaTableFiles.cleanup(connection);
+						LOGGER.debug("{} folders were unchanged since the last scan", context.unchangedFolders.size());
+						if (context.completedFolders.isEmpty()) {
+							// Folders a full scan did not reach are gone or no longer shared
+							Set<String> removedFolders = new HashSet<>(context.fingerprints.keySet());
+							removedFolders.removeAll(context.visitedFolders);
+							MediaTableFolderFingerprints.remove(connection, removedFolders);
+						}
+						MediaTableFiles.cleanup(connection, context.unchangedFolders);
+						MediaTableScanCheckpoint.clear(connection);
 					}
 				}
 			} finally {
@@ -119,49 +179,216 @@ public class MediaScanner implements SharedContentListener {
 		GuiManager.setStatusLine(null);
 	}
 
-	private static void scan(StoreContainer resource) {
-		if (running) {
-			for (StoreResource child : resource.getChildren()) {
-				try {
-					// wait until the MediaStore workers release before starting
-					MediaStore.waitWorkers();
-				} catch (InterruptedException ex) {
-					running = false;
-					Thread.currentThread().interrupt();
-				}
-				if (running && child instanceof StoreContainer storeContainer && storeContainer.allowScan()) {
+	/**
+	 * Crawls the store tree on the scan pool, skipping the folders that a
+	 * previous, interrupted scan already completed.
+	 */
+	private static void scan(StoreContainer root, ScanContext context) {
+		int threads = RENDERER.getUmsConfiguration().getScanThreads();
+		LOGGER.debug("Scanning with {} threads", threads);
+		ForkJoinPool pool = new ForkJoinPool(threads, SCAN_THREAD_FACTORY, null, false);
+		try {
+			pool.invoke(new ScanTask(root, context, false));
+		} finally {
+			pool.shutdownNow();
+		}
+		if (!running) {
+			GuiManager.setStatusLine(null);
+		}
+	}
 
-					// Display and log which folder is being scanned
-					if (storeContainer instanceof RealFolder) {
-						String childName = child.getName();
-						LOGGER.debug("Scanning folder: " + childName);
-						GuiManager.setStatusLine(Messages.getString("ScanningFolder") + " " + childName);
-					}
+	/**
+	 * What a scan knows from the previous ones, and what it found so far.
+	 */
+	private static final class ScanContext {
+		private final Set<String> completedFolders;
+		private final Map<String, FolderFingerprint> fingerprints;
+		private final boolean useFingerprints;
+		private final Set<String> visitedFolders = ConcurrentHashMap.newKeySet();
+		private final Set<String> unchangedFolders = ConcurrentHashMap.newKeySet();
+
+		private ScanContext(Set<String> completedFolders, Map<String, FolderFingerprint> fingerprints, boolean useFingerprints) {
+			this.completedFolders = completedFolders;
+			this.fingerprints = fingerprints;
+			this.useFingerprints = useFingerprints;
+		}
+	}
 
-					if (storeContainer.isDiscovered()) {
-						storeContainer.refreshChildren();
-					} else {
-						// ugly hack
-						if (storeContainer instanceof DVDISOFile || storeContainer instanceof PlaylistFolder) {
-							storeContainer.syncResolve();
-						}
+	/**
+	 * Discovers or refreshes a container, then forks a task for each of its
+	 * child containers. Idle scan threads steal the pending child tasks, so
+	 * the crawl spreads over the whole tree instead of one folder at a time.
+	 *
+	 * A folder whose fingerprint did not change since it was last parsed is
+	 * not discovered, only its subfolders are crawled.
+	 *
+	 * The task returns whether its whole subtree was scanned, in which case
+	 * the folder is recorded in the checkpoint.
+	 */
+	private static class ScanTask extends RecursiveTask<Boolean> {
+		private static final long serialVersionUID = 1L;
+		private final StoreContainer container;
+		private final ScanContext context;
+		private final boolean discover;
+
+		private ScanTask(StoreContainer container, ScanContext context, boolean discover) {
+			this.container = container;
+			this.context = context;
+			this.discover = discover;
+		}
 
-						storeContainer.discoverChildren();
-						storeContainer.setDiscovered(true);
+		@Override
+		protected Boolean compute() {
+			if (discover && !scanContainer(container, context)) {
+				return false;
+			}
+
+			List<ScanTask> tasks = new ArrayList<>();
+			for (StoreResource child : container.getChildren()) {
+				if (child instanceof StoreContainer storeContainer && storeContainer.allowScan()) {
+					String folderName = getFolderName(storeContainer);
+					if (folderName != null && context.completedFolders.contains(folderName)) {
+						LOGGER.trace("Skipping folder already scanned: {}", folderName);
+						continue;
 					}
+					tasks.add(new ScanTask(storeContainer, context, true));
+				}
+			}
 
-					int count = storeContainer.getChildren().size();
-					if (count != 0) {
-						scan(storeContainer);
-						storeContainer.getChildren().clear();
+			boolean completed = true;
+			for (ScanTask task : invokeAll(tasks)) {
+				completed &= task.join();
+			}
+			if (discover) {
+				container.getChildren().clear();
+			}
+
+			completed &= running;
+			if (completed && discover) {
+				String folderName = getFolderName(container);
+				if (folderName != null) {
+					Connection connection = null;
+					try {
+						connection = MediaDatabase.getConnectionIfAvailable();
+						if (connection != null) {
+							MediaTableScanCheckpoint.setCompleted(connection, folderName);
+						}
+					} finally {
+						MediaDatabase.close(connection);
 					}
-				} else if (!running) {
-					break;
 				}
 			}
-		} else {
-			GuiManager.setStatusLine(null);
+			return completed;
+		}
+	}
+
+	/**
+	 * Scans a container once no renderer is browsing: only adds its
+	 * subfolders if it is a folder that did not change since the last scan,
+	 * discovers or refreshes it otherwise.
+	 *
+	 * @return whether the container was scanned.
+	 */
+	private static boolean scanContainer(StoreContainer storeContainer, ScanContext context) {
+		try {
+			// wait until the MediaStore workers release before starting
+			MediaStore.waitWorkers();
+		} catch (InterruptedException ex) {
+			running = false;
+			Thread.currentThread().interrupt();
+		}
+		if (!running) {
+			return false;
+		}
+
+		String folderName = null;
+		FolderFingerprint fingerprint = null;
+		if (context.useFingerprints && storeContainer instanceof RealFolder realFolder) {
+			folderName = getFolderName(realFolder);
+			fingerprint = FolderFingerprint.of(realFolder.getSystemFile());
+			if (fingerprint != null) {
+				context.visitedFolders.add(folderName);
+				if (fingerprint.matches(context.fingerprints.get(folderName))) {
+					LOGGER.trace("Folder unchanged since the last scan: {}", folderName);
+					context.unchangedFolders.add(folderName);
+					addSubfolders(realFolder, fingerprint);
+					return true;
+				}
+			}
+		}
+
+		if (!discover(storeContainer)) {
+			return false;
+		}
+		if (fingerprint != null && storeContainer.isDiscovered()) {
+			Connection connection = null;
+			try {
+				connection = MediaDatabase.getConnectionIfAvailable();
+				if (connection != null) {
+					MediaTableFolderFingerprints.set(connection, folderName, fingerprint);
+				}
+			} finally {
+				MediaDatabase.close(connection);
+			}
 		}
+		return true;
+	}
+
+	/**
+	 * Adds the subfolders of a folder without discovering it, so that they
+	 * can be scanned.
+	 */
+	private static void addSubfolders(RealFolder folder, FolderFingerprint fingerprint) {
+		List<String> ignoredDirectoryNames = RENDERER.getUmsConfiguration().getIgnoredFolderNames();
+		for (File subdirectory : fingerprint.getSubdirectories()) {
+			if (ignoredDirectoryNames.contains(subdirectory.getName())) {
+				continue;
+			}
+			StoreResource resource = RENDERER.getMediaStore().createResourceFromFile(subdirectory);
+			if (resource instanceof StoreContainer) {
+				folder.addChild(resource, true, true);
+			}
+		}
+	}
+
+	/**
+	 * Discovers or refreshes a container.
+	 *
+	 * @return whether the container was scanned.
+	 */
+	private static boolean discover(StoreContainer storeContainer) {
+		// Display and log which folder is being scanned
+		if (storeContainer instanceof RealFolder) {
+			String childName = storeContainer.getName();
+			LOGGER.debug("Scanning folder: " + childName);
+			GuiManager.setStatusLine(Messages.getString("ScanningFolder") + " " + childName);
+		}
+
+		try {
+			if (storeContainer.isDiscovered()) {
+				storeContainer.refreshChildren();
+			} else {
+				// ugly hack
+				if (storeContainer instanceof DVDISOFile || storeContainer instanceof PlaylistFolder) {
+					storeContainer.syncResolve();
+				}
+
+				storeContainer.discoverChildren();
+				storeContainer.setDiscovered(true);
+			}
+			return true;
+		} catch (RuntimeException e) {
+			LOGGER.error("Error while scanning \"{}\": {}", storeContainer.getName(), e.getMessage());
+			LOGGER.trace("", e);
+			return false;
+		}
+	}
+
+	private static String getFolderName(StoreContainer storeContainer) {
+		if (storeContainer instanceof SystemFileResource systemFileResource && systemFileResource.getSystemFile() != null) {
+			return systemFileResource.getSystemFile().getAbsolutePath();
+		}
+		return null;
 	}
 
 	private static void reset() {
@@ -232,15 +459,31 @@ public class MediaScanner implements SharedContentListener {
 		}
 	}
 
+	/**
+	 * Queues a partial rescan. Partial scans run one at a time, and a path
+	 * already waiting is not queued twice.
+	 *
+	 * @param filename the file or folder to scan.
+	 */
 	public static void backgroundScanFileOrFolder(String filename) {
-		if (!isMediaScanRunning()) {
-			Runnable scan = () -> {
-				if (RENDERER != null) {
+		if (!isMediaScanRunning() && RENDERER != null) {
+			synchronized (PARTIAL_SCANS_PENDING) {
+				if (!PARTIAL_SCANS_PENDING.add(filename)) {
+					return;
+				}
+			}
+			try {
+				PARTIAL_SCANNER.execute(() -> {
+					synchronized (PARTIAL_SCANS_PENDING) {
+						PARTIAL_SCANS_PENDING.remove(filename);
+					}
 					scanFileOrFolder(filename);
+				});
+			} catch (RejectedExecutionException e) {
+				synchronized (PARTIAL_SCANS_PENDING) {
+					PARTIAL_SCANS_PENDING.remove(filename);
 				}
-			};
-			Thread scanThread = new Thread(scan, "scanFileOrFolder");
-			scanThread.start();
+			}
 		}
 	}
 
@@ -363,7 +606,7 @@ public class MediaScanner implements SharedContentListener {
 				}
 			}
 		};
-		new Thread(r, "MediaScanner File Parser - update").start();
+		FileIngestion.execute(r);
 	}
 
 	private synchronized static final Pattern getFileExtensionAllowlistPattern() {
@@ -418,99 +661,52 @@ public class MediaScanner implements SharedContentListener {
 			return;
 		}
 
-		synchronized (FILES_PARSING) {
-			if (FILES_PARSING.contains(filename)) {
-				//parsing of this file is already in progress
-				return;
-			} else {
-				FILES_PARSING.add(filename);
-			}
+		if (advise) {
+			LOGGER.debug("File {} was created on the hard drive", filename);
 		}
-		Runnable r = () -> {
-			try {
-				if (advise) {
-					LOGGER.debug("File {} was created on the hard drive", filename);
-				}
-				long currentSize = file.length();
-				//wait 500 ms
-				Thread.sleep(500);
-				//Check if size changed (copying, downloading)
-				while (file.exists() && (currentSize != file.length() || FileUtil.isLocked(file))) {
-					//loop until file size is not changing anymore and file is unlocked.
-					LOGGER.trace("Waiting until file {} is fully written", filename);
-					currentSize = file.length();
-					Thread.sleep(500);
-				}
-				//here the file should be fully written, deleted or moved.
-				synchronized (FILES_PARSING) {
-					FILES_PARSING.remove(filename);
-				}
-
-				if (file.exists()) {
-					LOGGER.debug("Analyzing file {}", filename);
-
-					if (!SystemFilesHelper.isPotentialMediaFile(file.getAbsolutePath())) {
-						LOGGER.trace("Not parsing file that can't be media");
-						return;
-					}
+		FileIngestion.add(file, advise || isCrawlingParentDirectory, MediaScanner::parseStableFile);
+	}
 
-					if (!file.exists()) {
-						LOGGER.trace("Not parsing file that no longer exists");
-						return;
-					}
+	/**
+	 * Parses a file that is fully written and adds it to the media store.
+	 *
+	 * @param file the file to parse
+	 * @return whether the file was added.
+	 */
+	private static boolean parseStableFile(File file) {
+		String filename = file.getAbsolutePath();
+		LOGGER.debug("Analyzing file {}", filename);
 
-					if (FileUtil.isLocked(file)) {
-						LOGGER.debug("File will not be parsed because it is open in another process");
-						return;
-					}
+		if (!SystemFilesHelper.isPotentialMediaFile(filename)) {
+			LOGGER.trace("Not parsing file that can't be media");
+			return false;
+		}
 
-					if (!isInSharedFolders(file.getAbsolutePath())) {
-						LOGGER.debug("File will not be parsed because it is not in a shared folder");
-						return;
-					}
+		if (!file.exists()) {
+			LOGGER.trace("Not parsing file that no longer exists");
+			return false;
+		}
 
-					StoreResource rf = RENDERER.getMediaStore().createResourceFromFile(file);
-					if (rf != null) {
-						if (rf instanceof StoreItem storeItem) {
-							storeItem.resolveFormat();
-						}
-						rf.syncResolve();
-						if (rf.isValid()) {
-							LOGGER.info("New file {} was detected and added to the media store", file.getName());
-							MediaStoreIds.incrementSystemUpdateId();
-
-							/*
-							 * Something about this process causes Java to hold onto the
-							 * file, which prevents things happening to it on the filesystem
-							 * until the garbage collector runs.
-							 * Some sources say it is a symptom of the nio namespace itself
-							 * and the fix is to use older syntax, and others say other things,
-							 * but until we have a real fix for it we ask Java to collect the
-							 * garbage. It might not do it, but usually it does, which is better
-							 * than what we had before.
-							 */
-							if (FileUtil.isLocked(file)) {
-								System.gc();
-							}
+		if (!isInSharedFolders(filename)) {
+			LOGGER.debug("File will not be parsed because it is not in a shared folder");
+			return false;
+		}
 
-							if (advise || isCrawlingParentDirectory) {
-								// Advise renderers about added file.
-								for (Renderer connectedRenderer : ConnectedRenderers.getConnectedRenderers()) {
-									connectedRenderer.getMediaStore().fileAdded(file);
-								}
-							}
-						}
-					} else {
-						LOGGER.trace("File {} was not recognized as valid media so was not added to the media store", file.getName());
-					}
-				} else {
-					LOGGER.debug("File {} does not exist anymore", filename);
-				}
-			} catch (InterruptedException ex) {
-				Thread.currentThread().interrupt();
-			}
-		};
-		new Thread(r, "MediaScanner File Parser").start();
+		StoreResource rf = RENDERER.getMediaStore().createResourceFromFile(file);
+		if (rf == null) {
+			LOGGER.trace("File {} was not recognized as valid media so was not added to the media store", file.getName());
+			return false;
+		}
+		if (rf instanceof StoreItem storeItem) {
+			storeItem.resolveFormat();
+		}
+		rf.syncResolve();
+		if (!rf.isValid()) {
+			return false;
+		}
+		LOGGER.info("New file {} was detected and added to the media store", file.getName());
+		SharedStoreTree.invalidate(file);
+		return true;
 	}
 
 	private static void addFolderEntry(File directory) {
@@ -540,6 +736,7 @@ public class MediaScanner implements SharedContentListener {
 		LOGGER.trace("Folder {} was deleted or moved on the hard drive, removing all files within it from the database", filename);
 		//folder may be empty
 		File folder = new File(filename);
+		SharedStoreTree.invalidate(folder);
 		for (Renderer connectedRenderer : ConnectedRenderers.getConnectedRenderers()) {
 			connectedRenderer.getMediaStore().fileRemoved(folder);
 		}
@@ -552,6 +749,7 @@ public class MediaScanner implements SharedContentListener {
 		LOGGER.info("File {} was deleted or moved on the hard drive, removing it from the database", filename);
 		if (MediaInfoStore.removeMediaEntry(filename)) {
 			File file = new File(filename);
+			SharedStoreTree.invalidate(file);
 			for (Renderer connectedRenderer : ConnectedRenderers.getConnectedRenderers()) {
 				connectedRenderer.getMediaStore().fileRemoved(file);
 			}
@@ -68,7 +68,6 @@ import net.pms.store.item.RealFile;
 import net.pms.store.item.WebAudioStream;
 import net.pms.store.item.WebVideoStream;
 import net.pms.store.utils.IOList;
-import net.pms.util.FileUtil;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -84,7 +83,8 @@ public class MediaStore extends StoreContainer {
 	 * When a MediaStore ask for resource (needs to run in realtime), it should
 	 * increment this AtomicInteger for the duration of their operation.
 	 * When a task has a lower priority, it should use waitWorkers() to wait for
-	 * any realtime task to finish.
+	 * any realtime task to finish. Waiters are woken up as soon as the last
+	 * realtime task ends.
 	 */
 	private static final AtomicInteger WORKERS = new AtomicInteger(0);
 	private static final String TEMP_TAG = "$Temp$";
@@ -490,7 +490,7 @@ public class MediaStore extends StoreContainer {
 		// it's used when someone requests playback of mediaInfo. The mediaInfo must
 		// have been discovered by someone first (unless it's a Temp item)
 		try {
-			WORKERS.incrementAndGet();
+			workerStarted();
 			if (StringUtils.isEmpty(objectId)) {
 				return null;
 			}
@@ -530,7 +530,7 @@ public class MediaStore extends StoreContainer {
 			String[] ids = objectId.split("\\.");
 			return getWeakResource(ids[ids.length - 1]);
 		} finally {
-			WORKERS.decrementAndGet();
+			workerDone();
 		}
 	}
 
@@ -676,7 +676,7 @@ public class MediaStore extends StoreContainer {
 	 */
 	public List<StoreResource> getResources(String objectId, boolean returnChildren) {
 		try {
-			WORKERS.incrementAndGet();
+			workerStarted();
 			ArrayList<StoreResource> resources = new ArrayList<>();
 			if (StringUtils.isEmpty(objectId)) {
 				return resources;
@@ -688,15 +688,7 @@ public class MediaStore extends StoreContainer {
 				return items != null ? items : resources;
 			}
 
-			StoreResource resource = getResource(objectId);
-
-			if (resource == null) {
-				// nothing in the cache do a traditional search
-				// Now strip off the filename
-				objectId = StringUtils.substringBefore(objectId, "/");
-				String[] ids = objectId.split("\\.");
-				resource = search(ids);
-			}
+			StoreResource resource = findResource(objectId);
 
 			if (resource != null) {
 				if (!(resource instanceof CodeEnter) && !isCodeValid(resource)) {
@@ -720,26 +712,15 @@ public class MediaStore extends StoreContainer {
 					}
 				} else {
 					if (resource instanceof StoreContainer storeContainer) {
-						storeContainer.discover(true);
-
-						int count = storeContainer.getChildren().size();
-						if (count > 0) {
-							String systemName = storeContainer.getSystemName();
-							LOGGER.trace("Start of analysis for " + systemName);
-
-							if (shouldDoAudioTrackSorting(storeContainer)) {
-								sortChildrenWithAudioElements(storeContainer);
-							}
-							for (int i = 0; i < storeContainer.getChildren().size(); i++) {
-								final StoreResource child = storeContainer.getChildren().get(i);
-								if (child != null) {
-									resources.add(child);
-								} else {
-									LOGGER.warn("null child at index {} in {}", i, systemName);
-								}
+						discoverChildren(storeContainer);
+						String systemName = storeContainer.getSystemName();
+						for (int i = 0; i < storeContainer.getChildren().size(); i++) {
+							final StoreResource child = storeContainer.getChildren().get(i);
+							if (child != null) {
+								resources.add(child);
+							} else {
+								LOGGER.warn("null child at index {} in {}", i, systemName);
 							}
-
-							LOGGER.trace("End of analysis for " + systemName);
 						}
 					}
 				}
@@ -747,7 +728,63 @@ public class MediaStore extends StoreContainer {
 
 			return resources;
 		} finally {
-			WORKERS.decrementAndGet();
+			workerDone();
+		}
+	}
+
+	/**
+	 * Searches for a container and discovers its children, to browse them
+	 * with {@link StoreContainer#getSortedChildren}.
+	 *
+	 * @param objectId ID to search for.
+	 * @return the container, or {@code null} if the object is not a container
+	 * or can't be browsed by this renderer.
+	 */
+	public StoreContainer getDiscoveredContainer(String objectId) {
+		try {
+			workerStarted();
+			if (StringUtils.isEmpty(objectId) || objectId.startsWith(TEMP_TAG)) {
+				return null;
+			}
+			if (findResource(objectId) instanceof StoreContainer storeContainer &&
+					(storeContainer instanceof CodeEnter || isCodeValid(storeContainer)) &&
+					isRendererAllowed()) {
+				discoverChildren(storeContainer);
+				return storeContainer;
+			}
+			return null;
+		} finally {
+			workerDone();
+		}
+	}
+
+	private StoreResource findResource(String objectId) {
+		StoreResource resource = getResource(objectId);
+		if (resource == null) {
+			// nothing in the cache do a traditional search
+			// Now strip off the filename
+			objectId = StringUtils.substringBefore(objectId, "/");
+			String[] ids = objectId.split("\\.");
+			resource = search(ids);
+		}
+		return resource;
+	}
+
+	/**
+	 * Discovers the children of a container, and sorts them by album position
+	 * when needed. The children are only sorted again when they changed.
+	 */
+	private static void discoverChildren(StoreContainer storeContainer) {
+		boolean orderOutdated = storeContainer.isChildrenOrderOutdated();
+		storeContainer.discover(true);
+		if ((orderOutdated || storeContainer.isChildrenOrderOutdated()) && storeContainer.childrenCount() > 0) {
+			String systemName = storeContainer.getSystemName();
+			LOGGER.trace("Start of analysis for " + systemName);
+			if (shouldDoAudioTrackSorting(storeContainer)) {
+				sortChildrenWithAudioElements(storeContainer);
+			}
+			storeContainer.setChildrenOrdered();
+			LOGGER.trace("End of analysis for " + systemName);
 		}
 	}
 
@@ -916,7 +953,7 @@ public class MediaStore extends StoreContainer {
 			List<String> ignoredFolderNames = renderer.getUmsConfiguration().getIgnoredFolderNames();
 
 			/* Optionally ignore empty directories */
-			if (file.isDirectory() && renderer.getUmsConfiguration().isHideEmptyFolders() && !FileUtil.isFolderRelevant(file, renderer.getUmsConfiguration())) {
+			if (file.isDirectory() && renderer.getUmsConfiguration().isHideEmptyFolders() && !SharedStoreTree.isFolderRelevant(file, renderer.getUmsConfiguration())) {
 				LOGGER.debug("Ignoring empty/non-relevant directory: " + file.toString());
 				return null;
 			} else if (file.isDirectory() && !"".equals(lcFilename) && !ignoredFolderNames.isEmpty() && ignoredFolderNames.contains(file.getName())) {
@@ -1054,9 +1091,29 @@ public class MediaStore extends StoreContainer {
 		return 0;
 	}
 
+	private static void workerStarted() {
+		WORKERS.incrementAndGet();
+	}
+
+	private static void workerDone() {
+		if (WORKERS.decrementAndGet() == 0) {
+			synchronized (WORKERS) {
+				WORKERS.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Blocks until no realtime task is running.
+	 *
+	 * @throws InterruptedException if the calling thread was interrupted while
+	 *             waiting.
+	 */
 	public static void waitWorkers() throws InterruptedException {
-		while (WORKERS.get() > 0) {
-			Thread.sleep(100);
+		synchronized (WORKERS) {
+			while (WORKERS.get() > 0) {
+				WORKERS.wait();
+			}
 		}
 	}
 }
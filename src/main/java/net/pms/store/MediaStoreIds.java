@@ -19,9 +19,10 @@ package net.pms.store;
 import java.sql.Connection;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import net.pms.database.MediaDatabase;
 import net.pms.database.MediaTableStoreIds;
 import org.jupnp.model.types.UnsignedIntegerFourBytes;
@@ -37,7 +38,8 @@ import org.slf4j.LoggerFactory;
 public class MediaStoreIds {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(MediaStoreIds.class);
-	private static final Map<Long, UnsignedIntegerFourBytes> UPDATE_IDS = new HashMap<>();
+	private static final Map<Long, UnsignedIntegerFourBytes> UPDATE_IDS = new ConcurrentHashMap<>();
+	private static final Map<Long, AtomicInteger> CHILDREN_UPDATES = new ConcurrentHashMap<>();
 
 	/**
 	 * This class is not meant to be instantiated.
@@ -189,7 +191,15 @@ public class MediaStoreIds {
 	 *
 	 * @return The system updated id.
 	 */
-	public static synchronized UnsignedIntegerFourBytes getSystemUpdateId() {
+	public static UnsignedIntegerFourBytes getSystemUpdateId() {
+		UnsignedIntegerFourBytes value = UPDATE_IDS.get(-1L);
+		if (value != null) {
+			return value;
+		}
+		return loadSystemUpdateId();
+	}
+
+	private static synchronized UnsignedIntegerFourBytes loadSystemUpdateId() {
 		if (!UPDATE_IDS.containsKey(-1L)) {
 			UnsignedIntegerFourBytes value = null;
 			Connection connection = null;
@@ -217,12 +227,23 @@ public class MediaStoreIds {
 	/**
 	 * Returns the updates id for an object.
 	 *
+	 * Known ids are read without locking, as this is called for every object
+	 * of every browse.
+	 *
 	 * @return The object updated id.
 	 */
-	private static synchronized UnsignedIntegerFourBytes getObjectUpdateId(Long id) {
+	private static UnsignedIntegerFourBytes getObjectUpdateId(Long id) {
 		if (id == null || id == -1) {
 			return getSystemUpdateId();
 		}
+		UnsignedIntegerFourBytes value = UPDATE_IDS.get(id);
+		if (value != null) {
+			return value;
+		}
+		return loadObjectUpdateId(id);
+	}
+
+	private static synchronized UnsignedIntegerFourBytes loadObjectUpdateId(Long id) {
 		if (!UPDATE_IDS.containsKey(id)) {
 			UnsignedIntegerFourBytes value = null;
 			Connection connection = null;
@@ -289,6 +310,7 @@ public class MediaStoreIds {
 				MediaTableStoreIds.setMediaStoreUpdateId(connection, -1, updateId);
 				if (id != null && id != -1) {
 					MediaTableStoreIds.setMediaStoreUpdateId(connection, id, updateId);
+					incrementChildrenUpdateCount(connection, id);
 				}
 			}
 		} finally {
@@ -306,8 +328,35 @@ public class MediaStoreIds {
 			if (connection != null) {
 				MediaTableStoreIds.setMediaStoreUpdateId(connection, -1, updateId);
 				MediaTableStoreIds.setMediaStoreUpdateId(connection, id, updateId);
+				incrementChildrenUpdateCount(connection, id);
 			}
 		}
 	}
 
+	/**
+	 * Returns a count that changes whenever the update id of a child of a
+	 * container changes, e.g. when its metadata was updated.
+	 *
+	 * @param parentId the id of the container.
+	 * @return The count.
+	 */
+	public static int getChildrenUpdateCount(Long parentId) {
+		if (parentId == null) {
+			return 0;
+		}
+		AtomicInteger count = CHILDREN_UPDATES.get(parentId);
+		return count != null ? count.get() : 0;
+	}
+
+	private static void incrementChildrenUpdateCount(Connection connection, long id) {
+		MediaStoreId mediaStoreId = MediaTableStoreIds.getMediaStoreId(connection, id);
+		if (mediaStoreId != null) {
+			incrementChildrenUpdateCount(mediaStoreId.getParentId());
+		}
+	}
+
+	static void incrementChildrenUpdateCount(long parentId) {
+		CHILDREN_UPDATES.computeIfAbsent(parentId, k -> new AtomicInteger()).incrementAndGet();
+	}
+
 }
@@ -0,0 +1,190 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.store;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import net.pms.util.SimpleThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Resolves the children of a folder in parallel during discovery, so that
+ * the first browse of a folder takes about as long as its slowest file
+ * instead of the sum of all of them.
+ *
+ * All folders share one pool sized to the number of cores, and each folder
+ * uses at most its own limit of it at once. Results are returned in the
+ * order of the files, whatever order they are resolved in.
+ *
+ * Threads running below the normal priority, like the media scanner, resolve
+ * on a separate pool of low priority threads, so background work never sits
+ * in front of a renderer browse in the queue.
+ */
+public class ParallelResolver {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ParallelResolver.class);
+	private static final int MAX_THREADS = Runtime.getRuntime().availableProcessors();
+	private static final long POLL_INTERVAL = 100;
+	private static final ThreadLocal<Boolean> IS_WORKER = ThreadLocal.withInitial(() -> false);
+
+	private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(
+			MAX_THREADS,
+			MAX_THREADS,
+			30, TimeUnit.SECONDS,
+			new LinkedBlockingQueue<>(),
+			new SimpleThreadFactory("Store resolver worker", "Store resolver workers group", Thread.NORM_PRIORITY)
+	);
+	private static final ThreadPoolExecutor BACKGROUND_EXECUTOR = new ThreadPoolExecutor(
+			MAX_THREADS,
+			MAX_THREADS,
+			30, TimeUnit.SECONDS,
+			new LinkedBlockingQueue<>(),
+			new SimpleThreadFactory("Store background resolver worker", "Store resolver workers group", Thread.MIN_PRIORITY)
+	);
+
+	static {
+		EXECUTOR.allowCoreThreadTimeOut(true);
+		BACKGROUND_EXECUTOR.allowCoreThreadTimeOut(true);
+		Runtime.getRuntime().addShutdownHook(new Thread("Store Resolver Shutdown Hook") {
+			@Override
+			public void run() {
+				BACKGROUND_EXECUTOR.shutdownNow();
+				EXECUTOR.shutdownNow();
+			}
+		});
+	}
+
+	private ParallelResolver() {
+		//should not be instantiated
+	}
+
+	/**
+	 * Applies {@code resolver} to every input, at most {@code limit} at
+	 * once.
+	 *
+	 * When called from a resolver thread (a folder discovered while resolving
+	 * another one), or with a limit of 1, the inputs are resolved one after
+	 * the other in the calling thread, so a full pool can't wait on itself.
+	 * Callers running below {@link Thread#NORM_PRIORITY} use the background
+	 * pool.
+	 *
+	 * The {@link DiscoveryCancellation} of the calling thread, if any, is
+	 * checked between inputs and carried to the resolver threads.
+	 *
+	 * @param <T> the input type.
+	 * @param <R> the result type.
+	 * @param inputs the inputs.
+	 * @param resolver the function to apply, which may return {@code null}.
+	 * @param limit the maximum number of inputs resolved at once.
+	 * @return the results in the order of the inputs. A failed input gives a
+	 *         {@code null} result.
+	 * @throws InterruptedException if the calling thread was interrupted. The
+	 *             inputs not resolved yet are cancelled.
+	 * @throws CancellationException if the request the discovery is done for
+	 *             was cancelled, e.g. because the client gave up. The inputs
+	 *             not resolved yet are cancelled.
+	 */
+	public static <T, R> List<R> resolve(List<T> inputs, Function<T, R> resolver, int limit) throws InterruptedException {
+		List<R> results = new ArrayList<>(inputs.size());
+		DiscoveryCancellation cancellation = DiscoveryCancellation.current();
+		ThreadPoolExecutor executor = Thread.currentThread().getPriority() < Thread.NORM_PRIORITY ? BACKGROUND_EXECUTOR : EXECUTOR;
+		if (limit <= 1 || inputs.size() <= 1 || IS_WORKER.get() || executor.isShutdown()) {
+			for (T input : inputs) {
+				checkCancelled(cancellation);
+				results.add(apply(resolver, input));
+			}
+			return results;
+		}
+
+		Semaphore permits = new Semaphore(limit);
+		List<Future<R>> futures = new ArrayList<>(inputs.size());
+		try {
+			for (T input : inputs) {
+				while (!permits.tryAcquire(POLL_INTERVAL, TimeUnit.MILLISECONDS)) {
+					checkCancelled(cancellation);
+				}
+				checkCancelled(cancellation);
+				futures.add(executor.submit(() -> {
+					IS_WORKER.set(true);
+					try {
+						if (cancellation == null) {
+							return apply(resolver, input);
+						}
+						return cancellation.isCancelled() ? null : cancellation.callAttached(() -> apply(resolver, input));
+					} finally {
+						IS_WORKER.set(false);
+						permits.release();
+					}
+				}));
+			}
+			for (Future<R> future : futures) {
+				results.add(getResult(future, cancellation));
+			}
+		} catch (InterruptedException | CancellationException e) {
+			for (Future<R> future : futures) {
+				future.cancel(true);
+			}
+			throw e;
+		}
+		return results;
+	}
+
+	private static <R> R getResult(Future<R> future, DiscoveryCancellation cancellation) throws InterruptedException {
+		while (true) {
+			checkCancelled(cancellation);
+			try {
+				return future.get(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+			} catch (TimeoutException e) {
+				// Check the cancellation again
+			} catch (ExecutionException e) {
+				// apply() catches everything, this is not expected
+				LOGGER.debug("Unexpected error while resolving: {}", e.getMessage());
+				return null;
+			}
+		}
+	}
+
+	private static void checkCancelled(DiscoveryCancellation cancellation) throws InterruptedException {
+		if (Thread.interrupted()) {
+			throw new InterruptedException();
+		}
+		if (cancellation != null && cancellation.isCancelled()) {
+			throw new CancellationException("Discovery cancelled for request " + cancellation);
+		}
+	}
+
+	private static <T, R> R apply(Function<T, R> resolver, T input) {
+		try {
+			return resolver.apply(input);
+		} catch (RuntimeException e) {
+			LOGGER.error("Error while resolving \"{}\": {}", input, e.getMessage());
+			LOGGER.trace("", e);
+			return null;
+		}
+	}
+
+}
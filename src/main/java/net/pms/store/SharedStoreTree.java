@@ -0,0 +1,407 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.store;
+
+import java.io.File;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import net.pms.configuration.UmsConfiguration;
+import net.pms.formats.Format;
+import net.pms.formats.FormatFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The renderer-independent part of the shared folders tree.
+ *
+ * Each renderer builds its own {@link StoreContainer} tree, but what is read
+ * from the disk is the same for all of them: the folder listings, which files
+ * are folder covers or thumbnails of a media file, whether a folder holds
+ * anything to show, and the format of the files. That is kept here once, as
+ * immutable {@link Folder} snapshots, and the renderer containers are views
+ * that only apply their own configuration (ignored folders, empty folders,
+ * archives, A-Z folders, naming) on top of them. The media information of the
+ * files is shared the same way by {@link MediaInfoStore}.
+ *
+ * A snapshot stays in memory as long as a renderer container uses it, and is
+ * read again from the disk once the folder was modified.
+ */
+public class SharedStoreTree {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(SharedStoreTree.class);
+	private static final Map<String, FolderReference> FOLDERS = new HashMap<>();
+	private static final ReferenceQueue<Folder> CLEARED = new ReferenceQueue<>();
+
+	private SharedStoreTree() {
+		//should not be instantiated
+	}
+
+	/**
+	 * Returns the snapshot of a folder, reading it from the disk if it is not
+	 * known yet or was modified since.
+	 *
+	 * @param directory the folder.
+	 * @return the snapshot, or {@code null} if the folder can't be listed.
+	 */
+	public static Folder getFolder(File directory) {
+		if (directory == null) {
+			return null;
+		}
+		String key = directory.getAbsolutePath();
+		long lastModified = directory.lastModified();
+		synchronized (FOLDERS) {
+			purge();
+			FolderReference reference = FOLDERS.get(key);
+			if (reference != null) {
+				Folder folder = reference.get();
+				if (folder != null && folder.lastModified == lastModified) {
+					return folder;
+				}
+				FOLDERS.remove(key);
+			}
+		}
+		// Read outside of the lock, two renderers reading the same folder at
+		// the same time is harmless
+		Folder folder = readFolder(directory, lastModified);
+		if (folder != null) {
+			synchronized (FOLDERS) {
+				FOLDERS.put(key, new FolderReference(key, folder));
+			}
+		}
+		return folder;
+	}
+
+	/**
+	 * Returns the format of a file, as found in the snapshot of its folder,
+	 * so that the resources of all renderers share the same instance. The
+	 * folder is not read from the disk if it has no snapshot.
+	 *
+	 * @param file the file.
+	 * @return the format, or {@code null} if the folder of the file has no
+	 * snapshot or the format is unknown.
+	 */
+	public static Format getFormat(File file) {
+		File directory = file.getAbsoluteFile().getParentFile();
+		if (directory == null) {
+			return null;
+		}
+		Folder folder;
+		synchronized (FOLDERS) {
+			FolderReference reference = FOLDERS.get(directory.getAbsolutePath());
+			folder = reference != null ? reference.get() : null;
+		}
+		return folder != null ? folder.getFormat(file) : null;
+	}
+
+	/**
+	 * Forgets what is known about a file or folder and its parent folder, for
+	 * file systems where the modification time is too coarse to notice every
+	 * change.
+	 *
+	 * @param file the file or folder that was added, removed or updated.
+	 */
+	public static void invalidate(File file) {
+		if (file == null) {
+			return;
+		}
+		synchronized (FOLDERS) {
+			FOLDERS.remove(file.getAbsolutePath());
+			File parent = file.getAbsoluteFile().getParentFile();
+			if (parent != null) {
+				FOLDERS.remove(parent.getAbsolutePath());
+			}
+		}
+	}
+
+	/**
+	 * Forgets every snapshot, they are read again when needed.
+	 */
+	public static void clear() {
+		synchronized (FOLDERS) {
+			FOLDERS.clear();
+		}
+	}
+
+	/**
+	 * @return the number of folders known, once the snapshots no longer used
+	 * are forgotten.
+	 */
+	static int size() {
+		synchronized (FOLDERS) {
+			purge();
+			return FOLDERS.size();
+		}
+	}
+
+	/**
+	 * Removes the entries of the snapshots that were garbage collected, must
+	 * be called while holding the lock on {@link #FOLDERS}.
+	 */
+	private static void purge() {
+		FolderReference reference;
+		while ((reference = (FolderReference) CLEARED.poll()) != null) {
+			FOLDERS.remove(reference.key, reference);
+		}
+	}
+
+	/**
+	 * A reference to a snapshot that knows its key, so that its entry can be
+	 * removed once the snapshot is garbage collected.
+	 */
+	private static class FolderReference extends WeakReference<Folder> {
+		private final String key;
+
+		private FolderReference(String key, Folder folder) {
+			super(folder, CLEARED);
+			this.key = key;
+		}
+	}
+
+	/**
+	 * Returns whether a folder or any of its subfolders holds something that
+	 * can be shown, the same way as
+	 * {@link net.pms.util.FileUtil#isFolderRelevant(File, UmsConfiguration)}
+	 * but from the shared snapshots.
+	 *
+	 * @param directory the folder.
+	 * @param configuration the renderer configuration.
+	 * @return {@code true} if empty folders are hidden and the folder is not
+	 * empty, {@code false} otherwise.
+	 */
+	public static boolean isFolderRelevant(File directory, UmsConfiguration configuration) {
+		if (!directory.isDirectory() || !configuration.isHideEmptyFolders()) {
+			return false;
+		}
+		return isFolderRelevant(directory, configuration.isArchiveBrowsing());
+	}
+
+	private static boolean isFolderRelevant(File directory, boolean archiveBrowsing) {
+		Folder folder = getFolder(directory);
+		if (folder == null) {
+			LOGGER.warn("Can't list files in non-readable directory: {}", directory.getAbsolutePath());
+			return false;
+		}
+		if (folder.hasMedia || (archiveBrowsing && folder.hasArchives)) {
+			return true;
+		}
+		for (File subdirectory : folder.subdirectories) {
+			if (isFolderRelevant(subdirectory, archiveBrowsing)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static Folder readFolder(File directory, long lastModified) {
+		File[] children = directory.listFiles();
+		if (children == null) {
+			return null;
+		}
+		List<File> entries = new ArrayList<>(children.length);
+		Set<File> entryDirectories = new HashSet<>();
+		List<File> subdirectories = new ArrayList<>();
+		Set<File> images = new HashSet<>();
+		List<File> audioVideo = new ArrayList<>();
+		Map<File, Format> formats = new HashMap<>();
+		File cover = null;
+		File folderThumbnail = null;
+		boolean hasMedia = false;
+		boolean hasArchives = false;
+		for (File child : children) {
+			String name = child.getName();
+			if (child.isDirectory()) {
+				subdirectories.add(child);
+				if (child.canRead()) {
+					entries.add(child);
+					entryDirectories.add(child);
+				} else {
+					LOGGER.trace("Ignoring '{}' because it is unreadable", child);
+				}
+				continue;
+			}
+			if (!child.isFile()) {
+				continue;
+			}
+			Format format = FormatFactory.getAssociatedFormat(name);
+			String lcName = name.toLowerCase(Locale.ROOT);
+			if (format != null || isRelevantFile(lcName)) {
+				hasMedia = true;
+			} else if (isArchive(lcName)) {
+				hasArchives = true;
+			}
+			if (folderThumbnail == null && (name.startsWith("folder.") || lcName.contains("albumart")) && SystemFilesHelper.isPotentialThumbnail(lcName)) {
+				folderThumbnail = child;
+			}
+			if (!child.canRead()) {
+				LOGGER.trace("Ignoring '{}' because it is unreadable", child);
+				continue;
+			}
+			if (!SystemFilesHelper.isPotentialMediaFile(name)) {
+				LOGGER.trace("Ignoring '{}' because it is not a media file", child);
+				continue;
+			}
+			boolean image = SystemFilesHelper.isPotentialThumbnail(name);
+			if (image) {
+				if (SystemFilesHelper.isFolderThumbnail(child, false)) {
+					cover = child;
+					continue;
+				}
+				images.add(child);
+			}
+			Format entryFormat = FormatFactory.getAssociatedFormat(child.getAbsolutePath());
+			if (entryFormat != null && !entryFormat.isUnknown()) {
+				// Unknown formats get the type of the resource, they are not shared
+				formats.put(child, entryFormat);
+				if (!image && (entryFormat.isAudio() || entryFormat.isVideo())) {
+					audioVideo.add(child);
+				}
+			}
+			entries.add(child);
+		}
+
+		// Images that are the thumbnails of a media file are not shown
+		if (!images.isEmpty() && !audioVideo.isEmpty()) {
+			Set<File> thumbnails = new HashSet<>();
+			for (File audioVideoFile : audioVideo) {
+				for (File potentialMatch : SystemFilesHelper.getPotentialFileThumbnails(audioVideoFile, false)) {
+					if (images.contains(potentialMatch)) {
+						thumbnails.add(potentialMatch);
+					}
+				}
+			}
+			if (!thumbnails.isEmpty()) {
+				entries.removeAll(thumbnails);
+				formats.keySet().removeAll(thumbnails);
+			}
+		}
+		return new Folder(directory, lastModified, entries, entryDirectories, subdirectories, formats, cover, folderThumbnail, hasMedia, hasArchives);
+	}
+
+	private static boolean isRelevantFile(String lcName) {
+		return lcName.endsWith(".iso") ||
+			lcName.endsWith(".img") ||
+			lcName.endsWith(".m3u") ||
+			lcName.endsWith(".m3u8") ||
+			lcName.endsWith(".pls") ||
+			lcName.endsWith(".cue");
+	}
+
+	private static boolean isArchive(String lcName) {
+		return lcName.endsWith(".zip") ||
+			lcName.endsWith(".cbz") ||
+			lcName.endsWith(".rar") ||
+			lcName.endsWith(".cbr");
+	}
+
+	/**
+	 * An immutable snapshot of a folder on the disk.
+	 */
+	public static final class Folder {
+		private final File directory;
+		private final long lastModified;
+		private final List<File> entries;
+		private final Set<File> entryDirectories;
+		private final List<File> subdirectories;
+		private final Map<File, Format> formats;
+		private final File cover;
+		private final File folderThumbnail;
+		private final boolean hasMedia;
+		private final boolean hasArchives;
+
+		private Folder(
+			File directory,
+			long lastModified,
+			List<File> entries,
+			Set<File> entryDirectories,
+			List<File> subdirectories,
+			Map<File, Format> formats,
+			File cover,
+			File folderThumbnail,
+			boolean hasMedia,
+			boolean hasArchives
+		) {
+			this.directory = directory;
+			this.lastModified = lastModified;
+			this.entries = Collections.unmodifiableList(entries);
+			this.entryDirectories = Collections.unmodifiableSet(entryDirectories);
+			this.subdirectories = Collections.unmodifiableList(subdirectories);
+			this.formats = formats;
+			this.cover = cover;
+			this.folderThumbnail = folderThumbnail;
+			this.hasMedia = hasMedia;
+			this.hasArchives = hasArchives;
+		}
+
+		public File getDirectory() {
+			return directory;
+		}
+
+		public long getLastModified() {
+			return lastModified;
+		}
+
+		/**
+		 * @return the readable subfolders and potential media files, in the
+		 * listing order, without the folder cover and the thumbnails of media
+		 * files.
+		 */
+		public List<File> getEntries() {
+			return entries;
+		}
+
+		/**
+		 * @param entry an entry of this folder.
+		 * @return whether the entry is a folder.
+		 */
+		public boolean isDirectory(File entry) {
+			return entryDirectories.contains(entry);
+		}
+
+		/**
+		 * @param entry an entry of this folder.
+		 * @return the format of the entry, or {@code null} if it is a folder
+		 * or its format is unknown.
+		 */
+		public Format getFormat(File entry) {
+			return formats.get(entry);
+		}
+
+		/**
+		 * @return the cover of the folder found among its files, or
+		 * {@code null}.
+		 */
+		public File getCover() {
+			return cover;
+		}
+
+		/**
+		 * @return the same file as
+		 * {@link SystemFilesHelper#getFolderThumbnail(File)}.
+		 */
+		public File getFolderThumbnail() {
+			return folderThumbnail;
+		}
+	}
+}
@@ -18,9 +18,14 @@ package net.pms.store;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.StringTokenizer;
+import java.util.concurrent.atomic.AtomicInteger;
 import net.pms.PMS;
 import net.pms.dlna.DLNAThumbnailInputStream;
 import net.pms.encoders.TranscodingSettings;
@@ -36,6 +41,7 @@ import net.pms.store.item.VirtualVideoActionLocalized;
 import net.pms.store.utils.StoreResourceSorter;
 import net.pms.util.FileUtil;
 import org.apache.commons.lang3.StringUtils;
+import org.jupnp.support.model.SortCriterion;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -47,6 +53,8 @@ public class StoreContainer extends StoreResource {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(StoreResource.class);
 	private static final int DEPTH_WARNING_LIMIT = 7;
+	private static final int MAX_SORTED_CHILDREN = 4;
+	private static final AtomicInteger SORT_GENERATION = new AtomicInteger();
 
 	protected String name;
 	protected String thumbnailIcon;
@@ -60,7 +68,20 @@ public class StoreContainer extends StoreResource {
 	 *
 	 * This is only valid when the StoreResource is of the container type.
 	 */
-	private final List<StoreResource> children = new ArrayList<>();
+	private final ChildrenList children = new ChildrenList();
+
+	/**
+	 * The state of the children when their order was last set, by the default
+	 * sort or the audio track sort.
+	 */
+	private ChildrenState childrenOrderState;
+
+	/**
+	 * The children listed to the renderer by sort criteria, valid as long as
+	 * the state of the children is {@link #sortedChildrenState}.
+	 */
+	private final Map<String, List<StoreResource>> sortedChildren = new HashMap<>();
+	private ChildrenState sortedChildrenState;
 
 	/**
 	 * The numerical ID (1-based index) assigned to the last child of this
@@ -459,9 +480,85 @@ public class StoreContainer extends StoreResource {
 	}
 
 	protected synchronized void sortChildrenIfNeeded() {
-		if (isChildrenSorted()) {
+		if (isChildrenSorted() && isChildrenOrderOutdated()) {
 			StoreResourceSorter.sortResourcesByDefault(children);
+			setChildrenOrdered();
+		}
+	}
+
+	/**
+	 * @return whether the children or the configuration changed since
+	 * {@link #setChildrenOrdered()} was last called.
+	 */
+	synchronized boolean isChildrenOrderOutdated() {
+		return !getChildrenState().equals(childrenOrderState);
+	}
+
+	/**
+	 * Records that the children are in their final order, so that they are
+	 * not sorted again on every browse until they change.
+	 */
+	synchronized void setChildrenOrdered() {
+		childrenOrderState = getChildrenState();
+	}
+
+	/**
+	 * Returns the children to list to the renderer, that is the containers and
+	 * the compatible items, sorted by the given criteria.
+	 *
+	 * The list is built once per sort criteria and kept until the children or
+	 * the configuration change, so that browsing a page only costs the size
+	 * of the page.
+	 *
+	 * @param sortCriteria the UPnP sort criteria, may be empty.
+	 * @return an unmodifiable list.
+	 */
+	public synchronized List<StoreResource> getSortedChildren(SortCriterion[] sortCriteria) {
+		ChildrenState state = getChildrenState();
+		if (!state.equals(sortedChildrenState)) {
+			sortedChildren.clear();
+			sortedChildrenState = state;
+		}
+		String key = sortCriteria != null ? Arrays.toString(sortCriteria) : "";
+		List<StoreResource> result = sortedChildren.get(key);
+		if (result == null) {
+			List<StoreResource> compatibleChildren = new ArrayList<>(children.size());
+			for (StoreResource child : children) {
+				if (child instanceof StoreContainer || (child instanceof StoreItem item && item.isCompatible())) {
+					compatibleChildren.add(child);
+				}
+			}
+			if (sortCriteria != null) {
+				StoreResourceSorter.sortResources(compatibleChildren, sortCriteria);
+			}
+			result = Collections.unmodifiableList(compatibleChildren);
+			if (sortedChildren.size() >= MAX_SORTED_CHILDREN) {
+				sortedChildren.clear();
+			}
+			sortedChildren.put(key, result);
 		}
+		return result;
+	}
+
+	/**
+	 * @return the state of the children: the version of the list, which
+	 * changes when this container is refreshed, the count of updates of the
+	 * children, which changes when the metadata of one of them is updated,
+	 * and the sort generation.
+	 *
+	 * Updates elsewhere in the store, which change the system update ID, don't
+	 * change the order of these children.
+	 */
+	private ChildrenState getChildrenState() {
+		return new ChildrenState(children.getVersion(), MediaStoreIds.getChildrenUpdateCount(getLongId()), SORT_GENERATION.get());
+	}
+
+	/**
+	 * Makes all the containers sort their children again, when a setting
+	 * used to sort or to filter them may have changed.
+	 */
+	public static void invalidateSortedChildren() {
+		SORT_GENERATION.incrementAndGet();
 	}
 
 	protected void refreshChildrenIfNeeded() {
@@ -833,4 +930,27 @@ public class StoreContainer extends StoreResource {
 		return result.toString();
 	}
 
+	private record ChildrenState(int version, int childrenUpdates, int generation) {
+	}
+
+	/**
+	 * The children list, with a version that changes on every modification.
+	 */
+	private static class ChildrenList extends ArrayList<StoreResource> {
+		private static final long serialVersionUID = 1L;
+
+		private int replaced;
+
+		@Override
+		public StoreResource set(int index, StoreResource element) {
+			// not a structural modification, iterators must not fail
+			replaced++;
+			return super.set(index, element);
+		}
+
+		private int getVersion() {
+			return modCount + replaced;
+		}
+	}
+
 }
@@ -20,8 +20,6 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.ArrayList;
@@ -30,6 +28,10 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.StringTokenizer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import net.pms.Messages;
 import net.pms.PMS;
 import net.pms.configuration.FormatConfiguration;
@@ -38,13 +40,17 @@ import net.pms.database.MediaDatabase;
 import net.pms.database.MediaTableSubtracks;
 import net.pms.dlna.DLNAThumbnail;
 import net.pms.dlna.DLNAThumbnailInputStream;
+import net.pms.dlna.DidlFragment;
 import net.pms.encoders.Engine;
 import net.pms.encoders.HlsHelper;
+import net.pms.encoders.TranscodeScheduler;
+import net.pms.encoders.TranscodeSessionManager;
 import net.pms.encoders.TranscodingSettings;
 import net.pms.formats.Format;
 import net.pms.formats.FormatFactory;
 import net.pms.image.BufferedImageFilterChain;
 import net.pms.image.ImagesUtil;
+import net.pms.io.FileChannelInputStream;
 import net.pms.io.OutputParams;
 import net.pms.io.ProcessWrapper;
 import net.pms.io.SizeLimitInputStream;
@@ -86,6 +92,7 @@ public abstract class StoreItem extends StoreResource {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(StoreItem.class);
 	private static final int STOP_PLAYING_DELAY = 4000;
+	private static final int FIRST_OUTPUT_TIMEOUT = 5000;
 	private static final double CONTAINER_OVERHEAD = 1.04;
 
 	/**
@@ -140,6 +147,11 @@ public abstract class StoreItem extends StoreResource {
 	private boolean hasSubtitles;
 	private boolean isExternalSubtitlesParsed;
 
+	/**
+	 * The last DIDL-Lite rendered for this item.
+	 */
+	private volatile DidlFragment didlFragment;
+
 	protected StoreItem(Renderer renderer) {
 		this(renderer, Format.UNKNOWN);
 	}
@@ -330,6 +342,17 @@ public abstract class StoreItem extends StoreResource {
 		this.mediaSubtitle = mediaSubtitle;
 	}
 
+	/**
+	 * @return the last DIDL-Lite rendered for this item, or {@code null}.
+	 */
+	public DidlFragment getDidlFragment() {
+		return didlFragment;
+	}
+
+	public void setDidlFragment(DidlFragment didlFragment) {
+		this.didlFragment = didlFragment;
+	}
+
 	/**
 	 * Determines whether this resource has external subtitles.
 	 *
@@ -838,21 +861,20 @@ public abstract class StoreItem extends StoreResource {
 
 		// Determine source of the stream
 		if (!isTranscoded() && !isResume()) {
-			// No transcoding
-			if (this instanceof IPushOutput iPushOutput) {
-				PipedOutputStream out = new PipedOutputStream();
-				InputStream fis = new PipedInputStream(out);
-				iPushOutput.push(out);
+			// No transcoding, archive entries stored without compression are
+			// also read straight from the archive file
+			InputStream fis = getInputStream();
 
-				if (low > 0) {
-					fis.skip(low);
+			if (fis instanceof FileChannelInputStream fileInput) {
+				// Position the file channel instead of wrapping the stream, so
+				// the range can be sent straight from the file
+				fileInput.setRange(low, high > low ? high : -1);
+				if (timeRange.getStartOrZero() > 0 && this instanceof RealFile realFile) {
+					fileInput.skip(MpegUtil.getPositionForTimeInMpeg(realFile.getFile(), (int) timeRange.getStartOrZero()));
 				}
-
-				return wrap(fis, high, low);
+				return fileInput;
 			}
 
-			InputStream fis = getInputStream();
-
 			if (fis != null) {
 				if (low > 0) {
 					fis.skip(low);
@@ -913,17 +935,15 @@ public abstract class StoreItem extends StoreResource {
 				lastTimeSeek = params.getTimeSeek();
 			}
 
-			externalProcess = getTranscodingSettings().getEngine().launchTranscode(this, mediaInfo, params);
-			if (params.getWaitBeforeStart() > 0) {
-				LOGGER.trace("Sleeping for {} milliseconds", params.getWaitBeforeStart());
-				try {
-					Thread.sleep(params.getWaitBeforeStart());
-				} catch (InterruptedException e) {
-					LOGGER.error(null, e);
-					Thread.currentThread().interrupt();
+			String sessionKey = TranscodeSessionManager.isSupported(params) ? TranscodeSessionManager.getKey(this, params) : null;
+			ProcessWrapper sharedProcess = sessionKey != null ? TranscodeSessionManager.join(this, sessionKey, low) : null;
+			if (sharedProcess != null) {
+				externalProcess = sharedProcess;
+			} else {
+				externalProcess = launchTranscode(params);
+				if (sessionKey != null) {
+					TranscodeSessionManager.register(this, sessionKey, externalProcess);
 				}
-
-				LOGGER.trace("Finished sleeping for " + params.getWaitBeforeStart() + " milliseconds");
 			}
 		} else if (params.getTimeSeek() > 0 && mediaInfo != null && mediaInfo.isMediaParsed() && mediaInfo.getDurationInSeconds() > 0) {
 
@@ -939,15 +959,15 @@ public abstract class StoreItem extends StoreResource {
 
 				params.setMinBufferSize(1);
 
-				new Thread(() -> externalProcess.stopProcess(), "External Process Stopper").start();
-
-				ProcessWrapper newExternalProcess = getTranscodingSettings().getEngine().launchTranscode(this, mediaInfo, params);
+				// The old process keeps running for the other items reading it
+				ProcessWrapper oldExternalProcess = externalProcess;
+				if (TranscodeSessionManager.release(this, oldExternalProcess)) {
+					new Thread(oldExternalProcess::stopProcess, "External Process Stopper").start();
+				}
 
-				try {
-					Thread.sleep(1000);
-				} catch (InterruptedException e) {
-					LOGGER.error(null, e);
-					Thread.currentThread().interrupt();
+				ProcessWrapper newExternalProcess = launchTranscode(params);
+				if (TranscodeSessionManager.isSupported(params)) {
+					TranscodeSessionManager.register(this, TranscodeSessionManager.getKey(this, params), newExternalProcess);
 				}
 
 				if (newExternalProcess == null) {
@@ -962,29 +982,17 @@ public abstract class StoreItem extends StoreResource {
 			return null;
 		}
 
-		InputStream is = null;
-		int timer = 0;
-		while (is == null && timer < 10) {
-			is = externalProcess.getInputStream(low);
-			timer++;
-			if (is == null) {
-				LOGGER.debug("External input stream instance is null... sounds not good, waiting 500ms");
-				try {
-					Thread.sleep(500);
-				} catch (InterruptedException e) {
-					Thread.currentThread().interrupt();
-				}
-			}
-		}
+		InputStream is = TranscodeSessionManager.getInputStream(externalProcess, getTranscodeInputStream(externalProcess, low, params.getWaitBeforeStart()));
 
 		// fail fast: don't leave a process running indefinitely if it's
 		// not producing output after params.waitbeforestart milliseconds + 5 seconds
 		// this cleans up lingering MEncoder web video transcode processes that hang
 		// instead of exiting
 		if (is == null && !externalProcess.isDestroyed()) {
+			ProcessWrapper hangingExternalProcess = externalProcess;
 			Runnable r = () -> {
 				LOGGER.error("External input stream instance is null... stopping process");
-				externalProcess.stopProcess();
+				hangingExternalProcess.stopProcess();
 			};
 
 			new Thread(r, "Hanging External Process Stopper").start();
@@ -993,6 +1001,85 @@ public abstract class StoreItem extends StoreResource {
 		return is;
 	}
 
+	/**
+	 * Launches the transcoding process once the scheduler admits it, and
+	 * records the time it takes to output its first bytes.
+	 */
+	private ProcessWrapper launchTranscode(OutputParams params) throws IOException {
+		Engine engine = getTranscodingSettings().getEngine();
+		long start = System.nanoTime();
+		// The HLS segments launched here last one segment each, while the
+		// long-running HLS segmenter is admitted by HlsSessionManager
+		TranscodeScheduler.Session session = null;
+		if (!params.isHlsConfigured()) {
+			session = TranscodeScheduler.admit(params);
+			if (session == null) {
+				return null;
+			}
+		}
+		ProcessWrapper process = null;
+		try {
+			process = engine.launchTranscode(this, mediaInfo, params);
+		} finally {
+			if (session != null) {
+				session.attach(process);
+			}
+		}
+		if (process != null && process.getFirstOutput() != null) {
+			process.getFirstOutput().thenAccept(output -> {
+				if (output) {
+					engine.recordTimeToFirstByte(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+				}
+			});
+		}
+		return process;
+	}
+
+	/**
+	 * Gets the output of a transcoding process as soon as it has some,
+	 * waiting at most {@code waitBeforeStart} milliseconds + 5 seconds.
+	 */
+	private static InputStream getTranscodeInputStream(ProcessWrapper process, long low, int waitBeforeStart) throws IOException {
+		long timeout = Math.max(waitBeforeStart, 0) + FIRST_OUTPUT_TIMEOUT;
+		CompletableFuture<Boolean> firstOutput = process.getFirstOutput();
+		if (firstOutput != null) {
+			try {
+				if (!firstOutput.get(timeout, TimeUnit.MILLISECONDS)) {
+					LOGGER.debug("External process ended before any output");
+				}
+			} catch (TimeoutException e) {
+				LOGGER.debug("External process has no output after {} ms", timeout);
+				return null;
+			} catch (ExecutionException e) {
+				LOGGER.debug("Error while waiting for the external process output: {}", e.getMessage());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return null;
+			}
+			return process.getInputStream(low);
+		}
+
+		// This process doesn't tell when it has output, poll it
+		InputStream is = null;
+		long deadline = System.currentTimeMillis() + timeout;
+		while (is == null) {
+			is = process.getInputStream(low);
+			if (is == null) {
+				if (System.currentTimeMillis() >= deadline) {
+					break;
+				}
+				LOGGER.debug("External input stream instance is null... sounds not good, waiting 100ms");
+				try {
+					Thread.sleep(100);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+			}
+		}
+		return is;
+	}
+
 	/**
 	 * Wrap an {@link InputStream} in a {@link SizeLimitInputStream} that sets a
 	 * limit to the maximum number of bytes to be read from the original input
@@ -0,0 +1,238 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.store;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import net.pms.database.MediaDatabase;
+import net.pms.database.MediaTableFiles;
+import net.pms.dlna.DLNAThumbnail;
+import net.pms.external.JavaHttpClient;
+import net.pms.media.MediaInfo;
+import net.pms.util.SimpleThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Replaces the thumbnail of videos with their localized TMDB poster in the
+ * background.
+ *
+ * Reading the media information from the database only queues the download
+ * and returns the current thumbnail. Once the poster is stored, the update
+ * IDs of the file are incremented so renderers fetch it again.
+ *
+ * Downloads are limited to {@link #MAX_THREADS} at once and
+ * {@link #MAX_QUEUED} waiting. Failed downloads are retried with a growing
+ * delay, then the poster is left alone for {@link #FAILED_DELAY}.
+ */
+public class ThumbnailLocalizer {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ThumbnailLocalizer.class);
+	private static final int MAX_THREADS = 2;
+	private static final int MAX_QUEUED = 500;
+	private static final int MAX_ATTEMPTS = 3;
+	private static final long RETRY_DELAY = TimeUnit.SECONDS.toMillis(10);
+	private static final long FAILED_DELAY = TimeUnit.HOURS.toMillis(1);
+
+	private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(
+			MAX_THREADS,
+			MAX_THREADS,
+			30, TimeUnit.SECONDS,
+			new ArrayBlockingQueue<>(MAX_QUEUED),
+			new SimpleThreadFactory("Thumbnail localizer worker", "Thumbnail localizer workers group", Thread.NORM_PRIORITY - 1)
+	);
+	private static final ScheduledThreadPoolExecutor RETRY_SCHEDULER = new ScheduledThreadPoolExecutor(
+			1,
+			new SimpleThreadFactory("Thumbnail localizer retry scheduler", "Thumbnail localizer workers group", Thread.NORM_PRIORITY - 1)
+	);
+
+	/**
+	 * The file IDs queued or being downloaded.
+	 */
+	private static final Set<Long> PENDING = new HashSet<>();
+
+	/**
+	 * The posters that failed to download, with the time to try them again.
+	 */
+	private static final Map<String, Long> FAILED = new HashMap<>();
+
+	static {
+		EXECUTOR.allowCoreThreadTimeOut(true);
+		RETRY_SCHEDULER.setKeepAliveTime(30, TimeUnit.SECONDS);
+		RETRY_SCHEDULER.allowCoreThreadTimeOut(true);
+		Runtime.getRuntime().addShutdownHook(new Thread("Thumbnail Localizer Shutdown Hook") {
+			@Override
+			public void run() {
+				RETRY_SCHEDULER.shutdownNow();
+				EXECUTOR.shutdownNow();
+			}
+		});
+	}
+
+	private ThumbnailLocalizer() {
+		//should not be instantiated
+	}
+
+	/**
+	 * Queues the download of the localized poster of a video, if its
+	 * thumbnail was not localized yet.
+	 *
+	 * @param filename the full path of the media.
+	 * @param media the media information, updated once the poster is
+	 *            stored.
+	 */
+	public static void localizeIfNeeded(String filename, MediaInfo media) {
+		if (media == null ||
+			media.getFileId() == null ||
+			media.getVideoMetadata() == null ||
+			media.getVideoMetadata().getPoster() == null ||
+			media.getThumbnailSource() == ThumbnailSource.TMDB_LOC
+		) {
+			return;
+		}
+		String poster = media.getVideoMetadata().getPoster();
+		synchronized (PENDING) {
+			Long retryTime = FAILED.get(poster);
+			if (retryTime != null) {
+				if (retryTime > System.currentTimeMillis()) {
+					return;
+				}
+				FAILED.remove(poster);
+			}
+			if (!PENDING.add(media.getFileId())) {
+				return;
+			}
+		}
+		submit(new Job(filename, media, poster));
+	}
+
+	/**
+	 * @return the number of posters queued or being downloaded.
+	 */
+	public static int getPendingCount() {
+		synchronized (PENDING) {
+			return PENDING.size();
+		}
+	}
+
+	private static void submit(Job job) {
+		try {
+			EXECUTOR.execute(job);
+		} catch (RejectedExecutionException e) {
+			// Too many waiting, it will be queued again on a later read
+			LOGGER.trace("Not localizing the thumbnail of \"{}\" now, the queue is full", job.filename);
+			done(job);
+		}
+	}
+
+	private static void done(Job job) {
+		synchronized (PENDING) {
+			PENDING.remove(job.media.getFileId());
+		}
+	}
+
+	private static void failed(Job job, IOException e) {
+		if (job.attempt < MAX_ATTEMPTS && !RETRY_SCHEDULER.isShutdown()) {
+			long delay = RETRY_DELAY << (job.attempt - 1);
+			LOGGER.debug("Error downloading poster \"{}\", retrying in {} seconds: {}", job.poster, delay / 1000, e.getMessage());
+			job.attempt++;
+			try {
+				RETRY_SCHEDULER.schedule(() -> submit(job), delay, TimeUnit.MILLISECONDS);
+				return;
+			} catch (RejectedExecutionException re) {
+				// shutting down
+			}
+		} else {
+			LOGGER.debug("Error downloading poster \"{}\", giving up: {}", job.poster, e.getMessage());
+		}
+		synchronized (PENDING) {
+			FAILED.put(job.poster, System.currentTimeMillis() + FAILED_DELAY);
+		}
+		done(job);
+	}
+
+	private static void localize(Job job) {
+		byte[] image;
+		try {
+			LOGGER.trace("Downloading poster from {}", job.poster);
+			image = JavaHttpClient.getBytes(job.poster);
+		} catch (IOException e) {
+			failed(job, e);
+			return;
+		}
+		try {
+			DLNAThumbnail thumbnail = JavaHttpClient.toThumbnail(job.poster, image);
+			if (thumbnail == null) {
+				synchronized (PENDING) {
+					FAILED.put(job.poster, System.currentTimeMillis() + FAILED_DELAY);
+				}
+				return;
+			}
+			Long thumbnailId = ThumbnailStore.getId(thumbnail);
+			if (thumbnailId == null) {
+				return;
+			}
+			Connection connection = null;
+			try {
+				connection = MediaDatabase.getConnectionIfAvailable();
+				if (connection != null) {
+					long fileId = job.media.getFileId();
+					MediaTableFiles.updateThumbnailId(connection, fileId, thumbnailId, ThumbnailSource.TMDB_LOC.toString());
+					boolean changed = !Objects.equals(thumbnailId, job.media.getThumbnailId());
+					job.media.setThumbnailId(thumbnailId);
+					job.media.setThumbnailSource(ThumbnailSource.TMDB_LOC);
+					if (changed) {
+						MediaStoreIds.incrementUpdateIdForFilename(connection, job.filename);
+					}
+				}
+			} finally {
+				MediaDatabase.close(connection);
+			}
+		} finally {
+			done(job);
+		}
+	}
+
+	private static class Job implements Runnable {
+		private final String filename;
+		private final MediaInfo media;
+		private final String poster;
+		private int attempt = 1;
+
+		private Job(String filename, MediaInfo media, String poster) {
+			this.filename = filename;
+			this.media = media;
+			this.poster = poster;
+		}
+
+		@Override
+		public void run() {
+			localize(this);
+		}
+	}
+
+}
@@ -27,6 +27,7 @@ import net.pms.database.MediaTableFiles;
 import net.pms.database.MediaTableTVSeries;
 import net.pms.database.MediaTableThumbnails;
 import net.pms.dlna.DLNAThumbnail;
+import net.pms.dlna.DLNAThumbnailCache;
 import net.pms.dlna.DLNAThumbnailInputStream;
 import net.pms.external.JavaHttpClient;
 
@@ -180,11 +181,13 @@ public class ThumbnailStore {
 	/**
 	 * Deletes all cached thumbnails, both from this in-memory store and from the database (also
 	 * clearing the references to them from the FILES and TV_SERIES tables), so thumbnails are
-	 * regenerated on demand.
+	 * regenerated on demand. The thumbnails transcoded from them for the
+	 * renderers are deleted as well.
 	 */
 	public static void deleteAll() {
 		synchronized (STORE) {
 			STORE.clear();
+			DLNAThumbnailCache.get().clear();
 			Connection connection = null;
 			try {
 				connection = MediaDatabase.getConnectionIfAvailable();
@@ -16,16 +16,12 @@
  */
 package net.pms.store.container;
 
-import com.github.junrar.Archive;
-import com.github.junrar.exception.RarException;
-import com.github.junrar.rarfile.FileHeader;
-import com.github.junrar.volume.FileVolumeManager;
 import java.io.File;
 import java.io.IOException;
-import java.util.List;
 import net.pms.renderers.Renderer;
 import net.pms.store.StoreContainer;
 import net.pms.store.item.RarredEntry;
+import net.pms.util.ArchiveEntryIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -67,30 +63,29 @@ public class RarredFolder extends StoreContainer {
 	@Override
 	public void discoverChildren() {
 		getChildren().clear();
-		try (Archive rarFile = new Archive(new FileVolumeManager(file), null, null)) {
-			List<FileHeader> headers = rarFile.getFileHeaders();
-			for (FileHeader fh : headers) {
-				if (fh.getFileName().equals(entryName) && fh.getCreationTime() != null) {
-					setLastModified(fh.getCreationTime().toMillis());
+		try {
+			for (ArchiveEntryIndex.Entry fh : ArchiveEntryIndex.get(file, ArchiveEntryIndex.Type.RAR).getEntries()) {
+				if (fh.name().equals(entryName) && fh.lastModified() != -1) {
+					setLastModified(fh.lastModified());
 				} else if (isDirectChild(fh)) {
-					if (fh.isDirectory()) {
-						addChild(new SevenZipFolder(renderer, file, fh.getFileName()));
+					if (fh.directory()) {
+						addChild(new SevenZipFolder(renderer, file, fh.name()));
 					} else {
-						RarredEntry child = new RarredEntry(renderer, file, fh.getFileName(), fh.getFullUnpackSize());
+						RarredEntry child = new RarredEntry(renderer, file, fh.name(), fh.size());
 						if (child.isValid()) {
 							addChild(child);
 						}
 					}
 				}
 			}
-		} catch (RarException | IOException e) {
+		} catch (IOException e) {
 			LOGGER.error("Error reading archive file", e);
 		}
 	}
 
-	private boolean isDirectChild(FileHeader fh) {
-		if (fh.getFileName().startsWith(entryName)) {
-			String childName = fh.getFileName().substring(entryName.length() + 1);
+	private boolean isDirectChild(ArchiveEntryIndex.Entry fh) {
+		if (fh.name().startsWith(entryName)) {
+			String childName = fh.name().substring(entryName.length() + 1);
 			return !childName.contains("/") && !childName.contains("\\");
 		}
 		return false;
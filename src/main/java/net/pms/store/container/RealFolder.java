@@ -24,7 +24,7 @@ import net.pms.dlna.DLNAThumbnailInputStream;
 import net.pms.platform.PlatformUtils;
 import net.pms.renderers.Renderer;
 import net.pms.store.SystemFileResource;
-import net.pms.store.SystemFilesHelper;
+import net.pms.store.SharedStoreTree;
 import net.pms.util.ProcessUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -69,7 +69,8 @@ public class RealFolder extends VirtualFolder implements SystemFileResource {
 
 	@Override
 	public DLNAThumbnailInputStream getThumbnailInputStream() throws IOException {
-		File cachedThumbnail = SystemFilesHelper.getFolderThumbnail(directory);
+		SharedStoreTree.Folder folder = SharedStoreTree.getFolder(directory);
+		File cachedThumbnail = folder != null ? folder.getFolderThumbnail() : null;
 
 		DLNAThumbnailInputStream result = null;
 		try {
@@ -18,16 +18,10 @@ package net.pms.store.container;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import net.pms.renderers.Renderer;
 import net.pms.store.StoreContainer;
 import net.pms.store.item.SevenZipEntry;
-import net.sf.sevenzipjbinding.IInArchive;
-import net.sf.sevenzipjbinding.SevenZip;
-import net.sf.sevenzipjbinding.SevenZipException;
-import net.sf.sevenzipjbinding.impl.RandomAccessFileInStream;
-import net.sf.sevenzipjbinding.simple.ISimpleInArchive;
-import net.sf.sevenzipjbinding.simple.ISimpleInArchiveItem;
+import net.pms.util.ArchiveEntryIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -69,16 +63,15 @@ public class SevenZipFolder extends StoreContainer {
 	@Override
 	public void discoverChildren() {
 		getChildren().clear();
-		try (RandomAccessFile rf = new RandomAccessFile(file, "r"); IInArchive arc = SevenZip.openInArchive(null, new RandomAccessFileInStream(rf))) {
-			ISimpleInArchive simpleInArchive = arc.getSimpleInterface();
-			for (ISimpleInArchiveItem item : simpleInArchive.getArchiveItems()) {
-				if (item.getPath().equals(entryName) && item.getCreationTime() != null) {
-					setLastModified(item.getCreationTime().getTime());
+		try {
+			for (ArchiveEntryIndex.Entry item : ArchiveEntryIndex.get(file, ArchiveEntryIndex.Type.SEVEN_ZIP).getEntries()) {
+				if (item.name().equals(entryName) && item.lastModified() != -1) {
+					setLastModified(item.lastModified());
 				} else if (isDirectChild(item)) {
-					if (item.isFolder()) {
-						addChild(new SevenZipFolder(renderer, file, item.getPath()));
+					if (item.directory()) {
+						addChild(new SevenZipFolder(renderer, file, item.name()));
 					} else {
-						SevenZipEntry child = new SevenZipEntry(renderer, file, item.getPath(), item.getSize());
+						SevenZipEntry child = new SevenZipEntry(renderer, file, item.name(), item.size());
 						if (child.isValid()) {
 							addChild(child);
 						}
@@ -90,9 +83,9 @@ public class SevenZipFolder extends StoreContainer {
 		}
 	}
 
-	private boolean isDirectChild(ISimpleInArchiveItem item) throws SevenZipException {
-		if (item.getPath().startsWith(entryName)) {
-			String childName = item.getPath().substring(entryName.length() + 1);
+	private boolean isDirectChild(ArchiveEntryIndex.Entry item) {
+		if (item.name().startsWith(entryName)) {
+			String childName = item.name().substring(entryName.length() + 1);
 			return !childName.contains("/") && !childName.contains("\\");
 		}
 		return false;
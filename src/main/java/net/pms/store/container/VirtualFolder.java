@@ -17,17 +17,21 @@
 package net.pms.store.container;
 
 import java.io.File;
+import java.lang.ref.Reference;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.CancellationException;
 import net.pms.configuration.sharedcontent.VirtualFolderContent;
-import net.pms.formats.Format;
-import net.pms.formats.FormatFactory;
+import net.pms.media.MediaInfo;
 import net.pms.renderers.Renderer;
 import net.pms.store.FileSearch;
+import net.pms.store.MediaInfoStore;
+import net.pms.store.ParallelResolver;
+import net.pms.store.SharedStoreTree;
 import net.pms.store.StoreContainer;
+import net.pms.store.StoreItem;
 import net.pms.store.StoreResource;
 import net.pms.store.SystemFileResource;
-import net.pms.store.SystemFilesHelper;
 import net.pms.store.item.RealFile;
 import net.pms.store.utils.StoreResourceSorter;
 import net.pms.util.FileUtil;
@@ -49,6 +53,7 @@ public class VirtualFolder extends StoreContainer {
 	private boolean addToMediaLibrary = true;
 	private ArrayList<StoreResource> searchList;
 	private File potentialCover;
+	private List<SharedStoreTree.Folder> sharedFolders = new ArrayList<>();
 
 	public VirtualFolder(Renderer renderer) {
 		super(renderer, null, null);
@@ -92,8 +97,20 @@ public class VirtualFolder extends StoreContainer {
 		files.add(file);
 	}
 
-	private void manageFile(File f) {
+	/**
+	 * Creates the resource of a file and resolves it, which may parse the
+	 * file, without adding it yet.
+	 */
+	private StoreResource createResolvedResource(File f) {
 		StoreResource res = renderer.getMediaStore().createResourceFromFile(f);
+		if (res instanceof StoreItem) {
+			res.setParent(this);
+			res.resolve();
+		}
+		return res;
+	}
+
+	private void manageFile(File f, StoreResource res) {
 		if (res != null) {
 			if (res instanceof RealFile realfile) {
 				//we need to propagate the flag in order to make all hierarchy stay outside the media library if needed
@@ -110,7 +127,7 @@ public class VirtualFolder extends StoreContainer {
 				}
 			}
 			addChild(res, true, true);
-		} else if (f.isDirectory() && renderer.getUmsConfiguration().isHideEmptyFolders() && !FileUtil.isFolderRelevant(f, renderer.getUmsConfiguration())) {
+		} else if (f.isDirectory() && renderer.getUmsConfiguration().isHideEmptyFolders() && !SharedStoreTree.isFolderRelevant(f, renderer.getUmsConfiguration())) {
 			// Keep track of the fact that we have empty folders, so when we're asked if we should refresh,
 			// we can re-scan the folders in this list to see if they contain something relevant
 			if (emptyFoldersToRescan == null) {
@@ -158,39 +175,17 @@ public class VirtualFolder extends StoreContainer {
 	}
 
 	private void collectFilesFromDirectory(File directory, List<String> ignoredDirectoryNames, List<File> out) {
-		if (!directory.canRead()) {
-			LOGGER.warn("Can't read directory: {}", directory.getAbsolutePath());
+		SharedStoreTree.Folder folder = getSharedFolder(directory);
+		if (folder == null) {
 			return;
 		}
-		File[] listFiles = directory.listFiles((File file) -> {
-			// Reject any non readable
-			if (!file.canRead()) {
-				LOGGER.trace("Ignoring '{}' because it is unreadable", file);
-				return false;
-			}
-			String filename = file.getName();
-			// Accept any directory
-			if (file.isDirectory()) {
-				// Skip if ignored
-				boolean ignored = (!ignoredDirectoryNames.isEmpty() && ignoredDirectoryNames.contains(filename));
-				if (ignored) {
-					LOGGER.debug("Ignoring '{}' because it is in the ignored directories list", file);
-				}
-				return !ignored;
-			}
-
-			// We want to find only media files
-			boolean isMediaFile = SystemFilesHelper.isPotentialMediaFile(filename);
-			if (!isMediaFile) {
-				LOGGER.trace("Ignoring '{}' because it is not a media file", file);
+		for (File file : folder.getEntries()) {
+			// Skip if ignored
+			if (folder.isDirectory(file) && !ignoredDirectoryNames.isEmpty() && ignoredDirectoryNames.contains(file.getName())) {
+				LOGGER.debug("Ignoring '{}' because it is in the ignored directories list", file);
+				continue;
 			}
-			return isMediaFile;
-		});
-
-		if (listFiles == null) {
-			LOGGER.debug("I/O error listing files in directory: {}", directory.getAbsolutePath());
-		} else {
-			out.addAll(Arrays.asList(listFiles));
+			out.add(file);
 		}
 	}
 
@@ -199,35 +194,44 @@ public class VirtualFolder extends StoreContainer {
 	 * subdirectories from the output. Used when "flatten folders" is enabled.
 	 */
 	private void collectFilesRecursively(File directory, List<String> ignoredDirectoryNames, List<File> out) {
-		if (!directory.canRead()) {
-			LOGGER.warn("Can't read directory: {}", directory.getAbsolutePath());
-			return;
-		}
-		File[] listFiles = directory.listFiles();
-		if (listFiles == null) {
-			LOGGER.debug("I/O error listing files in directory: {}", directory.getAbsolutePath());
+		SharedStoreTree.Folder folder = getSharedFolder(directory);
+		if (folder == null) {
 			return;
 		}
-		for (File file : listFiles) {
-			if (!file.canRead()) {
-				LOGGER.trace("Ignoring '{}' because it is unreadable", file);
-				continue;
-			}
-			if (file.isDirectory()) {
-				String filename = file.getName();
-				if (!ignoredDirectoryNames.isEmpty() && ignoredDirectoryNames.contains(filename)) {
+		for (File file : folder.getEntries()) {
+			if (folder.isDirectory(file)) {
+				if (!ignoredDirectoryNames.isEmpty() && ignoredDirectoryNames.contains(file.getName())) {
 					LOGGER.debug("Ignoring '{}' because it is in the ignored directories list", file);
 					continue;
 				}
 				collectFilesRecursively(file, ignoredDirectoryNames, out);
-			} else if (SystemFilesHelper.isPotentialMediaFile(file.getName())) {
-				out.add(file);
 			} else {
-				LOGGER.trace("Ignoring '{}' because it is not a media file", file);
+				out.add(file);
 			}
 		}
 	}
 
+	/**
+	 * Returns the shared snapshot of a directory, and keeps it for as long as
+	 * this folder shows it.
+	 */
+	private SharedStoreTree.Folder getSharedFolder(File directory) {
+		if (!directory.canRead()) {
+			LOGGER.warn("Can't read directory: {}", directory.getAbsolutePath());
+			return null;
+		}
+		SharedStoreTree.Folder folder = SharedStoreTree.getFolder(directory);
+		if (folder == null) {
+			LOGGER.debug("I/O error listing files in directory: {}", directory.getAbsolutePath());
+			return null;
+		}
+		sharedFolders.add(folder);
+		if (folder.getCover() != null) {
+			potentialCover = folder.getCover();
+		}
+		return folder;
+	}
+
 	private boolean analyzeChildren() {
 		FileSearch fs = null;
 		if (!discoverable.isEmpty() && renderer.getUmsConfiguration().getSearchInFolder()) {
@@ -239,8 +243,25 @@ public class VirtualFolder extends StoreContainer {
 			StoreContainer parent = getSharedContentParent(virtualFolder.getParent());
 			parent.addChild(new VirtualFolder(renderer, virtualFolder), true, true);
 		}
-		while (!discoverable.isEmpty()) {
-			manageFile(discoverable.remove(0));
+		List<File> files = new ArrayList<>(discoverable);
+		List<StoreResource> resources;
+		try {
+			resources = ParallelResolver.resolve(files, this::createResolvedResource, renderer.getUmsConfiguration().getFolderResolveThreads());
+		} catch (InterruptedException e) {
+			LOGGER.debug("Discovery of \"{}\" was interrupted", getName());
+			Thread.currentThread().interrupt();
+			// Start over on the next browse
+			discoverable = null;
+			return false;
+		} catch (CancellationException e) {
+			LOGGER.debug("Discovery of \"{}\" was cancelled: {}", getName(), e.getMessage());
+			// Start over on the next browse
+			discoverable = null;
+			return false;
+		}
+		discoverable.clear();
+		for (int i = 0; i < files.size(); i++) {
+			manageFile(files.get(i), resources.get(i));
 		}
 		if (fs != null) {
 			fs.update(searchList);
@@ -257,47 +278,10 @@ public class VirtualFolder extends StoreContainer {
 		}
 
 		getChildren().clear();
+		// Covers and thumbnails of media files are already left out
+		sharedFolders = new ArrayList<>();
 		List<File> childrenFiles = getFilesListForDirectories();
 
-		// Build a map of all files and their corresponding formats
-		Set<File> images = new HashSet<>();
-		Set<File> audioVideo = new HashSet<>();
-		Iterator<File> iterator = childrenFiles.iterator();
-		while (iterator.hasNext()) {
-			File file = iterator.next();
-			if (file.isFile()) {
-				if (SystemFilesHelper.isPotentialThumbnail(file.getName())) {
-					if (SystemFilesHelper.isFolderThumbnail(file, false)) {
-						potentialCover = file;
-						iterator.remove();
-					} else {
-						images.add(file);
-					}
-				} else {
-					Format format = FormatFactory.getAssociatedFormat(file.getAbsolutePath());
-					if (format != null && (format.isAudio() || format.isVideo())) {
-						audioVideo.add(file);
-					}
-				}
-			}
-		}
-
-		// Remove cover/thumbnails from file list
-		if (!images.isEmpty() && !audioVideo.isEmpty()) {
-			Set<File> potentialMatches;
-			for (File audioVideoFile : audioVideo) {
-				potentialMatches = SystemFilesHelper.getPotentialFileThumbnails(audioVideoFile, false);
-				iterator = images.iterator();
-				while (iterator.hasNext()) {
-					File imageFile = iterator.next();
-					if (potentialMatches.contains(imageFile)) {
-						iterator.remove();
-						childrenFiles.remove(imageFile);
-					}
-				}
-			}
-		}
-
 		// ATZ handling
 		if (childrenFiles.size() > renderer.getUmsConfiguration().getATZLimit() && StringUtils.isEmpty(forcedName)) {
 			/*
@@ -313,7 +297,7 @@ public class VirtualFolder extends StoreContainer {
 					// skip these
 					continue;
 				}
-				if (f.isDirectory() && renderer.getUmsConfiguration().isHideEmptyFolders() && !FileUtil.isFolderRelevant(f, renderer.getUmsConfiguration())) {
+				if (f.isDirectory() && renderer.getUmsConfiguration().isHideEmptyFolders() && !SharedStoreTree.isFolderRelevant(f, renderer.getUmsConfiguration())) {
 					LOGGER.debug("Ignoring empty/non-relevant directory: " + f.getName());
 					// Keep track of the fact that we have empty folders, so when we're asked if we should refresh,
 					// we can re-scan the folders in this list to see if they contain something relevant
@@ -360,12 +344,17 @@ public class VirtualFolder extends StoreContainer {
 			}
 		}
 
+		List<File> files = new ArrayList<>();
 		for (File f : childrenFiles) {
 			if (f.isFile()) {
 				discoverable.add(f);
+				files.add(f);
 			}
 		}
+		// Hydrate the stored media information of the whole folder at once
+		List<MediaInfo> preloaded = MediaInfoStore.preload(files);
 		setDiscovered(analyzeChildren());
+		Reference.reachabilityFence(preloaded);
 		sortChildrenIfNeeded();
 		setLastRefreshTime(System.currentTimeMillis());
 	}
@@ -400,7 +389,7 @@ public class VirtualFolder extends StoreContainer {
 		boolean emptyFolderNowNotEmpty = false;
 		if (emptyFoldersToRescan != null) {
 			for (File emptyFile : emptyFoldersToRescan) {
-				if (FileUtil.isFolderRelevant(emptyFile, renderer.getUmsConfiguration())) {
+				if (SharedStoreTree.isFolderRelevant(emptyFile, renderer.getUmsConfiguration())) {
 					emptyFolderNowNotEmpty = true;
 					break;
 				}
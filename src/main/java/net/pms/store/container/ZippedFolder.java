@@ -18,13 +18,10 @@ package net.pms.store.container;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.Enumeration;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipException;
-import java.util.zip.ZipFile;
 import net.pms.renderers.Renderer;
 import net.pms.store.StoreContainer;
 import net.pms.store.item.ZippedEntry;
+import net.pms.util.ArchiveEntryIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -65,34 +62,30 @@ public class ZippedFolder extends StoreContainer {
 	@Override
 	public void discoverChildren() {
 		getChildren().clear();
-		try (ZipFile zip = new ZipFile(file)) {
-			Enumeration<? extends ZipEntry> enm = zip.entries();
-			while (enm.hasMoreElements()) {
-				ZipEntry entry = enm.nextElement();
-				if (entry.getName().equals(entryName)) {
-					setLastModified(entry.getTime());
+		try {
+			for (ArchiveEntryIndex.Entry entry : ArchiveEntryIndex.get(file, ArchiveEntryIndex.Type.ZIP).getEntries()) {
+				if (entry.name().equals(entryName)) {
+					setLastModified(entry.lastModified());
 				} else if (isDirectChild(entry)) {
-					if (entry.isDirectory()) {
-						addChild(new ZippedFolder(renderer, file, entry.getName()));
+					if (entry.directory()) {
+						addChild(new ZippedFolder(renderer, file, entry.name()));
 					} else {
-						ZippedEntry child = new ZippedEntry(renderer, file, entry.getName(), entry.getSize());
+						ZippedEntry child = new ZippedEntry(renderer, file, entry.name(), entry.size());
 						if (child.isValid()) {
 							addChild(child);
 						}
 					}
 				}
 			}
-		} catch (ZipException e) {
-			LOGGER.error("Error reading zip file", e);
 		} catch (IOException e) {
 			LOGGER.error("Error reading zip file", e);
 		}
 	}
 
-	private boolean isDirectChild(ZipEntry entry) {
-		if (entry.getName().startsWith(entryName)) {
-			String childName = entry.getName().substring(entryName.length());
-			if (entry.isDirectory()) {
+	private boolean isDirectChild(ArchiveEntryIndex.Entry entry) {
+		if (entry.name().startsWith(entryName)) {
+			String childName = entry.name().substring(entryName.length());
+			if (entry.directory()) {
 				childName = childName.substring(0, childName.length() - 1);
 			}
 			return !childName.contains("/");
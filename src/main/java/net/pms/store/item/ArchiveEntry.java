@@ -18,25 +18,34 @@ package net.pms.store.item;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import net.pms.dlna.DLNAThumbnailInputStream;
 import net.pms.formats.Format;
 import net.pms.media.MediaInfo;
 import net.pms.parsers.Parser;
 import net.pms.renderers.Renderer;
 import net.pms.store.StoreItem;
+import net.pms.util.ArchiveEntryIndex;
+import net.pms.util.ArchiveFileInputStream;
 import net.pms.util.IPushOutput;
 import net.pms.util.InputFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 abstract class ArchiveEntry extends StoreItem implements IPushOutput {
 
+	private static final Logger LOGGER = LoggerFactory.getLogger(ArchiveEntry.class);
+
 	protected final File file;
+	protected final ArchiveEntryIndex.Type type;
 	protected final String entryName;
 	protected final long length;
 	protected final String name;
 
-	protected ArchiveEntry(Renderer renderer, File file, String entryName, long length) {
+	protected ArchiveEntry(Renderer renderer, File file, ArchiveEntryIndex.Type type, String entryName, long length) {
 		super(renderer);
 		this.file = file;
+		this.type = type;
 		this.entryName = entryName;
 		this.length = length;
 		this.name = getName(entryName);
@@ -67,9 +76,28 @@ abstract class ArchiveEntry extends StoreItem implements IPushOutput {
 		return getFormat() != null;
 	}
 
+	@Override
+	public void push(final OutputStream out) throws IOException {
+		ArchiveFileInputStream.pushEntry(file, type, entryName, out);
+	}
+
 	@Override
 	public boolean isUnderlyingSeekSupported() {
-		return length() < MAX_ARCHIVE_SIZE_SEEK;
+		// Stored entries are read straight from the archive file, at any size
+		return isStored() || length() < MAX_ARCHIVE_SIZE_SEEK;
+	}
+
+	/**
+	 * @return Whether the entry is stored without compression in the archive.
+	 */
+	private boolean isStored() {
+		try {
+			ArchiveEntryIndex.Entry entry = ArchiveEntryIndex.get(file, type).getEntry(entryName);
+			return entry != null && entry.isStored();
+		} catch (IOException e) {
+			LOGGER.debug("Could not read the index of \"{}\": {}", file, e.getMessage());
+			return false;
+		}
 	}
 
 	@Override
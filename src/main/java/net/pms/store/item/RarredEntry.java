@@ -16,26 +16,17 @@
  */
 package net.pms.store.item;
 
-import com.github.junrar.Archive;
-import com.github.junrar.exception.RarException;
-import com.github.junrar.rarfile.FileHeader;
-import com.github.junrar.volume.FileVolumeManager;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import net.pms.renderers.Renderer;
+import net.pms.util.ArchiveEntryIndex;
 import net.pms.util.ArchiveFileInputStream;
-import net.pms.util.IPushOutput;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
-public class RarredEntry extends ArchiveEntry implements IPushOutput {
-
-	private static final Logger LOGGER = LoggerFactory.getLogger(RarredEntry.class);
+public class RarredEntry extends ArchiveEntry {
 
 	public RarredEntry(Renderer renderer, File file, String entryName, long length) {
-		super(renderer, file, entryName, length);
+		super(renderer, file, ArchiveEntryIndex.Type.RAR, entryName, length);
 	}
 
 	@Override
@@ -43,33 +34,4 @@ public class RarredEntry extends ArchiveEntry implements IPushOutput {
 		return ArchiveFileInputStream.getRarEntryInputStream(file, entryName);
 	}
 
-	@Override
-	public void push(final OutputStream out) throws IOException {
-		Runnable r = () -> {
-			try (Archive rarFile = new Archive(new FileVolumeManager(file), null, null)) {
-				FileHeader header = null;
-				for (FileHeader fh : rarFile.getFileHeaders()) {
-					if (fh.getFileName().equals(entryName)) {
-						header = fh;
-						break;
-					}
-				}
-				if (header != null) {
-					LOGGER.trace("Starting the extraction of " + header.getFileName());
-					rarFile.extractFile(header, out);
-				}
-			} catch (RarException | IOException e) {
-				LOGGER.debug("Unpack error, maybe it's normal, as backend can be terminated: " + e.getMessage());
-			} finally {
-				try {
-					out.close();
-				} catch (IOException e) {
-					LOGGER.debug("Caught exception", e);
-				}
-			}
-		};
-
-		new Thread(r, "Rar Extractor").start();
-	}
-
 }
@@ -20,7 +20,6 @@ import com.sun.jna.Platform;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
@@ -31,6 +30,7 @@ import net.pms.dlna.DLNAImageProfile;
 import net.pms.dlna.DLNAThumbnailInputStream;
 import net.pms.formats.Format;
 import net.pms.formats.FormatFactory;
+import net.pms.io.FileChannelInputStream;
 import net.pms.media.MediaLang;
 import net.pms.media.MediaType;
 import net.pms.media.video.metadata.MediaVideoMetadata;
@@ -40,6 +40,7 @@ import net.pms.platform.PlatformUtils;
 import net.pms.renderers.Renderer;
 import net.pms.store.MediaInfoStore;
 import net.pms.store.MediaStatusStore;
+import net.pms.store.SharedStoreTree;
 import net.pms.store.StoreItem;
 import net.pms.store.SystemFileResource;
 import net.pms.store.SystemFilesHelper;
@@ -171,8 +172,8 @@ public class RealFile extends StoreItem implements SystemFileResource {
 	@Override
 	public InputStream getInputStream() {
 		try {
-			return new FileInputStream(getFile());
-		} catch (FileNotFoundException e) {
+			return new FileChannelInputStream(getFile());
+		} catch (IOException e) {
 			LOGGER.debug("File not found: {}", getFile().getAbsolutePath());
 		}
 
@@ -196,7 +197,9 @@ public class RealFile extends StoreItem implements SystemFileResource {
 	@Override
 	public void resolveFormat() {
 		if (getFormat() == null) {
-			setFormat(FormatFactory.getAssociatedFormat(getFile().getAbsolutePath()));
+			// The format of a file of a shared folder is the same for all renderers
+			Format format = SharedStoreTree.getFormat(getFile());
+			setFormat(format != null ? format : FormatFactory.getAssociatedFormat(getFile().getAbsolutePath()));
 		}
 
 		super.resolveFormat();
@@ -22,7 +22,6 @@ import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.text.Normalizer;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
@@ -67,9 +66,10 @@ public class StoreResourceSorter {
 	}
 
 	public static void sortResources(List<StoreResource> resources, SortCriterion[] sortCriterions, String lang) {
-		Collections.reverse(Arrays.asList(sortCriterions));
-		List<SortCriterion> sortCriterionsList = List.of(sortCriterions);
-		for (SortCriterion sortCriterion : sortCriterionsList) {
+		// stable sorts from the last criterion to the first, without reversing
+		// the array of the caller
+		for (int i = sortCriterions.length - 1; i >= 0; i--) {
+			SortCriterion sortCriterion = sortCriterions[i];
 			switch (sortCriterion.getPropertyName()) {
 				case "dc:title" -> {
 					sortResourcesByTitle(resources, true, lang);
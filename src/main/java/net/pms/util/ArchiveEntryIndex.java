@@ -0,0 +1,348 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.util;
+
+import com.github.junrar.Archive;
+import com.github.junrar.exception.RarException;
+import com.github.junrar.rarfile.FileHeader;
+import com.github.junrar.volume.FileVolumeManager;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import net.sf.sevenzipjbinding.IInArchive;
+import net.sf.sevenzipjbinding.SevenZip;
+import net.sf.sevenzipjbinding.impl.RandomAccessFileInStream;
+import net.sf.sevenzipjbinding.simple.ISimpleInArchiveItem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The entries of an archive file, read once and kept until the archive
+ * changes.
+ *
+ * Browsing the folders of an archive and opening its entries look the entries
+ * up here instead of reading all the headers of the archive each time. The
+ * entries that are stored without compression also keep the position of their
+ * data in the archive, so they can be read from any position.
+ */
+public class ArchiveEntryIndex {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ArchiveEntryIndex.class);
+	private static final int MAX_INDEXES = 16;
+	private static final Map<String, ArchiveEntryIndex> INDEXES = new LinkedHashMap<>(16, 0.75f, true);
+
+	private static final int ZIP_LOCAL_HEADER = 0x04034b50;
+	private static final int ZIP_CENTRAL_HEADER = 0x02014b50;
+	private static final int ZIP_END_HEADER = 0x06054b50;
+	private static final int ZIP64_END_LOCATOR = 0x07064b50;
+	private static final int ZIP64_END_HEADER = 0x06064b50;
+	private static final int ZIP_END_SIZE = 22;
+	private static final byte RAR_STORED = 0x30;
+
+	/**
+	 * The archive formats.
+	 */
+	public enum Type {
+		ZIP, SEVEN_ZIP, RAR
+	}
+
+	/**
+	 * An entry of an archive.
+	 *
+	 * @param name the path of the entry in the archive.
+	 * @param directory whether the entry is a directory.
+	 * @param size the uncompressed size of the entry.
+	 * @param lastModified the time of the entry, or {@code -1} if unknown.
+	 * @param index the position of the entry in the archive.
+	 * @param dataOffset the position of the data of a stored entry in the
+	 *            archive file, or {@code -1} if the entry is compressed.
+	 */
+	public record Entry(String name, boolean directory, long size, long lastModified, int index, long dataOffset) {
+
+		/**
+		 * @return Whether the data of this entry can be read straight from
+		 *         the archive file.
+		 */
+		public boolean isStored() {
+			return dataOffset >= 0;
+		}
+
+	}
+
+	private final String key;
+	private final List<Entry> entries;
+	private final Map<String, Entry> entriesByName;
+
+	private ArchiveEntryIndex(String key, List<Entry> entries) {
+		this.key = key;
+		this.entries = Collections.unmodifiableList(entries);
+		this.entriesByName = new HashMap<>(entries.size() * 2);
+		for (Entry entry : entries) {
+			entriesByName.putIfAbsent(entry.name(), entry);
+		}
+	}
+
+	/**
+	 * @return All the entries, in the order of the archive.
+	 */
+	public List<Entry> getEntries() {
+		return entries;
+	}
+
+	/**
+	 * @param name the path of the entry in the archive.
+	 * @return The entry or {@code null} if there is no such entry.
+	 */
+	public Entry getEntry(String name) {
+		return entriesByName.get(name);
+	}
+
+	/**
+	 * Gets the index of an archive, reading it if the archive is not indexed
+	 * yet or has changed.
+	 *
+	 * @param file the archive file.
+	 * @param type the archive format.
+	 * @return The index.
+	 * @throws IOException if the archive can't be read.
+	 */
+	public static ArchiveEntryIndex get(File file, Type type) throws IOException {
+		String path = file.getAbsolutePath();
+		String key = getKey(file);
+		synchronized (INDEXES) {
+			ArchiveEntryIndex index = INDEXES.get(path);
+			if (index != null && index.key.equals(key)) {
+				return index;
+			}
+		}
+		List<Entry> entries = switch (type) {
+			case ZIP -> readZip(file);
+			case SEVEN_ZIP -> readSevenZip(file);
+			case RAR -> readRar(file);
+		};
+		ArchiveEntryIndex index = new ArchiveEntryIndex(key, entries);
+		synchronized (INDEXES) {
+			INDEXES.put(path, index);
+			if (INDEXES.size() > MAX_INDEXES) {
+				INDEXES.remove(INDEXES.keySet().iterator().next());
+			}
+		}
+		LOGGER.trace("Indexed {} entries of archive \"{}\"", entries.size(), path);
+		return index;
+	}
+
+	/**
+	 * @param file the archive file.
+	 * @return A key that changes when the archive file changes.
+	 */
+	static String getKey(File file) {
+		return file.getAbsolutePath() + "|" + file.lastModified() + "|" + file.length();
+	}
+
+	private static List<Entry> readZip(File file) throws IOException {
+		Map<String, Long> dataOffsets = readZipDataOffsets(file);
+		List<Entry> entries = new ArrayList<>();
+		try (ZipFile zip = new ZipFile(file)) {
+			Enumeration<? extends ZipEntry> enm = zip.entries();
+			int i = 0;
+			while (enm.hasMoreElements()) {
+				ZipEntry entry = enm.nextElement();
+				Long dataOffset = entry.getMethod() == ZipEntry.STORED ? dataOffsets.get(entry.getName()) : null;
+				entries.add(new Entry(
+					entry.getName(),
+					entry.isDirectory(),
+					entry.getSize(),
+					entry.getTime(),
+					i++,
+					dataOffset != null ? dataOffset : -1
+				));
+			}
+		}
+		return entries;
+	}
+
+	/**
+	 * Reads the central directory of a zip file to find where the data of its
+	 * stored entries begins.
+	 *
+	 * @return The data offsets of the stored and unencrypted entries, empty if
+	 *         the central directory can't be read.
+	 */
+	private static Map<String, Long> readZipDataOffsets(File file) {
+		Map<String, Long> dataOffsets = new HashMap<>();
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			int tailSize = (int) Math.min(size, ZIP_END_SIZE + 0xFFFF + 20);
+			ByteBuffer tail = read(channel, size - tailSize, tailSize);
+			int end = -1;
+			for (int i = tailSize - ZIP_END_SIZE; i >= 0; i--) {
+				if (tail.getInt(i) == ZIP_END_HEADER) {
+					end = i;
+					break;
+				}
+			}
+			if (end < 0) {
+				return dataOffsets;
+			}
+			long count = tail.getShort(end + 10) & 0xFFFF;
+			long directorySize = tail.getInt(end + 12) & 0xFFFFFFFFL;
+			long directoryOffset = tail.getInt(end + 16) & 0xFFFFFFFFL;
+			if (end >= 20 && tail.getInt(end - 20) == ZIP64_END_LOCATOR) {
+				ByteBuffer zip64End = read(channel, tail.getLong(end - 12), 56);
+				if (zip64End.getInt(0) == ZIP64_END_HEADER) {
+					count = zip64End.getLong(32);
+					directorySize = zip64End.getLong(40);
+					directoryOffset = zip64End.getLong(48);
+				}
+			}
+			if (directorySize > Integer.MAX_VALUE || directoryOffset + directorySize > size) {
+				return dataOffsets;
+			}
+			ByteBuffer directory = read(channel, directoryOffset, (int) directorySize);
+			int position = 0;
+			for (long i = 0; i < count && position + 46 <= directorySize; i++) {
+				if (directory.getInt(position) != ZIP_CENTRAL_HEADER) {
+					break;
+				}
+				int flags = directory.getShort(position + 8) & 0xFFFF;
+				int method = directory.getShort(position + 10) & 0xFFFF;
+				long compressedSize = directory.getInt(position + 20) & 0xFFFFFFFFL;
+				long uncompressedSize = directory.getInt(position + 24) & 0xFFFFFFFFL;
+				int nameLength = directory.getShort(position + 28) & 0xFFFF;
+				int extraLength = directory.getShort(position + 30) & 0xFFFF;
+				int commentLength = directory.getShort(position + 32) & 0xFFFF;
+				long localOffset = directory.getInt(position + 42) & 0xFFFFFFFFL;
+				byte[] nameBytes = new byte[nameLength];
+				directory.get(position + 46, nameBytes);
+				if (uncompressedSize == 0xFFFFFFFFL || compressedSize == 0xFFFFFFFFL || localOffset == 0xFFFFFFFFL) {
+					// The actual values are in the zip64 extra field, in this order
+					int extra = position + 46 + nameLength;
+					int extraEnd = extra + extraLength;
+					while (extra + 4 <= extraEnd) {
+						int id = directory.getShort(extra) & 0xFFFF;
+						int length = directory.getShort(extra + 2) & 0xFFFF;
+						if (id == 0x0001) {
+							int field = extra + 4;
+							if (uncompressedSize == 0xFFFFFFFFL) {
+								uncompressedSize = directory.getLong(field);
+								field += 8;
+							}
+							if (compressedSize == 0xFFFFFFFFL) {
+								compressedSize = directory.getLong(field);
+								field += 8;
+							}
+							if (localOffset == 0xFFFFFFFFL) {
+								localOffset = directory.getLong(field);
+							}
+							break;
+						}
+						extra += 4 + length;
+					}
+				}
+				if (method == ZipEntry.STORED && (flags & 1) == 0 && compressedSize == uncompressedSize) {
+					ByteBuffer local = read(channel, localOffset, 30);
+					if (local.getInt(0) == ZIP_LOCAL_HEADER) {
+						long dataOffset = localOffset + 30 + (local.getShort(26) & 0xFFFF) + (local.getShort(28) & 0xFFFF);
+						if (dataOffset + uncompressedSize <= size) {
+							dataOffsets.put(new String(nameBytes, StandardCharsets.UTF_8), dataOffset);
+						}
+					}
+				}
+				position += 46 + nameLength + extraLength + commentLength;
+			}
+		} catch (IOException | RuntimeException e) {
+			LOGGER.debug("Could not read the central directory of \"{}\": {}", file, e.getMessage());
+			LOGGER.trace("", e);
+			dataOffsets.clear();
+		}
+		return dataOffsets;
+	}
+
+	private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new IOException("Unexpected end of file");
+			}
+		}
+		return buffer.clear();
+	}
+
+	private static List<Entry> readSevenZip(File file) throws IOException {
+		List<Entry> entries = new ArrayList<>();
+		try (RandomAccessFile rf = new RandomAccessFile(file, "r"); IInArchive arc = SevenZip.openInArchive(null, new RandomAccessFileInStream(rf))) {
+			for (ISimpleInArchiveItem item : arc.getSimpleInterface().getArchiveItems()) {
+				Long size = item.getSize();
+				entries.add(new Entry(
+					item.getPath(),
+					item.isFolder(),
+					size != null ? size : 0,
+					item.getCreationTime() != null ? item.getCreationTime().getTime() : -1,
+					item.getItemIndex(),
+					-1
+				));
+			}
+		}
+		return entries;
+	}
+
+	private static List<Entry> readRar(File file) throws IOException {
+		List<Entry> entries = new ArrayList<>();
+		try (Archive rarFile = new Archive(new FileVolumeManager(file), null, null)) {
+			int i = 0;
+			for (FileHeader fh : rarFile.getFileHeaders()) {
+				long dataOffset = -1;
+				if (
+					!fh.isDirectory() &&
+					fh.getUnpMethod() == RAR_STORED &&
+					!fh.isEncrypted() &&
+					!fh.isSplitBefore() &&
+					!fh.isSplitAfter() &&
+					fh.getFullPackSize() == fh.getFullUnpackSize()
+				) {
+					dataOffset = fh.getPositionInFile() + fh.getHeaderSize(rarFile.isOldFormat());
+				}
+				entries.add(new Entry(
+					fh.getFileName(),
+					fh.isDirectory(),
+					fh.getFullUnpackSize(),
+					fh.getCreationTime() != null ? fh.getCreationTime().toMillis() : -1,
+					i++,
+					dataOffset
+				));
+			}
+		} catch (RarException e) {
+			throw new IOException(e);
+		}
+		return entries;
+	}
+
+}
@@ -22,32 +22,67 @@ import com.github.junrar.rarfile.FileHeader;
 import com.github.junrar.volume.FileVolumeManager;
 import java.io.Closeable;
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
 import java.io.RandomAccessFile;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
+import net.pms.io.FileChannelInputStream;
 import net.sf.sevenzipjbinding.IInArchive;
 import net.sf.sevenzipjbinding.SevenZip;
 import net.sf.sevenzipjbinding.SevenZipException;
 import net.sf.sevenzipjbinding.impl.RandomAccessFileInStream;
-import net.sf.sevenzipjbinding.simple.ISimpleInArchive;
-import net.sf.sevenzipjbinding.simple.ISimpleInArchiveItem;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * This class close the archive file on InputStream close.
  *
+ * The entries are looked up in the {@link ArchiveEntryIndex} of the archive,
+ * the stored ones are read straight from the archive file, and the handles of
+ * the archives are kept in an {@link ArchiveHandleCache} for the next entries.
+ *
  * @author SurfaceS
  */
 public class ArchiveFileInputStream extends InputStream {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(ArchiveFileInputStream.class);
+	private static final int MAX_HANDLES = 4;
+	private static final ArchiveHandleCache<ZipFile> ZIP_HANDLES = new ArchiveHandleCache<>(MAX_HANDLES, ZipFile::new);
+	private static final ArchiveHandleCache<SevenZipHandle> SEVEN_ZIP_HANDLES = new ArchiveHandleCache<>(MAX_HANDLES, SevenZipHandle::open);
+	private static final ArchiveHandleCache<Archive> RAR_HANDLES = new ArchiveHandleCache<>(
+		MAX_HANDLES,
+		file -> {
+			try {
+				return new Archive(new FileVolumeManager(file), null, null);
+			} catch (RarException e) {
+				throw new IOException(e);
+			}
+		}
+	);
+	/**
+	 * How many entries are extracted at once, the next ones wait for an
+	 * extraction to end.
+	 */
+	private static final int MAX_EXTRACTORS = 8;
+	private static final ThreadPoolExecutor EXTRACTORS = new ThreadPoolExecutor(
+		MAX_EXTRACTORS,
+		MAX_EXTRACTORS,
+		30, TimeUnit.SECONDS,
+		new LinkedBlockingQueue<>(),
+		new SimpleThreadFactory("Archive Extractor", "Archive Extractor pool", Thread.NORM_PRIORITY)
+	);
+
+	static {
+		EXTRACTORS.allowCoreThreadTimeOut(true);
+	}
 
 	protected final File file;
 	protected final String name;
@@ -136,108 +171,208 @@ public class ArchiveFileInputStream extends InputStream {
 		return inputStream.transferTo(out);
 	}
 
-	public static ArchiveFileInputStream getZipEntryInputStream(File file, String name) {
+	/**
+	 * Gets the data of an entry stored without compression straight from the
+	 * archive file, so it can be read from any position.
+	 *
+	 * @param file the archive file.
+	 * @param type the archive format.
+	 * @param name the path of the entry in the archive.
+	 * @return The stream or {@code null} if the entry is compressed or can't
+	 *         be found.
+	 */
+	public static FileChannelInputStream getStoredEntryInputStream(File file, ArchiveEntryIndex.Type type, String name) {
+		try {
+			ArchiveEntryIndex.Entry entry = ArchiveEntryIndex.get(file, type).getEntry(name);
+			if (entry != null && entry.isStored()) {
+				return new FileChannelInputStream(file, entry.dataOffset(), entry.size());
+			}
+		} catch (IOException e) {
+			LOGGER.debug("Could not read the index of \"{}\": {}", file, e.getMessage());
+		}
+		return null;
+	}
+
+	public static InputStream getZipEntryInputStream(File file, String name) {
+		InputStream stored = getStoredEntryInputStream(file, ArchiveEntryIndex.Type.ZIP, name);
+		if (stored != null) {
+			return stored;
+		}
 		ZipFile zipFile = null;
 		try {
-			zipFile = new ZipFile(file);
+			zipFile = ZIP_HANDLES.take(file);
 			ZipEntry ze = zipFile.getEntry(name);
 			if (ze != null) {
-				return new ArchiveFileInputStream(file, name, zipFile.getInputStream(ze), zipFile);
+				final ZipFile handle = zipFile;
+				return new ArchiveFileInputStream(file, name, zipFile.getInputStream(ze), () -> ZIP_HANDLES.release(file, handle));
 			} else {
 				LOGGER.error("Zip entry '{}' not found.", name);
 			}
 		} catch (IOException e) {
 			LOGGER.error("ZipEntryInputStream error.", e);
 		}
-		if (zipFile != null) {
+		ZIP_HANDLES.close(zipFile);
+		return null;
+	}
+
+	public static InputStream getSevenZipEntryInputStream(File file, String name) {
+		return extract(file, ArchiveEntryIndex.Type.SEVEN_ZIP, name);
+	}
+
+	public static InputStream getRarEntryInputStream(File file, String name) {
+		InputStream stored = getStoredEntryInputStream(file, ArchiveEntryIndex.Type.RAR, name);
+		if (stored != null) {
+			return stored;
+		}
+		return extract(file, ArchiveEntryIndex.Type.RAR, name);
+	}
+
+	/**
+	 * Writes an entry to an output stream on the shared extractor threads,
+	 * then closes the output stream.
+	 *
+	 * @param file the archive file.
+	 * @param type the archive format.
+	 * @param name the path of the entry in the archive.
+	 * @param out the output stream.
+	 */
+	public static void pushEntry(File file, ArchiveEntryIndex.Type type, String name, OutputStream out) {
+		EXTRACTORS.execute(() -> {
 			try {
-				zipFile.close();
+				InputStream stored = getStoredEntryInputStream(file, type, name);
+				if (stored != null || type == ArchiveEntryIndex.Type.ZIP) {
+					try (InputStream in = stored != null ? stored : getZipEntryInputStream(file, name)) {
+						if (in != null) {
+							in.transferTo(out);
+						}
+					}
+				} else {
+					ArchiveEntryIndex.Entry entry = getEntry(file, type, name);
+					if (entry != null) {
+						extractTo(file, type, entry, out);
+					}
+				}
 			} catch (IOException e) {
-				//ignore
+				if (!"Pipe closed".equals(e.getMessage())) {
+					LOGGER.debug("Unpack error. Possibly harmless: {}", e.getMessage());
+				}
+			} finally {
+				try {
+					out.close();
+				} catch (IOException e) {
+					LOGGER.debug("Caught exception", e);
+				}
+			}
+		});
+	}
+
+	private static ArchiveEntryIndex.Entry getEntry(File file, ArchiveEntryIndex.Type type, String name) {
+		try {
+			ArchiveEntryIndex.Entry entry = ArchiveEntryIndex.get(file, type).getEntry(name);
+			if (entry == null) {
+				LOGGER.error("Archive entry '{}' not found.", name);
 			}
+			return entry;
+		} catch (IOException e) {
+			LOGGER.debug("Unpack error. Possibly harmless.", e.getMessage());
+			return null;
 		}
-		return null;
 	}
 
-	public static ArchiveFileInputStream getSevenZipEntryInputStream(File file, String name) {
-		IInArchive arc = null;
+	/**
+	 * Extracts an entry on the shared extractor threads, to a pipe read by
+	 * the returned stream. The extraction task owns the archive handle, so it
+	 * is only reused once the extraction is over.
+	 */
+	private static InputStream extract(File file, ArchiveEntryIndex.Type type, String name) {
+		ArchiveEntryIndex.Entry entry = getEntry(file, type, name);
+		if (entry == null) {
+			return null;
+		}
+		final PipedInputStream in = new PipedInputStream((int) Math.max(Math.min(entry.size(), 65536), 1));
+		final PipedOutputStream out;
 		try {
-			RandomAccessFile rf = new RandomAccessFile(file, "r");
-			arc = SevenZip.openInArchive(null, new RandomAccessFileInStream(rf));
-			ISimpleInArchive simpleInArchive = arc.getSimpleInterface();
-			ISimpleInArchiveItem realItem = null;
-
-			for (ISimpleInArchiveItem item : simpleInArchive.getArchiveItems()) {
-				if (item.getPath().equals(name)) {
-					realItem = item;
-					break;
-				}
+			out = new PipedOutputStream(in);
+		} catch (IOException e) {
+			LOGGER.debug("Caught exception", e);
+			return null;
+		}
+		EXTRACTORS.execute(() -> {
+			try (out) {
+				extractTo(file, type, entry, out);
+			} catch (IOException e) {
+				//ignore
 			}
+		});
+		return new ArchiveFileInputStream(file, name, in, null);
+	}
 
-			if (realItem != null) {
-				final ISimpleInArchiveItem archiveItem = realItem;
-				final int bufferSize = (int) Math.max(Math.min(realItem.getSize(), 65536), 1);
-				final PipedInputStream in = new PipedInputStream(bufferSize);
-				Runnable r = () -> {
-					try (PipedOutputStream out = new PipedOutputStream(in)) {
-						archiveItem.extractSlow((byte[] data) -> {
-							try {
-								out.write(data);
-							} catch (IOException e) {
-								LOGGER.debug("Caught exception", e);
-								throw new SevenZipException();
-							}
-							return data.length;
-						});
+	private static void extractTo(File file, ArchiveEntryIndex.Type type, ArchiveEntryIndex.Entry entry, OutputStream out) {
+		if (type == ArchiveEntryIndex.Type.SEVEN_ZIP) {
+			SevenZipHandle handle = null;
+			try {
+				handle = SEVEN_ZIP_HANDLES.take(file);
+				handle.archive().getSimpleInterface().getArchiveItem(entry.index()).extractSlow((byte[] data) -> {
+					try {
+						out.write(data);
 					} catch (IOException e) {
-						//ignore
+						LOGGER.debug("Caught exception", e);
+						throw new SevenZipException();
 					}
-				};
-				new Thread(r).start();
-				return new ArchiveFileInputStream(file, name, in, arc);
-			} else {
-				LOGGER.error("SevenZip entry '{}' not found.", name);
+					return data.length;
+				});
+				SEVEN_ZIP_HANDLES.release(file, handle);
+			} catch (IOException e) {
+				LOGGER.debug("Unpack error. Possibly harmless.", e.getMessage());
+				SEVEN_ZIP_HANDLES.close(handle);
 			}
-		} catch (FileNotFoundException | SevenZipException e) {
-			LOGGER.debug("Unpack error. Possibly harmless.", e.getMessage());
-		}
-		if (arc != null) {
+		} else if (type == ArchiveEntryIndex.Type.RAR) {
+			Archive rarFile = null;
 			try {
-				arc.close();
-			} catch (IOException e) {
-				//ignore
+				rarFile = RAR_HANDLES.take(file);
+				List<FileHeader> headers = rarFile.getFileHeaders();
+				FileHeader header = entry.index() < headers.size() ? headers.get(entry.index()) : null;
+				if (header != null && header.getFileName().equals(entry.name())) {
+					LOGGER.trace("Starting the extraction of " + header.getFileName());
+					rarFile.extractFile(header, out);
+					if (rarFile.getMainHeader().isSolid()) {
+						// The next entries depend on the state left by this one
+						RAR_HANDLES.close(rarFile);
+					} else {
+						RAR_HANDLES.release(file, rarFile);
+					}
+				} else {
+					LOGGER.error("Rar entry '{}' not found.", entry.name());
+					RAR_HANDLES.close(rarFile);
+				}
+			} catch (RarException | IOException e) {
+				LOGGER.debug("Unpack error, maybe it's normal, as backend can be terminated: " + e.getMessage());
+				RAR_HANDLES.close(rarFile);
 			}
 		}
-		return null;
 	}
 
-	public static ArchiveFileInputStream getRarEntryInputStream(File file, String name) {
-		Archive rarFile = null;
-		try {
-			rarFile = new Archive(new FileVolumeManager(file), null, null);
-			FileHeader header = null;
-			for (FileHeader fh : rarFile.getFileHeaders()) {
-				if (fh.getFileName().equals(name)) {
-					header = fh;
-					break;
-				}
-			}
-			if (header != null) {
-				return new ArchiveFileInputStream(file, name, rarFile.getInputStream(header), rarFile);
-			} else {
-				LOGGER.error("Rar entry '{}' not found.", name);
+	private record SevenZipHandle(RandomAccessFile file, IInArchive archive) implements Closeable {
+
+		private static SevenZipHandle open(File file) throws IOException {
+			RandomAccessFile rf = new RandomAccessFile(file, "r");
+			try {
+				return new SevenZipHandle(rf, SevenZip.openInArchive(null, new RandomAccessFileInStream(rf)));
+			} catch (SevenZipException e) {
+				rf.close();
+				throw e;
 			}
-		} catch (RarException | IOException e) {
-			LOGGER.error("RarEntryInputStream error: " + e.getMessage());
 		}
-		if (rarFile != null) {
+
+		@Override
+		public void close() throws IOException {
 			try {
-				rarFile.close();
-			} catch (IOException e) {
-				//ignore
+				archive.close();
+			} finally {
+				file.close();
 			}
 		}
-		return null;
+
 	}
 
 }
@@ -0,0 +1,139 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The recently used handles of opened archives, so the next entry of the same
+ * archive doesn't open it again.
+ *
+ * A handle is used by one reader at a time: {@link #take} removes it from the
+ * cache and {@link #release} puts it back. The least recently released
+ * handles are closed when there are more than the capacity.
+ *
+ * @param <T> the handle type.
+ */
+public class ArchiveHandleCache<T extends Closeable> {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ArchiveHandleCache.class);
+
+	private final Map<String, T> handles = new LinkedHashMap<>(16, 0.75f, true);
+	private final Map<T, String> taken = new IdentityHashMap<>();
+	private final int capacity;
+	private final Opener<T> opener;
+
+	/**
+	 * Opens a new handle.
+	 *
+	 * @param <T> the handle type.
+	 */
+	@FunctionalInterface
+	public interface Opener<T> {
+		T open(File file) throws IOException;
+	}
+
+	public ArchiveHandleCache(int capacity, Opener<T> opener) {
+		this.capacity = capacity;
+		this.opener = opener;
+	}
+
+	/**
+	 * Takes a handle of the archive from the cache, or opens a new one.
+	 *
+	 * @param file the archive file.
+	 * @return The handle, to give back with {@link #release}.
+	 * @throws IOException if the archive can't be opened.
+	 */
+	public T take(File file) throws IOException {
+		String key = ArchiveEntryIndex.getKey(file);
+		T handle;
+		synchronized (handles) {
+			handle = handles.remove(key);
+		}
+		if (handle == null) {
+			handle = opener.open(file);
+		}
+		synchronized (handles) {
+			taken.put(handle, key);
+		}
+		return handle;
+	}
+
+	/**
+	 * Gives back a handle taken with {@link #take}, which is closed if the
+	 * archive already has a cached handle or has changed since.
+	 *
+	 * @param file the archive file.
+	 * @param handle the handle.
+	 */
+	public void release(File file, T handle) {
+		if (handle == null) {
+			return;
+		}
+		T closed = handle;
+		synchronized (handles) {
+			String key = taken.remove(handle);
+			if (key != null && key.equals(ArchiveEntryIndex.getKey(file)) && !handles.containsKey(key)) {
+				handles.put(key, handle);
+				closed = null;
+				if (handles.size() > capacity) {
+					Iterator<T> iterator = handles.values().iterator();
+					closed = iterator.next();
+					iterator.remove();
+				}
+			}
+		}
+		close(closed);
+	}
+
+	/**
+	 * Closes a handle that can't be used anymore.
+	 *
+	 * @param handle the handle.
+	 */
+	public void close(T handle) {
+		if (handle != null) {
+			synchronized (handles) {
+				taken.remove(handle);
+			}
+			try {
+				handle.close();
+			} catch (IOException e) {
+				LOGGER.debug("Could not close archive handle: {}", e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * @return The number of cached handles.
+	 */
+	public int size() {
+		synchronized (handles) {
+			return handles.size();
+		}
+	}
+
+}
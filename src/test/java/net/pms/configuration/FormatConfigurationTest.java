@@ -0,0 +1,93 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.configuration;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import net.pms.TestHelper;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class FormatConfigurationTest {
+
+	@BeforeAll
+	public static void setUpClass() {
+		TestHelper.setLoggingOff();
+	}
+
+	private static String match(FormatConfiguration formatConfiguration, String container, String videoCodec, String audioCodec, int channels, Map<String, String> extras) {
+		return formatConfiguration.getMatchedMIMEtype(
+			container,
+			videoCodec,
+			audioCodec,
+			channels,
+			48000,
+			0,
+			24,
+			1920,
+			1080,
+			0,
+			null,
+			null,
+			extras,
+			null,
+			false,
+			null,
+			null
+		);
+	}
+
+	/**
+	 * Repeated matches give the same MIME type, including the media that
+	 * is not supported.
+	 */
+	@Test
+	public void testRepeatedMatches() {
+		FormatConfiguration formatConfiguration = new FormatConfiguration(List.of(
+			"f:mp4 v:h264 a:aac-lc n:2 m:video/mp4",
+			"f:mkv v:h264|hevc m:video/x-matroska"
+		));
+		for (int i = 0; i < 3; i++) {
+			assertEquals("video/mp4", match(formatConfiguration, "mp4", "h264", "aac-lc", 2, null));
+			assertNull(match(formatConfiguration, "mp4", "h264", "aac-lc", 6, null));
+			assertNull(match(formatConfiguration, "avi", "h264", "aac-lc", 2, null));
+			assertEquals("video/x-matroska", match(formatConfiguration, "mkv", "hevc", "ac3", 6, null));
+			assertEquals("video/x-matroska", formatConfiguration.getMatchedMIMEtype("mkv", "h264", null));
+		}
+	}
+
+	/**
+	 * Changing the extras of a media after a match doesn't change the
+	 * remembered match.
+	 */
+	@Test
+	public void testExtras() {
+		FormatConfiguration formatConfiguration = new FormatConfiguration(List.of(
+			"f:avi v:mp4 qpel:no gmc:0 m:video/avi"
+		));
+		Map<String, String> extras = new HashMap<>();
+		extras.put(FormatConfiguration.MI_QPEL, "no");
+		assertEquals("video/avi", match(formatConfiguration, "avi", "mp4", null, 0, extras));
+		extras.put(FormatConfiguration.MI_QPEL, "yes");
+		assertNull(match(formatConfiguration, "avi", "mp4", null, 0, extras));
+		extras.put(FormatConfiguration.MI_QPEL, "no");
+		assertEquals("video/avi", match(formatConfiguration, "avi", "mp4", null, 0, extras));
+	}
+
+}
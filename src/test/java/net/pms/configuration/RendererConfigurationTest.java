@@ -641,6 +641,57 @@ public class RendererConfigurationTest {
 		);
 	}
 
+	/**
+	 * Test that the headers describing the request don't change the match,
+	 * and that concurrent requests get the same match.
+	 * @throws ConfigurationException
+	 * @throws InterruptedException
+	 */
+	@Test
+	public void testRequestHeaders() throws ConfigurationException, InterruptedException {
+		UmsConfiguration pmsConf = new UmsConfiguration(false);
+
+		// Initialize the RendererConfiguration
+		PMS.setConfiguration(pmsConf);
+		RendererConfigurations.loadRendererConfigurations();
+
+		testHeaders("Samsung ES8000", "User-Agent: SEC_HHP_[TV]UE46ES8000/1.0 DLNADOC/1.50");
+		testHeaders(
+			"Samsung ES8000",
+			"User-Agent: SEC_HHP_[TV]UE46ES8000/1.0 DLNADOC/1.50",
+			"Range: bytes=0-",
+			"Content-Length: 1234",
+			"Host: 192.168.1.2:5001"
+		);
+		testHeaders(
+			"AirPlayer",
+			"User-Agent: AirPlayer/1.0.09 CFNetwork/485.13.9 Darwin/11.0.0",
+			"SOAPAction: \"urn:schemas-upnp-org:service:ContentDirectory:1#Browse\""
+		);
+		testHeaders(null, "User-Agent: Unknown Renderer", "Range: bytes=0-");
+
+		Thread[] threads = new Thread[8];
+		Throwable[] failures = new Throwable[threads.length];
+		for (int i = 0; i < threads.length; i++) {
+			int index = i;
+			threads[i] = new Thread(() -> {
+				try {
+					for (int j = 0; j < 200; j++) {
+						testHeaders("Samsung ES8000", "User-Agent: SEC_HHP_[TV]UE46ES8000/1.0 DLNADOC/1.50", "Range: bytes=" + j + "-");
+						testHeaders("AirPlayer", "User-Agent: AirPlayer/1.0.09 CFNetwork/485.13.9 Darwin/11.0.0");
+					}
+				} catch (Throwable t) {
+					failures[index] = t;
+				}
+			});
+			threads[i].start();
+		}
+		for (int i = 0; i < threads.length; i++) {
+			threads[i].join();
+			assertNull(failures[i]);
+		}
+	}
+
 	/**
 	 * Test a particular set of headers to see if it returns the correct
 	 * renderer. Set the correct renderer name to <code>null</code> to require
@@ -0,0 +1,109 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.database;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import net.pms.PMS;
+import net.pms.TestHelper;
+import net.pms.configuration.UmsConfiguration;
+import net.pms.formats.Format;
+import net.pms.media.MediaInfo;
+import net.pms.media.audio.MediaAudio;
+import net.pms.media.audio.metadata.MediaAudioMetadata;
+import org.apache.commons.configuration2.ex.ConfigurationException;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class MediaTableFilesTest {
+	private static final long MODIFIED = 1700000000000L;
+
+	@BeforeEach
+	public final void setUp() throws ConfigurationException, InterruptedException {
+		TestHelper.setLoggingOff();
+		PMS.get();
+		PMS.setConfiguration(new UmsConfiguration(false));
+	}
+
+	private static MediaInfo createMediaInfo(int index) {
+		MediaInfo media = new MediaInfo();
+		media.setMediaParser("test");
+		media.setMimeType("audio/mpeg");
+		media.setContainer("mp3");
+		media.setDuration(60.0 + index);
+		List<MediaAudio> audioTracks = new ArrayList<>();
+		for (int id = 0; id < 2; id++) {
+			MediaAudio audio = new MediaAudio();
+			audio.setId(id);
+			audio.setLang("eng");
+			audio.setCodec("mp3");
+			audioTracks.add(audio);
+		}
+		media.setAudioTracks(audioTracks);
+		MediaAudioMetadata audioMetadata = new MediaAudioMetadata();
+		audioMetadata.setSongname("Song " + index);
+		audioMetadata.setArtist("Artist");
+		media.setAudioMetadata(audioMetadata);
+		return media;
+	}
+
+	/**
+	 * The bulk loader must return the same information as the file by file
+	 * one, and leave out files that were modified since they were stored.
+	 */
+	@Test
+	public void testGetMediaInfos() throws Exception {
+		MediaDatabase.init();
+		MediaDatabase database = MediaDatabase.get();
+		try (Connection connection = database.getConnection()) {
+			MediaDatabase.dropAllTables(connection);
+			database.checkTables(true);
+
+			Map<String, Long> filesModified = new HashMap<>();
+			for (int i = 0; i < 20; i++) {
+				String filename = "/music/song" + i + ".mp3";
+				MediaTableFiles.insertOrUpdateData(connection, filename, MODIFIED, Format.AUDIO, createMediaInfo(i));
+				filesModified.put(filename, MODIFIED);
+			}
+			filesModified.put("/music/song0.mp3", MODIFIED + 1000);
+			filesModified.put("/music/unknown.mp3", MODIFIED);
+
+			Map<String, MediaInfo> medias = MediaTableFiles.getMediaInfos(connection, filesModified);
+			assertEquals(19, medias.size());
+			assertFalse(medias.containsKey("/music/song0.mp3"));
+			assertFalse(medias.containsKey("/music/unknown.mp3"));
+			for (int i = 1; i < 20; i++) {
+				String filename = "/music/song" + i + ".mp3";
+				MediaInfo expected = MediaTableFiles.getMediaInfo(connection, filename, MODIFIED);
+				MediaInfo actual = medias.get(filename);
+				assertNotNull(actual);
+				assertEquals(expected.getFileId(), actual.getFileId());
+				assertEquals(expected.getDuration(), actual.getDuration());
+				assertEquals(2, actual.getAudioTracks().size());
+				assertEquals(expected.getAudioTracks().toString(), actual.getAudioTracks().toString());
+				assertTrue(actual.getVideoTracks().isEmpty());
+				assertTrue(actual.getSubtitlesTracks().isEmpty());
+				assertEquals("Song " + i, actual.getAudioMetadata().getSongname());
+				assertNull(actual.getVideoMetadata());
+			}
+		}
+	}
+}
@@ -0,0 +1,63 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.database;
+
+import java.sql.Connection;
+import java.util.Set;
+import net.pms.PMS;
+import net.pms.TestHelper;
+import net.pms.configuration.UmsConfiguration;
+import org.apache.commons.configuration2.ex.ConfigurationException;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class MediaTableScanCheckpointTest {
+
+	@BeforeEach
+	public final void setUp() throws ConfigurationException, InterruptedException {
+		TestHelper.setLoggingOff();
+		PMS.get();
+		PMS.setConfiguration(new UmsConfiguration(false));
+	}
+
+	/**
+	 * Completed folders are returned until the checkpoint is cleared, and only
+	 * when they are recent enough.
+	 */
+	@Test
+	public void testCheckpoint() throws Exception {
+		MediaDatabase.init();
+		MediaDatabase database = MediaDatabase.get();
+		try (Connection connection = database.getConnection()) {
+			MediaDatabase.dropAllTables(connection);
+			database.checkTables(true);
+
+			long start = System.currentTimeMillis() - 1000;
+			MediaTableScanCheckpoint.setCompleted(connection, "/media/movies");
+			MediaTableScanCheckpoint.setCompleted(connection, "/media/music/album");
+			MediaTableScanCheckpoint.setCompleted(connection, "/media/movies");
+
+			Set<String> completed = MediaTableScanCheckpoint.getCompletedFolders(connection, start);
+			assertEquals(Set.of("/media/movies", "/media/music/album"), completed);
+			assertTrue(MediaTableScanCheckpoint.getCompletedFolders(connection, System.currentTimeMillis() + 60000).isEmpty());
+
+			MediaTableScanCheckpoint.clear(connection);
+			assertTrue(MediaTableScanCheckpoint.getCompletedFolders(connection, start).isEmpty());
+		}
+	}
+}
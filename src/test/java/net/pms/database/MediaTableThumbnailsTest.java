@@ -0,0 +1,129 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.database;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import javax.imageio.ImageIO;
+import net.pms.PMS;
+import net.pms.TestHelper;
+import net.pms.configuration.UmsConfiguration;
+import net.pms.dlna.DLNAThumbnail;
+import org.apache.commons.configuration2.ex.ConfigurationException;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class MediaTableThumbnailsTest {
+
+	@BeforeEach
+	public final void setUp() throws ConfigurationException, InterruptedException {
+		TestHelper.setLoggingOff();
+		PMS.get();
+		PMS.setConfiguration(new UmsConfiguration(false));
+	}
+
+	private static DLNAThumbnail thumbnail(Color color, String format) throws IOException {
+		BufferedImage image = new BufferedImage(160, 120, BufferedImage.TYPE_INT_RGB);
+		Graphics2D graphics = image.createGraphics();
+		graphics.setColor(color);
+		graphics.fillRect(0, 0, 160, 120);
+		graphics.dispose();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(image, format, out);
+		return DLNAThumbnail.toThumbnail(out.toByteArray());
+	}
+
+	private static void assertSameThumbnail(DLNAThumbnail expected, DLNAThumbnail actual) {
+		assertNotNull(actual);
+		assertArrayEquals(expected.getBytes(false), actual.getBytes(false));
+		assertEquals(expected.getWidth(), actual.getWidth());
+		assertEquals(expected.getHeight(), actual.getHeight());
+		assertEquals(expected.getFormat(), actual.getFormat());
+		assertEquals(expected.getDLNAImageProfile(), actual.getDLNAImageProfile());
+		assertEquals(expected.getImageInfo().getBitDepth(), actual.getImageInfo().getBitDepth());
+		assertEquals(expected.getImageInfo().getNumComponents(), actual.getImageInfo().getNumComponents());
+	}
+
+	/**
+	 * Thumbnails are read back as they were written, and written once.
+	 */
+	@Test
+	public void testThumbnails() throws Exception {
+		MediaDatabase.init();
+		MediaDatabase database = MediaDatabase.get();
+		try (Connection connection = database.getConnection()) {
+			MediaDatabase.dropAllTables(connection);
+			database.checkTables(true);
+
+			DLNAThumbnail jpeg = thumbnail(Color.RED, "jpg");
+			DLNAThumbnail png = thumbnail(Color.BLUE, "png");
+			Long jpegId = MediaTableThumbnails.setThumbnail(connection, jpeg);
+			Long pngId = MediaTableThumbnails.setThumbnail(connection, png);
+			assertNotEquals(jpegId, pngId);
+			assertEquals(jpegId, MediaTableThumbnails.setThumbnail(connection, thumbnail(Color.RED, "jpg")));
+
+			assertSameThumbnail(jpeg, MediaTableThumbnails.getThumbnail(connection, jpegId));
+			assertSameThumbnail(png, MediaTableThumbnails.getThumbnail(connection, pngId));
+			assertNull(MediaTableThumbnails.getThumbnail(connection, pngId + 1));
+		}
+	}
+
+	/**
+	 * The serialized thumbnails of table version 1 are converted, and the
+	 * unreadable ones are deleted.
+	 */
+	@Test
+	public void testUpgrade() throws Exception {
+		MediaDatabase.init();
+		MediaDatabase database = MediaDatabase.get();
+		try (Connection connection = database.getConnection()) {
+			MediaDatabase.dropAllTables(connection);
+			database.checkTables(true);
+
+			try (Statement statement = connection.createStatement()) {
+				statement.execute("DROP TABLE THUMBNAILS");
+				statement.execute("CREATE TABLE THUMBNAILS (ID IDENTITY PRIMARY KEY, THUMBNAIL OTHER NOT NULL, MODIFIED TIMESTAMP, MD5 VARCHAR UNIQUE NOT NULL)");
+			}
+			DLNAThumbnail jpeg = thumbnail(Color.GREEN, "jpg");
+			try (PreparedStatement statement = connection.prepareStatement("INSERT INTO THUMBNAILS (ID, THUMBNAIL, MD5) VALUES (?, ?, ?)")) {
+				statement.setLong(1, 1);
+				statement.setObject(2, jpeg);
+				statement.setString(3, "a");
+				statement.executeUpdate();
+				statement.setLong(1, 2);
+				statement.setBytes(2, new byte[] {1, 2, 3});
+				statement.setString(3, "b");
+				statement.executeUpdate();
+			}
+			MediaTableTablesVersions.setTableVersion(connection, MediaTableThumbnails.TABLE_NAME, 1);
+
+			MediaTableThumbnails.checkTable(connection);
+			assertEquals(2, MediaTableTablesVersions.getTableVersion(connection, MediaTableThumbnails.TABLE_NAME));
+			assertFalse(DatabaseHelper.isColumnExist(connection, MediaTableThumbnails.TABLE_NAME, "THUMBNAIL"));
+			assertSameThumbnail(jpeg, MediaTableThumbnails.getThumbnail(connection, 1L));
+			assertNull(MediaTableThumbnails.getThumbnail(connection, 2L));
+		}
+	}
+
+}
@@ -0,0 +1,85 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.database.lucene;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class UmsFullTextLuceneTest {
+
+	private Connection connection;
+
+	@BeforeEach
+	public void setUp() throws SQLException {
+		connection = DriverManager.getConnection("jdbc:h2:mem:fulltext" + System.nanoTime());
+		try (Statement stat = connection.createStatement()) {
+			stat.execute("CREATE TABLE FILES(ID INT PRIMARY KEY, ONLYFILENAME VARCHAR)");
+			stat.execute("CREATE ALIAS IF NOT EXISTS FTL_INIT FOR 'net.pms.database.lucene.UmsFullTextLucene.init'");
+			stat.execute("CALL FTL_INIT()");
+			stat.execute("CALL FTL_CREATE_INDEX('PUBLIC', 'FILES', 'ONLYFILENAME')");
+		}
+	}
+
+	@AfterEach
+	public void tearDown() throws SQLException {
+		try (Statement stat = connection.createStatement()) {
+			stat.execute("CALL FTL_DROP_ALL()");
+		}
+		connection.close();
+	}
+
+	private int count(String text) throws SQLException {
+		try (ResultSet rs = UmsFullTextLucene.search(connection, text, 5000, 0)) {
+			int count = 0;
+			while (rs.next()) {
+				count++;
+			}
+			return count;
+		}
+	}
+
+	/**
+	 * Rows are searchable as soon as they are written, even though the index
+	 * is committed in batches.
+	 */
+	@Test
+	public void testSearchSeesUncommittedChanges() throws SQLException {
+		try (PreparedStatement insert = connection.prepareStatement("INSERT INTO FILES VALUES(?, ?)")) {
+			for (int i = 0; i < 2500; i++) {
+				insert.setInt(1, i);
+				insert.setString(2, (i % 2 == 0 ? "holiday" : "birthday") + " clip " + i + ".mkv");
+				insert.executeUpdate();
+			}
+		}
+		assertEquals(1250, count("holiday"));
+
+		try (Statement stat = connection.createStatement()) {
+			stat.execute("UPDATE FILES SET ONLYFILENAME = 'wedding.mkv' WHERE ID = 0");
+			stat.execute("DELETE FROM FILES WHERE ID = 2");
+		}
+		assertEquals(1248, count("holiday"));
+		assertEquals(1, count("wedding"));
+	}
+}
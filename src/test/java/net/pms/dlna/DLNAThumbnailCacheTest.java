@@ -0,0 +1,166 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.dlna;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import javax.imageio.ImageIO;
+import net.pms.TestHelper;
+import net.pms.image.BufferedImageFilterChain;
+import net.pms.util.FullyPlayed;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class DLNAThumbnailCacheTest {
+
+	@TempDir
+	File directory;
+
+	@BeforeAll
+	public static void setUpClass() {
+		TestHelper.setLoggingOff();
+	}
+
+	private static byte[] image(Color color) throws IOException {
+		BufferedImage image = new BufferedImage(320, 240, BufferedImage.TYPE_INT_RGB);
+		Graphics2D graphics = image.createGraphics();
+		graphics.setColor(color);
+		graphics.fillRect(0, 0, 320, 240);
+		graphics.dispose();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(image, "png", out);
+		return out.toByteArray();
+	}
+
+	/**
+	 * A thumbnail is transcoded once, then served from memory, and from disk
+	 * by a new cache.
+	 */
+	@Test
+	public void testTiers() throws IOException {
+		byte[] source = image(Color.RED);
+		DLNAThumbnailCache cache = new DLNAThumbnailCache(directory, 1024 * 1024, 1024 * 1024);
+		DLNAThumbnail transcoded = cache.getTranscoded(source, DLNAImageProfile.JPEG_TN, false, null);
+		assertEquals(DLNAImageProfile.JPEG_TN, transcoded.getDLNAImageProfile());
+		assertTrue(transcoded.getWidth() <= 160);
+		assertEquals(1, cache.getMisses());
+		assertSame(transcoded, cache.getTranscoded(source, DLNAImageProfile.JPEG_TN, false, null));
+		assertEquals(1, cache.getMemoryHits());
+
+		cache.getTranscoded(source, DLNAImageProfile.JPEG_TN, true, null);
+		cache.getTranscoded(source, DLNAImageProfile.JPEG_SM, false, null);
+		cache.getTranscoded(source, DLNAImageProfile.JPEG_TN, false, new BufferedImageFilterChain(FullyPlayed.getOverlayFilter()));
+		assertEquals(4, cache.getMisses());
+
+		DLNAThumbnailCache restarted = new DLNAThumbnailCache(directory, 1024 * 1024, 1024 * 1024);
+		DLNAThumbnail read = restarted.getTranscoded(source, DLNAImageProfile.JPEG_TN, false, null);
+		assertArrayEquals(transcoded.getBytes(false), read.getBytes(false));
+		assertEquals(1, restarted.getDiskHits());
+		assertEquals(0, restarted.getMisses());
+		assertSame(read, restarted.getTranscoded(source, DLNAImageProfile.JPEG_TN, false, null));
+		assertEquals(transcoded.getDLNAImageProfile(), read.getDLNAImageProfile());
+		assertEquals(transcoded.getFormat(), read.getFormat());
+		assertEquals(transcoded.getWidth(), read.getWidth());
+		assertEquals(transcoded.getHeight(), read.getHeight());
+
+		restarted.clear();
+		assertEquals(0, restarted.getDiskSize());
+		assertEquals(0, directory.list().length);
+		restarted.getTranscoded(source, DLNAImageProfile.JPEG_TN, false, null);
+		assertEquals(1, restarted.getMisses());
+	}
+
+	/**
+	 * Both tiers stay within their size, the least recently used thumbnails
+	 * are evicted first.
+	 */
+	@Test
+	public void testEviction() throws IOException {
+		byte[][] sources = {image(Color.RED), image(Color.GREEN), image(Color.BLUE)};
+		DLNAThumbnailCache cache = new DLNAThumbnailCache(directory, 1024 * 1024, 1024 * 1024);
+		long minSize = Long.MAX_VALUE;
+		long maxSize = 0;
+		long minDiskSize = Long.MAX_VALUE;
+		long maxDiskSize = 0;
+		for (byte[] source : sources) {
+			long diskSize = cache.getDiskSize();
+			long size = cache.getTranscoded(source, DLNAImageProfile.JPEG_TN, false, null).getBytes(false).length;
+			diskSize = cache.getDiskSize() - diskSize;
+			minSize = Math.min(minSize, size);
+			maxSize = Math.max(maxSize, size);
+			minDiskSize = Math.min(minDiskSize, diskSize);
+			maxDiskSize = Math.max(maxDiskSize, diskSize);
+		}
+		cache.clear();
+
+		// Room for two thumbnails but not three
+		long memoryBound = 2 * maxSize + minSize / 2;
+		long diskBound = 2 * maxDiskSize + minDiskSize / 2;
+		cache = new DLNAThumbnailCache(directory, memoryBound, diskBound);
+		cache.getTranscoded(sources[0], DLNAImageProfile.JPEG_TN, false, null);
+		cache.getTranscoded(sources[1], DLNAImageProfile.JPEG_TN, false, null);
+		cache.getTranscoded(sources[0], DLNAImageProfile.JPEG_TN, false, null);
+		cache.getTranscoded(sources[2], DLNAImageProfile.JPEG_TN, false, null);
+		assertTrue(cache.getMemorySize() <= memoryBound);
+		assertTrue(cache.getDiskSize() <= diskBound);
+		assertEquals(2, directory.list().length);
+
+		cache.getTranscoded(sources[0], DLNAImageProfile.JPEG_TN, false, null);
+		assertEquals(2, cache.getMemoryHits());
+		cache.getTranscoded(sources[1], DLNAImageProfile.JPEG_TN, false, null);
+		assertEquals(4, cache.getMisses());
+
+		DLNAThumbnailCache memoryOnly = new DLNAThumbnailCache(new File(directory, "none"), 1024 * 1024, 0);
+		memoryOnly.getTranscoded(sources[0], DLNAImageProfile.JPEG_TN, false, null);
+		assertFalse(new File(directory, "none").exists());
+		assertEquals(0, memoryOnly.getDiskSize());
+	}
+
+	/**
+	 * A file on disk that isn't in the cache format, such as one written by a
+	 * previous version, is a miss and is replaced.
+	 */
+	@Test
+	public void testUnreadable() throws IOException {
+		byte[] source = image(Color.RED);
+		DLNAThumbnailCache cache = new DLNAThumbnailCache(directory, 1024 * 1024, 1024 * 1024);
+		byte[] expected = cache.getTranscoded(source, DLNAImageProfile.JPEG_TN, false, null).getBytes(false);
+		File[] files = directory.listFiles();
+		assertEquals(1, files.length);
+		try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(files[0]))) {
+			out.writeObject("thumbnail");
+		}
+
+		DLNAThumbnailCache restarted = new DLNAThumbnailCache(directory, 1024 * 1024, 1024 * 1024);
+		assertArrayEquals(expected, restarted.getTranscoded(source, DLNAImageProfile.JPEG_TN, false, null).getBytes(false));
+		assertEquals(0, restarted.getDiskHits());
+		assertEquals(1, restarted.getMisses());
+
+		DLNAThumbnailCache again = new DLNAThumbnailCache(directory, 1024 * 1024, 1024 * 1024);
+		again.getTranscoded(source, DLNAImageProfile.JPEG_TN, false, null);
+		assertEquals(1, again.getDiskHits());
+	}
+
+}
@@ -0,0 +1,85 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.dlna;
+
+import net.pms.PMS;
+import net.pms.TestHelper;
+import net.pms.configuration.RendererConfigurations;
+import net.pms.configuration.UmsConfiguration;
+import net.pms.formats.Format;
+import net.pms.media.MediaInfo;
+import net.pms.store.MediaStoreIds;
+import net.pms.store.item.WebStream;
+import org.apache.commons.configuration2.ex.ConfigurationException;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class DidlFragmentTest {
+
+	@BeforeAll
+	public static void setUpClass() throws ConfigurationException, InterruptedException {
+		TestHelper.setLoggingOff();
+		PMS.get();
+		PMS.setConfiguration(new UmsConfiguration(false));
+		RendererConfigurations.loadRendererConfigurations();
+	}
+
+	private static WebStream audio() {
+		WebStream audio = new WebStream(RendererConfigurations.getDefaultRenderer(), "Radio & Co", "http://example.com/test.mp3", "", Format.AUDIO, null);
+		audio.isValid();
+		return audio;
+	}
+
+	/**
+	 * The DIDL-Lite of an unchanged item is rendered once.
+	 */
+	@Test
+	public void testReused() {
+		WebStream audio = audio();
+		String didl = DidlHelper.getDidlString(audio);
+		assertTrue(didl.startsWith("&lt;item "));
+		assertSame(didl, DidlHelper.getDidlString(audio));
+		assertNotSame(didl, DidlHelper.getDidlString(audio()));
+		assertEquals(didl, DidlHelper.getDidlString(audio()));
+	}
+
+	/**
+	 * Update ID increments, new media info and configuration changes render
+	 * it again.
+	 */
+	@Test
+	public void testInvalidated() {
+		WebStream audio = audio();
+		String didl = DidlHelper.getDidlString(audio);
+
+		// the item is not in the store ids table, it follows the system update id
+		MediaStoreIds.incrementSystemUpdateId();
+		String updated = DidlHelper.getDidlString(audio);
+		assertNotEquals(didl, updated);
+		assertSame(updated, DidlHelper.getDidlString(audio));
+
+		audio.setMediaInfo(new MediaInfo());
+		didl = DidlHelper.getDidlString(audio);
+		assertNotSame(updated, didl);
+		assertSame(didl, DidlHelper.getDidlString(audio));
+
+		DidlFragment.invalidateAll();
+		assertNotSame(didl, DidlHelper.getDidlString(audio));
+	}
+
+}
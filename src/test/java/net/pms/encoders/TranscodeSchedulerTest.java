@@ -0,0 +1,178 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.encoders;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import net.pms.PMS;
+import net.pms.TestHelper;
+import net.pms.configuration.UmsConfiguration;
+import net.pms.io.OutputParams;
+import net.pms.io.ProcessWrapper;
+import org.apache.commons.configuration2.ex.ConfigurationException;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class TranscodeSchedulerTest {
+
+	private UmsConfiguration configuration;
+
+	@BeforeEach
+	public void setUp() throws ConfigurationException, InterruptedException {
+		TestHelper.setLoggingOff();
+		PMS.get();
+		configuration = new UmsConfiguration(false);
+		configuration.setTranscodeThreadBudget(8);
+		PMS.setConfiguration(configuration);
+	}
+
+	@AfterEach
+	public void tearDown() {
+		configuration.setTranscodeMaxSessions(0);
+	}
+
+	/**
+	 * A process that runs until it is stopped, with a given buffer level.
+	 */
+	private static class LevelProcess implements ProcessWrapper {
+		private volatile boolean destroyed;
+		private volatile double level = -1;
+
+		@Override
+		public InputStream getInputStream(long seek) {
+			return null;
+		}
+
+		@Override
+		public double getBufferLevel() {
+			return level;
+		}
+
+		@Override
+		public List<String> getResults() {
+			return null;
+		}
+
+		@Override
+		public boolean isDestroyed() {
+			return destroyed;
+		}
+
+		@Override
+		public void runInNewThread() {
+		}
+
+		@Override
+		public void runInSameThread() {
+		}
+
+		@Override
+		public void stopProcess() {
+			destroyed = true;
+		}
+
+		@Override
+		public boolean isReadyToStop() {
+			return false;
+		}
+
+		@Override
+		public void setReadyToStop(boolean readyToStop) {
+		}
+	}
+
+	/**
+	 * The threads of an engine are limited to the part of the budget given to
+	 * the process.
+	 */
+	@Test
+	public void testThreads() {
+		OutputParams params = new OutputParams(null);
+		assertEquals(0, TranscodeScheduler.getThreads(0, params));
+		assertEquals(6, TranscodeScheduler.getThreads(6, params));
+		params.setThreads(2);
+		assertEquals(2, TranscodeScheduler.getThreads(6, params));
+		assertEquals(1, TranscodeScheduler.getThreads(1, params));
+		if (Runtime.getRuntime().availableProcessors() > 2) {
+			assertEquals(2, TranscodeScheduler.getThreads(0, params));
+		}
+		params.setThreads(Runtime.getRuntime().availableProcessors());
+		assertEquals(0, TranscodeScheduler.getThreads(0, params));
+
+		assertEquals(8, TranscodeScheduler.getThreadShare(1));
+		assertEquals(2, TranscodeScheduler.getThreadShare(3));
+		assertEquals(1, TranscodeScheduler.getThreadShare(20));
+	}
+
+	/**
+	 * A transcode waits for a running one to end when the maximum number of
+	 * sessions is reached, and the sessions share the thread budget.
+	 */
+	@Test
+	public void testAdmission() throws Exception {
+		configuration.setTranscodeMaxSessions(2);
+		LevelProcess first = new LevelProcess();
+		LevelProcess second = new LevelProcess();
+		OutputParams params = new OutputParams(null);
+		TranscodeScheduler.admit(params).attach(first);
+		assertEquals(8, params.getThreads());
+		TranscodeScheduler.admit(params).attach(second);
+		assertEquals(4, params.getThreads());
+		assertEquals(2, TranscodeScheduler.getSessionCount());
+
+		OutputParams waiting = new OutputParams(null);
+		CompletableFuture<TranscodeScheduler.Session> third = CompletableFuture.supplyAsync(() -> TranscodeScheduler.admit(waiting));
+		assertThrows(TimeoutException.class, () -> third.get(500, TimeUnit.MILLISECONDS));
+		first.stopProcess();
+		assertNotNull(third.get(5, TimeUnit.SECONDS));
+		assertEquals(4, waiting.getThreads());
+
+		second.stopProcess();
+		third.get().release();
+		assertEquals(0, TranscodeScheduler.getSessionCount());
+	}
+
+	/**
+	 * Background work waits while a live transcode doesn't keep its buffer
+	 * filled.
+	 */
+	@Test
+	public void testBackground() throws Exception {
+		LevelProcess live = new LevelProcess();
+		TranscodeScheduler.admit(new OutputParams(null)).attach(live);
+		live.level = 0.5;
+		assertFalse(TranscodeScheduler.isStarving());
+		assertEquals(List.of(0.5), TranscodeScheduler.getBufferLevels());
+
+		live.level = 0;
+		assertTrue(TranscodeScheduler.isStarving());
+		CompletableFuture<Void> background = CompletableFuture.runAsync(TranscodeScheduler::acquireBackground);
+		assertThrows(TimeoutException.class, () -> background.get(500, TimeUnit.MILLISECONDS));
+		live.level = 1;
+		background.get(5, TimeUnit.SECONDS);
+		TranscodeScheduler.releaseBackground();
+
+		live.stopProcess();
+		assertEquals(0, TranscodeScheduler.getSessionCount());
+	}
+
+}
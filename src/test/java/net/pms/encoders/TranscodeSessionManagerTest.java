@@ -0,0 +1,168 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.encoders;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.List;
+import net.pms.PMS;
+import net.pms.TestHelper;
+import net.pms.configuration.RendererConfigurations;
+import net.pms.configuration.UmsConfiguration;
+import net.pms.io.BufferedOutputFile;
+import net.pms.io.OutputParams;
+import net.pms.io.ProcessWrapper;
+import net.pms.io.RingBufferedOutputFile;
+import net.pms.store.item.RealFile;
+import org.apache.commons.configuration2.ex.ConfigurationException;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class TranscodeSessionManagerTest {
+
+	private RealFile first;
+	private RealFile second;
+
+	@BeforeEach
+	public void setUp() throws ConfigurationException, InterruptedException {
+		TestHelper.setLoggingOff();
+		PMS.get();
+		PMS.setConfiguration(new UmsConfiguration(false));
+		TranscodeSessionManager.clear();
+		first = new RealFile(RendererConfigurations.getDefaultRenderer(), new File("test.mkv"));
+		second = new RealFile(RendererConfigurations.getDefaultRenderer(), new File("test.mkv"));
+	}
+
+	private static OutputParams getParams() {
+		OutputParams params = new OutputParams(null);
+		params.setMinBufferSize(0);
+		params.setSecondReadMinSize(0);
+		params.setMaxBufferSize(1);
+		params.setHideBuffer(true);
+		return params;
+	}
+
+	/**
+	 * A process that only writes what the test gives it in a buffer.
+	 */
+	private static class BufferProcess implements ProcessWrapper {
+		private final BufferedOutputFile buffer = new RingBufferedOutputFile(getParams());
+		private volatile boolean destroyed;
+		private volatile boolean readyToStop;
+
+		private BufferProcess() {
+			buffer.attachThread(this);
+		}
+
+		@Override
+		public InputStream getInputStream(long seek) {
+			return buffer.getInputStream(seek);
+		}
+
+		@Override
+		public boolean isOutputAvailable(long position) {
+			return !destroyed && buffer.isInBuffer(position);
+		}
+
+		@Override
+		public List<String> getResults() {
+			return null;
+		}
+
+		@Override
+		public boolean isDestroyed() {
+			return destroyed;
+		}
+
+		@Override
+		public void runInNewThread() {
+		}
+
+		@Override
+		public void runInSameThread() {
+		}
+
+		@Override
+		public void stopProcess() {
+			destroyed = true;
+		}
+
+		@Override
+		public boolean isReadyToStop() {
+			return readyToStop;
+		}
+
+		@Override
+		public void setReadyToStop(boolean readyToStop) {
+			this.readyToStop = readyToStop;
+		}
+	}
+
+	/**
+	 * Items join the process of the same output while the position they ask
+	 * for is buffered, and the process is only released by the last one.
+	 */
+	@Test
+	public void testJoin() throws Exception {
+		BufferProcess process = new BufferProcess();
+		TranscodeSessionManager.register(first, "key", process);
+		assertSame(process, TranscodeSessionManager.join(second, "key", 0));
+		assertNull(TranscodeSessionManager.join(second, "other", 0));
+
+		process.buffer.write(new byte[1000]);
+		assertSame(process, TranscodeSessionManager.join(second, "key", 500));
+		assertNull(TranscodeSessionManager.join(second, "key", 2000));
+
+		assertFalse(TranscodeSessionManager.release(first, process));
+		assertTrue(TranscodeSessionManager.release(second, process));
+		assertEquals(0, TranscodeSessionManager.getSessionCount());
+		assertNull(TranscodeSessionManager.join(second, "key", 0));
+	}
+
+	/**
+	 * Closing one reader doesn't mark the process as ready to stop while
+	 * another reader is open.
+	 */
+	@Test
+	public void testReaders() throws Exception {
+		BufferProcess process = new BufferProcess();
+		TranscodeSessionManager.register(first, "key", process);
+		InputStream firstReader = TranscodeSessionManager.getInputStream(process, process.getInputStream(0));
+		assertSame(process, TranscodeSessionManager.join(second, "key", 0));
+		InputStream secondReader = TranscodeSessionManager.getInputStream(process, process.getInputStream(0));
+
+		firstReader.close();
+		assertFalse(process.isReadyToStop());
+		secondReader.close();
+		assertTrue(process.isReadyToStop());
+	}
+
+	/**
+	 * Stopped processes are not joined.
+	 */
+	@Test
+	public void testStopped() {
+		BufferProcess process = new BufferProcess();
+		TranscodeSessionManager.register(first, "key", process);
+		assertEquals(1, TranscodeSessionManager.getSessionCount());
+		process.stopProcess();
+		assertNull(TranscodeSessionManager.join(second, "key", 0));
+		assertEquals(0, TranscodeSessionManager.getSessionCount());
+	}
+
+}
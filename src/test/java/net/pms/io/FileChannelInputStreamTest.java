@@ -0,0 +1,106 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class FileChannelInputStreamTest {
+
+	@TempDir
+	File tempDir;
+
+	private File createFile(int length) throws IOException {
+		byte[] data = new byte[length];
+		for (int i = 0; i < length; i++) {
+			data[i] = (byte) i;
+		}
+		File file = new File(tempDir, "test.bin");
+		Files.write(file.toPath(), data);
+		return file;
+	}
+
+	@Test
+	public void testWholeFile() throws IOException {
+		try (FileChannelInputStream in = new FileChannelInputStream(createFile(1000))) {
+			assertEquals(1000, in.getRemaining());
+			byte[] data = in.readAllBytes();
+			assertEquals(1000, data.length);
+			assertEquals((byte) 999, data[999]);
+			assertEquals(-1, in.read());
+		}
+	}
+
+	@Test
+	public void testRange() throws IOException {
+		try (FileChannelInputStream in = new FileChannelInputStream(createFile(1000))) {
+			in.setRange(100, 199);
+			assertEquals(100, in.getPosition());
+			assertEquals(100, in.available());
+			assertEquals(100, in.read());
+			assertEquals(10, in.skip(10));
+			byte[] data = in.readAllBytes();
+			assertEquals(89, data.length);
+			assertEquals((byte) 111, data[0]);
+			assertEquals((byte) 199, data[88]);
+		}
+	}
+
+	@Test
+	public void testOpenRange() throws IOException {
+		try (FileChannelInputStream in = new FileChannelInputStream(createFile(1000))) {
+			in.setRange(900, -1);
+			assertEquals(100, in.getRemaining());
+			assertEquals(100, in.skip(500));
+			assertEquals(0, in.getRemaining());
+			in.setRange(990, 5000);
+			assertEquals(10, in.readAllBytes().length);
+		}
+	}
+
+	@Test
+	public void testAdvance() throws IOException {
+		try (FileChannelInputStream in = new FileChannelInputStream(createFile(1000))) {
+			in.setRange(0, 499);
+			in.advance(400);
+			assertEquals(400, in.getPosition());
+			assertEquals(100, in.getRemaining());
+			in.advance(1000);
+			assertEquals(0, in.getRemaining());
+		}
+	}
+
+	@Test
+	public void testPartOfFile() throws IOException {
+		try (FileChannelInputStream in = new FileChannelInputStream(createFile(1000), 200, 300)) {
+			assertEquals(300, in.getSize());
+			assertEquals(200, in.read());
+			in.setRange(100, 149);
+			assertEquals(100, in.getPosition());
+			assertEquals(300, in.getChannelPosition());
+			byte[] data = in.readAllBytes();
+			assertEquals(50, data.length);
+			assertEquals((byte) 300, data[0]);
+			in.setRange(250, -1);
+			assertEquals(50, in.readAllBytes().length);
+		}
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.io;
+
+import com.sun.jna.Platform;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import net.pms.PMS;
+import net.pms.TestHelper;
+import net.pms.configuration.UmsConfiguration;
+import org.apache.commons.configuration2.ex.ConfigurationException;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ProcessWrapperImplTest {
+
+	@BeforeEach
+	public void setUp() throws ConfigurationException, InterruptedException {
+		assumeFalse(Platform.isWindows());
+		TestHelper.setLoggingOff();
+		PMS.get();
+		PMS.setConfiguration(new UmsConfiguration(false));
+	}
+
+	private static OutputParams getParams() {
+		OutputParams params = new OutputParams(null);
+		params.setMinBufferSize(0);
+		params.setSecondReadMinSize(0);
+		params.setHideBuffer(true);
+		params.setNoExitCheck(true);
+		return params;
+	}
+
+	/**
+	 * The first output of a process is signalled once buffered.
+	 */
+	@Test
+	public void testFirstOutput() throws Exception {
+		ProcessWrapperImpl process = new ProcessWrapperImpl(new String[] {"sh", "-c", "sleep 0.2; printf output"}, getParams());
+		assertFalse(process.getFirstOutput().isDone());
+		process.runInNewThread();
+		assertTrue(process.getFirstOutput().get(10, TimeUnit.SECONDS));
+		try (InputStream in = process.getInputStream(0)) {
+			assertNotNull(in);
+			assertEquals('o', in.read());
+		}
+		process.stopProcess();
+	}
+
+	/**
+	 * A process stopped before any output doesn't leave its waiters hanging.
+	 */
+	@Test
+	public void testStoppedWithoutOutput() throws Exception {
+		ProcessWrapperImpl process = new ProcessWrapperImpl(new String[] {"sh", "-c", "sleep 10"}, getParams());
+		process.runInNewThread();
+		Thread.sleep(200);
+		process.stopProcess();
+		assertFalse(process.getFirstOutput().get(10, TimeUnit.SECONDS));
+	}
+
+}
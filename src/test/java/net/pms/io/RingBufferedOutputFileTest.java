@@ -0,0 +1,294 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import net.pms.PMS;
+import net.pms.TestHelper;
+import net.pms.configuration.UmsConfiguration;
+import net.pms.configuration.UmsConfiguration.TranscodeBufferStorage;
+import org.apache.commons.configuration2.ex.ConfigurationException;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class RingBufferedOutputFileTest {
+	private static final int CHUNK_SIZE = 500000;
+
+	private UmsConfiguration configuration;
+
+	@BeforeEach
+	public void setUp() throws ConfigurationException, InterruptedException {
+		TestHelper.setLoggingOff();
+		PMS.get();
+		configuration = new UmsConfiguration(false);
+		PMS.setConfiguration(configuration);
+	}
+
+	private static OutputParams getParams(double maxBufferSize) {
+		OutputParams params = new OutputParams(null);
+		params.setMinBufferSize(0);
+		params.setSecondReadMinSize(0);
+		params.setMaxBufferSize(maxBufferSize);
+		params.setHideBuffer(true);
+		return params;
+	}
+
+	private static byte expected(long position) {
+		return (byte) (position * 31 + (position >> 8));
+	}
+
+	private static void fill(byte[] chunk, long position) {
+		for (int i = 0; i < chunk.length; i++) {
+			chunk[i] = expected(position + i);
+		}
+	}
+
+	/**
+	 * Pushes more data than the ring can hold through it, so that both writes
+	 * and reads wrap around, with two readers consuming the same output.
+	 */
+	@Test
+	public void testWrapAroundMultipleReaders() throws Exception {
+		// 1 MB ring, 8 MB of output
+		RingBufferedOutputFile ring = new RingBufferedOutputFile(getParams(1));
+		InputStream first = ring.getInputStream(0);
+		InputStream second = ring.getInputStream(0);
+		long total = 8L * 1048576;
+
+		CompletableFuture<Long> firstReader = CompletableFuture.supplyAsync(() -> verify(first, total));
+		CompletableFuture<Long> secondReader = CompletableFuture.supplyAsync(() -> verify(second, total));
+
+		writeAll(ring, total);
+		ring.close();
+
+		assertEquals(total, firstReader.get(30, TimeUnit.SECONDS));
+		assertEquals(total, secondReader.get(30, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testOffHeapStorage() throws Exception {
+		configuration.setTranscodeBufferOffHeapSize(16);
+		for (TranscodeBufferStorage storage : TranscodeBufferStorage.values()) {
+			configuration.setTranscodeBufferStorage(storage);
+			RingBufferedOutputFile ring = new RingBufferedOutputFile(getParams(16));
+			InputStream input = ring.getInputStream(0);
+			long total = 40L * 1048576;
+			CompletableFuture<Long> reader = CompletableFuture.supplyAsync(() -> verify(input, total));
+			writeAll(ring, total);
+			ring.close();
+			assertEquals(total, reader.get(30, TimeUnit.SECONDS), storage.toString());
+			ring.reset();
+		}
+	}
+
+	/**
+	 * A reader waiting to read without blocking is only woken up once its own
+	 * minimum buffer is filled, or once it has waited long enough even if
+	 * nothing else is written.
+	 */
+	@Test
+	public void testReadReady() throws Exception {
+		OutputParams params = getParams(16);
+		params.setMinBufferSize(1);
+		RingBufferedOutputFile ring = new RingBufferedOutputFile(params);
+		CountDownLatch firstReady = new CountDownLatch(1);
+		CountDownLatch secondReady = new CountDownLatch(1);
+		ring.onReadReady(true, 0, System.nanoTime(), firstReady::countDown);
+		ring.onReadReady(false, 0, System.nanoTime(), secondReady::countDown);
+		assertEquals(1, firstReady.getCount());
+		assertEquals(1, secondReady.getCount());
+
+		ring.write(new byte[1000]);
+		assertEquals(1, firstReady.getCount());
+		assertEquals(0, secondReady.getCount());
+		ring.write(new byte[1048576]);
+		assertEquals(0, firstReady.getCount());
+
+		// Waited for all but 500 ms of the minimum buffer wait
+		CountDownLatch waited = new CountDownLatch(1);
+		long waitStart = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(7000);
+		ring.onReadReady(true, 1000, waitStart, waited::countDown);
+		assertEquals(1, waited.getCount());
+		assertTrue(waited.await(5, TimeUnit.SECONDS));
+		ring.reset();
+	}
+
+	/**
+	 * Off-heap rings only take the memory they fill, and give it back when
+	 * they are released.
+	 */
+	@Test
+	public void testOffHeapAllocation(@TempDir File folder) throws Exception {
+		long capacity = 1024L * 1048576;
+		ByteBufferRingBufferStorage direct = ByteBufferRingBufferStorage.allocateDirect(capacity, 16L * 1048576);
+		assertEquals(capacity, direct.capacity());
+		assertEquals(16L * 1048576, direct.getAllocatedSize());
+		direct.prepareWrite(0, 20 * 1048576);
+		assertEquals(32L * 1048576, direct.getAllocatedSize());
+		direct.put(20 * 1048576 - 1, new byte[] {42}, 0, 1);
+		assertEquals(42, direct.get(20 * 1048576 - 1));
+		direct.release();
+		assertEquals(0, direct.get(20 * 1048576 - 1));
+
+		ByteBufferRingBufferStorage mapped = ByteBufferRingBufferStorage.map(folder, capacity, 16L * 1048576);
+		File[] files = folder.listFiles();
+		assertEquals(1, files.length);
+		assertEquals(16L * 1048576, files[0].length());
+		mapped.prepareWrite(0, 20 * 1048576);
+		assertEquals(32L * 1048576, files[0].length());
+		mapped.release();
+		assertEquals(0, folder.listFiles().length);
+	}
+
+	/**
+	 * An off-heap ring larger than the maximum buffer size keeps what was
+	 * already read, so that a renderer can seek back into it.
+	 */
+	@Test
+	public void testSeekBackWindow() throws Exception {
+		configuration.setTranscodeBufferStorage(TranscodeBufferStorage.MAPPED);
+		configuration.setTranscodeBufferOffHeapSize(64);
+		RingBufferedOutputFile ring = new RingBufferedOutputFile(getParams(16));
+		InputStream input = ring.getInputStream(0);
+		long total = 96L * 1048576;
+		CompletableFuture<Long> reader = CompletableFuture.supplyAsync(() -> verify(input, total));
+		writeAll(ring, total);
+		ring.close();
+		assertEquals(total, reader.get(30, TimeUnit.SECONDS));
+
+		// 64 MB are still buffered
+		InputStream seekBack = ring.getInputStream(total - 60L * 1048576);
+		byte[] buf = new byte[1000];
+		assertEquals(buf.length, seekBack.read(buf));
+		for (int i = 0; i < buf.length; i++) {
+			assertEquals(expected(total - 60L * 1048576 + i), buf[i]);
+		}
+
+		// The start was overwritten
+		assertEquals(-1, ring.getInputStream(1).read(buf));
+		ring.reset();
+	}
+
+	private static void writeAll(BufferedOutputFile output, long total) throws IOException {
+		byte[] chunk = new byte[100003];
+		long written = 0;
+		while (written < total) {
+			int length = (int) Math.min(chunk.length, total - written);
+			fill(chunk, written);
+			output.write(chunk, 0, length);
+			written += length;
+		}
+	}
+
+	private static long verify(InputStream input, long total) {
+		byte[] buf = new byte[65537];
+		long position = 0;
+		try {
+			int n;
+			while ((n = input.read(buf)) != -1) {
+				for (int i = 0; i < n; i++) {
+					if (buf[i] != expected(position + i)) {
+						throw new AssertionError("Unexpected byte at position " + (position + i));
+					}
+				}
+				position += n;
+				if (position >= total) {
+					break;
+				}
+			}
+		} catch (IOException e) {
+			throw new AssertionError(e);
+		}
+		return position;
+	}
+
+	/**
+	 * Compares the throughput of {@link RingBufferedOutputFile} with
+	 * {@link BufferedOutputFileImpl} when the reader keeps up with a
+	 * transcoder that produces data in bursts, which is the normal case while
+	 * streaming.
+	 *
+	 * The figures depend on the machine and its load, so this only runs with
+	 * {@code -Dbenchmark=true}.
+	 */
+	@Test
+	public void testThroughputComparedToPollingBuffer() throws Exception {
+		assumeTrue(Boolean.getBoolean("benchmark"));
+		int chunks = 6;
+		long legacy = measureLockstep(new BufferedOutputFileImpl(getParams(100)), chunks);
+		long ring = measureLockstep(new RingBufferedOutputFile(getParams(100)), chunks);
+		assertTrue(ring < legacy, "Ring buffer took " + ring + " ms, polling buffer took " + legacy + " ms");
+		assertTrue(ring < 2000, "Ring buffer took " + ring + " ms");
+	}
+
+	/**
+	 * Writes chunks one by one, each time waiting for the reader to have
+	 * consumed the previous one.
+	 *
+	 * @return the elapsed time in milliseconds.
+	 */
+	private static long measureLockstep(BufferedOutputFile output, int chunks) throws Exception {
+		InputStream input = output.getInputStream(0);
+		Semaphore consumed = new Semaphore(0);
+		CompletableFuture<Long> reader = CompletableFuture.supplyAsync(() -> {
+			byte[] buf = new byte[CHUNK_SIZE];
+			long position = 0;
+			try {
+				while (position < (long) chunks * CHUNK_SIZE) {
+					int n = input.read(buf, 0, (int) Math.min(buf.length, (position / CHUNK_SIZE + 1) * CHUNK_SIZE - position));
+					if (n == -1) {
+						break;
+					}
+					for (int i = 0; i < n; i++) {
+						if (buf[i] != expected(position + i)) {
+							throw new AssertionError("Unexpected byte at position " + (position + i));
+						}
+					}
+					position += n;
+					if (position % CHUNK_SIZE == 0) {
+						consumed.release();
+					}
+				}
+			} catch (IOException e) {
+				throw new AssertionError(e);
+			}
+			return position;
+		});
+
+		byte[] chunk = new byte[CHUNK_SIZE];
+		long start = System.nanoTime();
+		for (int i = 0; i < chunks; i++) {
+			fill(chunk, (long) i * CHUNK_SIZE);
+			output.write(chunk, 0, CHUNK_SIZE);
+			assertTrue(consumed.tryAcquire(30, TimeUnit.SECONDS));
+		}
+		long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		output.close();
+		assertEquals((long) chunks * CHUNK_SIZE, reader.get(30, TimeUnit.SECONDS));
+		output.reset();
+		return elapsed;
+	}
+}
@@ -0,0 +1,292 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.network;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import net.pms.PMS;
+import net.pms.TestHelper;
+import net.pms.configuration.UmsConfiguration;
+import net.pms.io.FileChannelInputStream;
+import org.eclipse.jetty.ee10.servlet.ServletContextHandler;
+import org.eclipse.jetty.ee10.servlet.ServletHolder;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Load test of the media streaming path used by
+ * {@link net.pms.network.mediaserver.servlets.MediaServerServlet}: many slow
+ * clients must be served at once by a small container thread pool.
+ */
+public class AsyncStreamWriterTest {
+	private static final int CLIENTS = 100;
+	private static final int MAX_THREADS = 24;
+	private static final long STREAM_SIZE = 8L * 1024 * 1024;
+	private static final int FIRST_BYTES = 64 * 1024;
+
+	private static File file;
+
+	private Server server;
+	private int port;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		TestHelper.setLoggingOff();
+		PMS.get();
+		PMS.setConfiguration(new UmsConfiguration(false));
+
+		server = new Server(new QueuedThreadPool(MAX_THREADS, 4));
+		ServerConnector connector = new ServerConnector(server);
+		connector.setHost("127.0.0.1");
+		connector.setPort(0);
+		server.addConnector(connector);
+		ServletContextHandler handler = new ServletContextHandler(ServletContextHandler.NO_SESSIONS);
+		ServletHolder holder = new ServletHolder(new StreamServlet());
+		holder.setAsyncSupported(true);
+		handler.addServlet(holder, "/*");
+		server.setHandler(handler);
+		server.start();
+		port = connector.getLocalPort();
+	}
+
+	@AfterEach
+	public void tearDown() throws Exception {
+		server.stop();
+	}
+
+	/**
+	 * Every client reads the start of its stream, then waits for all others
+	 * to have started before reading the rest. With a blocking copy,
+	 * each stalled client would hold one of the few container threads and
+	 * most clients would never start.
+	 */
+	@Test
+	public void testSlowClients() throws Exception {
+		CountDownLatch started = new CountDownLatch(CLIENTS);
+		ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+		try {
+			List<CompletableFuture<Long>> results = new ArrayList<>();
+			for (int i = 0; i < CLIENTS; i++) {
+				results.add(CompletableFuture.supplyAsync(() -> readStream(started), clients));
+			}
+			for (CompletableFuture<Long> result : results) {
+				assertEquals(STREAM_SIZE, result.get(120, TimeUnit.SECONDS));
+			}
+		} finally {
+			clients.shutdownNow();
+		}
+	}
+
+	/**
+	 * Every stream blocks before its first byte until all of them were asked
+	 * for data. The streams must be read off the container threads, or most
+	 * of them would never be asked.
+	 */
+	@Test
+	public void testBlockingStreams() throws Exception {
+		ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+		try {
+			List<CompletableFuture<Long>> results = new ArrayList<>();
+			for (int i = 0; i < CLIENTS; i++) {
+				results.add(CompletableFuture.supplyAsync(() -> readStream("/blocking", null), clients));
+			}
+			for (CompletableFuture<Long> result : results) {
+				assertEquals(STREAM_SIZE, result.get(120, TimeUnit.SECONDS));
+			}
+		} finally {
+			clients.shutdownNow();
+		}
+	}
+
+	/**
+	 * Every client reads the start of the same file, then waits for all
+	 * others to have started before reading the rest, so the file buffers are
+	 * all in use at once and then reused.
+	 */
+	@Test
+	public void testFiles(@TempDir File folder) throws Exception {
+		file = new File(folder, "file.mpg");
+		try (OutputStream out = new FileOutputStream(file); InputStream in = new GeneratedInputStream()) {
+			in.transferTo(out);
+		}
+		CountDownLatch started = new CountDownLatch(CLIENTS);
+		ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+		try {
+			List<CompletableFuture<Long>> results = new ArrayList<>();
+			for (int i = 0; i < CLIENTS; i++) {
+				results.add(CompletableFuture.supplyAsync(() -> readStream("/file", started), clients));
+			}
+			for (CompletableFuture<Long> result : results) {
+				assertEquals(STREAM_SIZE, result.get(120, TimeUnit.SECONDS));
+			}
+			assertEquals(STREAM_SIZE, readStream("/file", null));
+		} finally {
+			clients.shutdownNow();
+		}
+	}
+
+	private long readStream(CountDownLatch started) {
+		return readStream("/stream", started);
+	}
+
+	private long readStream(String path, CountDownLatch started) {
+		try (Socket socket = new Socket()) {
+			socket.connect(new InetSocketAddress("127.0.0.1", port));
+			OutputStream out = socket.getOutputStream();
+			out.write(("GET " + path + " HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+			out.flush();
+
+			InputStream in = socket.getInputStream();
+			String headers = readHeaders(in);
+			assertTrue(headers.startsWith("HTTP/1.1 200"), headers);
+			byte[] buf = new byte[8192];
+			long body = 0;
+			boolean waited = false;
+			int n;
+			while ((n = in.read(buf)) != -1) {
+				for (int i = 0; i < n; i++) {
+					if (buf[i] != expected(body + i)) {
+						throw new AssertionError("Unexpected byte at position " + (body + i));
+					}
+				}
+				body += n;
+				if (started != null && !waited && body >= FIRST_BYTES) {
+					waited = true;
+					started.countDown();
+					if (!started.await(60, TimeUnit.SECONDS)) {
+						throw new AssertionError("Not all clients were served at the same time");
+					}
+				}
+			}
+			return body;
+		} catch (IOException e) {
+			throw new AssertionError(e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new AssertionError(e);
+		}
+	}
+
+	private static String readHeaders(InputStream in) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		int c;
+		while ((c = in.read()) != -1) {
+			sb.append((char) c);
+			if (sb.length() >= 4 && sb.substring(sb.length() - 4).equals("\r\n\r\n")) {
+				break;
+			}
+		}
+		return sb.toString();
+	}
+
+	private static byte expected(long position) {
+		return (byte) (position * 31 + (position >> 10));
+	}
+
+	/**
+	 * Sends a generated stream the way the media server servlet does.
+	 */
+	private static class StreamServlet extends HttpServletHelper {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+			AsyncContext async = req.startAsync();
+			// Media streams are not timed out
+			async.setTimeout(0);
+			resp.setContentType("video/mpeg");
+			resp.setContentLengthLong(STREAM_SIZE);
+			resp.setStatus(200);
+			InputStream in = switch (req.getRequestURI()) {
+				case "/blocking" -> new BlockingInputStream();
+				case "/file" -> new FileChannelInputStream(file);
+				default -> new GeneratedInputStream();
+			};
+			copyStreamAsync(in, resp.getOutputStream(), async, null);
+		}
+	}
+
+	private static class GeneratedInputStream extends InputStream {
+		protected long position;
+
+		@Override
+		public int read() {
+			if (position >= STREAM_SIZE) {
+				return -1;
+			}
+			return expected(position++) & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (position >= STREAM_SIZE) {
+				return -1;
+			}
+			int length = (int) Math.min(len, STREAM_SIZE - position);
+			for (int i = 0; i < length; i++) {
+				b[off + i] = expected(position++);
+			}
+			return length;
+		}
+	}
+
+	/**
+	 * A stream that blocks on its first read until all the streams of the
+	 * test were read from.
+	 */
+	private static class BlockingInputStream extends GeneratedInputStream {
+		private static final CountDownLatch READ = new CountDownLatch(CLIENTS);
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (position == 0) {
+				READ.countDown();
+				try {
+					if (!READ.await(60, TimeUnit.SECONDS)) {
+						return -1;
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return -1;
+				}
+			}
+			return super.read(b, off, len);
+		}
+	}
+}
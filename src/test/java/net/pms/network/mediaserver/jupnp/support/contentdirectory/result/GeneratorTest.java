@@ -0,0 +1,187 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.network.mediaserver.jupnp.support.contentdirectory.result;
+
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import net.pms.TestHelper;
+import net.pms.network.mediaserver.jupnp.support.contentdirectory.result.namespace.dc.DC;
+import net.pms.network.mediaserver.jupnp.support.contentdirectory.result.namespace.didl_lite.Desc;
+import net.pms.network.mediaserver.jupnp.support.contentdirectory.result.namespace.didl_lite.Res;
+import net.pms.network.mediaserver.jupnp.support.contentdirectory.result.namespace.didl_lite.container.StorageFolder;
+import net.pms.network.mediaserver.jupnp.support.contentdirectory.result.namespace.didl_lite.item.Movie;
+import net.pms.network.mediaserver.jupnp.support.contentdirectory.result.namespace.didl_lite.item.MusicTrack;
+import net.pms.network.mediaserver.jupnp.support.contentdirectory.result.namespace.pv.PV;
+import net.pms.network.mediaserver.jupnp.support.contentdirectory.result.namespace.sec.SEC;
+import net.pms.network.mediaserver.jupnp.support.contentdirectory.result.namespace.upnp.UPNP;
+import org.jupnp.support.model.ProtocolInfo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class GeneratorTest {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(GeneratorTest.class);
+	private static final Generator GENERATOR = new Generator();
+
+	@BeforeAll
+	public static void setUpClass() {
+		TestHelper.setLoggingOff();
+	}
+
+	private static StorageFolder folder(String id, String title) {
+		StorageFolder folder = new StorageFolder();
+		folder.setId(id);
+		folder.setParentID("0");
+		folder.setTitle(title);
+		folder.setChildCount(12L);
+		folder.setRestricted(true);
+		return folder;
+	}
+
+	private static MusicTrack track(String id, String title) {
+		MusicTrack track = new MusicTrack();
+		track.setId(id);
+		track.setParentID("1");
+		track.setTitle(title);
+		track.setRestricted(true);
+		track.addProperty(new UPNP.Artist("Artist & \"Band\"", "Performer"));
+		track.addProperty(new UPNP.Album("Album <Live>"));
+		track.addProperty(new DC.Date("2024-01-31"));
+		track.addProperty(new SEC.DcmInfo("CREATIONDATE=0"));
+		track.addProperty(new UPNP.AlbumArtURI(URI.create("http://127.0.0.1:5001/thumb/" + id + "?a=1&update=3")).setProfileID("JPEG_TN"));
+		Res res = new Res(new ProtocolInfo("http-get:*:audio/mpeg:DLNA.ORG_PN=MP3;DLNA.ORG_OP=01"), 4_123_456L, URI.create("http://127.0.0.1:5001/get/" + id + "/track.mp3"));
+		res.setDuration("0:03:21.000");
+		res.getDependentProperties().add(new PV.SubtitleFileType("SRT"));
+		res.getDependentProperties().add(new PV.SubtitleFileUri("http://127.0.0.1:5001/get/" + id + "/sub.srt"));
+		res.getDependentProperties().add(new Res.ImportUri(URI.create("http://127.0.0.1:5001/import?id=" + id)));
+		track.addResource(res);
+		track.addProperty(new SEC.CaptionInfoEx(URI.create("http://127.0.0.1:5001/get/" + id + "/sub.srt"), "srt"));
+		Desc desc = new Desc("http://ums/tags");
+		desc.setId("2");
+		desc.setType("ums-tags");
+		desc.addMetadata("musicbrainztrackid", "b1a9c0e9");
+		track.addDescription(desc);
+		return track;
+	}
+
+	private static Result page(int size) {
+		Result result = new Result();
+		for (int i = 0; i < size / 4; i++) {
+			result.addContainer(folder("1$" + i, "Folder " + i));
+		}
+		for (int i = size / 4; i < size; i++) {
+			result.addItem(track("2$" + i, "Track " + i));
+		}
+		return result;
+	}
+
+	private static void assertSameOutput(Result result) {
+		assertEquals(GENERATOR.generateFromDOM(result), GENERATOR.generate(result));
+	}
+
+	@Test
+	public void testSameOutput() {
+		assertSameOutput(new Result());
+		assertSameOutput(page(40));
+
+		Result result = new Result();
+		result.addContainer(null);
+		result.addContainer(folder("1", ""));
+		result.addItem(null);
+		Movie movie = new Movie();
+		movie.setId("3");
+		result.addItem(movie);
+		MusicTrack track = track("4", "Title");
+		track.addProperty(new DC.Contributor("no name"));
+		track.addProperty(new UPNP.Artist("second artist"));
+		result.addItem(track);
+		result.addDescription(new Desc("urn:test"));
+		assertSameOutput(result);
+	}
+
+	@Test
+	public void testSameEscaping() {
+		assertSameOutput(page(1));
+		for (char c = 0; c < 0x100; c++) {
+			String text = "a" + c + "b";
+			assertSameOutput(new Result().addContainer(folder(text, text)));
+		}
+		String[] texts = {
+			"A & B <c> \"d\" 'e' ]]> \r\n\t",
+			"emoji 😀 pair",
+			"lone low \uDE00 surrogate",
+			"lone high \uD83D surrogate",
+			"high at the end \uD83D",
+			"\u2028\uFEFF\uFFFE\uFFFF"
+		};
+		for (String text : texts) {
+			assertSameOutput(new Result().addContainer(folder(text, text)));
+			MusicTrack track = track("5", text);
+			track.addProperty(new UPNP.Artist(text, text));
+			assertSameOutput(new Result().addItem(track));
+		}
+	}
+
+	/**
+	 * Compares the allocations and the time taken by both generators on a
+	 * browse page of 100 objects.
+	 *
+	 * The figures depend on the machine and the JIT, so this only runs with
+	 * {@code -Dbenchmark=true}.
+	 */
+	@Test
+	public void testBenchmark() {
+		assumeTrue(Boolean.getBoolean("benchmark"));
+		assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		assumeTrue(threadMXBean.isThreadAllocatedMemorySupported());
+		threadMXBean.setThreadAllocatedMemoryEnabled(true);
+		Result result = page(100);
+		int iterations = 50;
+		for (int i = 0; i < iterations; i++) {
+			GENERATOR.generateFromDOM(result);
+			GENERATOR.generate(result);
+		}
+
+		long threadId = Thread.currentThread().getId();
+		long allocated = threadMXBean.getThreadAllocatedBytes(threadId);
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			GENERATOR.generateFromDOM(result);
+		}
+		long domNanos = (System.nanoTime() - start) / iterations;
+		long domBytes = (threadMXBean.getThreadAllocatedBytes(threadId) - allocated) / iterations;
+
+		allocated = threadMXBean.getThreadAllocatedBytes(threadId);
+		start = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			GENERATOR.generate(result);
+		}
+		long streamNanos = (System.nanoTime() - start) / iterations;
+		long streamBytes = (threadMXBean.getThreadAllocatedBytes(threadId) - allocated) / iterations;
+
+		LOGGER.debug("DIDL-Lite of 100 objects, DOM: {} KiB in {} us, streaming: {} KiB in {} us",
+			domBytes / 1024, domNanos / 1000, streamBytes / 1024, streamNanos / 1000);
+		assertTrue(streamBytes * 3 < domBytes);
+	}
+
+}
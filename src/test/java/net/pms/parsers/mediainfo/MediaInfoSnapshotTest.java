@@ -0,0 +1,76 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.parsers.mediainfo;
+
+import java.util.List;
+import java.util.Map;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+public class MediaInfoSnapshotTest {
+
+	/**
+	 * The template only changes when a new parameter is registered.
+	 */
+	@Test
+	public void testRegister() {
+		MediaInfoSnapshot.register(StreamKind.GENERAL, "Format");
+		MediaInfoSnapshot.Template template = MediaInfoSnapshot.getTemplate();
+		MediaInfoSnapshot.register(StreamKind.GENERAL, "Format");
+		assertSame(template, MediaInfoSnapshot.getTemplate());
+		MediaInfoSnapshot.register(StreamKind.GENERAL, "Test_Register");
+		assertEquals(template.version() + 1, MediaInfoSnapshot.getTemplate().version());
+		assertTrue(MediaInfoSnapshot.getTemplate().parameters().get(StreamKind.GENERAL).contains("Test_Register"));
+		MediaInfoSnapshot.register(StreamKind.GENERAL, "%Format%");
+		assertFalse(MediaInfoSnapshot.getTemplate().parameters().get(StreamKind.GENERAL).contains("%Format%"));
+	}
+
+	/**
+	 * The {@code Inform} output of a template is read back per stream.
+	 */
+	@Test
+	public void testParse() {
+		MediaInfoSnapshot.Template template = new MediaInfoSnapshot.Template(1, Map.of(
+			StreamKind.GENERAL, List.of("Format", "Duration"),
+			StreamKind.AUDIO, List.of("Format", "Channel(s)")
+		));
+		String option = template.toInformOption();
+		assertTrue(option.contains("General;0\u001F%Format%\u001F%Duration%\u001E"));
+		assertTrue(option.contains("Audio;2\u001F%Format%\u001F%Channel(s)%\u001E"));
+
+		String inform = "0\u001FMatroska\u001F5000\u001E\r\n" +
+			"2\u001FAAC\u001F2\u001E2\u001FAC-3\u001F6\u001E\r\n";
+		MediaInfoSnapshot snapshot = MediaInfoSnapshot.parse(template, inform);
+		assertNotNull(snapshot);
+		assertEquals(1, snapshot.getCount(StreamKind.GENERAL));
+		assertEquals(2, snapshot.getCount(StreamKind.AUDIO));
+		assertEquals(0, snapshot.getCount(StreamKind.VIDEO));
+		assertTrue(snapshot.hasStreamKind(StreamKind.AUDIO));
+		assertFalse(snapshot.hasStreamKind(StreamKind.VIDEO));
+		assertEquals("Matroska", snapshot.get(StreamKind.GENERAL, 0, "Format"));
+		assertEquals("AC-3", snapshot.get(StreamKind.AUDIO, 1, "Format"));
+		assertEquals("6", snapshot.get(StreamKind.AUDIO, 1, "Channel(s)"));
+		assertEquals("", snapshot.get(StreamKind.AUDIO, 2, "Format"));
+		assertNull(snapshot.get(StreamKind.AUDIO, 0, "BitRate"));
+		assertNull(snapshot.get(StreamKind.VIDEO, 0, "Format"));
+
+		assertNull(MediaInfoSnapshot.parse(template, "0\u001FMatroska\u001E"));
+		assertNull(MediaInfoSnapshot.parse(template, "1\u001FAVC\u001F1\u001E"));
+		assertNull(MediaInfoSnapshot.parse(template, null));
+	}
+
+}
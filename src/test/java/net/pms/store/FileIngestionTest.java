@@ -0,0 +1,77 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.pms.TestHelper;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class FileIngestionTest {
+
+	@TempDir
+	File tempDir;
+
+	@BeforeAll
+	public static void setUpClass() {
+		TestHelper.setLoggingOff();
+	}
+
+	/**
+	 * Repeated events for a file give one parse, once the file is stable.
+	 */
+	@Test
+	public void testCoalesced() throws IOException, InterruptedException {
+		File file = new File(tempDir, "movie.mkv");
+		Files.write(file.toPath(), new byte[10]);
+		AtomicInteger parsed = new AtomicInteger();
+		CountDownLatch done = new CountDownLatch(1);
+		for (int i = 0; i < 10; i++) {
+			FileIngestion.add(file, false, f -> {
+				parsed.incrementAndGet();
+				done.countDown();
+				return false;
+			});
+		}
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		Thread.sleep(1000);
+		assertEquals(1, parsed.get());
+		assertEquals(0, FileIngestion.getPendingCount());
+	}
+
+	/**
+	 * A file removed while waiting is not parsed.
+	 */
+	@Test
+	public void testRemoved() throws IOException, InterruptedException {
+		File file = new File(tempDir, "song.mp3");
+		Files.write(file.toPath(), new byte[10]);
+		AtomicInteger parsed = new AtomicInteger();
+		FileIngestion.add(file, false, f -> parsed.incrementAndGet() > 0);
+		assertTrue(file.delete());
+		Thread.sleep(1500);
+		assertEquals(0, parsed.get());
+		assertEquals(0, FileIngestion.getPendingCount());
+	}
+}
@@ -0,0 +1,79 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class FolderFingerprintTest {
+
+	@TempDir
+	File tempDir;
+
+	private static File createFile(File directory, String name, int size) throws IOException {
+		File file = new File(directory, name);
+		Files.write(file.toPath(), new byte[size]);
+		return file;
+	}
+
+	@Test
+	public void testUnchanged() throws IOException {
+		createFile(tempDir, "movie.mkv", 10);
+		File subdirectory = new File(tempDir, "extras");
+		assertTrue(subdirectory.mkdir());
+
+		FolderFingerprint fingerprint = FolderFingerprint.of(tempDir);
+		assertNotNull(fingerprint);
+		assertEquals(2, fingerprint.getEntries());
+		assertEquals(List.of(subdirectory), fingerprint.getSubdirectories());
+		assertTrue(fingerprint.matches(FolderFingerprint.of(tempDir)));
+
+		// as read back from the database
+		FolderFingerprint stored = new FolderFingerprint(fingerprint.getModified(), fingerprint.getEntries(), fingerprint.getHash());
+		assertTrue(stored.matches(FolderFingerprint.of(tempDir)));
+
+		// what happens in a subfolder has its own fingerprint
+		createFile(subdirectory, "trailer.mkv", 10);
+		assertTrue(tempDir.setLastModified(fingerprint.getModified()));
+		assertTrue(stored.matches(FolderFingerprint.of(tempDir)));
+	}
+
+	@Test
+	public void testChanged() throws IOException {
+		File movie = createFile(tempDir, "movie.mkv", 10);
+		FolderFingerprint fingerprint = FolderFingerprint.of(tempDir);
+		assertNotNull(fingerprint);
+
+		// rewritten in place, the folder modification time does not change
+		createFile(tempDir, "movie.mkv", 20);
+		assertTrue(tempDir.setLastModified(fingerprint.getModified()));
+		assertFalse(fingerprint.matches(FolderFingerprint.of(tempDir)));
+
+		fingerprint = FolderFingerprint.of(tempDir);
+		assertTrue(movie.delete());
+		createFile(tempDir, "movie2.mkv", 20);
+		assertTrue(tempDir.setLastModified(fingerprint.getModified()));
+		assertFalse(fingerprint.matches(FolderFingerprint.of(tempDir)));
+
+		assertNull(FolderFingerprint.of(new File(tempDir, "missing")));
+	}
+}
@@ -0,0 +1,167 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.store;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+public class ParallelResolverTest {
+
+	private static List<Integer> inputs(int count) {
+		List<Integer> inputs = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			inputs.add(i);
+		}
+		return inputs;
+	}
+
+	/**
+	 * Results keep the order of the inputs, failures give null, and no more
+	 * than the limit run at once.
+	 */
+	@Test
+	public void testOrderAndLimit() throws InterruptedException {
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger maxRunning = new AtomicInteger();
+		List<String> results = ParallelResolver.resolve(inputs(40), i -> {
+			maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+			try {
+				Thread.sleep((40 - i) % 7);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			running.decrementAndGet();
+			if (i == 13) {
+				throw new IllegalStateException("unreadable");
+			}
+			return "file" + i;
+		}, 3);
+		assertEquals(40, results.size());
+		for (int i = 0; i < 40; i++) {
+			assertEquals(i == 13 ? null : "file" + i, results.get(i));
+		}
+		assertTrue(maxRunning.get() <= 3);
+	}
+
+	/**
+	 * Interrupting the discovering thread cancels what is not resolved yet.
+	 */
+	@Test
+	public void testCancel() throws InterruptedException {
+		CountDownLatch started = new CountDownLatch(1);
+		AtomicInteger resolved = new AtomicInteger();
+		AtomicReference<Throwable> thrown = new AtomicReference<>();
+		Thread discovery = new Thread(() -> {
+			try {
+				ParallelResolver.resolve(inputs(20), i -> {
+					started.countDown();
+					try {
+						Thread.sleep(200);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						return null;
+					}
+					resolved.incrementAndGet();
+					return i;
+				}, 2);
+			} catch (InterruptedException e) {
+				thrown.set(e);
+			}
+		});
+		discovery.start();
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		discovery.interrupt();
+		discovery.join(5000);
+		assertFalse(discovery.isAlive());
+		assertInstanceOf(InterruptedException.class, thrown.get());
+		assertTrue(resolved.get() < 20);
+	}
+
+	/**
+	 * Cancelling the request cancels what is not resolved yet, without
+	 * interrupting the discovering thread.
+	 */
+	@Test
+	public void testCancelRequest() throws InterruptedException {
+		CountDownLatch started = new CountDownLatch(1);
+		AtomicInteger resolved = new AtomicInteger();
+		AtomicReference<Throwable> thrown = new AtomicReference<>();
+		AtomicReference<DiscoveryCancellation> request = new AtomicReference<>();
+		AtomicBoolean interrupted = new AtomicBoolean();
+		Thread discovery = new Thread(() -> {
+			DiscoveryCancellation cancellation = DiscoveryCancellation.start("test", 0);
+			request.set(cancellation);
+			try {
+				ParallelResolver.resolve(inputs(20), i -> {
+					started.countDown();
+					try {
+						Thread.sleep(200);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						return null;
+					}
+					resolved.incrementAndGet();
+					return i;
+				}, 2);
+			} catch (InterruptedException | CancellationException e) {
+				thrown.set(e);
+			} finally {
+				cancellation.end();
+				interrupted.set(Thread.currentThread().isInterrupted());
+			}
+		});
+		discovery.start();
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		request.get().cancel();
+		discovery.join(5000);
+		assertFalse(discovery.isAlive());
+		assertInstanceOf(CancellationException.class, thrown.get());
+		assertFalse(interrupted.get());
+		assertTrue(resolved.get() < 20);
+		assertNull(DiscoveryCancellation.current());
+	}
+
+	/**
+	 * The discovery stops at the deadline of the request.
+	 */
+	@Test
+	public void testDeadline() {
+		DiscoveryCancellation cancellation = DiscoveryCancellation.start("test", 300);
+		try {
+			assertThrows(CancellationException.class, () -> ParallelResolver.resolve(inputs(20), i -> {
+				try {
+					Thread.sleep(100);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return i;
+			}, 1));
+		} finally {
+			cancellation.end();
+		}
+		assertFalse(Thread.currentThread().isInterrupted());
+	}
+
+}
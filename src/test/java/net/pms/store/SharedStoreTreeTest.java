@@ -0,0 +1,147 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.file.Files;
+import net.pms.PMS;
+import net.pms.TestHelper;
+import net.pms.configuration.UmsConfiguration;
+import net.pms.formats.Format;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class SharedStoreTreeTest {
+
+	@TempDir
+	File tempDir;
+
+	@BeforeAll
+	public static void setUpClass() throws Exception {
+		TestHelper.setLoggingOff();
+		PMS.get();
+		PMS.setConfiguration(new UmsConfiguration(false));
+	}
+
+	private static File createFile(File directory, String name) throws IOException {
+		File file = new File(directory, name);
+		Files.write(file.toPath(), new byte[] {1});
+		return file;
+	}
+
+	@Test
+	public void testEntries() throws IOException {
+		File movie = createFile(tempDir, "movie.mkv");
+		createFile(tempDir, "movie.jpg");
+		File photo = createFile(tempDir, "photo.jpg");
+		File cover = createFile(tempDir, "folder.jpg");
+		createFile(tempDir, "setup.exe");
+		File subdirectory = new File(tempDir, "sub");
+		assertTrue(subdirectory.mkdir());
+
+		SharedStoreTree.Folder folder = SharedStoreTree.getFolder(tempDir);
+		assertNotNull(folder);
+		assertEquals(3, folder.getEntries().size());
+		assertTrue(folder.getEntries().contains(movie));
+		assertTrue(folder.getEntries().contains(photo));
+		assertTrue(folder.getEntries().contains(subdirectory));
+		assertTrue(folder.isDirectory(subdirectory));
+		assertFalse(folder.isDirectory(movie));
+		assertEquals(cover, folder.getCover());
+		assertEquals(cover, folder.getFolderThumbnail());
+	}
+
+	@Test
+	public void testFormats() throws IOException {
+		File song = createFile(tempDir, "song.mp3");
+		File photo = createFile(tempDir, "photo.jpg");
+		File unknown = createFile(tempDir, "notes.qqq");
+		assertNull(SharedStoreTree.getFormat(song));
+
+		SharedStoreTree.Folder folder = SharedStoreTree.getFolder(tempDir);
+		assertNotNull(folder);
+		Format format = SharedStoreTree.getFormat(song);
+		assertNotNull(format);
+		assertTrue(format.isAudio());
+		assertSame(format, folder.getFormat(song));
+		assertSame(format, SharedStoreTree.getFormat(song));
+		assertNotNull(SharedStoreTree.getFormat(photo));
+		assertNull(SharedStoreTree.getFormat(unknown));
+		assertNull(SharedStoreTree.getFormat(new File(tempDir, "missing.mp3")));
+	}
+
+	@Test
+	public void testSharedAndRefreshed() throws IOException {
+		createFile(tempDir, "song.mp3");
+		SharedStoreTree.Folder folder = SharedStoreTree.getFolder(tempDir);
+		assertSame(folder, SharedStoreTree.getFolder(tempDir));
+
+		createFile(tempDir, "other.mp3");
+		assertTrue(tempDir.setLastModified(folder.getLastModified() + 10000));
+		SharedStoreTree.Folder modified = SharedStoreTree.getFolder(tempDir);
+		assertNotSame(folder, modified);
+		assertEquals(2, modified.getEntries().size());
+
+		SharedStoreTree.invalidate(new File(tempDir, "other.mp3"));
+		assertNotSame(modified, SharedStoreTree.getFolder(tempDir));
+	}
+
+	@Test
+	public void testFolderRelevant() throws IOException {
+		UmsConfiguration configuration = PMS.getConfiguration();
+		configuration.setHideEmptyFolders(true);
+		File empty = new File(tempDir, "empty");
+		File nested = new File(tempDir, "nested/deeper");
+		assertTrue(empty.mkdir());
+		assertTrue(nested.mkdirs());
+		createFile(nested, "song.mp3");
+
+		assertFalse(SharedStoreTree.isFolderRelevant(empty, configuration));
+		assertTrue(SharedStoreTree.isFolderRelevant(nested.getParentFile(), configuration));
+
+		configuration.setHideEmptyFolders(false);
+		assertFalse(SharedStoreTree.isFolderRelevant(nested.getParentFile(), configuration));
+	}
+
+	/**
+	 * The entries of the snapshots no longer used are removed once they are
+	 * garbage collected, without looking their folder up again.
+	 */
+	@Test
+	public void testPurged() throws Exception {
+		SharedStoreTree.clear();
+		File directory = new File(tempDir, "purged");
+		assertTrue(directory.mkdir());
+		WeakReference<SharedStoreTree.Folder> reference = new WeakReference<>(SharedStoreTree.getFolder(directory));
+		assertEquals(1, SharedStoreTree.size());
+
+		for (int i = 0; i < 50 && reference.get() != null; i++) {
+			System.gc();
+			Thread.sleep(20);
+		}
+		assumeTrue(reference.get() == null);
+		for (int i = 0; i < 50 && SharedStoreTree.size() > 0; i++) {
+			Thread.sleep(20);
+		}
+		assertEquals(0, SharedStoreTree.size());
+	}
+}
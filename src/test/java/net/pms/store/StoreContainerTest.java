@@ -0,0 +1,143 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.store;
+
+import java.util.List;
+import net.pms.PMS;
+import net.pms.TestHelper;
+import net.pms.configuration.RendererConfigurations;
+import net.pms.configuration.UmsConfiguration;
+import net.pms.formats.Format;
+import net.pms.renderers.Renderer;
+import net.pms.store.item.WebStream;
+import org.apache.commons.configuration2.ex.ConfigurationException;
+import org.jupnp.support.model.SortCriterion;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class StoreContainerTest {
+
+	@BeforeAll
+	public static void setUpClass() throws ConfigurationException, InterruptedException {
+		TestHelper.setLoggingOff();
+		PMS.get();
+		PMS.setConfiguration(new UmsConfiguration(false));
+		RendererConfigurations.loadRendererConfigurations();
+	}
+
+	private static WebStream audio(Renderer renderer, String name) {
+		WebStream audio = new WebStream(renderer, name, "http://example.com/" + name + ".mp3", "", Format.AUDIO, null);
+		audio.isValid();
+		return audio;
+	}
+
+	private static StoreContainer folder(String... names) {
+		Renderer renderer = RendererConfigurations.getDefaultRenderer();
+		StoreContainer folder = new StoreContainer(renderer, "folder", null);
+		for (String name : names) {
+			folder.addChildInternal(audio(renderer, name), false);
+		}
+		return folder;
+	}
+
+	private static String names(List<StoreResource> resources) {
+		StringBuilder result = new StringBuilder();
+		for (StoreResource resource : resources) {
+			result.append(resource.getName());
+		}
+		return result.toString();
+	}
+
+	/**
+	 * The sorted children are built once, and the criteria of the caller are
+	 * left untouched.
+	 */
+	@Test
+	public void testSortedChildrenReused() {
+		StoreContainer folder = folder("b", "c", "a");
+		SortCriterion[] sortCriteria = SortCriterion.valueOf("+dc:title,+upnp:genre");
+		List<StoreResource> sorted = folder.getSortedChildren(sortCriteria);
+		assertEquals("abc", names(sorted));
+		assertEquals("dc:title", sortCriteria[0].getPropertyName());
+		assertSame(sorted, folder.getSortedChildren(sortCriteria));
+		assertSame(sorted, folder.getSortedChildren(SortCriterion.valueOf("+dc:title,+upnp:genre")));
+		assertEquals("bca", names(folder.getSortedChildren(new SortCriterion[0])));
+		assertThrows(UnsupportedOperationException.class, () -> sorted.remove(0));
+	}
+
+	/**
+	 * Changing the children or the configuration builds the sorted children
+	 * again, updates elsewhere in the store don't.
+	 */
+	@Test
+	public void testSortedChildrenInvalidated() {
+		StoreContainer folder = folder("b", "c", "a");
+		SortCriterion[] sortCriteria = SortCriterion.valueOf("+dc:title");
+		List<StoreResource> sorted = folder.getSortedChildren(sortCriteria);
+
+		folder.addChildInternal(audio(folder.getDefaultRenderer(), "0"), false);
+		List<StoreResource> added = folder.getSortedChildren(sortCriteria);
+		assertEquals("0abc", names(added));
+
+		folder.getChildren().set(0, audio(folder.getDefaultRenderer(), "d"));
+		List<StoreResource> replaced = folder.getSortedChildren(sortCriteria);
+		assertEquals("0acd", names(replaced));
+		assertEquals("abc", names(sorted));
+
+		MediaStoreIds.incrementSystemUpdateId();
+		assertSame(replaced, folder.getSortedChildren(sortCriteria));
+
+		StoreContainer.invalidateSortedChildren();
+		assertNotSame(replaced, folder.getSortedChildren(sortCriteria));
+	}
+
+	/**
+	 * Updating a child, e.g. once its metadata changed, builds the sorted
+	 * children again.
+	 */
+	@Test
+	public void testSortedChildrenChildUpdated() {
+		StoreContainer folder = folder("b", "c", "a");
+		folder.setId("1000");
+		SortCriterion[] sortCriteria = SortCriterion.valueOf("+dc:title");
+		List<StoreResource> sorted = folder.getSortedChildren(sortCriteria);
+		folder.setChildrenOrdered();
+
+		MediaStoreIds.incrementChildrenUpdateCount(1001);
+		assertSame(sorted, folder.getSortedChildren(sortCriteria));
+		assertFalse(folder.isChildrenOrderOutdated());
+
+		MediaStoreIds.incrementChildrenUpdateCount(1000);
+		assertNotSame(sorted, folder.getSortedChildren(sortCriteria));
+		assertTrue(folder.isChildrenOrderOutdated());
+	}
+
+	/**
+	 * The children are only sorted again once they changed.
+	 */
+	@Test
+	public void testChildrenOrder() {
+		StoreContainer folder = folder("b", "a");
+		assertTrue(folder.isChildrenOrderOutdated());
+		folder.setChildrenOrdered();
+		assertFalse(folder.isChildrenOrderOutdated());
+		folder.addChildInternal(audio(folder.getDefaultRenderer(), "c"), false);
+		assertTrue(folder.isChildrenOrderOutdated());
+	}
+
+}
@@ -0,0 +1,258 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.util;
+
+import com.github.junrar.Archive;
+import com.github.junrar.rarfile.FileHeader;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import net.pms.TestHelper;
+import net.pms.io.FileChannelInputStream;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ArchiveEntryIndexTest {
+
+	@TempDir
+	File tempDir;
+
+	@BeforeAll
+	public static void setUpClass() {
+		TestHelper.setLoggingOff();
+	}
+
+	private static byte[] data(int length) {
+		byte[] data = new byte[length];
+		for (int i = 0; i < length; i++) {
+			data[i] = (byte) (i * 31);
+		}
+		return data;
+	}
+
+	private File createZip(byte[] stored, byte[] deflated) throws IOException {
+		File file = new File(tempDir, "test.zip");
+		try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file))) {
+			out.putNextEntry(new ZipEntry("folder/"));
+			out.closeEntry();
+			ZipEntry entry = new ZipEntry("folder/stored.bin");
+			entry.setMethod(ZipEntry.STORED);
+			entry.setSize(stored.length);
+			CRC32 crc = new CRC32();
+			crc.update(stored);
+			entry.setCrc(crc.getValue());
+			out.putNextEntry(entry);
+			out.write(stored);
+			out.closeEntry();
+			out.putNextEntry(new ZipEntry("folder/deflated.bin"));
+			out.write(deflated);
+			out.closeEntry();
+		}
+		return file;
+	}
+
+	/**
+	 * Writes a RAR 4 archive with a folder and files stored without
+	 * compression.
+	 */
+	private File createRar(byte[] first, byte[] second) throws IOException {
+		File file = new File(tempDir, "test.rar");
+		try (OutputStream out = new FileOutputStream(file)) {
+			out.write(new byte[] {0x52, 0x61, 0x72, 0x21, 0x1A, 0x07, 0x00});
+			out.write(rarBlock(0x73, 0, new byte[6]));
+			out.write(rarFileHeader("folder", new byte[0], true));
+			out.write(rarFileHeader("first.bin", first, false));
+			out.write(first);
+			out.write(rarFileHeader("second.bin", second, false));
+			out.write(second);
+			out.write(rarBlock(0x7B, 0x4000, new byte[0]));
+		}
+		return file;
+	}
+
+	private static byte[] rarFileHeader(String name, byte[] data, boolean directory) {
+		byte[] nameBytes = name.getBytes(StandardCharsets.US_ASCII);
+		CRC32 crc = new CRC32();
+		crc.update(data);
+		ByteBuffer fields = ByteBuffer.allocate(25 + nameBytes.length).order(ByteOrder.LITTLE_ENDIAN);
+		fields.putInt(data.length);
+		fields.putInt(data.length);
+		// Windows
+		fields.put((byte) 2);
+		fields.putInt((int) crc.getValue());
+		fields.putInt(((2020 - 1980) << 25) | (1 << 21) | (1 << 16));
+		fields.put((byte) 20);
+		// Stored
+		fields.put((byte) 0x30);
+		fields.putShort((short) nameBytes.length);
+		fields.putInt(directory ? 0x10 : 0x20);
+		fields.put(nameBytes);
+		return rarBlock(0x74, 0x8000 | (directory ? 0xE0 : 0), fields.array());
+	}
+
+	private static byte[] rarBlock(int type, int flags, byte[] fields) {
+		ByteBuffer block = ByteBuffer.allocate(7 + fields.length).order(ByteOrder.LITTLE_ENDIAN);
+		block.position(2);
+		block.put((byte) type);
+		block.putShort((short) flags);
+		block.putShort((short) block.capacity());
+		block.put(fields);
+		CRC32 crc = new CRC32();
+		crc.update(block.array(), 2, block.capacity() - 2);
+		block.putShort(0, (short) crc.getValue());
+		return block.array();
+	}
+
+	/**
+	 * The data of the entries of a RAR archive stored without compression is
+	 * found in the archive file, behind headers of different sizes.
+	 */
+	@Test
+	public void testRar() throws Exception {
+		byte[] first = data(1000);
+		byte[] second = data(6000);
+		File file = createRar(first, second);
+		try (Archive archive = new Archive(file)) {
+			FileHeader header = archive.getFileHeaders().get(2);
+			ByteArrayOutputStream extracted = new ByteArrayOutputStream();
+			archive.extractFile(header, extracted);
+			assertArrayEquals(second, extracted.toByteArray());
+		}
+
+		ArchiveEntryIndex index = ArchiveEntryIndex.get(file, ArchiveEntryIndex.Type.RAR);
+		assertEquals(3, index.getEntries().size());
+		assertTrue(index.getEntry("folder").directory());
+		assertFalse(index.getEntry("folder").isStored());
+		assertTrue(index.getEntry("first.bin").isStored());
+		assertTrue(index.getEntry("second.bin").isStored());
+		assertEquals(6000, index.getEntry("second.bin").size());
+
+		try (FileChannelInputStream in = ArchiveFileInputStream.getStoredEntryInputStream(file, ArchiveEntryIndex.Type.RAR, "first.bin")) {
+			assertArrayEquals(first, in.readAllBytes());
+		}
+		try (FileChannelInputStream in = ArchiveFileInputStream.getStoredEntryInputStream(file, ArchiveEntryIndex.Type.RAR, "second.bin")) {
+			assertArrayEquals(second, in.readAllBytes());
+			in.setRange(5000, 5999);
+			byte[] range = in.readAllBytes();
+			assertEquals(1000, range.length);
+			assertEquals(second[5000], range[0]);
+			assertEquals(second[5999], range[999]);
+		}
+		try (InputStream in = ArchiveFileInputStream.getRarEntryInputStream(file, "second.bin")) {
+			assertArrayEquals(second, in.readAllBytes());
+		}
+	}
+
+	/**
+	 * The entries of a zip file are indexed once, and the stored ones are
+	 * read from any position straight from the file.
+	 */
+	@Test
+	public void testZip() throws IOException {
+		byte[] stored = data(5000);
+		byte[] deflated = data(7000);
+		File file = createZip(stored, deflated);
+
+		ArchiveEntryIndex index = ArchiveEntryIndex.get(file, ArchiveEntryIndex.Type.ZIP);
+		assertSame(index, ArchiveEntryIndex.get(file, ArchiveEntryIndex.Type.ZIP));
+		assertEquals(3, index.getEntries().size());
+		assertTrue(index.getEntry("folder/").directory());
+		assertTrue(index.getEntry("folder/stored.bin").isStored());
+		assertEquals(5000, index.getEntry("folder/stored.bin").size());
+		assertFalse(index.getEntry("folder/deflated.bin").isStored());
+		assertNull(index.getEntry("missing"));
+
+		try (FileChannelInputStream in = ArchiveFileInputStream.getStoredEntryInputStream(file, ArchiveEntryIndex.Type.ZIP, "folder/stored.bin")) {
+			assertArrayEquals(stored, in.readAllBytes());
+			in.setRange(4000, 4099);
+			byte[] range = in.readAllBytes();
+			assertEquals(100, range.length);
+			assertEquals(stored[4000], range[0]);
+			assertEquals(stored[4099], range[99]);
+		}
+		assertNull(ArchiveFileInputStream.getStoredEntryInputStream(file, ArchiveEntryIndex.Type.ZIP, "folder/deflated.bin"));
+		for (int i = 0; i < 2; i++) {
+			try (InputStream in = ArchiveFileInputStream.getZipEntryInputStream(file, "folder/deflated.bin")) {
+				assertArrayEquals(deflated, in.readAllBytes());
+			}
+		}
+	}
+
+	/**
+	 * Pushing an entry writes all of it and closes the output.
+	 */
+	@Test
+	public void testPush() throws Exception {
+		byte[] stored = data(3000);
+		File file = createZip(stored, data(10));
+		CountDownLatch closed = new CountDownLatch(1);
+		ByteArrayOutputStream out = new ByteArrayOutputStream() {
+			@Override
+			public void close() {
+				closed.countDown();
+			}
+		};
+		ArchiveFileInputStream.pushEntry(file, ArchiveEntryIndex.Type.ZIP, "folder/stored.bin", out);
+		assertTrue(closed.await(10, TimeUnit.SECONDS));
+		assertArrayEquals(stored, out.toByteArray());
+	}
+
+	/**
+	 * A handle is reused once given back, and the least recently used
+	 * handles are closed.
+	 */
+	@Test
+	public void testHandleCache() throws IOException {
+		List<String> events = new ArrayList<>();
+		ArchiveHandleCache<Closeable> cache = new ArchiveHandleCache<>(1, file -> {
+			events.add("open " + file.getName());
+			return () -> events.add("close " + file.getName());
+		});
+		File first = createZip(data(1), data(1));
+		File second = new File(tempDir, "second.zip");
+		assertTrue(first.renameTo(second));
+		first = createZip(data(1), data(1));
+
+		Closeable handle = cache.take(first);
+		cache.release(first, handle);
+		assertSame(handle, cache.take(first));
+		Closeable other = cache.take(first);
+		cache.release(first, handle);
+		cache.release(first, other);
+		assertEquals(List.of("open test.zip", "open test.zip", "close test.zip"), events);
+		cache.release(second, cache.take(second));
+		assertEquals(1, cache.size());
+		assertEquals("close test.zip", events.get(events.size() - 1));
+	}
+
+}